@@ -0,0 +1,115 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.util.BenchmarkImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 生成图片base64解码并上传的基准
+ *
+ * <p>上传用读完输入流代替,只比较解码路径本身:
+ * <ul>
+ *   <li>{@code base64String}:已取出的base64字符串整段解码为字节数组后上传(OpenAI格式b64_json)</li>
+ *   <li>{@code jsonTree}:整段响应解析为JSON树,取出inlineData.data再整段解码(Gemini原生格式的旧路径)</li>
+ *   <li>{@code spool}:{@link ImageSpool}流式解析响应、边解码边落盘,再从文件流式上传(Gemini原生格式的当前路径)</li>
+ * </ul>
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class Base64ImageUploadBenchmark {
+
+    /**
+     * 生成图片尺寸
+     */
+    @Param({"1024x1024", "2048x2048"})
+    private String imageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private String base64;
+    private byte[] geminiResponse;
+    private Path spoolDir;
+    private ImageSpool imageSpool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        base64 = Base64.getEncoder().encodeToString(BenchmarkImages.png(imageSize, 1));
+        geminiResponse = ("{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"inlineData\":"
+                + "{\"mimeType\":\"image/png\",\"data\":\"" + base64 + "\"}}]},\"finishReason\":\"STOP\"}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":12,\"candidatesTokenCount\":1290}}")
+                .getBytes(StandardCharsets.UTF_8);
+        spoolDir = Files.createTempDirectory("jmh-image-spool");
+        imageSpool = new ImageSpool(spoolDir, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(spoolDir);
+    }
+
+    @Benchmark
+    public long base64String() throws IOException {
+        byte[] imageBytes = Base64.getDecoder().decode(base64);
+        return upload(new ByteArrayInputStream(imageBytes));
+    }
+
+    @Benchmark
+    public long jsonTree() throws IOException {
+        JsonNode root = objectMapper.readTree(geminiResponse);
+        String data = root.path("candidates").path(0).path("content").path("parts").path(0)
+                .path("inlineData").path("data").asText();
+        byte[] imageBytes = Base64.getDecoder().decode(data);
+        return upload(new ByteArrayInputStream(imageBytes));
+    }
+
+    @Benchmark
+    public long spool() throws IOException {
+        String spooled = imageSpool.spoolInlineImage(new ByteArrayInputStream(geminiResponse));
+        try (InputStream inputStream = imageSpool.open(spooled)) {
+            return upload(inputStream);
+        }
+    }
+
+    /**
+     * 模拟对象存储上传:读完输入流
+     */
+    private static long upload(InputStream inputStream) throws IOException {
+        return inputStream.transferTo(OutputStream.nullOutputStream());
+    }
+}
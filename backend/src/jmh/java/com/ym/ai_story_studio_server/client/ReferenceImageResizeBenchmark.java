@@ -0,0 +1,58 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.ym.ai_story_studio_server.util.BenchmarkImages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 图生视频参考图缩放基准
+ *
+ * <p>对应{@link VectorEngineClient#resizeReferenceImage}:PNG解码、双三次缩放到视频尺寸、PNG编码
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReferenceImageResizeBenchmark {
+
+    /**
+     * 参考图原始尺寸
+     */
+    @Param({"1024x1024", "2048x2048"})
+    private String sourceSize;
+
+    /**
+     * 视频输出尺寸
+     */
+    @Param({"1280x720", "720x1280"})
+    private String targetSize;
+
+    private byte[] source;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        source = BenchmarkImages.png(sourceSize, 1);
+    }
+
+    @Benchmark
+    public byte[] resizeReferenceImage() {
+        return VectorEngineClient.resizeReferenceImage(source, targetSize);
+    }
+}
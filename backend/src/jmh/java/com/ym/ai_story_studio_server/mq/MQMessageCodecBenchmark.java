@@ -0,0 +1,129 @@
+package com.ym.ai_story_studio_server.mq;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.dto.ai.ShotVideoGenerateRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MQ消息编解码基准
+ *
+ * <p>{@code cbor*}为{@link MQMessageCodec}的线上格式(CBOR+类型/版本头);
+ * {@code javaSerialization*}为升级前的Java序列化格式(即{@code mq.codec.legacy-write=true}时的发送格式);
+ * {@code jackson*}为同一消息的JSON编解码,作为对照。
+ * 编码后的消息大小见{@link #encodedSizes}在setup时打印的日志
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MQMessageCodecBenchmark {
+
+    /**
+     * 消息类型
+     */
+    @Param({"BATCH_ITEM", "SHOT_IMAGE", "SHOT_VIDEO", "TEXT_PARSING"})
+    private String messageType;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleMessageConverter converter;
+    private MQMessageCodec codec;
+    private Serializable message;
+    private Message javaMessage;
+    private Message cborMessage;
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        converter = MQMessageCodec.legacyConverter();
+        codec = new MQMessageCodec(false);
+        message = switch (messageType) {
+            case "BATCH_ITEM" -> new BatchTaskMessage(10001L, 10086L, 20001L, List.of(30001L),
+                    "MISSING", 1, "16:9", "gemini-3-pro-image-preview", 40001L, 7);
+            case "SHOT_IMAGE" -> new SingleShotImageMessage(10001L, 10086L, 20001L, 30001L, "16:9",
+                    "gemini-3-pro-image-preview", "林辰推门而入，咖啡厅内光线昏暗，电影感构图",
+                    List.of("https://oss.example.com/assets/character/1.png",
+                            "https://oss.example.com/assets/scene/2.png"));
+            case "SHOT_VIDEO" -> new SingleShotVideoMessage(10001L, 10086L, 20001L, 30001L,
+                    "林辰推门而入，镜头缓慢推近", "16:9", 8, "1280x720",
+                    "https://oss.example.com/assets/shot/1.png",
+                    resource(1L, "咖啡厅", "scene"),
+                    List.of(resource(2L, "林辰", "character"), resource(3L, "林清雪", "character")),
+                    List.of(resource(4L, "咖啡杯", "prop")));
+            case "TEXT_PARSING" -> new TextParsingMessage(10001L, 10086L, 20001L,
+                    "第1集 咖啡厅\n林辰坐在窗边，看着窗外的雨。\n".repeat(40));
+            default -> throw new IllegalArgumentException(messageType);
+        };
+        javaMessage = converter.toMessage(message, new MessageProperties());
+        cborMessage = codec.toMessage(message, new MessageProperties());
+        json = objectMapper.writeValueAsBytes(message);
+        encodedSizes();
+    }
+
+    @Benchmark
+    public Message cborEncode() {
+        return codec.toMessage(message, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object cborDecode() {
+        return codec.fromMessage(cborMessage);
+    }
+
+    @Benchmark
+    public Message javaSerializationEncode() {
+        return converter.toMessage(message, new MessageProperties());
+    }
+
+    @Benchmark
+    public Object javaSerializationDecode() {
+        return converter.fromMessage(javaMessage);
+    }
+
+    @Benchmark
+    public byte[] jacksonEncode() throws IOException {
+        return objectMapper.writeValueAsBytes(message);
+    }
+
+    @Benchmark
+    public Object jacksonDecode() throws IOException {
+        return objectMapper.readValue(json, message.getClass());
+    }
+
+    /**
+     * 打印各格式的编码大小,消息体大小不随迭代变化,不作为基准结果输出
+     */
+    private void encodedSizes() {
+        System.out.printf("%s 编码大小 - CBOR: %d bytes, Java序列化: %d bytes, JSON: %d bytes%n",
+                messageType, cborMessage.getBody().length, javaMessage.getBody().length, json.length);
+    }
+
+    private static ShotVideoGenerateRequest.AssetResource resource(Long id, String name, String type) {
+        return new ShotVideoGenerateRequest.AssetResource(id, name,
+                "https://oss.example.com/assets/" + type + "/" + id + ".png");
+    }
+}
@@ -0,0 +1,196 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.ym.ai_story_studio_server.dto.shot.ShotVO;
+import com.ym.ai_story_studio_server.entity.*;
+import com.ym.ai_story_studio_server.mapper.*;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 分镜列表VO组装基准
+ *
+ * <p>ShotServiceImpl的分镜列表由{@link ShotVOAssembler}批量组装。这里用内存中的Mapper桩代替数据库,
+ * 只测量查询条件构造、分组、资产状态计算和VO组装本身的CPU与分配开销
+ *
+ * <p>每个分镜绑定2个角色、1个场景、1个道具,每个分镜有分镜图和视频资产,每个资产3个版本
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShotVOAssemblyBenchmark {
+
+    private static final int CHARACTER_COUNT = 20;
+    private static final int SCENE_COUNT = 10;
+    private static final int PROP_COUNT = 10;
+    private static final int VERSIONS_PER_ASSET = 3;
+
+    /**
+     * 项目分镜数
+     */
+    @Param({"50", "150"})
+    private int shotCount;
+
+    private ShotVOAssembler assembler;
+    private List<StoryboardShot> shots;
+    private List<ShotBinding> bindings;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // LambdaQueryWrapper需要实体的字段缓存，脱离Spring容器时手动初始化
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, Asset.class);
+        TableInfoHelper.initTableInfo(assistant, AssetVersion.class);
+
+        LocalDateTime now = LocalDateTime.now();
+        shots = new ArrayList<>();
+        bindings = new ArrayList<>();
+        List<Asset> assets = new ArrayList<>();
+        long bindingId = 1;
+        for (long shotId = 1; shotId <= shotCount; shotId++) {
+            StoryboardShot shot = new StoryboardShot();
+            shot.setId(shotId);
+            shot.setProjectId(1L);
+            shot.setShotNo((int) shotId);
+            shot.setScriptText("场1-" + shotId + " 日 内 咖啡厅\n出场人物: 林辰、林清雪\n林辰推门而入，环顾四周。");
+            shot.setCreatedAt(now);
+            shot.setUpdatedAt(now);
+            shots.add(shot);
+
+            bindings.add(binding(bindingId++, shotId, "PCHAR", 100 + shotId % CHARACTER_COUNT));
+            bindings.add(binding(bindingId++, shotId, "PCHAR", 100 + (shotId + 1) % CHARACTER_COUNT));
+            bindings.add(binding(bindingId++, shotId, "PSCENE", 200 + shotId % SCENE_COUNT));
+            bindings.add(binding(bindingId++, shotId, "PPROP", 300 + shotId % PROP_COUNT));
+
+            assets.add(asset(assets.size() + 1L, "SHOT", shotId, "SHOT_IMG", now));
+            assets.add(asset(assets.size() + 1L, "SHOT", shotId, "VIDEO", now));
+        }
+
+        List<ProjectCharacter> characters = new ArrayList<>();
+        List<CharacterLibrary> characterLibraries = new ArrayList<>();
+        for (long i = 0; i < CHARACTER_COUNT; i++) {
+            ProjectCharacter character = new ProjectCharacter();
+            character.setId(100 + i);
+            character.setDisplayName("角色" + i);
+            // 一半关联角色库,缩略图取库缩略图;另一半取角色图片资产
+            if (i % 2 == 0) {
+                character.setLibraryCharacterId(1000 + i);
+                CharacterLibrary library = new CharacterLibrary();
+                library.setId(1000 + i);
+                library.setThumbnailUrl("https://oss.example.com/library/character/" + i + ".png");
+                characterLibraries.add(library);
+            } else {
+                assets.add(asset(assets.size() + 1L, "PCHAR", 100 + i, "IMAGE", now));
+            }
+            characters.add(character);
+        }
+        List<ProjectScene> scenes = new ArrayList<>();
+        for (long i = 0; i < SCENE_COUNT; i++) {
+            ProjectScene scene = new ProjectScene();
+            scene.setId(200 + i);
+            scene.setDisplayName("场景" + i);
+            assets.add(asset(assets.size() + 1L, "PSCENE", 200 + i, "IMAGE", now));
+            scenes.add(scene);
+        }
+        List<ProjectProp> props = new ArrayList<>();
+        for (long i = 0; i < PROP_COUNT; i++) {
+            ProjectProp prop = new ProjectProp();
+            prop.setId(300 + i);
+            prop.setDisplayName("道具" + i);
+            assets.add(asset(assets.size() + 1L, "PPROP", 300 + i, "IMAGE", now));
+            props.add(prop);
+        }
+
+        List<AssetVersion> versions = new ArrayList<>();
+        for (Asset asset : assets) {
+            for (int v = 1; v <= VERSIONS_PER_ASSET; v++) {
+                AssetVersion version = new AssetVersion();
+                version.setId(versions.size() + 1L);
+                version.setAssetId(asset.getId());
+                version.setVersionNo(v);
+                version.setUrl("https://oss.example.com/assets/" + asset.getId() + "/v" + v + ".png");
+                version.setStatus("READY");
+                versions.add(version);
+            }
+        }
+
+        assembler = new ShotVOAssembler(
+                stubMapper(ProjectCharacterMapper.class, characters, ProjectCharacter::getId),
+                stubMapper(ProjectSceneMapper.class, scenes, ProjectScene::getId),
+                stubMapper(ProjectPropMapper.class, props, ProjectProp::getId),
+                stubMapper(CharacterLibraryMapper.class, characterLibraries, CharacterLibrary::getId),
+                stubMapper(SceneLibraryMapper.class, List.<SceneLibrary>of(), SceneLibrary::getId),
+                stubMapper(PropLibraryMapper.class, List.<PropLibrary>of(), PropLibrary::getId),
+                stubMapper(AssetMapper.class, assets, Asset::getId),
+                stubMapper(AssetVersionMapper.class, versions, AssetVersion::getId));
+    }
+
+    @Benchmark
+    public List<ShotVO> assemble() {
+        return assembler.assemble(shots, bindings);
+    }
+
+    /**
+     * 内存Mapper桩:按ID批量查询时过滤,条件查询时返回全部行(条件本身仍会构造)
+     */
+    @SuppressWarnings("unchecked")
+    private static <M, T> M stubMapper(Class<M> mapperType, List<T> rows, Function<T, Long> idGetter) {
+        return (M) Proxy.newProxyInstance(mapperType.getClassLoader(), new Class<?>[]{mapperType},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "selectBatchIds", "selectByIds" -> {
+                        Collection<?> ids = (Collection<?>) args[0];
+                        yield rows.stream().filter(row -> ids.contains(idGetter.apply(row))).toList();
+                    }
+                    case "selectList" -> rows;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> mapperType.getSimpleName() + "Stub";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static ShotBinding binding(Long id, Long shotId, String bindType, Long bindId) {
+        ShotBinding binding = new ShotBinding();
+        binding.setId(id);
+        binding.setShotId(shotId);
+        binding.setBindType(bindType);
+        binding.setBindId(bindId);
+        return binding;
+    }
+
+    private static Asset asset(Long id, String ownerType, Long ownerId, String assetType, LocalDateTime createdAt) {
+        Asset asset = new Asset();
+        asset.setId(id);
+        asset.setOwnerType(ownerType);
+        asset.setOwnerId(ownerId);
+        asset.setAssetType(assetType);
+        asset.setCreatedAt(createdAt);
+        return asset;
+    }
+}
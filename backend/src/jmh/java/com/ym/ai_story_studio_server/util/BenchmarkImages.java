@@ -0,0 +1,54 @@
+package com.ym.ai_story_studio_server.util;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+
+/**
+ * 基准测试用图片
+ *
+ * <p>渐变叠加随机噪点,PNG压缩率接近模型生成的图片,避免纯色图片让编解码耗时失真
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+public final class BenchmarkImages {
+
+    private BenchmarkImages() {
+    }
+
+    /**
+     * 生成PNG图片
+     *
+     * @param size 尺寸,格式为"宽x高",如"1024x1024"
+     * @param seed 随机种子,相同参数生成相同图片
+     * @return PNG字节
+     */
+    public static byte[] png(String size, long seed) {
+        String[] parts = size.split("x");
+        int width = Integer.parseInt(parts[0]);
+        int height = Integer.parseInt(parts[1]);
+
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(32)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(32)) & 0xFF;
+                int b = ((x + y) * 127 / (width + height) + random.nextInt(32)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.ym.ai_story_studio_server.util;
+
+import com.sun.net.httpserver.HttpServer;
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import com.ym.ai_story_studio_server.config.HttpClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角色/场景参考图横向拼接基准
+ *
+ * <p>图片由本机HTTP服务提供,经{@link HttpTransport}下载,
+ * 耗时包含下载、PNG解码、缩放、绘制和PNG编码,不含公网延迟
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageMergeBenchmark {
+
+    /**
+     * 拼接的图片张数
+     */
+    @Param({"2", "4"})
+    private int imageCount;
+
+    /**
+     * 单张原图尺寸
+     */
+    @Param({"1024x1024", "1792x1024"})
+    private String sourceSize;
+
+    private HttpServer server;
+    private ImageMergeUtil imageMergeUtil;
+    private List<String> imageUrls;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        imageUrls = new ArrayList<>();
+        for (int i = 0; i < imageCount; i++) {
+            byte[] png = BenchmarkImages.png(sourceSize, i);
+            String path = "/images/" + i + ".png";
+            server.createContext(path, exchange -> {
+                exchange.getResponseHeaders().set("Content-Type", "image/png");
+                exchange.sendResponseHeaders(200, png.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(png);
+                }
+            });
+            imageUrls.add("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        }
+        server.start();
+
+        HttpTransport httpTransport = new HttpTransport(new HttpClientProperties(), new SimpleMeterRegistry());
+        imageMergeUtil = new ImageMergeUtil(httpTransport);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Benchmark
+    public byte[] mergeImagesHorizontally() throws IOException {
+        return imageMergeUtil.mergeImagesHorizontally(imageUrls);
+    }
+}
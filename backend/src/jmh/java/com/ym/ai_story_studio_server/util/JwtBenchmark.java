@@ -0,0 +1,64 @@
+package com.ym.ai_story_studio_server.util;
+
+import com.ym.ai_story_studio_server.config.JwtProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT校验基准
+ *
+ * <p>每个已登录请求在{@code JwtInterceptor}中先后调用{@link JwtUtil#validateToken}和
+ * {@link JwtUtil#getUserIdFromToken},两者各做一次完整的解析和HMAC验签
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("benchmark-secret-key-benchmark-secret-key-0123456789");
+        properties.setExpiration(7 * 24 * 60 * 60 * 1000L);
+        jwtUtil = new JwtUtil(properties);
+        token = jwtUtil.generateToken(10086L);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Long getUserIdFromToken() {
+        return jwtUtil.getUserIdFromToken(token);
+    }
+
+    /**
+     * 拦截器中一次请求的实际开销
+     */
+    @Benchmark
+    public Long validateThenGetUserId() {
+        return jwtUtil.validateToken(token) ? jwtUtil.getUserIdFromToken(token) : null;
+    }
+}
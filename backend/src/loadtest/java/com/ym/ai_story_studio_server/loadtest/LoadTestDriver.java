@@ -0,0 +1,409 @@
+package com.ym.ai_story_studio_server.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 端到端压测驱动
+ *
+ * <p>对运行中的后端(AI服务指向{@link StubAiProvider},存储为本地目录)施加批量生成负载:
+ * <ol>
+ *   <li>为每个虚拟用户发送验证码,从Redis读取{@code SMS:CODE:{phone}}后登录</li>
+ *   <li>每个用户创建一个项目和若干分镜</li>
+ *   <li>每个并发工作线程循环提交批量任务,轮询{@code GET /api/jobs/{id}}直到终态,记录任务耗时</li>
+ *   <li>后台定时采样{@code /actuator/metrics}中的线程数和堆内存</li>
+ * </ol>
+ * 结束后输出吞吐(任务/分钟)、任务耗时分位数、线程数和堆内存峰值,并写入JSON报告
+ *
+ * <p><strong>配置(系统属性):</strong>
+ * <ul>
+ *   <li>{@code load.base-url} - 后端地址,默认http://localhost:8080</li>
+ *   <li>{@code load.redis.host} / {@code load.redis.port} / {@code load.redis.password} - 读取验证码用的Redis</li>
+ *   <li>{@code load.users} - 虚拟用户数,默认5</li>
+ *   <li>{@code load.concurrency} - 并发工作线程数,按轮询分配到用户,默认10</li>
+ *   <li>{@code load.shots-per-project} - 每个项目的分镜数,即每个批量任务的子任务数,默认5</li>
+ *   <li>{@code load.scenario} - shots(批量分镜图)、videos(批量视频)、parse(剧本解析)、mixed(随机混合),默认shots</li>
+ *   <li>{@code load.duration-seconds} - 施压时长,默认120</li>
+ *   <li>{@code load.poll-interval-ms} - 任务状态轮询间隔,默认500</li>
+ *   <li>{@code load.model} - 批量生成使用的模型,不设置则使用服务端默认</li>
+ *   <li>{@code load.report} - JSON报告路径,默认target/loadtest-report.json</li>
+ * </ul>
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+public class LoadTestDriver {
+
+    private static final Set<String> TERMINAL_STATUSES = Set.of("SUCCEEDED", "FAILED", "CANCELED");
+
+    private static final String RAW_SCRIPT = """
+            场1-1 日 内 咖啡厅
+            出场人物: 林辰、林清雪
+            林辰推门而入，环顾四周，目光落在窗边的林清雪身上。
+            场1-2 夜 外 街道
+            出场人物: 林辰
+            林辰独自走在雨中，路灯把影子拉得很长。
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Settings settings;
+
+    private final Map<String, ScenarioStats> scenarioStats = new ConcurrentHashMap<>();
+    private final LongAdder submitErrors = new LongAdder();
+    private final AtomicLong peakThreads = new AtomicLong();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+    private final List<long[]> samples = Collections.synchronizedList(new ArrayList<>());
+
+    public LoadTestDriver(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestDriver(Settings.fromSystemProperties()).run();
+    }
+
+    /**
+     * 执行压测并输出报告
+     */
+    public void run() throws Exception {
+        System.out.printf("压测开始 - 配置: %s%n", settings);
+        List<VirtualUser> users = prepareUsers();
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(this::sampleServerMetrics, 0, 1, TimeUnit.SECONDS);
+
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+        ExecutorService workers = Executors.newFixedThreadPool(settings.concurrency);
+        CountDownLatch done = new CountDownLatch(settings.concurrency);
+        for (int i = 0; i < settings.concurrency; i++) {
+            VirtualUser user = users.get(i % users.size());
+            workers.submit(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        runJob(user, pickScenario());
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        workers.shutdownNow();
+        sampler.shutdownNow();
+
+        Map<String, Object> report = report(elapsedNanos);
+        System.out.println(objectMapper.writeValueAsString(report));
+        Path reportPath = Paths.get(settings.report);
+        if (reportPath.getParent() != null) {
+            Files.createDirectories(reportPath.getParent());
+        }
+        objectMapper.writeValue(reportPath.toFile(), report);
+        System.out.printf("压测报告已写入: %s%n", reportPath.toAbsolutePath());
+    }
+
+    /**
+     * 登录虚拟用户并准备项目和分镜
+     */
+    private List<VirtualUser> prepareUsers() throws Exception {
+        RedisURI.Builder redisUri = RedisURI.builder()
+                .withHost(settings.redisHost)
+                .withPort(settings.redisPort);
+        if (!settings.redisPassword.isEmpty()) {
+            redisUri.withPassword(settings.redisPassword.toCharArray());
+        }
+        RedisClient redisClient = RedisClient.create(redisUri.build());
+        List<VirtualUser> users = new ArrayList<>();
+        try (StatefulRedisConnection<String, String> redis = redisClient.connect()) {
+            // 每次运行使用新手机号,避开验证码60秒防刷锁
+            long phoneBase = 19000000000L + (System.currentTimeMillis() / 1000 % 100000) * 1000;
+            for (int i = 0; i < settings.users; i++) {
+                String phone = String.valueOf(phoneBase + i);
+                post("/api/auth/phone/send-code", null, Map.of("phone", phone));
+                String code = redis.sync().get("SMS:CODE:" + phone);
+                if (code == null) {
+                    throw new IllegalStateException("Redis中没有验证码,请确认sms.provider=mock且Redis配置一致: " + phone);
+                }
+                Map<String, Object> login = new LinkedHashMap<>();
+                login.put("phone", phone);
+                login.put("code", code);
+                login.put("inviteCode", null);
+                String token = post("/api/auth/phone/login", null, login).path("token").asText();
+
+                Map<String, Object> project = new LinkedHashMap<>();
+                project.put("name", "压测项目-" + phone);
+                project.put("aspectRatio", "16:9");
+                long projectId = post("/api/projects", token, project).path("id").asLong();
+
+                List<Long> shotIds = new ArrayList<>();
+                for (int s = 0; s < settings.shotsPerProject; s++) {
+                    shotIds.add(post("/api/projects/" + projectId + "/shots", token,
+                            Map.of("scriptText", "场" + (s + 1) + " 日 内 咖啡厅\n林辰推门而入，环顾四周。"))
+                            .path("id").asLong());
+                }
+                users.add(new VirtualUser(token, projectId, List.copyOf(shotIds)));
+                System.out.printf("虚拟用户就绪 - phone: %s, projectId: %d, 分镜数: %d%n",
+                        phone, projectId, shotIds.size());
+            }
+        } finally {
+            redisClient.shutdown();
+        }
+        return users;
+    }
+
+    /**
+     * 提交一个任务并轮询到终态
+     */
+    private void runJob(VirtualUser user, String scenario) {
+        ScenarioStats stats = scenarioStats.computeIfAbsent(scenario, key -> new ScenarioStats());
+        long start = System.nanoTime();
+        try {
+            JsonNode submitted = switch (scenario) {
+                case "shots" -> post("/api/projects/" + user.projectId + "/generate/shots", user.token,
+                        batchRequest(user));
+                case "videos" -> post("/api/projects/" + user.projectId + "/generate/videos", user.token,
+                        batchRequest(user));
+                case "parse" -> post("/api/projects/" + user.projectId + "/parse", user.token,
+                        Map.of("rawText", RAW_SCRIPT));
+                default -> throw new IllegalArgumentException("未知场景: " + scenario);
+            };
+            long jobId = submitted.path("jobId").asLong();
+
+            String status = submitted.path("status").asText();
+            while (!TERMINAL_STATUSES.contains(status)) {
+                Thread.sleep(settings.pollIntervalMs);
+                status = get("/api/jobs/" + jobId, user.token).path("status").asText();
+            }
+            stats.record(System.nanoTime() - start, "SUCCEEDED".equals(status));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            submitErrors.increment();
+            System.err.printf("任务提交或查询失败 - 场景: %s, 原因: %s%n", scenario, e.getMessage());
+            sleepQuietly(1000);
+        }
+    }
+
+    private Map<String, Object> batchRequest(VirtualUser user) {
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("targetIds", user.shotIds);
+        request.put("mode", "ALL");
+        request.put("countPerItem", 1);
+        request.put("aspectRatio", "16:9");
+        if (!settings.model.isEmpty()) {
+            request.put("model", settings.model);
+        }
+        return request;
+    }
+
+    private String pickScenario() {
+        if (!"mixed".equals(settings.scenario)) {
+            return settings.scenario;
+        }
+        int roll = ThreadLocalRandom.current().nextInt(10);
+        return roll < 6 ? "shots" : roll < 8 ? "videos" : "parse";
+    }
+
+    /**
+     * 采样服务端线程数和堆内存
+     */
+    private void sampleServerMetrics() {
+        try {
+            long threads = metric("jvm.threads.live", null);
+            long heap = metric("jvm.memory.used", "area:heap");
+            peakThreads.accumulateAndGet(threads, Math::max);
+            peakHeapBytes.accumulateAndGet(heap, Math::max);
+            samples.add(new long[]{System.currentTimeMillis(), threads, heap});
+        } catch (Exception e) {
+            System.err.printf("采样服务端指标失败: %s%n", e.getMessage());
+        }
+    }
+
+    private long metric(String name, String tag) throws IOException, InterruptedException {
+        String path = "/actuator/metrics/" + name + (tag != null ? "?tag=" + tag : "");
+        HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(URI.create(settings.baseUrl + path))
+                .timeout(Duration.ofSeconds(5)).GET().build(), HttpResponse.BodyHandlers.ofString());
+        JsonNode measurements = objectMapper.readTree(response.body()).path("measurements");
+        return measurements.isEmpty() ? 0 : measurements.get(0).path("value").asLong();
+    }
+
+    private Map<String, Object> report(long elapsedNanos) {
+        double minutes = elapsedNanos / 60_000_000_000.0;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("settings", settings.toString());
+        report.put("elapsedSeconds", Math.round(elapsedNanos / 1_000_000_000.0));
+
+        Map<String, Object> scenarios = new LinkedHashMap<>();
+        long totalJobs = 0;
+        for (Map.Entry<String, ScenarioStats> entry : new TreeMap<>(scenarioStats).entrySet()) {
+            ScenarioStats stats = entry.getValue();
+            List<Long> latencies = stats.sortedLatenciesMillis();
+            totalJobs += latencies.size();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("jobs", latencies.size());
+            summary.put("succeeded", stats.succeeded.sum());
+            summary.put("failed", stats.failed.sum());
+            summary.put("jobsPerMinute", round(latencies.size() / minutes));
+            summary.put("latencyP50Ms", percentile(latencies, 0.50));
+            summary.put("latencyP90Ms", percentile(latencies, 0.90));
+            summary.put("latencyP99Ms", percentile(latencies, 0.99));
+            summary.put("latencyMaxMs", latencies.isEmpty() ? 0 : latencies.get(latencies.size() - 1));
+            scenarios.put(entry.getKey(), summary);
+        }
+        report.put("scenarios", scenarios);
+        report.put("jobsPerMinute", round(totalJobs / minutes));
+        report.put("submitErrors", submitErrors.sum());
+        report.put("peakServerThreads", peakThreads.get());
+        report.put("peakServerHeapMb", peakHeapBytes.get() / 1024 / 1024);
+        synchronized (samples) {
+            report.put("samples", samples.stream()
+                    .map(s -> Map.of("timestamp", s[0], "threads", s[1], "heapMb", s[2] / 1024 / 1024))
+                    .toList());
+        }
+        return report;
+    }
+
+    private JsonNode post(String path, String token, Object body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(settings.baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))), token);
+    }
+
+    private JsonNode get(String path, String token) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(settings.baseUrl + path)).GET(), token);
+    }
+
+    /**
+     * 发送请求并解包统一响应,code不为200时抛出异常
+     */
+    private JsonNode send(HttpRequest.Builder builder, String token) throws IOException, InterruptedException {
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        HttpResponse<String> response = httpClient.send(builder.timeout(Duration.ofSeconds(30)).build(),
+                HttpResponse.BodyHandlers.ofString());
+        JsonNode result = objectMapper.readTree(response.body());
+        if (result.path("code").asInt() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " " + response.body());
+        }
+        return result.path("data");
+    }
+
+    private static long percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record VirtualUser(String token, long projectId, List<Long> shotIds) {
+    }
+
+    private static final class ScenarioStats {
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final List<Long> latenciesMillis = Collections.synchronizedList(new ArrayList<>());
+
+        void record(long elapsedNanos, boolean success) {
+            (success ? succeeded : failed).increment();
+            latenciesMillis.add(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        }
+
+        List<Long> sortedLatenciesMillis() {
+            synchronized (latenciesMillis) {
+                List<Long> sorted = new ArrayList<>(latenciesMillis);
+                Collections.sort(sorted);
+                return sorted;
+            }
+        }
+    }
+
+    /**
+     * 压测配置
+     */
+    public record Settings(
+            String baseUrl,
+            String redisHost,
+            int redisPort,
+            String redisPassword,
+            int users,
+            int concurrency,
+            int shotsPerProject,
+            String scenario,
+            long durationSeconds,
+            long pollIntervalMs,
+            String model,
+            String report
+    ) {
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    System.getProperty("load.base-url", "http://localhost:8080"),
+                    System.getProperty("load.redis.host", "localhost"),
+                    Integer.getInteger("load.redis.port", 6379),
+                    System.getProperty("load.redis.password", ""),
+                    Integer.getInteger("load.users", 5),
+                    Integer.getInteger("load.concurrency", 10),
+                    Integer.getInteger("load.shots-per-project", 5),
+                    System.getProperty("load.scenario", "shots"),
+                    Long.getLong("load.duration-seconds", 120),
+                    Long.getLong("load.poll-interval-ms", 500),
+                    System.getProperty("load.model", ""),
+                    System.getProperty("load.report", "target/loadtest-report.json"));
+        }
+
+        @Override
+        public String toString() {
+            // 不输出Redis密码
+            return "Settings[baseUrl=" + baseUrl + ", users=" + users + ", concurrency=" + concurrency
+                    + ", shotsPerProject=" + shotsPerProject + ", scenario=" + scenario
+                    + ", durationSeconds=" + durationSeconds + ", model=" + model + "]";
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package com.ym.ai_story_studio_server.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * AI服务替身(压测用)
+ *
+ * <p>模拟向量引擎中转站的以下端点,按配置注入延迟、错误和"负载已饱和"响应:
+ * <ul>
+ *   <li>{@code POST /v1/chat/completions} - 文本生成,支持{@code stream=true}的SSE增量输出;
+ *       返回内容为剧本解析格式的JSON,文本生成和剧本解析都能正常处理</li>
+ *   <li>{@code POST /v1/models/{model}:generateContent} - Gemini原生格式图片生成,inlineData为base64 PNG</li>
+ *   <li>{@code POST /v1/videos} - 创建视频任务</li>
+ *   <li>{@code GET /v1/videos/{id}} - 查询视频任务,第N次查询返回completed</li>
+ *   <li>{@code GET /v1/videos/{id}/content} - 下载视频内容</li>
+ * </ul>
+ *
+ * <p><strong>配置(系统属性):</strong>
+ * <ul>
+ *   <li>{@code stub.port} - 监听端口,默认18090</li>
+ *   <li>{@code stub.text.latency-ms} / {@code stub.image.latency-ms} / {@code stub.video.latency-ms} -
+ *       文本、图片、视频创建的平均延迟,默认2000/8000/1000</li>
+ *   <li>{@code stub.jitter} - 延迟抖动比例,实际延迟在平均值的(1±jitter)内均匀分布,默认0.3</li>
+ *   <li>{@code stub.error-rate} - 生成请求返回500错误的概率,默认0</li>
+ *   <li>{@code stub.saturation-rate} - 生成请求返回"负载已饱和"的概率,默认0</li>
+ *   <li>{@code stub.max-concurrency} - 同时处理的生成请求上限,超出时返回"负载已饱和",0表示不限,默认0</li>
+ *   <li>{@code stub.video.polls-until-done} - 视频任务第几次查询时完成,默认3</li>
+ *   <li>{@code stub.video.bytes} - 视频内容大小,默认2MB</li>
+ *   <li>{@code stub.image.size} - 生成图片尺寸,默认1024x1024</li>
+ * </ul>
+ *
+ * <p>每10秒输出各端点的请求数、成功数、注入的错误/饱和数和当前并发
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+public class StubAiProvider {
+
+    private static final String SATURATED_BODY =
+            "{\"error\":{\"message\":\"当前分组上游负载已饱和，请稍后再试\",\"type\":\"new_api_error\"}}";
+    private static final String ERROR_BODY =
+            "{\"error\":{\"message\":\"stub injected upstream error\",\"type\":\"server_error\"}}";
+
+    private static final Pattern GENERATE_CONTENT = Pattern.compile("^/v1/models/([^/:]+):generateContent$");
+    private static final Pattern VIDEO_STATUS = Pattern.compile("^/v1/videos/([^/]+)$");
+    private static final Pattern VIDEO_CONTENT = Pattern.compile("^/v1/videos/([^/]+)/content$");
+
+    private static final String SCRIPT_JSON = """
+            {"script_segments":["场1-1 日 内 咖啡厅\\n出场人物: 林辰、林清雪\\n林辰推门而入，环顾四周。",\
+            "场1-2 日 内 咖啡厅\\n出场人物: 林清雪\\n林清雪抬头，目光与林辰相遇。",\
+            "场1-3 夜 外 街道\\n出场人物: 林辰\\n林辰独自走在雨中。"],\
+            "characters":["林辰","林清雪"],"scenes":["咖啡厅 日 内","街道 夜 外"]}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Settings settings;
+    private final byte[] imageResponsePrefix;
+    private final byte[] imageResponseSuffix;
+    private final byte[] imageBase64;
+    private final byte[] videoContent;
+
+    private final Map<String, AtomicInteger> videoPolls = new ConcurrentHashMap<>();
+    private final Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public StubAiProvider(Settings settings) {
+        this.settings = settings;
+        this.imageBase64 = Base64.getEncoder().encode(png(settings.imageSize));
+        this.imageResponsePrefix = ("{\"candidates\":[{\"content\":{\"role\":\"model\",\"parts\":[{\"inlineData\":"
+                + "{\"mimeType\":\"image/png\",\"data\":\"").getBytes(StandardCharsets.UTF_8);
+        this.imageResponseSuffix = ("\"}}]},\"finishReason\":\"STOP\"}],"
+                + "\"usageMetadata\":{\"promptTokenCount\":32,\"candidatesTokenCount\":1290}}")
+                .getBytes(StandardCharsets.UTF_8);
+        this.videoContent = new byte[settings.videoBytes];
+        new Random(1).nextBytes(videoContent);
+    }
+
+    public static void main(String[] args) throws IOException {
+        StubAiProvider provider = new StubAiProvider(Settings.fromSystemProperties());
+        HttpServer server = provider.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            provider.printStats();
+        }));
+    }
+
+    /**
+     * 启动HTTP服务和统计输出
+     *
+     * @return 已启动的HTTP服务
+     */
+    public HttpServer start() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(settings.port), 1024);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v1/", this::handle);
+        server.start();
+
+        Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stub-ai-stats");
+            thread.setDaemon(true);
+            return thread;
+        }).scheduleAtFixedRate(this::printStats, 10, 10, TimeUnit.SECONDS);
+
+        System.out.printf("AI服务替身已启动 - 端口: %d, 配置: %s%n", settings.port, settings);
+        return server;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        try (exchange) {
+            Matcher matcher;
+            if ("POST".equals(method) && "/v1/chat/completions".equals(path)) {
+                generate(exchange, "chat", settings.textLatencyMs, this::chatCompletion);
+            } else if ("POST".equals(method) && GENERATE_CONTENT.matcher(path).matches()) {
+                generate(exchange, "image", settings.imageLatencyMs, this::generateContent);
+            } else if ("POST".equals(method) && "/v1/videos".equals(path)) {
+                generate(exchange, "video", settings.videoLatencyMs, this::createVideo);
+            } else if ("GET".equals(method) && (matcher = VIDEO_CONTENT.matcher(path)).matches()) {
+                stats("video_content").requests.increment();
+                exchange.getResponseHeaders().set("Content-Type", "video/mp4");
+                exchange.sendResponseHeaders(200, videoContent.length);
+                exchange.getResponseBody().write(videoContent);
+            } else if ("GET".equals(method) && (matcher = VIDEO_STATUS.matcher(path)).matches()) {
+                stats("video_status").requests.increment();
+                videoStatus(exchange, matcher.group(1));
+            } else {
+                sendJson(exchange, 404, "{\"error\":{\"message\":\"not found: " + path + "\"}}");
+            }
+        }
+    }
+
+    /**
+     * 生成类请求:按并发上限和概率注入饱和/错误,否则等待模拟延迟后返回
+     */
+    private void generate(HttpExchange exchange, String endpoint, long latencyMs, Handler handler)
+            throws IOException {
+        EndpointStats endpointStats = stats(endpoint);
+        endpointStats.requests.increment();
+        byte[] body = exchange.getRequestBody().readAllBytes();
+
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (settings.maxConcurrency > 0 && current > settings.maxConcurrency
+                    || random.nextDouble() < settings.saturationRate) {
+                endpointStats.saturated.increment();
+                sleep(Math.min(latencyMs, 200));
+                sendJson(exchange, 500, SATURATED_BODY);
+                return;
+            }
+            if (random.nextDouble() < settings.errorRate) {
+                endpointStats.errors.increment();
+                sleep(latencyMs / 2);
+                sendJson(exchange, 500, ERROR_BODY);
+                return;
+            }
+            handler.handle(exchange, new String(body, StandardCharsets.UTF_8), jittered(latencyMs));
+            endpointStats.ok.increment();
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void chatCompletion(HttpExchange exchange, String body, long latencyMs) throws IOException {
+        String id = "chatcmpl-stub-" + sequence.incrementAndGet();
+        Map<String, Object> usage = Map.of("prompt_tokens", body.length() / 4,
+                "completion_tokens", SCRIPT_JSON.length() / 4,
+                "total_tokens", (body.length() + SCRIPT_JSON.length()) / 4);
+
+        if (!body.replace(" ", "").contains("\"stream\":true")) {
+            sleep(latencyMs);
+            sendJson(exchange, 200, objectMapper.writeValueAsString(Map.of(
+                    "id", id,
+                    "object", "chat.completion",
+                    "model", "stub",
+                    "choices", List.of(Map.of(
+                            "index", 0,
+                            "message", Map.of("role", "assistant", "content", SCRIPT_JSON),
+                            "finish_reason", "stop")),
+                    "usage", usage)));
+            return;
+        }
+
+        // 流式:把内容切成若干增量,总耗时与非流式一致
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        int pieces = Math.max(1, SCRIPT_JSON.length() / 40);
+        for (int i = 0; i < pieces; i++) {
+            sleep(latencyMs / pieces);
+            String delta = SCRIPT_JSON.substring(i * SCRIPT_JSON.length() / pieces,
+                    (i + 1) * SCRIPT_JSON.length() / pieces);
+            Map<String, Object> choice = new LinkedHashMap<>();
+            choice.put("index", 0);
+            choice.put("delta", Map.of("content", delta));
+            choice.put("finish_reason", i == pieces - 1 ? "stop" : null);
+            writeEvent(out, Map.of("id", id, "model", "stub", "choices", List.of(choice)));
+        }
+        writeEvent(out, Map.of("id", id, "choices", List.of(), "usage", usage));
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void generateContent(HttpExchange exchange, String body, long latencyMs) throws IOException {
+        sleep(latencyMs);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200,
+                imageResponsePrefix.length + imageBase64.length + imageResponseSuffix.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(imageResponsePrefix);
+        out.write(imageBase64);
+        out.write(imageResponseSuffix);
+    }
+
+    private void createVideo(HttpExchange exchange, String body, long latencyMs) throws IOException {
+        sleep(latencyMs);
+        String id = "video_stub_" + sequence.incrementAndGet();
+        videoPolls.put(id, new AtomicInteger());
+        sendJson(exchange, 200, objectMapper.writeValueAsString(Map.of(
+                "id", id, "status", "queued", "model", "sora-2",
+                "status_update_time", System.currentTimeMillis() / 1000)));
+    }
+
+    private void videoStatus(HttpExchange exchange, String id) throws IOException {
+        AtomicInteger polls = videoPolls.get(id);
+        if (polls == null) {
+            sendJson(exchange, 404, "{\"error\":{\"message\":\"task not found\"}}");
+            return;
+        }
+        int count = polls.incrementAndGet();
+        String status = count >= settings.videoPollsUntilDone ? "completed" : count == 1 ? "queued" : "in_progress";
+        if ("completed".equals(status)) {
+            videoPolls.remove(id);
+        }
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("id", id);
+        response.put("status", status);
+        response.put("video_url", null);
+        response.put("progress", "completed".equals(status) ? 100 : count * 100 / settings.videoPollsUntilDone);
+        response.put("status_update_time", System.currentTimeMillis() / 1000);
+        sendJson(exchange, 200, objectMapper.writeValueAsString(response));
+    }
+
+    private void writeEvent(OutputStream out, Object chunk) throws IOException {
+        out.write(("data: " + objectMapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private long jittered(long latencyMs) {
+        double factor = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * settings.jitter;
+        return Math.max(0, Math.round(latencyMs * factor));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private EndpointStats stats(String endpoint) {
+        return stats.computeIfAbsent(endpoint, key -> new EndpointStats());
+    }
+
+    private void printStats() {
+        StringBuilder line = new StringBuilder("[stub] 并发: ").append(inFlight.get())
+                .append(" (峰值 ").append(maxInFlight.get()).append(")");
+        stats.entrySet().stream().sorted(Map.Entry.comparingByKey()).forEach(entry -> {
+            EndpointStats s = entry.getValue();
+            line.append(String.format(" | %s 请求=%d 成功=%d 错误=%d 饱和=%d", entry.getKey(),
+                    s.requests.sum(), s.ok.sum(), s.errors.sum(), s.saturated.sum()));
+        });
+        System.out.println(line);
+    }
+
+    private static byte[] png(String size) {
+        String[] parts = size.split("x");
+        int width = Integer.parseInt(parts[0]);
+        int height = Integer.parseInt(parts[1]);
+        Random random = new Random(1);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + random.nextInt(32)) & 0xFF;
+                int g = (y * 255 / height + random.nextInt(32)) & 0xFF;
+                image.setRGB(x, y, (r << 16) | (g << 8) | random.nextInt(64));
+            }
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange, String body, long latencyMs) throws IOException;
+    }
+
+    private static final class EndpointStats {
+        final LongAdder requests = new LongAdder();
+        final LongAdder ok = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder saturated = new LongAdder();
+    }
+
+    /**
+     * 替身配置
+     */
+    public record Settings(
+            int port,
+            long textLatencyMs,
+            long imageLatencyMs,
+            long videoLatencyMs,
+            double jitter,
+            double errorRate,
+            double saturationRate,
+            int maxConcurrency,
+            int videoPollsUntilDone,
+            int videoBytes,
+            String imageSize
+    ) {
+        public static Settings fromSystemProperties() {
+            return new Settings(
+                    Integer.getInteger("stub.port", 18090),
+                    Long.getLong("stub.text.latency-ms", 2000),
+                    Long.getLong("stub.image.latency-ms", 8000),
+                    Long.getLong("stub.video.latency-ms", 1000),
+                    Double.parseDouble(System.getProperty("stub.jitter", "0.3")),
+                    Double.parseDouble(System.getProperty("stub.error-rate", "0")),
+                    Double.parseDouble(System.getProperty("stub.saturation-rate", "0")),
+                    Integer.getInteger("stub.max-concurrency", 0),
+                    Integer.getInteger("stub.video.polls-until-done", 3),
+                    Integer.getInteger("stub.video.bytes", 2 * 1024 * 1024),
+                    System.getProperty("stub.image.size", "1024x1024"));
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.http.HttpTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * AI网关:按模型的自适应并发限制与熔断
+ *
+ * <p>所有对上游AI模型的生成调用都经过这里,每个模型一个{@link ModelGate}:
+ * <ul>
+ *   <li><strong>AIMD:</strong> 收到过载信号(负载已饱和、429/503、GOAWAY、超时)时并发上限乘性缩减,
+ *       成功且耗时健康时加性增长,在上游真实容量附近收敛</li>
+ *   <li><strong>公平排队:</strong> 超出上限的调用按到达顺序排队;过载后整个队列暂停一小段时间,
+ *       由网关统一退避,而不是每个调用方各自sleep后同时重试</li>
+ *   <li><strong>交互优先:</strong> 批量子项线程上的调用({@link #markBulkCaller})排在交互式调用之后,
+ *       单个分镜重新生成等请求不必等批量任务的排队调用先完成</li>
+ *   <li><strong>熔断:</strong> 连续过载达到阈值后熔断,期间新调用和排队中的调用立即失败;
+ *       到期后只放行一个探测请求,成功则恢复</li>
+ *   <li><strong>重试:</strong> 过载类错误在网关内重试,重试请求重新排到队尾</li>
+ * </ul>
+ *
+ * <p><strong>监控指标:</strong> {@code ai.gateway.limit/inflight/queued/circuit{model}}
+ * 以及{@code ai.gateway.calls{model,outcome}}
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class AiGateway {
+
+    private final AiProperties aiProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ModelGate> gates = new ConcurrentHashMap<>();
+
+    /**
+     * 当前线程是否在执行批量子项
+     */
+    private static final ThreadLocal<Boolean> BULK_CALLER = new ThreadLocal<>();
+
+    public AiGateway(AiProperties aiProperties, MeterRegistry meterRegistry) {
+        this.aiProperties = aiProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 将当前线程标记为批量子项调用方,之后的调用排在交互式调用之后
+     *
+     * <p>必须与{@link #clearBulkCaller}成对使用
+     */
+    public static void markBulkCaller() {
+        BULK_CALLER.set(Boolean.TRUE);
+    }
+
+    /**
+     * 清除当前线程的批量子项标记
+     */
+    public static void clearBulkCaller() {
+        BULK_CALLER.remove();
+    }
+
+    /**
+     * 在模型的并发限制内执行上游调用
+     *
+     * @param model 模型名称
+     * @param call 上游调用
+     * @param <T> 返回类型
+     * @return 调用结果
+     * @throws BusinessException 排队超时或熔断中时抛出{@link ResultCode#AI_SERVICE_BUSY},其余为调用本身的异常
+     */
+    public <T> T execute(String model, Supplier<T> call) {
+        ModelGate gate = gateFor(model);
+        int maxRetries = aiProperties.getGateway().getMaxRetries();
+        boolean bulk = Boolean.TRUE.equals(BULK_CALLER.get());
+        for (int attempt = 0; ; attempt++) {
+            gate.acquire(bulk);
+            long start = System.nanoTime();
+            try {
+                T result = call.get();
+                gate.onSuccess(System.nanoTime() - start);
+                count(model, "success");
+                return result;
+            } catch (Error e) {
+                gate.onIgnored();
+                throw e;
+            } catch (RuntimeException e) {
+                if (!isOverload(e)) {
+                    gate.onIgnored();
+                    count(model, "error");
+                    throw e;
+                }
+                gate.onOverload();
+                count(model, "overload");
+                if (!isRetryable(e) || attempt >= maxRetries) {
+                    throw e;
+                }
+                log.warn("AI调用过载,重新排队重试 - model: {}, 第{}/{}次, 当前并发上限: {}, 错误: {}",
+                        model, attempt + 1, maxRetries, gate.limit(), e.getMessage());
+            } finally {
+                gate.release();
+            }
+        }
+    }
+
+    /**
+     * 是否为上游容量不足的信号
+     */
+    static boolean isOverload(Throwable e) {
+        return isRetryable(e) || hasCause(e, HttpTimeoutException.class);
+    }
+
+    /**
+     * 是否可以安全重试:上游明确拒绝或请求未送达
+     *
+     * <p>读取超时不重试,上游可能已经在处理并计费
+     */
+    static boolean isRetryable(Throwable e) {
+        if (e instanceof BusinessException be && be.getResultCode() == ResultCode.AI_SERVICE_BUSY) {
+            return true;
+        }
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof ConnectException) {
+                return true;
+            }
+            // JDK HttpClient的GOAWAY与连接重置只以IOException消息区分
+            if (t instanceof IOException && t.getMessage() != null
+                    && (t.getMessage().contains("GOAWAY") || t.getMessage().contains("Connection reset"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasCause(Throwable e, Class<? extends Throwable> type) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (type.isInstance(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    ModelGate gateFor(String model) {
+        return gates.computeIfAbsent(model, this::newGate);
+    }
+
+    private ModelGate newGate(String model) {
+        ModelGate gate = new ModelGate(model, aiProperties.getGateway(), aiProperties.getBatch().concurrencyFor(model));
+        Gauge.builder("ai.gateway.limit", gate, ModelGate::limit).tag("model", model).register(meterRegistry);
+        Gauge.builder("ai.gateway.inflight", gate, ModelGate::inFlight).tag("model", model).register(meterRegistry);
+        Gauge.builder("ai.gateway.queued", gate, ModelGate::queued).tag("model", model).register(meterRegistry);
+        Gauge.builder("ai.gateway.circuit", gate, g -> g.state().ordinal()).tag("model", model)
+                .description("0=CLOSED, 1=OPEN, 2=HALF_OPEN").register(meterRegistry);
+        return gate;
+    }
+
+    private void count(String model, String outcome) {
+        Counter.builder("ai.gateway.calls").tag("model", model).tag("outcome", outcome)
+                .register(meterRegistry).increment();
+    }
+
+    enum CircuitState { CLOSED, OPEN, HALF_OPEN }
+
+    /**
+     * 单个模型的并发门
+     *
+     * <p>所有状态由一把锁保护;排队调用按FIFO顺序获得名额,交互式调用全部放行后才轮到批量调用
+     */
+    static final class ModelGate {
+
+        /**
+         * 平均耗时的EWMA平滑系数
+         */
+        private static final double LATENCY_ALPHA = 0.2;
+
+        private final String model;
+        private final AiProperties.Gateway config;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final Deque<Object> interactiveWaiters = new ArrayDeque<>();
+        private final Deque<Object> bulkWaiters = new ArrayDeque<>();
+
+        private double limit;
+        private int inFlight;
+        private double avgLatencyNanos;
+        private long pausedUntil;
+        private long lastDecrease;
+        private boolean decreased;
+        private int consecutiveOverloads;
+        private CircuitState state = CircuitState.CLOSED;
+        private long openUntil;
+        private boolean probeInFlight;
+
+        ModelGate(String model, AiProperties.Gateway config, int initialLimit) {
+            this.model = model;
+            this.config = config;
+            this.limit = Math.max(config.getMinLimit(), Math.min(config.getMaxLimit(), initialLimit));
+            this.pausedUntil = System.nanoTime();
+        }
+
+        void acquire() {
+            acquire(false);
+        }
+
+        void acquire(boolean bulk) {
+            Deque<Object> waiters = bulk ? bulkWaiters : interactiveWaiters;
+            Object ticket = new Object();
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeout());
+            lock.lock();
+            boolean acquired = false;
+            try {
+                waiters.addLast(ticket);
+                while (true) {
+                    long now = System.nanoTime();
+                    if (state == CircuitState.OPEN) {
+                        if (now - openUntil < 0) {
+                            throw busy("AI服务繁忙(熔断中)，请稍后再试");
+                        }
+                        state = CircuitState.HALF_OPEN;
+                        log.info("AI网关熔断到期,放行探测请求 - model: {}", model);
+                    }
+                    long wait = pausedUntil - now;
+                    if (nextWaiter() == ticket && wait <= 0 && hasCapacity()) {
+                        waiters.removeFirst();
+                        inFlight++;
+                        if (state == CircuitState.HALF_OPEN) {
+                            probeInFlight = true;
+                        }
+                        acquired = true;
+                        changed.signalAll();
+                        return;
+                    }
+                    long remaining = deadline - now;
+                    if (remaining <= 0) {
+                        throw busy("AI服务繁忙，排队超时，请稍后再试");
+                    }
+                    changed.awaitNanos(wait > 0 ? Math.min(wait, remaining) : remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "等待AI服务被中断", e);
+            } finally {
+                if (!acquired) {
+                    waiters.remove(ticket);
+                    changed.signalAll();
+                }
+                lock.unlock();
+            }
+        }
+
+        private Object nextWaiter() {
+            Object next = interactiveWaiters.peekFirst();
+            return next != null ? next : bulkWaiters.peekFirst();
+        }
+
+        void release() {
+            lock.lock();
+            try {
+                inFlight--;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onSuccess(long latencyNanos) {
+            lock.lock();
+            try {
+                consecutiveOverloads = 0;
+                if (state == CircuitState.HALF_OPEN) {
+                    state = CircuitState.CLOSED;
+                    probeInFlight = false;
+                    log.info("AI网关探测成功,熔断恢复 - model: {}", model);
+                }
+                boolean healthy = avgLatencyNanos == 0 || latencyNanos <= avgLatencyNanos * config.getLatencyTolerance();
+                avgLatencyNanos = avgLatencyNanos == 0
+                        ? latencyNanos
+                        : avgLatencyNanos + LATENCY_ALPHA * (latencyNanos - avgLatencyNanos);
+                // 只在名额基本用满时增长,避免低负载下上限无限膨胀
+                if (healthy && inFlight >= (int) limit) {
+                    limit = Math.min(config.getMaxLimit(), limit + 1.0 / limit);
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onOverload() {
+            lock.lock();
+            try {
+                long now = System.nanoTime();
+                consecutiveOverloads++;
+                // 同一拥塞窗口内的多个过载只缩减一次,避免在途请求同时失败时上限被连续减半
+                if (!decreased || now - lastDecrease >= Math.max((long) avgLatencyNanos,
+                        TimeUnit.MILLISECONDS.toNanos(config.getOverloadPause()))) {
+                    limit = Math.max(config.getMinLimit(), limit * config.getBackoffRatio());
+                    lastDecrease = now;
+                    decreased = true;
+                }
+                pausedUntil = now + TimeUnit.MILLISECONDS.toNanos(config.getOverloadPause());
+
+                if (state == CircuitState.HALF_OPEN || consecutiveOverloads >= config.getFailureThreshold()) {
+                    if (state != CircuitState.OPEN) {
+                        log.warn("AI网关熔断 - model: {}, 连续过载: {}, 熔断时长: {}ms",
+                                model, consecutiveOverloads, config.getOpenDuration());
+                    }
+                    state = CircuitState.OPEN;
+                    openUntil = now + TimeUnit.MILLISECONDS.toNanos(config.getOpenDuration());
+                    probeInFlight = false;
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 与容量无关的失败(参数错误等):不调整上限,探测请求按成功处理
+         */
+        void onIgnored() {
+            lock.lock();
+            try {
+                if (state == CircuitState.HALF_OPEN) {
+                    state = CircuitState.CLOSED;
+                    probeInFlight = false;
+                }
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        double limit() {
+            return limit;
+        }
+
+        int inFlight() {
+            return inFlight;
+        }
+
+        int queued() {
+            return interactiveWaiters.size() + bulkWaiters.size();
+        }
+
+        CircuitState state() {
+            return state;
+        }
+
+        private boolean hasCapacity() {
+            if (state == CircuitState.HALF_OPEN) {
+                return !probeInFlight && inFlight == 0;
+            }
+            return inFlight < (int) limit;
+        }
+
+        private static BusinessException busy(String message) {
+            return new BusinessException(ResultCode.AI_SERVICE_BUSY, message);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.exception.BusinessException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Chat Completions流式响应解析
+ *
+ * <p>逐行读取{@code stream=true}返回的SSE,解析每个{@code data:}块中的{@code choices[0].delta.content}
+ * 并回调,遇到{@code data: [DONE]}或流结束时把增量拼接为与非流式接口相同结构的
+ * {@link VectorEngineClient.TextApiResponse}。{@code usage}只在开启{@code include_usage}时出现在最后一个块中
+ *
+ * <p>连接中途断开时流同样会正常结束,因此只有收到过{@code [DONE]}或非空{@code finish_reason}才视为完整回答,
+ * 否则按生成中断处理,避免把截断的文本当作结果返回
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+final class ChatCompletionStream {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String DATA_PREFIX = "data:";
+    private static final String DONE = "[DONE]";
+
+    private ChatCompletionStream() {
+    }
+
+    /**
+     * 读取流式响应直至结束
+     *
+     * @param body 响应体
+     * @param onDelta 增量文本回调(只回调非空增量)
+     * @return 拼接后的完整响应
+     * @throws IOException 读取响应失败
+     * @throws BusinessException 上游在流中返回错误对象,或流在收到结束标记前中断
+     */
+    static VectorEngineClient.TextApiResponse read(InputStream body, Consumer<String> onDelta) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        StringBuilder content = new StringBuilder();
+        String id = null;
+        String model = null;
+        String finishReason = null;
+        VectorEngineClient.TextApiResponse.Usage usage = null;
+        boolean done = false;
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // 事件间的空行、注释行(心跳)和event/id字段都不携带内容
+            if (!line.startsWith(DATA_PREFIX)) {
+                continue;
+            }
+            String data = line.substring(DATA_PREFIX.length()).trim();
+            if (data.isEmpty()) {
+                continue;
+            }
+            if (DONE.equals(data)) {
+                done = true;
+                break;
+            }
+
+            JsonNode chunk = MAPPER.readTree(data);
+            if (chunk.hasNonNull("error")) {
+                JsonNode error = chunk.get("error");
+                throw new BusinessException(ResultCode.AI_SERVICE_ERROR,
+                        "AI文本生成失败: " + error.path("message").asText(error.toString()));
+            }
+            id = text(chunk, "id", id);
+            model = text(chunk, "model", model);
+
+            JsonNode choice = chunk.path("choices").path(0);
+            JsonNode delta = choice.path("delta").get("content");
+            if (delta != null && delta.isTextual() && !delta.asText().isEmpty()) {
+                content.append(delta.asText());
+                onDelta.accept(delta.asText());
+            }
+            finishReason = text(choice, "finish_reason", finishReason);
+
+            JsonNode usageNode = chunk.get("usage");
+            if (usageNode != null && usageNode.isObject()) {
+                usage = new VectorEngineClient.TextApiResponse.Usage(
+                        integer(usageNode, "prompt_tokens"),
+                        integer(usageNode, "completion_tokens"),
+                        integer(usageNode, "total_tokens"));
+            }
+        }
+
+        if (!done && finishReason == null) {
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "AI文本生成中断");
+        }
+
+        VectorEngineClient.TextApiResponse.Message message =
+                new VectorEngineClient.TextApiResponse.Message("assistant", content.toString());
+        return new VectorEngineClient.TextApiResponse(
+                id,
+                List.of(new VectorEngineClient.TextApiResponse.Choice(message, finishReason)),
+                usage,
+                model);
+    }
+
+    private static String text(JsonNode node, String field, String fallback) {
+        JsonNode value = node.get(field);
+        return value != null && value.isTextual() ? value.asText() : fallback;
+    }
+
+    private static Integer integer(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.canConvertToInt() ? value.asInt() : null;
+    }
+}
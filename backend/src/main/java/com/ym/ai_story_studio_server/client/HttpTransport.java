@@ -0,0 +1,334 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.ym.ai_story_studio_server.config.HttpClientProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 共享出站HTTP传输层
+ *
+ * <p>进程内所有对外HTTP调用都通过这里,复用同一组JDK {@link HttpClient}:
+ * <ul>
+ *   <li>HTTPS连接通过ALPN协商HTTP/2,同一主机的并发请求复用一条连接;
+ *       明文HTTP固定使用HTTP/1.1,避免h2c升级被不支持的上游拒绝</li>
+ *   <li>连接保持长连接并由HttpClient内部连接池复用,不再每次请求都建立TCP+TLS</li>
+ *   <li>连接超时在HttpClient上生效,读取超时(等待响应头)在每个请求上生效</li>
+ *   <li>按目标主机限制并发请求数,超出时排队等待,等待超时则失败。
+ *       由{@link AiGateway}按模型限流的生成调用不占主机名额({@link #gatewayRestClientBuilder}),
+ *       否则耗时数分钟的生成调用会占满名额,挤占同一主机的状态查询和下载</li>
+ * </ul>
+ *
+ * <p><strong>监控指标:</strong>
+ * <ul>
+ *   <li>{@code http.client.outbound{host,status}} - 每个主机的请求耗时</li>
+ *   <li>{@code http.client.host.active{host}} / {@code http.client.host.limit{host}} - 主机并发占用,两者相等即饱和</li>
+ *   <li>{@code http.client.host.waiting{host}} - 等待并发名额的请求数</li>
+ * </ul>
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class HttpTransport {
+
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 按连接超时缓存的HttpClient(HTTP/2优先),实际只有少数几种超时配置
+     */
+    private final Map<Duration, HttpClient> h2Clients = new ConcurrentHashMap<>();
+
+    /**
+     * 按连接超时缓存的HttpClient(固定HTTP/1.1,用于明文HTTP)
+     */
+    private final Map<Duration, HttpClient> h1Clients = new ConcurrentHashMap<>();
+
+    private final Map<String, HostLimiter> limiters = new ConcurrentHashMap<>();
+
+    public HttpTransport(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        log.info("出站HTTP传输层初始化 - 连接超时: {}ms, 读取超时: {}ms, 单主机并发: {}",
+                properties.getConnectTimeout(), properties.getReadTimeout(), properties.getMaxConcurrencyPerHost());
+    }
+
+    /**
+     * 创建使用共享连接的RestClient构建器
+     *
+     * @param connectTimeout 连接超时
+     * @param readTimeout 读取超时(等待响应头)
+     * @return 已配置请求工厂和主机限流/监控拦截器的构建器
+     */
+    public RestClient.Builder restClientBuilder(Duration connectTimeout, Duration readTimeout) {
+        return RestClient.builder()
+                .requestFactory(requestFactory(connectTimeout, readTimeout))
+                .requestInterceptor(meteringInterceptor(true));
+    }
+
+    /**
+     * 创建不受主机并发限制的RestClient构建器,仅用于已经过{@link AiGateway}限流的调用
+     *
+     * <p>网关按模型限制在途请求,同一主机上各模型上限之和可能超过主机名额;
+     * 这些调用再占主机名额会在网关放行后二次排队,并把同主机的状态查询挤到等待超时
+     *
+     * @param connectTimeout 连接超时
+     * @param readTimeout 读取超时(等待响应头)
+     * @return 已配置请求工厂和监控拦截器的构建器
+     */
+    public RestClient.Builder gatewayRestClientBuilder(Duration connectTimeout, Duration readTimeout) {
+        return RestClient.builder()
+                .requestFactory(requestFactory(connectTimeout, readTimeout))
+                .requestInterceptor(meteringInterceptor(false));
+    }
+
+    /**
+     * 使用默认超时创建RestClient构建器
+     */
+    public RestClient.Builder restClientBuilder() {
+        return restClientBuilder(defaultConnectTimeout(), defaultReadTimeout());
+    }
+
+    /**
+     * GET下载URL内容到内存(适合参考图等小文件)
+     *
+     * @param url 文件URL
+     * @return 响应体字节
+     * @throws IOException 连接失败、超时或非2xx响应
+     */
+    public byte[] getBytes(String url) throws IOException {
+        try (Download download = open(url)) {
+            return download.body().readAllBytes();
+        }
+    }
+
+    /**
+     * 使用默认读取超时GET打开URL的响应流
+     *
+     * @see #open(String, Duration)
+     */
+    public Download open(String url) throws IOException {
+        return open(url, defaultReadTimeout());
+    }
+
+    /**
+     * GET打开URL的响应流
+     *
+     * <p>主机并发名额在返回的{@link Download}关闭时释放,调用方必须使用try-with-resources
+     *
+     * @param url 文件URL
+     * @param readTimeout 等待响应头的超时时间
+     * @return 响应流及元数据
+     * @throws IOException 连接失败、超时或非2xx响应
+     */
+    public Download open(String url, Duration readTimeout) throws IOException {
+        URI uri = URI.create(url);
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().timeout(readTimeout).build();
+        HostLimiter limiter = acquire(uri);
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client(uri, defaultConnectTimeout())
+                    .send(request, HttpResponse.BodyHandlers.ofInputStream());
+            int status = response.statusCode();
+            if (status < 200 || status >= 300) {
+                response.body().close();
+                throw new IOException("HTTP " + status + ": " + url);
+            }
+            String contentType = response.headers().firstValue("Content-Type").orElse(null);
+            long contentLength = response.headers().firstValueAsLong("Content-Length").orElse(-1L);
+            return new Download(new ReleasingInputStream(response.body(), limiter, uri.getHost(), status, start),
+                    contentType, contentLength);
+        } catch (IOException | RuntimeException e) {
+            record(uri.getHost(), "IO_ERROR", start);
+            limiter.release();
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            record(uri.getHost(), "IO_ERROR", start);
+            limiter.release();
+            throw new IOException("请求被中断: " + url, e);
+        }
+    }
+
+    /**
+     * 下载响应
+     *
+     * @param body 响应体,关闭时释放主机并发名额
+     * @param contentType Content-Type响应头,可能为null
+     * @param contentLength Content-Length响应头,未知时为-1
+     */
+    public record Download(InputStream body, String contentType, long contentLength) implements AutoCloseable {
+        @Override
+        public void close() throws IOException {
+            body.close();
+        }
+    }
+
+    private ClientHttpRequestFactory requestFactory(Duration connectTimeout, Duration readTimeout) {
+        JdkClientHttpRequestFactory h2 = new JdkClientHttpRequestFactory(h2Client(connectTimeout));
+        h2.setReadTimeout(readTimeout);
+        JdkClientHttpRequestFactory h1 = new JdkClientHttpRequestFactory(h1Client(connectTimeout));
+        h1.setReadTimeout(readTimeout);
+        return (uri, method) -> ("https".equalsIgnoreCase(uri.getScheme()) ? h2 : h1).createRequest(uri, method);
+    }
+
+    private ClientHttpRequestInterceptor meteringInterceptor(boolean hostLimited) {
+        return (request, body, execution) -> {
+            URI uri = request.getURI();
+            HostLimiter limiter = hostLimited ? acquire(uri) : null;
+            long start = System.nanoTime();
+            try {
+                ClientHttpResponse response = execution.execute(request, body);
+                record(uri.getHost(), statusTag(response.getStatusCode().value()), start);
+                return response;
+            } catch (IOException | RuntimeException e) {
+                record(uri.getHost(), "IO_ERROR", start);
+                throw e;
+            } finally {
+                if (limiter != null) {
+                    limiter.release();
+                }
+            }
+        };
+    }
+
+    private HttpClient client(URI uri, Duration connectTimeout) {
+        return "https".equalsIgnoreCase(uri.getScheme()) ? h2Client(connectTimeout) : h1Client(connectTimeout);
+    }
+
+    private HttpClient h2Client(Duration connectTimeout) {
+        return h2Clients.computeIfAbsent(connectTimeout, timeout -> newClient(HttpClient.Version.HTTP_2, timeout));
+    }
+
+    private HttpClient h1Client(Duration connectTimeout) {
+        return h1Clients.computeIfAbsent(connectTimeout, timeout -> newClient(HttpClient.Version.HTTP_1_1, timeout));
+    }
+
+    private static HttpClient newClient(HttpClient.Version version, Duration connectTimeout) {
+        return HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    private HostLimiter acquire(URI uri) throws IOException {
+        String host = uri.getHost() != null ? uri.getHost() : "unknown";
+        HostLimiter limiter = limiters.computeIfAbsent(host, this::newLimiter);
+        limiter.waiting.incrementAndGet();
+        try {
+            if (!limiter.permits.tryAcquire(properties.getAcquireTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new IOException("等待主机并发名额超时: " + host);
+            }
+            return limiter;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待主机并发名额被中断: " + host, e);
+        } finally {
+            limiter.waiting.decrementAndGet();
+        }
+    }
+
+    private HostLimiter newLimiter(String host) {
+        int limit = properties.getMaxConcurrencyPerHost();
+        HostLimiter limiter = new HostLimiter(limit);
+        Gauge.builder("http.client.host.active", limiter, l -> limit - l.permits.availablePermits())
+                .tag("host", host).register(meterRegistry);
+        Gauge.builder("http.client.host.limit", limiter, l -> limit)
+                .tag("host", host).register(meterRegistry);
+        Gauge.builder("http.client.host.waiting", limiter, l -> l.waiting.get())
+                .tag("host", host).register(meterRegistry);
+        return limiter;
+    }
+
+    private void record(String host, String status, long startNanos) {
+        Timer.builder("http.client.outbound")
+                .tag("host", host != null ? host : "unknown")
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private static String statusTag(int status) {
+        return (status / 100) + "xx";
+    }
+
+    private Duration defaultConnectTimeout() {
+        return Duration.ofMillis(properties.getConnectTimeout());
+    }
+
+    private Duration defaultReadTimeout() {
+        return Duration.ofMillis(properties.getReadTimeout());
+    }
+
+    /**
+     * 单个主机的并发名额
+     */
+    private static final class HostLimiter {
+        private final Semaphore permits;
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private HostLimiter(int limit) {
+            this.permits = new Semaphore(limit);
+        }
+
+        private void release() {
+            permits.release();
+        }
+    }
+
+    /**
+     * 关闭时释放主机并发名额并记录耗时的响应流(只释放一次)
+     */
+    private final class ReleasingInputStream extends FilterInputStream {
+        private final HostLimiter limiter;
+        private final String host;
+        private final int status;
+        private final long startNanos;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private ReleasingInputStream(InputStream in, HostLimiter limiter, String host, int status, long startNanos) {
+            super(in);
+            this.limiter = limiter;
+            this.host = host;
+            this.status = status;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    super.close();
+                } finally {
+                    record(host, statusTag(status), startNanos);
+                    limiter.release();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.fasterxml.jackson.core.Base64Variant;
+import com.fasterxml.jackson.core.Base64Variants;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * 生成图片落盘缓冲区
+ *
+ * <p>Gemini原生接口把图片以base64放在JSON的{@code inlineData.data}中,单张图片数MB。
+ * 这里用流式JSON解析定位该字段,边解码边写入临时文件,堆上只占用解析器和写入缓冲区,
+ * 不再生成整段base64字符串和解码后的字节数组。
+ *
+ * <p>落盘后的图片以{@code file:} URI的形式放入{@link VectorEngineClient.ImageApiResponse.ImageData#url()},
+ * 业务层通过{@link #isSpooled}识别并用{@link #open}流式上传到对象存储,流关闭时删除文件。
+ * 未被消费的文件由定时任务按TTL清理
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ImageSpool {
+
+    private static final String FILE_PREFIX = "image-";
+    private static final String FILE_SUFFIX = ".bin";
+    private static final Duration FILE_TTL = Duration.ofMinutes(30);
+    private static final Duration SWEEP_INTERVAL = Duration.ofMinutes(10);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * 标准base64,兼容缺少末尾padding的响应
+     */
+    private static final Base64Variant BASE64 = Base64Variants.MIME_NO_LINEFEEDS
+            .withReadPadding(Base64Variant.PaddingReadBehaviour.PADDING_ALLOWED);
+
+    private final Path dir;
+    private final TaskScheduler maintenanceScheduler;
+
+    @Autowired
+    public ImageSpool(@Qualifier("maintenanceScheduler") TaskScheduler maintenanceScheduler) {
+        this(Paths.get(System.getProperty("java.io.tmpdir"), "ai-story-image-spool"), maintenanceScheduler);
+    }
+
+    ImageSpool(Path dir, TaskScheduler maintenanceScheduler) {
+        this.dir = dir.toAbsolutePath().normalize();
+        this.maintenanceScheduler = maintenanceScheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        maintenanceScheduler.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL);
+        log.info("生成图片落盘目录: {}, TTL: {}分钟", dir, FILE_TTL.toMinutes());
+    }
+
+    /**
+     * 从Gemini原生响应中流式提取第一张内联图片并落盘
+     *
+     * @param json 响应体
+     * @return 落盘文件的{@code file:} URI
+     * @throws IOException 读取响应或写入文件失败
+     * @throws BusinessException 响应中没有内联图片数据
+     */
+    public String spoolInlineImage(InputStream json) throws IOException {
+        Files.createDirectories(dir);
+        Path file = Files.createTempFile(dir, FILE_PREFIX, FILE_SUFFIX);
+        boolean spooled = false;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.FIELD_NAME && "inlineData".equals(parser.currentName())
+                        && parser.nextToken() == JsonToken.START_OBJECT
+                        && writeInlineData(parser, file)) {
+                    spooled = true;
+                    log.debug("Gemini图片已落盘 - file: {}, 大小: {} bytes", file, Files.size(file));
+                    return file.toUri().toString();
+                }
+            }
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "Gemini原生格式响应的inlineData.data为空");
+        } finally {
+            if (!spooled) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * 判断图片数据是否为本缓冲区中的落盘文件
+     *
+     * <p>只接受位于落盘目录下的文件,防止上游返回的任意{@code file:}地址被当作本地文件读取
+     *
+     * @param imageData 图片数据(URL、base64或落盘URI)
+     * @return 是否为落盘文件
+     */
+    public boolean isSpooled(String imageData) {
+        return resolve(imageData) != null;
+    }
+
+    /**
+     * 打开落盘文件,关闭流时删除文件
+     *
+     * @param imageData 落盘URI
+     * @return 文件输入流
+     * @throws IOException 文件不存在或读取失败
+     */
+    public InputStream open(String imageData) throws IOException {
+        Path file = resolve(imageData);
+        if (file == null) {
+            throw new IOException("不是落盘图片: " + imageData);
+        }
+        return new FilterInputStream(Files.newInputStream(file)) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    Files.deleteIfExists(file);
+                }
+            }
+        };
+    }
+
+    /**
+     * 删除超过TTL仍未被消费的落盘文件
+     *
+     * @return 删除的文件数
+     */
+    public int sweep() {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        Instant cutoff = Instant.now().minus(FILE_TTL);
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff) && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.warn("删除过期落盘图片失败: {}", file);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("扫描落盘目录失败 - 目录: {}, 错误: {}", dir, e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("清理过期落盘图片: {}个", deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * 在inlineData对象内查找data字段并解码写入文件
+     *
+     * @return 是否写入了图片数据
+     */
+    private boolean writeInlineData(JsonParser parser, Path file) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("data".equals(field) && value == JsonToken.VALUE_STRING) {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE)) {
+                    return parser.readBinaryValue(BASE64, out) > 0;
+                }
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    private Path resolve(String imageData) {
+        if (imageData == null || !imageData.startsWith("file:")) {
+            return null;
+        }
+        try {
+            Path file = Paths.get(URI.create(imageData)).toAbsolutePath().normalize();
+            String name = file.getFileName().toString();
+            return dir.equals(file.getParent()) && name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX)
+                    ? file
+                    : null;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
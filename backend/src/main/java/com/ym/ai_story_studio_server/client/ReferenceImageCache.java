@@ -0,0 +1,120 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * 参考图缓存
+ *
+ * <p>批量生成分镜图时,同一角色的参考图会被每个分镜、每张图片重复使用。
+ * 按URL缓存下载后的原始字节和预先编码好的base64,Gemini内联图片和视频input_reference共用:
+ * <ul>
+ *   <li>按字节数加权的LRU,总大小不超过{@code ai.reference-cache.max-bytes}</li>
+ *   <li>写入后按TTL过期,外部URL内容变化时最多在TTL内读到旧图</li>
+ *   <li>同一URL的并发请求只下载一次,其余请求等待该次下载结果</li>
+ * </ul>
+ *
+ * <p><strong>监控指标:</strong> {@code cache.gets/cache.evictions{cache=reference_image}}
+ * 反映命中率,{@code cache.weight{cache=reference_image}}为当前占用字节数
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ReferenceImageCache {
+
+    private static final String CACHE_NAME = "reference_image";
+
+    private final HttpTransport httpTransport;
+    private final Cache<String, ReferenceImage> cache;
+
+    public ReferenceImageCache(HttpTransport httpTransport, AiProperties aiProperties, MeterRegistry meterRegistry) {
+        this.httpTransport = httpTransport;
+        AiProperties.ReferenceCache config = aiProperties.getReferenceCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(config.getMaxBytes())
+                .weigher((String url, ReferenceImage image) -> image.weight())
+                .expireAfterWrite(Duration.ofMinutes(config.getTtlMinutes()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        Gauge.builder("cache.weight", cache,
+                        c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L))
+                .tag("cache", CACHE_NAME)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取参考图,未命中时下载并缓存
+     *
+     * @param url 参考图URL
+     * @return 参考图字节、base64及类型
+     * @throws IOException 下载失败或内容为空
+     */
+    public ReferenceImage get(String url) throws IOException {
+        try {
+            return cache.get(url, this::load);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * 参考图
+     *
+     * @param bytes 原始字节
+     * @param base64 base64编码后的内容
+     * @param contentType 响应的Content-Type,可能为null
+     */
+    public record ReferenceImage(byte[] bytes, String base64, String contentType) {
+
+        /**
+         * 图片MIME类型,响应未声明图片类型时返回fallback
+         *
+         * @param fallback 默认类型
+         * @return 不含参数的MIME类型
+         */
+        public String imageMimeType(String fallback) {
+            if (contentType == null) {
+                return fallback;
+            }
+            String mimeType = contentType.split(";", 2)[0].trim().toLowerCase(Locale.ROOT);
+            return mimeType.startsWith("image/") ? mimeType : fallback;
+        }
+
+        private int weight() {
+            return bytes.length + base64.length();
+        }
+    }
+
+    private ReferenceImage load(String url) {
+        long start = System.currentTimeMillis();
+        try (HttpTransport.Download download = httpTransport.open(url)) {
+            byte[] bytes = download.body().readAllBytes();
+            if (bytes.length == 0) {
+                throw new IOException("参考图内容为空: " + url);
+            }
+            ReferenceImage image = new ReferenceImage(bytes, Base64.getEncoder().encodeToString(bytes),
+                    download.contentType());
+            log.debug("参考图已缓存 - url: {}, 大小: {} bytes, 耗时: {}ms",
+                    url, bytes.length, System.currentTimeMillis() - start);
+            return image;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
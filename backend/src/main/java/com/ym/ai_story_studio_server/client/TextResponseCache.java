@@ -0,0 +1,171 @@
+package com.ym.ai_story_studio_server.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+
+/**
+ * 文本生成响应缓存
+ *
+ * <p>剧本解析等低温度调用对相同输入的输出基本稳定,用户在下游步骤失败后重新提交同一剧本、
+ * 或把同一段文案粘贴到多个项目时,直接返回上次的结果,不再调用上游。
+ *
+ * <p><strong>缓存键:</strong> 模型、系统提示词、用户提示词、temperature、topP、maxTokens的SHA-256,
+ * 任一参数变化都会落到新键上,不需要主动失效
+ *
+ * <p><strong>使用限制:</strong>
+ * <ul>
+ *   <li>只有调用方显式使用{@code *Cached}方法并传入调用点名称时才走缓存,且需开启{@code ai.text-cache.enabled}</li>
+ *   <li>温度高于{@code max-temperature}的创作类调用直接绕过</li>
+ *   <li>空结果、因max_tokens截断的结果以及超过{@code max-entry-bytes}的结果不缓存</li>
+ *   <li>Redis不可用时按未命中处理,不影响主流程</li>
+ * </ul>
+ *
+ * <p><strong>监控指标:</strong> {@code ai.text.cache.gets{call_site,result=hit|miss|bypass}}
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TextResponseCache {
+
+    private static final String KEY_PREFIX = "AI:TEXT:CACHE:";
+
+    /**
+     * 键中各字段的分隔符,不会出现在提示词中
+     */
+    private static final char FIELD_SEPARATOR = '\u0000';
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AiProperties aiProperties;
+    private final MeterRegistry meterRegistry;
+
+    public TextResponseCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                             AiProperties aiProperties, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.aiProperties = aiProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * 计算缓存键
+     *
+     * @return 缓存键;未启用缓存或温度过高时返回null,表示本次调用绕过缓存
+     */
+    public String key(String model, String systemPrompt, String prompt,
+                      Integer maxTokens, Double temperature, Double topP) {
+        AiProperties.TextCache config = aiProperties.getTextCache();
+        if (!Boolean.TRUE.equals(config.getEnabled())
+                || temperature == null || temperature > config.getMaxTemperature()) {
+            return null;
+        }
+        String fingerprint = String.join(String.valueOf(FIELD_SEPARATOR),
+                model, systemPrompt, prompt, String.valueOf(maxTokens), String.valueOf(temperature), String.valueOf(topP));
+        return KEY_PREFIX + sha256(fingerprint);
+    }
+
+    /**
+     * 读取缓存
+     *
+     * @param callSite 调用点名称,用于命中率指标
+     * @param key 缓存键,为null时视为绕过
+     * @return 缓存的响应;未命中或绕过时返回null
+     */
+    public VectorEngineClient.TextApiResponse get(String callSite, String key) {
+        if (key == null) {
+            count(callSite, "bypass");
+            return null;
+        }
+        VectorEngineClient.TextApiResponse cached = null;
+        try {
+            String json = redisTemplate.opsForValue().get(key);
+            if (json != null) {
+                cached = objectMapper.readValue(json, VectorEngineClient.TextApiResponse.class);
+            }
+        } catch (Exception e) {
+            log.warn("读取文本响应缓存失败 - callSite: {}, 错误: {}", callSite, e.getMessage());
+        }
+        count(callSite, cached != null ? "hit" : "miss");
+        if (cached != null) {
+            log.info("文本响应缓存命中 - callSite: {}, key: {}", callSite, key);
+        }
+        return cached;
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key 缓存键,为null时不写入
+     * @param response 上游响应
+     */
+    public void put(String key, VectorEngineClient.TextApiResponse response) {
+        if (key == null || !cacheable(response)) {
+            return;
+        }
+        AiProperties.TextCache config = aiProperties.getTextCache();
+        try {
+            String json = objectMapper.writeValueAsString(response);
+            if (json.getBytes(StandardCharsets.UTF_8).length > config.getMaxEntryBytes()) {
+                log.debug("文本响应超过缓存大小上限,不缓存 - key: {}, 长度: {}", key, json.length());
+                return;
+            }
+            redisTemplate.opsForValue().set(key, json, Duration.ofMinutes(config.getTtlMinutes()));
+        } catch (Exception e) {
+            log.warn("写入文本响应缓存失败 - key: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 缓存键,为null时忽略
+     */
+    public void evict(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            redisTemplate.delete(key);
+        } catch (Exception e) {
+            log.warn("删除文本响应缓存失败 - key: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+
+    private static boolean cacheable(VectorEngineClient.TextApiResponse response) {
+        if (response == null || response.choices() == null || response.choices().isEmpty()) {
+            return false;
+        }
+        VectorEngineClient.TextApiResponse.Choice choice = response.choices().get(0);
+        return choice.message() != null
+                && choice.message().content() != null
+                && !choice.message().content().isBlank()
+                && !"length".equals(choice.finishReason());
+    }
+
+    private void count(String callSite, String result) {
+        Counter.builder("ai.text.cache.gets").tag("call_site", callSite).tag("result", result)
+                .register(meterRegistry).increment();
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
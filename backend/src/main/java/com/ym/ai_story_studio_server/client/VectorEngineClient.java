@@ -1,5 +1,6 @@
 package com.ym.ai_story_studio_server.client;
 
+import com.fasterxml.jackson.annotation.JsonAlias;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ym.ai_story_studio_server.common.ResultCode;
 import com.ym.ai_story_studio_server.config.AiProperties;
@@ -18,9 +19,14 @@ import org.springframework.core.io.ByteArrayResource;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
@@ -41,7 +47,7 @@ import javax.imageio.ImageIO;
  *
  * <p><strong>技术特性:</strong>
  * <ul>
- *   <li>使用RestClient(Spring 6.1+)进行HTTP调用</li>
+ *   <li>使用RestClient(Spring 6.1+)进行HTTP调用,底层为共享的{@link HttpTransport}连接池</li>
  *   <li>支持超时控制(连接超时、读取超时)</li>
  *   <li>统一的异常处理和错误映射</li>
  *   <li>Bearer Token认证</li>
@@ -86,26 +92,75 @@ import javax.imageio.ImageIO;
 @Component
 public class VectorEngineClient {
 
+    /**
+     * 即梦反代连接超时
+     */
+    private static final Duration JIMENG_CONNECT_TIMEOUT = Duration.ofSeconds(60);
+
+    /**
+     * 即梦反代读取超时(图片生成耗时较长)
+     */
+    private static final Duration JIMENG_READ_TIMEOUT = Duration.ofSeconds(180);
+
+    /**
+     * 文本生成的系统提示词
+     */
+    private static final String TEXT_SYSTEM_PROMPT = "你是一个专业的AI写作助手。请始终使用中文回复用户的问题。";
+
+    /**
+     * 生成调用客户端,由{@link AiGateway}按模型限流,不占主机并发名额
+     */
     private final RestClient restClient;
+
+    /**
+     * 任务状态查询和视频内容下载客户端,不经过网关,受主机并发限制
+     */
+    private final RestClient taskClient;
     private final AiProperties aiProperties;
+    private final HttpTransport httpTransport;
+    private final ReferenceImageCache referenceImageCache;
+    private final AiGateway aiGateway;
+    private final ImageSpool imageSpool;
+    private final TextResponseCache textResponseCache;
 
     /**
      * 构造函数 - 初始化RestClient
      *
+     * <p>使用共享的出站HTTP连接,并应用{@code ai.vectorengine}中配置的连接/读取超时
+     *
      * @param aiProperties AI服务配置属性
+     * @param httpTransport 共享出站HTTP传输层
+     * @param referenceImageCache 参考图缓存
+     * @param aiGateway AI网关(按模型自适应限流与熔断)
+     * @param imageSpool 生成图片落盘缓冲区
+     * @param textResponseCache 文本生成响应缓存
      */
-    public VectorEngineClient(AiProperties aiProperties) {
+    public VectorEngineClient(AiProperties aiProperties, HttpTransport httpTransport,
+                              ReferenceImageCache referenceImageCache, AiGateway aiGateway,
+                              ImageSpool imageSpool, TextResponseCache textResponseCache) {
         this.aiProperties = aiProperties;
+        this.httpTransport = httpTransport;
+        this.referenceImageCache = referenceImageCache;
+        this.aiGateway = aiGateway;
+        this.imageSpool = imageSpool;
+        this.textResponseCache = textResponseCache;
 
         AiProperties.VectorEngine config = aiProperties.getVectorengine();
 
-        this.restClient = RestClient.builder()
+        Duration connectTimeout = Duration.ofMillis(config.getConnectTimeout());
+        Duration readTimeout = Duration.ofMillis(config.getReadTimeout());
+        this.restClient = httpTransport.gatewayRestClientBuilder(connectTimeout, readTimeout)
                 .baseUrl(config.getBaseUrl())
                 .defaultHeader("Authorization", "Bearer " + config.getApiKey())
                 .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
                 .build();
+        this.taskClient = httpTransport.restClientBuilder(connectTimeout, readTimeout)
+                .baseUrl(config.getBaseUrl())
+                .defaultHeader("Authorization", "Bearer " + config.getApiKey())
+                .build();
 
-        log.info("VectorEngineClient initialized with baseUrl: {}", config.getBaseUrl());
+        log.info("VectorEngineClient initialized with baseUrl: {}, connectTimeout: {}ms, readTimeout: {}ms",
+                config.getBaseUrl(), config.getConnectTimeout(), config.getReadTimeout());
     }
 
     /**
@@ -128,21 +183,55 @@ public class VectorEngineClient {
             Double temperature,
             Double topP
     ) {
-        log.info("Calling text generation API - model: {}, maxTokens: {}", model, maxTokens);
+        return aiGateway.execute(model, () -> requestText(prompt, model, maxTokens, temperature, topP));
+    }
 
-        // 构建消息列表，包含系统提示词和用户提示词
-        List<Map<String, String>> messages = List.of(
-                Map.of("role", "system", "content", "你是一个专业的AI写作助手。请始终使用中文回复用户的问题。"),
-                Map.of("role", "user", "content", prompt)
-        );
+    /**
+     * 生成文本,低温度调用优先使用响应缓存
+     *
+     * <p>适用于剧本解析等对相同输入期望相同输出的调用点;
+     * 未开启{@code ai.text-cache}或温度超过阈值时与{@link #generateText}完全相同
+     *
+     * @param callSite 调用点名称,用于缓存命中率指标
+     * @param prompt 提示词
+     * @param model 模型名称
+     * @param maxTokens 最大token数
+     * @param temperature 温度参数
+     * @param topP 采样参数
+     * @param usable 调用方对生成文本的校验,只有通过校验的响应才写入缓存;
+     *               命中的缓存未通过校验时删除并重新调用上游
+     * @return 文本生成API响应
+     * @throws BusinessException 当API调用失败时抛出
+     */
+    public TextApiResponse generateTextCached(
+            String callSite,
+            String prompt,
+            String model,
+            Integer maxTokens,
+            Double temperature,
+            Double topP,
+            Predicate<String> usable
+    ) {
+        String cacheKey = textResponseCache.key(model, TEXT_SYSTEM_PROMPT, prompt, maxTokens, temperature, topP);
+        TextApiResponse cached = usableCached(callSite, cacheKey, usable);
+        if (cached != null) {
+            return cached;
+        }
+        TextApiResponse response = generateText(prompt, model, maxTokens, temperature, topP);
+        putIfUsable(cacheKey, response, usable);
+        return response;
+    }
 
-        Map<String, Object> requestBody = Map.of(
-                "model", model,
-                "messages", messages,
-                "max_tokens", maxTokens,
-                "temperature", temperature,
-                "top_p", topP
-        );
+    private TextApiResponse requestText(
+            String prompt,
+            String model,
+            Integer maxTokens,
+            Double temperature,
+            Double topP
+    ) {
+        log.info("Calling text generation API - model: {}, maxTokens: {}", model, maxTokens);
+
+        Map<String, Object> requestBody = textRequestBody(prompt, model, maxTokens, temperature, topP);
 
         try {
             TextApiResponse response = restClient.post()
@@ -153,7 +242,7 @@ public class VectorEngineClient {
                         String errorBody = new String(httpResponse.getBody().readAllBytes());
                         log.error("Text generation API error - status: {}, body: {}",
                                 httpResponse.getStatusCode(), errorBody);
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "AI文本生成失败: " + errorBody);
+                        throw upstreamError(httpResponse.getStatusCode(), errorBody, "AI文本生成失败: " + errorBody);
                     })
                     .body(TextApiResponse.class);
 
@@ -169,6 +258,175 @@ public class VectorEngineClient {
         }
     }
 
+    /**
+     * 流式生成文本
+     *
+     * <p>以{@code stream=true}调用Chat Completions,每收到一段增量文本回调一次{@code onDelta},
+     * 流结束后返回拼接好的完整响应,结构与{@link #generateText}一致。
+     * 整个流期间占用AI网关中该模型的一个并发名额
+     *
+     * <p>开始输出增量后的失败不再重试,避免已经转发给调用方的内容重复
+     *
+     * @param prompt 提示词
+     * @param model 模型名称(如: gemini-3-pro-preview)
+     * @param maxTokens 最大token数
+     * @param temperature 温度参数(0-1,值越大越随机)
+     * @param topP 采样参数(0-1,核采样阈值)
+     * @param onDelta 增量文本回调,在调用线程上执行
+     * @return 拼接后的文本生成API响应
+     * @throws BusinessException 当API调用失败或流中断时抛出
+     */
+    public TextApiResponse streamText(
+            String prompt,
+            String model,
+            Integer maxTokens,
+            Double temperature,
+            Double topP,
+            Consumer<String> onDelta
+    ) {
+        return aiGateway.execute(model, () -> requestTextStream(prompt, model, maxTokens, temperature, topP, onDelta));
+    }
+
+    /**
+     * 流式生成文本,低温度调用优先使用响应缓存
+     *
+     * <p>命中缓存时把完整文本作为一段增量回调一次后立即返回
+     *
+     * @param callSite 调用点名称,用于缓存命中率指标
+     * @param prompt 提示词
+     * @param model 模型名称
+     * @param maxTokens 最大token数
+     * @param temperature 温度参数
+     * @param topP 采样参数
+     * @param onDelta 增量文本回调,在调用线程上执行
+     * @param usable 调用方对生成文本的校验,含义同{@link #generateTextCached}
+     * @return 拼接后的文本生成API响应
+     * @throws BusinessException 当API调用失败或流中断时抛出
+     */
+    public TextApiResponse streamTextCached(
+            String callSite,
+            String prompt,
+            String model,
+            Integer maxTokens,
+            Double temperature,
+            Double topP,
+            Consumer<String> onDelta,
+            Predicate<String> usable
+    ) {
+        String cacheKey = textResponseCache.key(model, TEXT_SYSTEM_PROMPT, prompt, maxTokens, temperature, topP);
+        TextApiResponse cached = usableCached(callSite, cacheKey, usable);
+        if (cached != null) {
+            onDelta.accept(cached.choices().get(0).message().content());
+            return cached;
+        }
+        TextApiResponse response = streamText(prompt, model, maxTokens, temperature, topP, onDelta);
+        putIfUsable(cacheKey, response, usable);
+        return response;
+    }
+
+    /**
+     * 读取缓存,未通过调用方校验的条目(如校验规则收紧前写入的)视为未命中并删除
+     */
+    private TextApiResponse usableCached(String callSite, String cacheKey, Predicate<String> usable) {
+        TextApiResponse cached = textResponseCache.get(callSite, cacheKey);
+        if (cached == null) {
+            return null;
+        }
+        if (!usable.test(cached.choices().get(0).message().content())) {
+            log.warn("缓存的文本响应未通过校验,删除后重新生成 - callSite: {}", callSite);
+            textResponseCache.evict(cacheKey);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 生成文本通过调用方校验后才写入缓存,避免格式错误的输出在TTL内被反复返回
+     */
+    private void putIfUsable(String cacheKey, TextApiResponse response, Predicate<String> usable) {
+        if (cacheKey == null || response.choices() == null || response.choices().isEmpty()
+                || response.choices().get(0).message() == null) {
+            return;
+        }
+        String content = response.choices().get(0).message().content();
+        if (content != null && usable.test(content)) {
+            textResponseCache.put(cacheKey, response);
+        }
+    }
+
+    private TextApiResponse requestTextStream(
+            String prompt,
+            String model,
+            Integer maxTokens,
+            Double temperature,
+            Double topP,
+            Consumer<String> onDelta
+    ) {
+        log.info("Calling streaming text generation API - model: {}, maxTokens: {}", model, maxTokens);
+
+        Map<String, Object> requestBody = new HashMap<>(textRequestBody(prompt, model, maxTokens, temperature, topP));
+        requestBody.put("stream", true);
+        requestBody.put("stream_options", Map.of("include_usage", true));
+
+        AtomicBoolean streaming = new AtomicBoolean();
+        try {
+            TextApiResponse response = restClient.post()
+                    .uri("/v1/chat/completions")
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .body(requestBody)
+                    .exchange((request, httpResponse) -> {
+                        if (httpResponse.getStatusCode().isError()) {
+                            String errorBody = new String(httpResponse.getBody().readAllBytes());
+                            log.error("Streaming text generation API error - status: {}, body: {}",
+                                    httpResponse.getStatusCode(), errorBody);
+                            throw upstreamError(httpResponse.getStatusCode(), errorBody, "AI文本生成失败: " + errorBody);
+                        }
+                        return ChatCompletionStream.read(httpResponse.getBody(), delta -> {
+                            streaming.set(true);
+                            onDelta.accept(delta);
+                        });
+                    });
+
+            log.info("Streaming text generation completed - usage: {}, finishReason: {}",
+                    response.usage(), response.choices().get(0).finishReason());
+            return response;
+
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Streaming text generation failed - streaming: {}", streaming.get(), e);
+            if (streaming.get()) {
+                // 不带cause:连接重置等异常会被AI网关识别为可重试的过载信号
+                throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "AI文本生成中断: " + e.getMessage());
+            }
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "AI文本生成调用失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 构建Chat Completions文本生成请求体,包含系统提示词和用户提示词
+     */
+    private Map<String, Object> textRequestBody(
+            String prompt,
+            String model,
+            Integer maxTokens,
+            Double temperature,
+            Double topP
+    ) {
+        List<Map<String, String>> messages = List.of(
+                Map.of("role", "system", "content", TEXT_SYSTEM_PROMPT),
+                Map.of("role", "user", "content", prompt)
+        );
+
+        return Map.of(
+                "model", model,
+                "messages", messages,
+                "max_tokens", maxTokens,
+                "temperature", temperature,
+                "top_p", topP
+        );
+    }
+
     /**
      * 生成图片 (路由方法)
      *
@@ -192,6 +450,19 @@ public class VectorEngineClient {
             String model,
             String aspectRatio,
             List<String> referenceImageUrls
+    ) {
+        // 即梦模型实际转发到Gemini,按实际调用的上游模型限流
+        String upstreamModel = aiProperties.getImage().getJimengModel().equals(model) || model.startsWith("jimeng")
+                ? "gemini-3-pro-image-preview"
+                : model;
+        return aiGateway.execute(upstreamModel, () -> routeImage(prompt, model, aspectRatio, referenceImageUrls));
+    }
+
+    private ImageApiResponse routeImage(
+            String prompt,
+            String model,
+            String aspectRatio,
+            List<String> referenceImageUrls
     ) {
         log.info("Routing image generation - model: {}, aspectRatio: {}", model, aspectRatio);
 
@@ -306,7 +577,7 @@ public class VectorEngineClient {
                         String errorBody = new String(httpResponse.getBody().readAllBytes());
                         log.error("GPT-4o多模态Chat生成错误 - 状态码: {}, 响应体: {}",
                                 httpResponse.getStatusCode(), errorBody);
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "GPT-4o图片生成失败: " + errorBody);
+                        throw upstreamError(httpResponse.getStatusCode(), errorBody, "GPT-4o图片生成失败: " + errorBody);
                     })
                     .body(TextApiResponse.class);
 
@@ -334,7 +605,8 @@ public class VectorEngineClient {
     /**
      * 通过Gemini原生格式生成图片
      *
-     * <p>使用 /v1/models/{model}:generateContent 端点(Gemini原生格式),响应中包含base64编码的图片数据
+     * <p>使用 /v1/models/{model}:generateContent 端点(Gemini原生格式),响应中包含base64编码的图片数据。
+     * 响应体流式解析,图片数据直接解码到{@link ImageSpool}落盘文件
      *
      * <p><strong>重要:</strong> Gemini图片生成模型必须使用原生格式端点,而非Chat兼容格式。
      * Chat格式(/v1/chat/completions)用于对话式AI,会返回文本而非图片数据。
@@ -346,7 +618,7 @@ public class VectorEngineClient {
      * @param model 模型名称(如: gemini-3-pro-image-preview)
      * @param aspectRatio 画幅比例
      * @param referenceImageUrls 参考图URL列表(可选,用于图生图)
-     * @return 图片生成API响应(data[0].url为base64字符串)
+     * @return 图片生成API响应(data[0].url为落盘文件URI,见{@link ImageSpool})
      * @throws BusinessException 当API调用失败时抛出
      */
     private ImageApiResponse generateImageViaGeminiChat(
@@ -374,26 +646,15 @@ public class VectorEngineClient {
                     if (url == null || url.isBlank()) {
                         continue;
                     }
-                    log.debug("开始下载参考图片: {}", url);
-
-                    byte[] imageBytes = RestClient.create()
-                            .get()
-                            .uri(url)
-                            .retrieve()
-                            .body(byte[].class);
-
-                    if (imageBytes == null || imageBytes.length == 0) {
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "参考图片下载失败或为空");
-                    }
-
-                    String base64Image = java.util.Base64.getEncoder().encodeToString(imageBytes);
-                    log.debug("参考图片下载成功 - 大小: {} bytes, base64长度: {}",
-                            imageBytes.length, base64Image.length());
+                    // 同一参考图在批量任务中会被反复使用,从缓存获取已编码的base64
+                    ReferenceImageCache.ReferenceImage image = referenceImageCache.get(url);
+                    log.debug("参考图片就绪 - url: {}, 大小: {} bytes, base64长度: {}",
+                            url, image.bytes().length, image.base64().length());
 
                     parts.add(Map.of(
                             "inlineData", Map.of(
-                                    "mimeType", "image/jpeg",
-                                    "data", base64Image
+                                    "mimeType", image.imageMimeType(MediaType.IMAGE_JPEG_VALUE),
+                                    "data", image.base64()
                             )
                     ));
                 }
@@ -419,33 +680,24 @@ public class VectorEngineClient {
         log.debug("Gemini原生端点: {}, 请求parts数量: {}", endpoint, parts.size());
 
         try {
-            // 调用Gemini原生端点
-            GeminiNativeImageResponse nativeResponse = restClient.post()
+            // 调用Gemini原生端点,流式解析响应:base64图片边解码边落盘,不在堆上保留整段字符串
+            String spooledImage = restClient.post()
                     .uri(endpoint)
                     .body(requestBody)
-                    .retrieve()
-                    .onStatus(HttpStatusCode::isError, (request, httpResponse) -> {
-                        String errorBody = new String(httpResponse.getBody().readAllBytes());
-                        log.error("Gemini原生格式图片生成错误 - 状态码: {}, 响应体: {}",
-                                httpResponse.getStatusCode(), errorBody);
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "Gemini图片生成失败: " + errorBody);
-                    })
-                    .body(GeminiNativeImageResponse.class);
-
-            // 诊断日志: 检查响应结构
-            if (nativeResponse == null) {
-                throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "Gemini原生格式响应为null");
-            }
-            log.debug("Gemini原生格式响应已接收 - candidates数量: {}",
-                    nativeResponse.candidates() != null ? nativeResponse.candidates().size() : 0);
-
-            // 提取base64图片数据
-            String base64ImageData = nativeResponse.extractBase64ImageData();
+                    .exchange((request, httpResponse) -> {
+                        if (httpResponse.getStatusCode().isError()) {
+                            String errorBody = new String(httpResponse.getBody().readAllBytes());
+                            log.error("Gemini原生格式图片生成错误 - 状态码: {}, 响应体: {}",
+                                    httpResponse.getStatusCode(), errorBody);
+                            throw upstreamError(httpResponse.getStatusCode(), errorBody, "Gemini图片生成失败: " + errorBody);
+                        }
+                        return imageSpool.spoolInlineImage(httpResponse.getBody());
+                    });
 
-            log.info("Gemini原生格式图片生成完成 - base64长度: {}", base64ImageData.length());
+            log.info("Gemini原生格式图片生成完成 - 落盘文件: {}", spooledImage);
 
-            // 转换为ImageApiResponse格式(url字段存储base64数据)
-            ImageApiResponse.ImageData imageData = new ImageApiResponse.ImageData(base64ImageData, null);
+            // 转换为ImageApiResponse格式(url字段存储落盘文件URI,由业务层流式上传)
+            ImageApiResponse.ImageData imageData = new ImageApiResponse.ImageData(spooledImage, null);
             return new ImageApiResponse(List.of(imageData), model);
 
         } catch (BusinessException e) {
@@ -504,14 +756,10 @@ public class VectorEngineClient {
         log.debug("选择的端点: {} ({})", endpoint, isImageToImage ? "图生图" : "文生图");
 
         // 构建即梦反代专用RestClient - 使用Authorization Bearer认证 + 超时配置
-        RestClient jimengClient = RestClient.builder()
+        RestClient jimengClient = httpTransport.gatewayRestClientBuilder(JIMENG_CONNECT_TIMEOUT, JIMENG_READ_TIMEOUT)
                 .baseUrl(jimengConfig.getBaseUrl())
                 .defaultHeader("Authorization", "Bearer " + jimengConfig.getSessionid())  // Bearer Token认证
                 .defaultHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
-                .requestFactory(new org.springframework.http.client.SimpleClientHttpRequestFactory() {{
-                    setConnectTimeout(Duration.ofSeconds(60));   // 连接超时60秒
-                    setReadTimeout(Duration.ofSeconds(180));     // 读取超时180秒(图片生成耗时较长)
-                }})
                 .build();
 
         // 构建即梦原生格式请求体
@@ -541,7 +789,7 @@ public class VectorEngineClient {
                         String errorBody = new String(httpResponse.getBody().readAllBytes());
                         log.error("即梦反代图片生成错误 - 状态码: {}, 响应体: {}",
                                 httpResponse.getStatusCode(), errorBody);
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "即梦图片生成失败: " + errorBody);
+                        throw upstreamError(httpResponse.getStatusCode(), errorBody, "即梦图片生成失败: " + errorBody);
                     })
                     .body(byte[].class);
             
@@ -631,7 +879,7 @@ public class VectorEngineClient {
                         String errorBody = new String(httpResponse.getBody().readAllBytes());
                         log.error("OpenAI format image generation error - status: {}, body: {}",
                                 httpResponse.getStatusCode(), errorBody);
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "图片生成失败: " + errorBody);
+                        throw upstreamError(httpResponse.getStatusCode(), errorBody, "图片生成失败: " + errorBody);
                     })
                     .body(ImageApiResponse.class);
 
@@ -660,16 +908,6 @@ public class VectorEngineClient {
      * @return 视频生成API响应(包含任务ID)
      * @throws BusinessException 当API调用失败时抛出
      */
-    /**
-     * 最大重试次数(针对临时性网络错误)
-     */
-    private static final int MAX_VIDEO_API_RETRIES = 3;
-    
-    /**
-     * 重试间隔(毫秒)
-     */
-    private static final long VIDEO_API_RETRY_INTERVAL = 5000;
-
     public VideoApiResponse generateVideo(
             String prompt,
             String model,
@@ -685,22 +923,15 @@ public class VectorEngineClient {
             throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "视频生成需要提供参考图(input_reference)");
         }
 
-        MultiValueMap<String, Object> requestBody = new LinkedMultiValueMap<>();
-        requestBody.add("model", model);
-        requestBody.add("prompt", prompt);
-        requestBody.add("seconds", String.valueOf(normalizeVideoSeconds(duration)));
         String targetSize = size != null && !size.isBlank()
                 ? size
                 : mapAspectRatioToOpenAiVideoSize(aspectRatio);
-        requestBody.add("size", targetSize);
-
-        byte[] imageBytes = RestClient.create()
-                .get()
-                .uri(referenceImageUrl)
-                .retrieve()
-                .body(byte[].class);
-        if (imageBytes == null || imageBytes.length == 0) {
-            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "参考图下载失败或为空");
+
+        byte[] imageBytes;
+        try {
+            imageBytes = referenceImageCache.get(referenceImageUrl).bytes();
+        } catch (IOException e) {
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "参考图下载失败: " + e.getMessage(), e);
         }
 
         String referenceMimeType = resolveReferenceMimeType(referenceImageUrl);
@@ -715,135 +946,90 @@ public class VectorEngineClient {
         log.debug("视频生成请求体 - model: {}, size: {}, seconds: {}",
                 model, targetSize, duration);
 
-        // 带重试的API调用(处理GOAWAY、负载饱和等临时错误)
-        Exception lastException = null;
-        for (int attempt = 1; attempt <= MAX_VIDEO_API_RETRIES; attempt++) {
-            try {
-                // 每次重试需要重新构建请求体(因为Resource可能被消费)
-                MultiValueMap<String, Object> retryRequestBody = new LinkedMultiValueMap<>();
-                retryRequestBody.add("model", model);
-                retryRequestBody.add("prompt", prompt);
-                retryRequestBody.add("seconds", String.valueOf(normalizeVideoSeconds(duration)));
-                retryRequestBody.add("size", targetSize);
-                
-                ByteArrayResource imageResource = new ByteArrayResource(finalImageBytes) {
-                    @Override
-                    public String getFilename() {
-                        return "input_reference.png";
-                    }
-                };
-                HttpHeaders partHeaders = new HttpHeaders();
-                partHeaders.setContentType(MediaType.parseMediaType(finalMimeType));
-                retryRequestBody.add("input_reference", new HttpEntity<>(imageResource, partHeaders));
-
-                // 调用向量引擎视频创建端点
-                String rawResponse = restClient.post()
-                        .uri("/v1/videos")
-                        .contentType(MediaType.MULTIPART_FORM_DATA)
-                        .body(retryRequestBody)
-                        .retrieve()
-                        .onStatus(HttpStatusCode::isError, (request, httpResponse) -> {
-                            String errorBody = new String(httpResponse.getBody().readAllBytes());
-                            log.error("视频生成API错误 - 状态码: {}, 响应体: {}",
-                                    httpResponse.getStatusCode(), errorBody);
-                            
-                            // 解析错误响应,给出更友好的提示
-                            String friendlyMessage = parseVideoErrorMessage(errorBody);
-                            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, friendlyMessage);
-                        })
-                        .body(String.class);
-
-                log.debug("视频生成API原始响应: {}", rawResponse);
-                
-                // 解析响应
-                ObjectMapper objectMapper = new ObjectMapper();
-                VideoApiResponse response = objectMapper.readValue(rawResponse, VideoApiResponse.class);
-                
-                // 检查是否有错误状态
-                if ("error".equals(response.status())) {
-                    String friendlyMessage = parseVideoErrorMessage(rawResponse);
-                    throw new BusinessException(ResultCode.AI_SERVICE_ERROR, friendlyMessage);
+        // 负载饱和、GOAWAY等临时错误由AI网关统一退避并重新排队重试
+        return aiGateway.execute(model,
+                () -> createVideoTask(prompt, model, duration, targetSize, finalImageBytes, finalMimeType));
+    }
+
+    private VideoApiResponse createVideoTask(
+            String prompt,
+            String model,
+            Integer duration,
+            String targetSize,
+            byte[] imageBytes,
+            String mimeType
+    ) {
+        try {
+            // 每次调用重新构建请求体(重试时Resource可能已被消费)
+            MultiValueMap<String, Object> requestBody = new LinkedMultiValueMap<>();
+            requestBody.add("model", model);
+            requestBody.add("prompt", prompt);
+            requestBody.add("seconds", String.valueOf(normalizeVideoSeconds(duration)));
+            requestBody.add("size", targetSize);
+
+            ByteArrayResource imageResource = new ByteArrayResource(imageBytes) {
+                @Override
+                public String getFilename() {
+                    return "input_reference.png";
                 }
+            };
+            HttpHeaders partHeaders = new HttpHeaders();
+            partHeaders.setContentType(MediaType.parseMediaType(mimeType));
+            requestBody.add("input_reference", new HttpEntity<>(imageResource, partHeaders));
+
+            // 调用向量引擎视频创建端点
+            String rawResponse = restClient.post()
+                    .uri("/v1/videos")
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                    .body(requestBody)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::isError, (request, httpResponse) -> {
+                        String errorBody = new String(httpResponse.getBody().readAllBytes());
+                        log.error("视频生成API错误 - 状态码: {}, 响应体: {}",
+                                httpResponse.getStatusCode(), errorBody);
 
-                log.info("视频生成任务已创建 - taskId: {}, 尝试次数: {}", response.id(), attempt);
-                return response;
+                        // 解析错误响应,给出更友好的提示
+                        throw upstreamError(httpResponse.getStatusCode(), errorBody, parseVideoErrorMessage(errorBody));
+                    })
+                    .body(String.class);
 
-            } catch (BusinessException e) {
-                // 检查是否为可重试的错误
-                if (isRetryableError(e) && attempt < MAX_VIDEO_API_RETRIES) {
-                    log.warn("视频生成API临时错误,准备重试 - 第{}/{}次, 错误: {}", 
-                            attempt, MAX_VIDEO_API_RETRIES, e.getMessage());
-                    lastException = e;
-                    try {
-                        Thread.sleep(VIDEO_API_RETRY_INTERVAL * attempt);  // 递增等待时间
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "视频生成被中断", ie);
-                    }
-                    continue;
-                }
-                throw e;
-            } catch (Exception e) {
-                // 检查是否为可重试的网络错误(GOAWAY等)
-                if (isRetryableNetworkError(e) && attempt < MAX_VIDEO_API_RETRIES) {
-                    log.warn("视频生成API网络错误,准备重试 - 第{}/{}次, 错误: {}", 
-                            attempt, MAX_VIDEO_API_RETRIES, e.getMessage());
-                    lastException = e;
-                    try {
-                        Thread.sleep(VIDEO_API_RETRY_INTERVAL * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "视频生成被中断", ie);
-                    }
-                    continue;
-                }
-                log.error("视频生成调用失败", e);
-                throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "视频生成服务异常，请稍后重试", e);
+            log.debug("视频生成API原始响应: {}", rawResponse);
+
+            // 解析响应
+            ObjectMapper objectMapper = new ObjectMapper();
+            VideoApiResponse response = objectMapper.readValue(rawResponse, VideoApiResponse.class);
+
+            // 检查是否有错误状态
+            if ("error".equals(response.status())) {
+                throw upstreamError(null, rawResponse, parseVideoErrorMessage(rawResponse));
             }
+
+            log.info("视频生成任务已创建 - taskId: {}", response.id());
+            return response;
+
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("视频生成调用失败", e);
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "视频生成服务异常，请稍后重试", e);
         }
-        
-        // 所有重试都失败
-        log.error("视频生成API重试{}次后仍失败", MAX_VIDEO_API_RETRIES);
-        throw new BusinessException(ResultCode.AI_SERVICE_ERROR, 
-                "视频生成服务繁忙，已重试" + MAX_VIDEO_API_RETRIES + "次，请稍后再试", lastException);
-    }
-    
-    /**
-     * 判断是否为可重试的业务错误
-     */
-    private boolean isRetryableError(BusinessException e) {
-        String msg = e.getMessage();
-        if (msg == null) return false;
-        return msg.contains("负载已饱和") || 
-               msg.contains("繁忙") || 
-               msg.contains("稍后") ||
-               msg.contains("load") ||
-               msg.contains("saturated");
     }
-    
+
     /**
-     * 判断是否为可重试的网络错误
+     * 将上游错误响应转换为业务异常
+     *
+     * <p>429/503或响应体提示负载已饱和时使用{@link ResultCode#AI_SERVICE_BUSY},
+     * AI网关据此缩减并发并重试;其余错误使用{@link ResultCode#AI_SERVICE_ERROR}
+     *
+     * @param status HTTP状态码(响应200但内容为错误时为null)
+     * @param errorBody 上游响应体
+     * @param message 异常消息
+     * @return 业务异常
      */
-    private boolean isRetryableNetworkError(Exception e) {
-        String msg = e.getMessage();
-        if (msg == null) {
-            // 检查cause
-            Throwable cause = e.getCause();
-            while (cause != null) {
-                String causeMsg = cause.getMessage();
-                if (causeMsg != null && (causeMsg.contains("GOAWAY") || 
-                                          causeMsg.contains("Connection reset") ||
-                                          causeMsg.contains("timeout"))) {
-                    return true;
-                }
-                cause = cause.getCause();
-            }
-            return false;
-        }
-        return msg.contains("GOAWAY") || 
-               msg.contains("Connection reset") || 
-               msg.contains("timeout") ||
-               msg.contains("I/O error");
+    private static BusinessException upstreamError(HttpStatusCode status, String errorBody, String message) {
+        boolean saturated = status != null && (status.value() == 429 || status.value() == 503)
+                || errorBody != null && (errorBody.contains("负载已饱和") || errorBody.contains("saturated"));
+        return new BusinessException(saturated ? ResultCode.AI_SERVICE_BUSY : ResultCode.AI_SERVICE_ERROR, message);
     }
 
     /**
@@ -863,7 +1049,7 @@ public class VectorEngineClient {
             log.info("========== 【诊断】开始查询任务状态 ==========");
             log.info("请求URL: /v1/videos/{id}", taskId);
 
-            String rawResponse = restClient.get()
+            String rawResponse = taskClient.get()
                     .uri("/v1/videos/{id}", taskId)
                     .retrieve()
                     .onStatus(HttpStatusCode::isError, (request, httpResponse) -> {
@@ -911,24 +1097,37 @@ public class VectorEngineClient {
         }
     }
 
-    public VideoContentResponse downloadVideoContent(String taskId) {
+    /**
+     * 以流的方式读取视频内容
+     *
+     * <p>响应体不会整体读入内存,而是直接交给处理器消费(例如边读边分片上传到OSS),
+     * 处理器返回后连接才会关闭
+     *
+     * @param taskId API任务ID
+     * @param handler 视频流处理器
+     * @param <T> 处理结果类型
+     * @return 处理器的返回值
+     * @throws BusinessException 当API返回错误或读取失败时抛出
+     */
+    public <T> T streamVideoContent(String taskId, VideoContentHandler<T> handler) {
         try {
-            ResponseEntity<byte[]> response = restClient.get()
+            return taskClient.get()
                     .uri("/v1/videos/{id}/content", taskId)
-                    .retrieve()
-                    .toEntity(byte[].class);
-
-            byte[] body = response.getBody();
-            if (body == null || body.length == 0) {
-                throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "视频内容为空");
-            }
-
-            String contentType = null;
-            if (response.getHeaders() != null && response.getHeaders().getContentType() != null) {
-                contentType = response.getHeaders().getContentType().toString();
-            }
-
-            return new VideoContentResponse(body, contentType);
+                    .exchange((request, response) -> {
+                        if (response.getStatusCode().isError()) {
+                            throw new BusinessException(ResultCode.AI_SERVICE_ERROR,
+                                    "下载视频内容失败: HTTP " + response.getStatusCode().value());
+                        }
+
+                        String contentType = null;
+                        if (response.getHeaders().getContentType() != null) {
+                            contentType = response.getHeaders().getContentType().toString();
+                        }
+
+                        try (java.io.InputStream body = response.getBody()) {
+                            return handler.handle(body, contentType);
+                        }
+                    });
         } catch (BusinessException e) {
             throw e;
         } catch (Exception e) {
@@ -937,6 +1136,24 @@ public class VectorEngineClient {
         }
     }
 
+    /**
+     * 视频流处理器
+     *
+     * @param <T> 处理结果类型
+     */
+    @FunctionalInterface
+    public interface VideoContentHandler<T> {
+
+        /**
+         * 消费视频流
+         *
+         * @param body 响应体流(由调用方关闭)
+         * @param contentType 响应的Content-Type,可能为null
+         * @return 处理结果
+         */
+        T handle(java.io.InputStream body, String contentType) throws java.io.IOException;
+    }
+
     /**
      * 文本生成API响应
      *
@@ -951,9 +1168,13 @@ public class VectorEngineClient {
             Usage usage,
             String model
     ) {
-        public record Choice(Message message, String finishReason) {}
+        public record Choice(Message message, @JsonAlias("finish_reason") String finishReason) {}
         public record Message(String role, String content) {}
-        public record Usage(Integer promptTokens, Integer completionTokens, Integer totalTokens) {}
+        public record Usage(
+                @JsonAlias("prompt_tokens") Integer promptTokens,
+                @JsonAlias("completion_tokens") Integer completionTokens,
+                @JsonAlias("total_tokens") Integer totalTokens
+        ) {}
     }
 
     /**
@@ -985,11 +1206,6 @@ public class VectorEngineClient {
             Long statusUpdateTime
     ) {}
 
-    public record VideoContentResponse(
-            byte[] content,
-            String contentType
-    ) {}
-
     /**
      * 任务状态API响应（直接返回的结构）
      *
@@ -1123,48 +1339,6 @@ public class VectorEngineClient {
         }
     }
 
-    /**
-     * Gemini原生格式API响应
-     *
-     * <p>Gemini图片生成原生格式的响应结构
-     *
-     * @param candidates 候选结果列表
-     */
-    public record GeminiNativeImageResponse(
-            List<Candidate> candidates
-    ) {
-        public record Candidate(Content content) {}
-        public record Content(List<Part> parts) {}
-        public record Part(InlineData inlineData) {}
-        public record InlineData(String mimeType, String data) {}
-
-        /**
-         * 提取base64图片数据
-         *
-         * @return base64编码的图片数据
-         */
-        public String extractBase64ImageData() {
-            if (candidates == null || candidates.isEmpty()) {
-                throw new BusinessException(ResultCode.AI_SERVICE_ERROR,
-                        "Gemini原生格式响应的candidates为空");
-            }
-
-            Candidate candidate = candidates.get(0);
-            if (candidate.content == null || candidate.content.parts == null || candidate.content.parts.isEmpty()) {
-                throw new BusinessException(ResultCode.AI_SERVICE_ERROR,
-                        "Gemini原生格式响应的content.parts为空");
-            }
-
-            Part part = candidate.content.parts.get(0);
-            if (part.inlineData == null || part.inlineData.data == null) {
-                throw new BusinessException(ResultCode.AI_SERVICE_ERROR,
-                        "Gemini原生格式响应的inlineData.data为空");
-            }
-
-            return part.inlineData.data;
-        }
-    }
-
     /**
      * 解析视频错误消息，返回用户友好的提示
      *
@@ -1325,7 +1499,7 @@ public class VectorEngineClient {
         return MediaType.IMAGE_PNG_VALUE;
     }
 
-    private byte[] resizeReferenceImage(byte[] imageBytes, String targetSize) {
+    static byte[] resizeReferenceImage(byte[] imageBytes, String targetSize) {
         try {
             BufferedImage source = ImageIO.read(new ByteArrayInputStream(imageBytes));
             if (source == null) {
@@ -1356,7 +1530,7 @@ public class VectorEngineClient {
         }
     }
 
-    private int[] parseSize(String size) {
+    private static int[] parseSize(String size) {
         if (size == null || !size.contains("x")) {
             return new int[] { 1280, 720 };
         }
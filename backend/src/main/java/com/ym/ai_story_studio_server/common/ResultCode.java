@@ -133,6 +133,7 @@ public enum ResultCode {
     OSS_ERROR(50204, "OSS存储服务异常"),
     WECHAT_PAY_ERROR(50205, "微信支付服务异常"),
     SMS_SERVICE_ERROR(50206, "短信服务异常"),
+    AI_SERVICE_BUSY(50207, "AI服务繁忙，请稍后再试"),
     FILE_SIZE_EXCEEDED(50007, "文件大小超出限制"),
     ONLY_IMAGE_FILES_ALLOWED(50008, "只允许上传图片文件"),
     AVATAR_UPLOAD_FAILED(50009, "头像上传失败");
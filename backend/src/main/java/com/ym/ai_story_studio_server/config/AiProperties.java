@@ -12,6 +12,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * AI服务配置属性类
  *
@@ -44,6 +47,8 @@ import org.springframework.context.annotation.Configuration;
  *     temperature: 0.7
  *     # 采样参数
  *     top-p: 0.9
+ *     # 剧本解析每个分块的字数上限（超过则分块并行解析）
+ *     parse-chunk-chars: 1500
  *
  *   # 图片生成模型配置
  *   image:
@@ -72,6 +77,70 @@ import org.springframework.context.annotation.Configuration;
  *     poll-interval: 5000
  *     # 最大轮询次数
  *     max-poll-count: 120
+ *     # 轮询退避的最大间隔（毫秒）
+ *     max-poll-interval: 30000
+ *     # 轮询租约时长（毫秒）
+ *     lease-ttl: 20000
+ *     # 租约续期及孤儿任务扫描间隔（毫秒）
+ *     lease-renew-interval: 5000
+ *
+ *   # 批量任务并发配置
+ *   batch:
+ *     # 每个模型默认的最大并发子任务数
+ *     default-concurrency: 4
+ *     # 按模型覆盖并发上限
+ *     model-concurrency:
+ *       jimeng-4.5: 2
+ *       gemini-3-pro-image-preview: 8
+ *     # 每个用户已放行但未完成的批量子项上限（乘以用户权重）
+ *     per-user-in-flight: 8
+ *     # 所有用户已放行但未完成的批量子项总数上限
+ *     max-released: 64
+ *     # 按用户覆盖公平调度权重（默认1）
+ *     user-weights:
+ *       10001: 3
+ *     # 任务进度写回间隔（毫秒）
+ *     progress-flush-interval: 2000
+ *     # 子项RUNNING超过该时长（毫秒）后可被重复投递的消息重新认领
+ *     item-stale-timeout: 1800000
+ *
+ *   # AI网关自适应限流与熔断配置
+ *   gateway:
+ *     # 单模型并发上限的最小/最大值（初始值取batch配置的模型并发）
+ *     min-limit: 1
+ *     max-limit: 32
+ *     # 收到过载信号时并发上限的缩减比例
+ *     backoff-ratio: 0.5
+ *     # 过载后暂停放行排队请求的时长（毫秒）
+ *     overload-pause: 2000
+ *     # 耗时不超过平均耗时的多少倍视为健康
+ *     latency-tolerance: 2.0
+ *     # 排队等待并发名额的最长时间（毫秒）
+ *     acquire-timeout: 300000
+ *     # 过载类错误的最大重试次数
+ *     max-retries: 2
+ *     # 连续多少次过载后熔断
+ *     failure-threshold: 5
+ *     # 熔断持续时间（毫秒）
+ *     open-duration: 30000
+ *
+ *   # 参考图缓存配置
+ *   reference-cache:
+ *     # 缓存总字节数上限（原始字节+base64）
+ *     max-bytes: 268435456
+ *     # 写入后过期时间（分钟）
+ *     ttl-minutes: 30
+ *
+ *   # 文本响应缓存配置（Redis，仅对显式启用缓存的调用点生效）
+ *   text-cache:
+ *     # 是否启用
+ *     enabled: false
+ *     # 温度高于该值的调用不走缓存
+ *     max-temperature: 0.5
+ *     # 单条缓存的最大字节数，超过则不缓存
+ *     max-entry-bytes: 262144
+ *     # 过期时间（分钟）
+ *     ttl-minutes: 1440
  * </pre>
  *
  * <p><strong>使用示例:</strong>
@@ -117,6 +186,26 @@ public class AiProperties {
      */
     private Video video = new Video();
 
+    /**
+     * 批量任务并发配置
+     */
+    private Batch batch = new Batch();
+
+    /**
+     * 参考图缓存配置
+     */
+    private ReferenceCache referenceCache = new ReferenceCache();
+
+    /**
+     * 文本响应缓存配置
+     */
+    private TextCache textCache = new TextCache();
+
+    /**
+     * AI网关自适应限流与熔断配置
+     */
+    private Gateway gateway = new Gateway();
+
     /**
      * 向量引擎中转站配置类
      */
@@ -144,8 +233,10 @@ public class AiProperties {
 
         /**
          * 读取超时时间（毫秒）
+         *
+         * <p>即等待响应头的最长时间,同步图片生成耗时较长,默认3分钟
          */
-        private Long readTimeout = 60000L;
+        private Long readTimeout = 180000L;
     }
 
     /**
@@ -172,6 +263,14 @@ public class AiProperties {
          * 采样参数
          */
         private Double topP = 0.9;
+
+        /**
+         * 剧本解析每个分块的字数上限
+         *
+         * <p>剧本格式输出保留全部原文并增加镜头标注和JSON转义,输出token数约为输入字数的2倍,
+         * 按maxTokens=4096留出余量取1500字
+         */
+        private Integer parseChunkChars = 1500;
     }
 
     /**
@@ -282,9 +381,196 @@ public class AiProperties {
         private Long pollInterval = 5000L;
 
         /**
-         * 最大轮询次数
+         * 最大轮询次数（与pollInterval相乘得到单个视频任务的轮询总时长上限）
          */
         private Integer maxPollCount = 120;
+
+        /**
+         * 轮询退避的最大间隔（毫秒）
+         *
+         * <p>轮询间隔从pollInterval开始按1.5倍递增(带随机抖动),直到达到该上限
+         */
+        private Long maxPollInterval = 30000L;
+
+        /**
+         * 轮询租约时长（毫秒）
+         *
+         * <p>持有租约的节点宕机后,其他节点最迟在该时长加一个扫描间隔后接管轮询
+         */
+        private Long leaseTtl = 20000L;
+
+        /**
+         * 租约续期及孤儿任务扫描间隔（毫秒）,应明显小于leaseTtl
+         */
+        private Long leaseRenewInterval = 5000L;
+    }
+
+    /**
+     * 批量任务并发配置类
+     *
+     * <p>批量任务的子项会并行执行,同一模型在单个节点上的在途调用数受此处上限约束,
+     * 避免打满上游接口的并发配额;子项消息按用户限制在途数量并按权重轮转放行,
+     * 避免单个大批次占满队列
+     */
+    @Data
+    public static class Batch {
+        /**
+         * 每个模型默认的最大并发子任务数
+         */
+        private Integer defaultConcurrency = 4;
+
+        /**
+         * 按模型覆盖的并发上限（key为模型名称）
+         */
+        private Map<String, Integer> modelConcurrency = new HashMap<>();
+
+        /**
+         * 每个用户已放行但未完成的批量子项上限（乘以用户权重）
+         */
+        private Integer perUserInFlight = 8;
+
+        /**
+         * 所有用户已放行但未完成的批量子项总数上限，超出时按权重轮转放行
+         */
+        private Integer maxReleased = 64;
+
+        /**
+         * 按用户覆盖的公平调度权重（key为用户ID，默认1）
+         */
+        private Map<Long, Integer> userWeights = new HashMap<>();
+
+        /**
+         * 任务进度写回间隔（毫秒），期间完成的子项合并为一次UPDATE
+         */
+        private Long progressFlushInterval = 2000L;
+
+        /**
+         * 子项RUNNING超过该时长（毫秒）视为执行节点已失联，重复投递的消息可以重新认领；
+         * 应大于单个子项的最长执行时间（网关排队加AI调用与转存），默认30分钟
+         */
+        private Long itemStaleTimeout = 1800000L;
+
+        /**
+         * 获取指定模型的并发上限
+         *
+         * @param model 模型名称
+         * @return 并发上限（至少为1）
+         */
+        public int concurrencyFor(String model) {
+            Integer limit = model != null ? modelConcurrency.get(model) : null;
+            if (limit == null) {
+                limit = defaultConcurrency;
+            }
+            return limit == null || limit < 1 ? 1 : limit;
+        }
+
+        /**
+         * 获取指定用户的公平调度权重
+         *
+         * @param userId 用户ID
+         * @return 权重（至少为1）
+         */
+        public int weightFor(Long userId) {
+            Integer weight = userId != null ? userWeights.get(userId) : null;
+            return weight == null || weight < 1 ? 1 : weight;
+        }
+    }
+
+    /**
+     * AI网关自适应限流与熔断配置类
+     *
+     * <p>每个模型的在途请求上限按AIMD调整:过载时乘性缩减,耗时健康时加性增长
+     */
+    @Data
+    public static class Gateway {
+        /**
+         * 并发上限的最小值
+         */
+        private Integer minLimit = 1;
+
+        /**
+         * 并发上限的最大值
+         */
+        private Integer maxLimit = 32;
+
+        /**
+         * 收到过载信号时并发上限的缩减比例
+         */
+        private Double backoffRatio = 0.5;
+
+        /**
+         * 过载后暂停放行排队请求的时长（毫秒）
+         */
+        private Long overloadPause = 2000L;
+
+        /**
+         * 耗时不超过平均耗时的多少倍视为健康，健康时才增长并发上限
+         */
+        private Double latencyTolerance = 2.0;
+
+        /**
+         * 排队等待并发名额的最长时间（毫秒）
+         */
+        private Long acquireTimeout = 300000L;
+
+        /**
+         * 过载类错误（负载饱和、GOAWAY、连接重置）的最大重试次数
+         */
+        private Integer maxRetries = 2;
+
+        /**
+         * 连续多少次过载后熔断
+         */
+        private Integer failureThreshold = 5;
+
+        /**
+         * 熔断持续时间（毫秒），到期后放行一个探测请求
+         */
+        private Long openDuration = 30000L;
+    }
+
+    /**
+     * 参考图缓存配置类
+     */
+    @Data
+    public static class ReferenceCache {
+        /**
+         * 缓存总字节数上限（原始字节与base64合计），默认256MB
+         */
+        private Long maxBytes = 256L * 1024 * 1024;
+
+        /**
+         * 写入后过期时间（分钟）
+         */
+        private Long ttlMinutes = 30L;
+    }
+
+    /**
+     * 文本响应缓存配置类
+     *
+     * <p>同一组模型参数与提示词的低温度调用结果缓存到Redis,重复提交相同剧本时不再调用上游
+     */
+    @Data
+    public static class TextCache {
+        /**
+         * 是否启用
+         */
+        private Boolean enabled = false;
+
+        /**
+         * 温度高于该值的调用视为创作类调用,不走缓存
+         */
+        private Double maxTemperature = 0.5;
+
+        /**
+         * 单条缓存的最大字节数（序列化后的JSON），默认256KB
+         */
+        private Integer maxEntryBytes = 256 * 1024;
+
+        /**
+         * 过期时间（分钟），默认1天
+         */
+        private Long ttlMinutes = 1440L;
     }
 }
 // {{END_MODIFICATIONS}}
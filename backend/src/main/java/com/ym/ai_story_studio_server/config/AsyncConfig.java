@@ -15,6 +15,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
@@ -112,6 +113,83 @@ public class AsyncConfig implements AsyncConfigurer {
      */
     private static final int KEEP_ALIVE_SECONDS = 60;
 
+    /**
+     * 批量子任务线程名称前缀
+     */
+    private static final String BATCH_ITEM_THREAD_NAME_PREFIX = "Batch-Item-";
+
+    /**
+     * 批量子任务核心线程数
+     *
+     * <p>各模型的实际并发由{@code ai.batch}配置的信号量控制,线程池只需保证不成为瓶颈
+     */
+    private static final int BATCH_ITEM_CORE_POOL_SIZE = 16;
+
+    /**
+     * 批量子任务最大线程数
+     */
+    private static final int BATCH_ITEM_MAX_POOL_SIZE = 64;
+
+    /**
+     * 视频轮询工作线程数
+     *
+     * <p>轮询只做一次状态查询,少量线程即可支撑数千个在途视频任务
+     */
+    private static final int VIDEO_POLL_POOL_SIZE = 4;
+
+    /**
+     * 视频轮询工作队列容量
+     */
+    private static final int VIDEO_POLL_QUEUE_CAPACITY = 1000;
+
+    /**
+     * 视频转存线程数
+     *
+     * <p>生成成功后下载视频并上传OSS,单个任务可能持续数分钟,与状态查询隔离
+     */
+    private static final int VIDEO_TRANSFER_POOL_SIZE = 4;
+
+    /**
+     * 视频转存队列容量,超出后由轮询方稍后重新提交
+     */
+    private static final int VIDEO_TRANSFER_QUEUE_CAPACITY = 100;
+
+    /**
+     * 同时执行的导出任务数
+     *
+     * <p>每个导出任务独占一个写ZIP的线程,下载由{@code exportDownloadExecutor}并行完成
+     */
+    private static final int EXPORT_POOL_SIZE = 2;
+
+    /**
+     * 等待执行的导出任务上限,超出后拒绝提交
+     */
+    private static final int EXPORT_QUEUE_CAPACITY = 20;
+
+    /**
+     * 导出资产下载线程数(所有导出任务共享)
+     */
+    private static final int EXPORT_DOWNLOAD_POOL_SIZE = 8;
+
+    /**
+     * 导出资产下载队列容量
+     */
+    private static final int EXPORT_DOWNLOAD_QUEUE_CAPACITY = 256;
+
+    /**
+     * 流式文本生成最大线程数
+     *
+     * <p>每个SSE流在生成期间占用一个线程阻塞读取上游响应,上游并发仍由AI网关按模型控制。
+     * 不设队列:排队的流对用户而言与卡住无异,超出上限直接返回繁忙
+     */
+    private static final int TEXT_STREAM_MAX_POOL_SIZE = 64;
+
+    /**
+     * 任务事件推送队列容量
+     *
+     * <p>待推送事件在{@code JobEventHub}中按任务合并,同一时刻最多一个推送任务在执行或排队
+     */
+    private static final int JOB_EVENT_QUEUE_CAPACITY = 16;
     /**
      * 配置异步任务执行器(线程池)
      *
@@ -172,6 +250,232 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    /**
+     * 配置批量子任务执行器
+     *
+     * <p>MQ消费者收到批量任务后,将每个子项(分镜/角色/场景/道具)提交到该线程池并行执行,
+     * 与{@code taskExecutor}隔离,避免长时间的AI调用挤占视频轮询等异步任务
+     *
+     * <p>队列容量为0,提交时直接创建线程;达到最大线程数后由提交方(MQ监听线程)自行执行,
+     * 并发上限实际由模型信号量约束
+     *
+     * @return 批量子任务执行器
+     */
+    @Bean(name = "batchItemExecutor")
+    public Executor batchItemExecutor() {
+        log.info("初始化批量子任务执行器 - 核心线程数: {}, 最大线程数: {}",
+                BATCH_ITEM_CORE_POOL_SIZE, BATCH_ITEM_MAX_POOL_SIZE);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(BATCH_ITEM_CORE_POOL_SIZE);
+        executor.setMaxPoolSize(BATCH_ITEM_MAX_POOL_SIZE);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(KEEP_ALIVE_SECONDS);
+        executor.setThreadNamePrefix(BATCH_ITEM_THREAD_NAME_PREFIX);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    /**
+     * 配置视频轮询调度器
+     *
+     * <p>单线程定时触发{@code VideoTaskPoller}的tick,只负责取出到期的轮询任务并分发,不执行任何阻塞调用
+     *
+     * @return 视频轮询调度器
+     */
+    @Bean(name = "videoPollScheduler")
+    public ThreadPoolTaskScheduler videoPollScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("Video-Poll-Tick-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * 配置后台维护调度器
+     *
+     * <p>单线程执行低频的清理类任务(如导出临时文件清理),与业务线程池隔离
+     *
+     * @return 后台维护调度器
+     */
+    @Bean(name = "maintenanceScheduler")
+    public ThreadPoolTaskScheduler maintenanceScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("Maintenance-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * 配置MQ发件箱发布调度器
+     *
+     * <p>单线程领取发件箱消息、批量发送并等待broker确认,所有发送轮次在该线程上串行执行
+     *
+     * @return MQ发件箱发布调度器
+     */
+    @Bean(name = "outboxScheduler")
+    public ThreadPoolTaskScheduler outboxScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("MQ-Outbox-");
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        scheduler.initialize();
+        return scheduler;
+    }
+
+    /**
+     * 配置视频轮询工作线程池
+     *
+     * <p>执行到期的状态查询和失败回调;队列满时拒绝提交,由{@code VideoTaskPoller}放回延迟队列下个tick再分发,
+     * 不会落到负责续期租约的调度线程上执行
+     *
+     * @return 视频轮询执行器
+     */
+    @Bean(name = "videoPollExecutor")
+    public Executor videoPollExecutor() {
+        log.info("初始化视频轮询执行器 - 线程数: {}, 队列容量: {}", VIDEO_POLL_POOL_SIZE, VIDEO_POLL_QUEUE_CAPACITY);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(VIDEO_POLL_POOL_SIZE);
+        executor.setMaxPoolSize(VIDEO_POLL_POOL_SIZE);
+        executor.setQueueCapacity(VIDEO_POLL_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("Video-Poll-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    /**
+     * 配置视频转存线程池
+     *
+     * <p>执行生成成功后的视频下载、OSS上传和扣费;队列满时拒绝提交,由轮询方稍后重新检查并提交
+     *
+     * @return 视频转存执行器
+     */
+    @Bean(name = "videoTransferExecutor")
+    public Executor videoTransferExecutor() {
+        log.info("初始化视频转存执行器 - 线程数: {}, 队列容量: {}", VIDEO_TRANSFER_POOL_SIZE, VIDEO_TRANSFER_QUEUE_CAPACITY);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(VIDEO_TRANSFER_POOL_SIZE);
+        executor.setMaxPoolSize(VIDEO_TRANSFER_POOL_SIZE);
+        executor.setQueueCapacity(VIDEO_TRANSFER_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("Video-Transfer-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    /**
+     * 配置导出任务执行器
+     *
+     * <p>有界队列,队列满时抛出{@link org.springframework.core.task.TaskRejectedException},
+     * 由提交方将任务标记为失败并返回"任务队列已满",不会退化到HTTP请求线程中执行
+     *
+     * @return 导出任务执行器
+     */
+    @Bean(name = "exportExecutor")
+    public Executor exportExecutor() {
+        log.info("初始化导出任务执行器 - 线程数: {}, 队列容量: {}", EXPORT_POOL_SIZE, EXPORT_QUEUE_CAPACITY);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(EXPORT_POOL_SIZE);
+        executor.setMaxPoolSize(EXPORT_POOL_SIZE);
+        executor.setQueueCapacity(EXPORT_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("Export-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    /**
+     * 配置导出资产下载线程池
+     *
+     * <p>为导出写线程预取资产文件;队列满时由写线程自行下载
+     *
+     * @return 导出下载执行器
+     */
+    @Bean(name = "exportDownloadExecutor")
+    public Executor exportDownloadExecutor() {
+        log.info("初始化导出下载执行器 - 线程数: {}, 队列容量: {}",
+                EXPORT_DOWNLOAD_POOL_SIZE, EXPORT_DOWNLOAD_QUEUE_CAPACITY);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(EXPORT_DOWNLOAD_POOL_SIZE);
+        executor.setMaxPoolSize(EXPORT_DOWNLOAD_POOL_SIZE);
+        executor.setQueueCapacity(EXPORT_DOWNLOAD_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("Export-Download-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    /**
+     * 配置流式文本生成执行器
+     *
+     * <p>SSE接口立即释放Servlet线程,由该线程池读取上游流并转发增量;
+     * 线程用尽时抛出{@link org.springframework.core.task.TaskRejectedException},不会退化到Servlet线程中执行
+     *
+     * @return 流式文本生成执行器
+     */
+    @Bean(name = "textStreamExecutor")
+    public Executor textStreamExecutor() {
+        log.info("初始化流式文本生成执行器 - 最大线程数: {}", TEXT_STREAM_MAX_POOL_SIZE);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(CORE_POOL_SIZE);
+        executor.setMaxPoolSize(TEXT_STREAM_MAX_POOL_SIZE);
+        executor.setQueueCapacity(0);
+        executor.setKeepAliveSeconds(KEEP_ALIVE_SECONDS);
+        executor.setThreadNamePrefix("Text-Stream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        return executor;
+    }
+
+    /**
+     * 配置任务事件分发执行器
+     *
+     * <p>Redis发布订阅收到的任务事件在该线程中推送给SSE连接;单线程保证同一任务的事件按发布顺序送达。
+     * 积压时由{@code JobEventHub}按任务合并为最新状态,不丢弃事件,终态事件一定送达
+     *
+     * @return 任务事件分发执行器
+     */
+    @Bean(name = "jobEventExecutor")
+    public Executor jobEventExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(JOB_EVENT_QUEUE_CAPACITY);
+        executor.setThreadNamePrefix("Job-Event-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     /**
      * 配置异步任务异常处理器
      *
@@ -0,0 +1,51 @@
+package com.ym.ai_story_studio_server.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 出站HTTP配置属性类
+ *
+ * <p>所有对外HTTP调用(AI接口、参考图下载、生成结果转存、导出下载等)共用的连接与超时配置
+ *
+ * <p>配置示例:
+ * <pre>
+ * http-client:
+ *   connect-timeout: 10000
+ *   read-timeout: 60000
+ *   max-concurrency-per-host: 32
+ *   acquire-timeout: 30000
+ * </pre>
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "http-client")
+public class HttpClientProperties {
+
+    /**
+     * 默认连接超时时间(毫秒)
+     */
+    private Long connectTimeout = 10000L;
+
+    /**
+     * 默认读取超时时间(毫秒),即等待响应头的最长时间
+     */
+    private Long readTimeout = 60000L;
+
+    /**
+     * 每个目标主机的最大并发请求数
+     *
+     * <p>HTTPS上游协商到HTTP/2时多个请求复用同一连接;HTTP/1.1上游的连接数也不会超过该值。
+     * 经AI网关按模型限流的生成调用不计入该上限,只限制状态查询、参考图和结果下载等短请求
+     */
+    private Integer maxConcurrencyPerHost = 32;
+
+    /**
+     * 主机并发已满时等待空闲名额的最长时间(毫秒),超时后请求失败
+     */
+    private Long acquireTimeout = 30000L;
+}
@@ -28,6 +28,15 @@ import org.springframework.stereotype.Component;
  *     access-key-secret: ${OSS_ACCESS_KEY_SECRET:默认值}
  *     region: cn-hangzhou
  *     url-prefix: https://yuanmeng-logo.oss-cn-hangzhou.aliyuncs.com
+ *   # provider为local时使用（本地开发、压测）
+ *   local:
+ *     dir: /data/tmp/ai-story-local-storage
+ *     url-prefix: http://localhost:8080/local-storage
+ *   export:
+ *     temp-dir: /data/tmp/ai-story-exports
+ *     temp-file-ttl-minutes: 60
+ *     janitor-interval-minutes: 10
+ *     download-url-expiration-minutes: 30
  * </pre>
  *
  * @author Roo (Prometheus)
@@ -40,7 +49,7 @@ public class StorageProperties {
 
     /**
      * 存储提供商类型
-     * <p>支持: oss (阿里云OSS), minio (MinIO) - V2规划
+     * <p>支持: oss (阿里云OSS), local (本地目录，用于开发和压测), minio (MinIO) - V2规划
      */
     private String provider = "oss";
 
@@ -49,6 +58,16 @@ public class StorageProperties {
      */
     private OssConfig oss = new OssConfig();
 
+    /**
+     * 本地存储配置
+     */
+    private LocalConfig local = new LocalConfig();
+
+    /**
+     * 项目导出配置
+     */
+    private ExportConfig export = new ExportConfig();
+
     /**
      * 阿里云OSS配置项
      */
@@ -91,5 +110,60 @@ public class StorageProperties {
          */
         private String urlPrefix;
     }
+
+    /**
+     * 本地存储配置项
+     *
+     * <p>文件写入本地目录，由应用自身在{@code /local-storage/**}下提供访问，
+     * 不依赖外部对象存储，仅用于本地开发和压测
+     */
+    @Data
+    public static class LocalConfig {
+
+        /**
+         * 文件存储目录
+         */
+        private String dir = System.getProperty("java.io.tmpdir") + "/ai-story-local-storage";
+
+        /**
+         * 文件访问URL前缀，需指向本应用的{@code /local-storage}路径
+         */
+        private String urlPrefix = "http://localhost:8080/local-storage";
+    }
+
+    /**
+     * 项目导出配置项
+     *
+     * <p>导出ZIP先写到本地临时目录,上传到对象存储后即删除;
+     * 异常中断残留的临时文件由定时清理任务按TTL删除
+     */
+    @Data
+    public static class ExportConfig {
+
+        /**
+         * 导出临时文件目录
+         */
+        private String tempDir = System.getProperty("java.io.tmpdir") + "/ai-story-exports";
+
+        /**
+         * 临时文件保留时间(分钟),超过后被清理
+         */
+        private Integer tempFileTtlMinutes = 60;
+
+        /**
+         * 临时文件清理间隔(分钟)
+         */
+        private Integer janitorIntervalMinutes = 10;
+
+        /**
+         * 下载链接(预签名URL)有效期(分钟)
+         */
+        private Integer downloadUrlExpirationMinutes = 30;
+
+        /**
+         * 导出压缩包的大小上限(字节),包含视频时会超过普通文件的上传上限,默认2GB
+         */
+        private Long maxArchiveBytes = 2L * 1024 * 1024 * 1024;
+    }
 }
 // {{END_MODIFICATIONS}}
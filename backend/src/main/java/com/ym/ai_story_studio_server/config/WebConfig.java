@@ -4,8 +4,11 @@ import com.ym.ai_story_studio_server.interceptor.JwtInterceptor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.nio.file.Paths;
+
 /**
  * Web配置类
  *
@@ -27,6 +30,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  *       <li>/api/auth/** - 认证相关接口（登录、注册、发送验证码等）</li>
  *       <li>/error - Spring Boot错误页面</li>
  *       <li>/favicon.ico - 浏览器图标</li>
+ *       <li>/local-storage/** - 本地存储文件（storage.provider=local时）</li>
  *     </ul>
  *   </li>
  * </ul>
@@ -40,6 +44,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 public class WebConfig implements WebMvcConfigurer {
 
     private final JwtInterceptor jwtInterceptor;
+    private final StorageProperties storageProperties;
 
     /**
      * 注册拦截器
@@ -57,9 +62,24 @@ public class WebConfig implements WebMvcConfigurer {
                         "/api/auth/**",             // 认证相关接口（登录、注册、发送验证码等）
                         "/error",                   // Spring Boot错误页面
                         "/favicon.ico",             // 浏览器图标
-                        "/actuator/**"              // Spring Boot Actuator端点（如果启用）
+                        "/actuator/**",             // Spring Boot Actuator端点（如果启用）
+                        "/local-storage/**"         // 本地存储文件（storage.provider=local时）
                 )
                 // 拦截器执行顺序（数字越小越先执行）
                 .order(1);
     }
+
+    /**
+     * 本地存储模式下提供存储目录的静态访问
+     *
+     * @param registry 静态资源注册器
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        if ("local".equals(storageProperties.getProvider())) {
+            String dir = Paths.get(storageProperties.getLocal().getDir()).toAbsolutePath().normalize().toUri().toString();
+            registry.addResourceHandler("/local-storage/**")
+                    .addResourceLocations(dir.endsWith("/") ? dir : dir + "/");
+        }
+    }
 }
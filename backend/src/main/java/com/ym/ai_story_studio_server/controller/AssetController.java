@@ -8,6 +8,7 @@
 // {{START_MODIFICATIONS}}
 package com.ym.ai_story_studio_server.controller;
 
+import com.ym.ai_story_studio_server.client.HttpTransport;
 import com.ym.ai_story_studio_server.common.Result;
 import com.ym.ai_story_studio_server.util.UserContext;
 import com.ym.ai_story_studio_server.dto.asset.AssetVersionVO;
@@ -21,8 +22,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.InputStream;
-import java.net.URL;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -47,6 +47,12 @@ import java.util.List;
 public class AssetController {
 
     private final AssetService assetService;
+    private final HttpTransport httpTransport;
+
+    /**
+     * 代理下载的读取超时
+     */
+    private static final Duration PROXY_DOWNLOAD_TIMEOUT = Duration.ofSeconds(30);
 
     /**
      * 获取资产版本历史列表
@@ -147,15 +153,11 @@ public class AssetController {
             log.info("收到下载图片请求, url: {}", request.url());
             
             // 从 URL 下载资源
-            URL imageUrl = new URL(request.url());
-            java.net.URLConnection connection = imageUrl.openConnection();
-            connection.setConnectTimeout(15000);
-            connection.setReadTimeout(30000);
-            try (InputStream inputStream = connection.getInputStream()) {
-                byte[] imageBytes = inputStream.readAllBytes();
+            try (HttpTransport.Download download = httpTransport.open(request.url(), PROXY_DOWNLOAD_TIMEOUT)) {
+                byte[] imageBytes = download.body().readAllBytes();
 
                 // 先尝试从响应获取 content type，再按扩展名兜底
-                String contentType = connection.getContentType();
+                String contentType = download.contentType();
                 if (contentType == null || contentType.isBlank()) {
                     String urlStr = request.url().toLowerCase();
                     if (urlStr.endsWith(".png")) {
@@ -8,12 +8,12 @@ import com.ym.ai_story_studio_server.util.UserContext;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+
 /**
  * 导出控制器
  *
@@ -60,25 +60,40 @@ public class ExportController {
         return Result.success("导出任务已提交", response);
     }
 
+    /**
+     * 获取导出文件的临时下载链接
+     *
+     * <p>前端拿到链接后直接从对象存储下载,不经过后端转发
+     *
+     * @param jobId 导出任务ID
+     * @return 预签名下载链接
+     */
+    @GetMapping("/api/exports/{jobId}/download-url")
+    public Result<String> getExportDownloadUrl(@PathVariable("jobId") Long jobId) {
+        Long userId = UserContext.getUserId();
+        log.info("获取导出文件下载链接: userId={}, jobId={}", userId, jobId);
+
+        return Result.success(exportService.getExportDownloadUrl(userId, jobId));
+    }
+
     /**
      * 下载导出文件
      *
-     * <p>根据导出任务ID下载生成的ZIP文件
+     * <p>导出文件保存在对象存储中,返回302重定向到临时下载链接,
+     * 请求可以落在任意节点上
      *
      * @param jobId 导出任务ID
-     * @return 文件资源
+     * @return 重定向响应
      */
     @GetMapping("/api/exports/{jobId}/download")
-    public ResponseEntity<Resource> downloadExportFile(@PathVariable("jobId") Long jobId) {
+    public ResponseEntity<Void> downloadExportFile(@PathVariable("jobId") Long jobId) {
         Long userId = UserContext.getUserId();
         log.info("下载导出文件: userId={}, jobId={}", userId, jobId);
 
-        Resource resource = exportService.getExportFile(userId, jobId);
-        String fileName = exportService.getExportFileName(jobId);
+        String downloadUrl = exportService.getExportDownloadUrl(userId, jobId);
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                .body(resource);
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(URI.create(downloadUrl))
+                .build();
     }
 }
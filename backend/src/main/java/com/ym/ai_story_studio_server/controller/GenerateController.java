@@ -18,7 +18,9 @@ import com.ym.ai_story_studio_server.service.BatchGenerationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Collections;
 import java.util.List;
@@ -129,6 +131,40 @@ public class GenerateController {
         return Result.success("文本生成成功", response);
     }
 
+    /**
+     * 流式文本生成接口
+     *
+     * <p><strong>功能描述:</strong><br>
+     * 与文本生成接口参数、计费相同,以SSE逐段返回生成内容,首个token到达即可展示。
+     * 生成在后台线程执行,不占用请求线程;浏览器中途断开时生成继续,结果写入任务记录
+     *
+     * <p><strong>响应示例:</strong>
+     * <pre>
+     * POST /api/generate/text/stream
+     * Accept: text/event-stream
+     *
+     * event:delta
+     * data:{"content":"在2157年"}
+     *
+     * event:delta
+     * data:{"content":"的新上海..."}
+     *
+     * event:done
+     * data:{"code":200,"message":"操作成功","data":{"text":"在2157年的新上海...","tokensUsed":1523,
+     *       "model":"gemini-3-pro-preview","costPoints":152,"jobId":123}}
+     * </pre>
+     *
+     * <p>失败时发送{@code error}事件,数据为{@code Result.error}格式
+     *
+     * @param request 文本生成请求参数
+     * @return SSE连接
+     */
+    @PostMapping(value = "/generate/text/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamText(@Valid @RequestBody TextGenerateRequest request) {
+        log.info("Received streaming text generation request - promptLength: {}", request.prompt().length());
+        return aiTextService.streamText(request);
+    }
+
     /**
      * 图片生成接口
      *
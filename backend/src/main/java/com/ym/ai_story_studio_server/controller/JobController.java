@@ -9,8 +9,10 @@ import com.ym.ai_story_studio_server.service.JobService;
 import com.ym.ai_story_studio_server.util.UserContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * 任务控制器
@@ -135,4 +137,48 @@ public class JobController {
         jobService.cancelJob(userId, jobId);
         return Result.success();
     }
+
+    /**
+     * 订阅任务事件
+     *
+     * <p>推送当前用户所有任务的状态和进度变化,用于任务列表实时刷新,替代轮询列表接口
+     *
+     * <p>事件示例:
+     * <pre>
+     * GET /api/jobs/events
+     * Accept: text/event-stream
+     *
+     * event:job
+     * data:{"jobId":123,"userId":1,"status":"RUNNING","progress":40,"totalItems":10,"doneItems":4,
+     *       "resultUrl":null,"errorMessage":null,"timestamp":1735380000000}
+     * </pre>
+     *
+     * <p>为空的字段表示本次没有变化;事件不补发,断线重连后应重新查询任务列表
+     *
+     * @return SSE连接
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeJobEvents() {
+        Long userId = UserContext.getUserId();
+        log.info("订阅任务事件, userId: {}", userId);
+
+        return jobService.subscribeJobEvents(userId);
+    }
+
+    /**
+     * 订阅单个任务的事件
+     *
+     * <p>连接建立后先推送一次任务当前状态,之后推送状态和进度变化,任务结束(SUCCEEDED/FAILED/CANCELED)后关闭连接。
+     * 事件格式同{@link #subscribeJobEvents()}
+     *
+     * @param jobId 任务ID
+     * @return SSE连接
+     */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeJobEvents(@PathVariable("id") Long jobId) {
+        Long userId = UserContext.getUserId();
+        log.info("订阅任务事件, userId: {}, jobId: {}", userId, jobId);
+
+        return jobService.subscribeJobEvents(userId, jobId);
+    }
 }
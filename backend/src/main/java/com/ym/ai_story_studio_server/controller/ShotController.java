@@ -7,7 +7,9 @@ import com.ym.ai_story_studio_server.service.ShotService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -84,6 +86,25 @@ public class ShotController {
         return Result.success("解析成功，已创建 " + shots.size() + " 条分镜", shots);
     }
 
+    /**
+     * AI流式解析剧本并批量创建分镜
+     *
+     * <p>以SSE实时推送AI输出({@code delta}事件),解析完成并创建分镜后
+     * 通过{@code done}事件返回分镜列表,失败时返回{@code error}事件
+     *
+     * @param projectId 项目ID
+     * @param request 包含完整剧本的请求
+     * @return SSE连接
+     */
+    @PostMapping(value = "/parse-script/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter parseAndCreateShotsStream(
+            @PathVariable("projectId") Long projectId,
+            @Valid @RequestBody ParseScriptRequest request) {
+        log.info("收到AI流式解析剧本请求: projectId={}, scriptLength={}", projectId, request.fullScript().length());
+        Long userId = UserContext.getUserId();
+        return shotService.parseScriptAndCreateShotsStream(userId, projectId, request);
+    }
+
     /**
      * 更新分镜
      *
@@ -10,6 +10,7 @@ import jakarta.validation.constraints.NotNull;
  * @param exportShotImages 是否导出分镜图
  * @param exportVideos 是否导出视频
  * @param mode 导出模式:CURRENT(仅当前版本)/ALL(包含所有历史版本)
+ * @param incremental 是否增量导出:只打包相对上次成功导出新增或变化的资产,并附带manifest.json(可选,默认false)
  */
 public record ExportRequest(
         @NotNull(message = "exportCharacters不能为空")
@@ -25,5 +26,15 @@ public record ExportRequest(
         Boolean exportVideos,
 
         @NotNull(message = "导出模式不能为空")
-        String mode
-) {}
+        String mode,
+
+        Boolean incremental
+) {
+
+    /**
+     * 是否增量导出(未传时为全量)
+     */
+    public boolean incrementalEnabled() {
+        return Boolean.TRUE.equals(incremental);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ym.ai_story_studio_server.dto.job;
+
+/**
+ * 任务事件(SSE推送)
+ *
+ * <p>任务状态或进度变化时发布,经Redis发布订阅分发到所有节点后推送给订阅的浏览器。
+ * 为空的字段表示本次没有变化,客户端按{@code timestamp}保留最新的值
+ *
+ * @param jobId 任务ID
+ * @param userId 任务所属用户ID(用于路由到该用户的订阅)
+ * @param status 任务状态:PENDING/RUNNING/SUCCEEDED/FAILED/CANCELED
+ * @param progress 任务进度:0-100
+ * @param totalItems 子任务总数
+ * @param doneItems 已完成子任务数
+ * @param resultUrl 结果URL
+ * @param errorMessage 错误信息(失败时)
+ * @param timestamp 事件时间(毫秒时间戳)
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+public record JobEvent(
+        Long jobId,
+        Long userId,
+        String status,
+        Integer progress,
+        Integer totalItems,
+        Integer doneItems,
+        String resultUrl,
+        String errorMessage,
+        Long timestamp
+) {
+
+    /**
+     * 是否为终态事件
+     */
+    public boolean terminal() {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status) || "CANCELED".equals(status);
+    }
+
+    /**
+     * 与同一任务之后到达的事件合并,后者非空的字段覆盖前者
+     *
+     * <p>已是终态时忽略晚到的非终态事件(如写回缓冲中的进度),不会把状态改回进行中
+     *
+     * @param newer 之后到达的事件
+     * @return 合并后的事件
+     */
+    public JobEvent merge(JobEvent newer) {
+        if (terminal() && !newer.terminal()) {
+            return this;
+        }
+        return new JobEvent(jobId, latest(newer.userId, userId), latest(newer.status, status),
+                latest(newer.progress, progress), latest(newer.totalItems, totalItems),
+                latest(newer.doneItems, doneItems), latest(newer.resultUrl, resultUrl),
+                latest(newer.errorMessage, errorMessage), latest(newer.timestamp, timestamp));
+    }
+
+    private static <T> T latest(T newer, T older) {
+        return newer != null ? newer : older;
+    }
+}
@@ -83,6 +83,20 @@ public class Job {
      */
     private String metaJson;
 
+    /**
+     * 轮询租约持有节点ID（视频任务多节点轮询时使用）
+     *
+     * <p>仅通过条件更新维护，updateById不会覆盖该字段
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private String pollOwner;
+
+    /**
+     * 轮询租约到期时间，过期后可由其他节点接管
+     */
+    @TableField(updateStrategy = FieldStrategy.NEVER)
+    private LocalDateTime leaseUntil;
+
     /**
      * 创建时间
      */
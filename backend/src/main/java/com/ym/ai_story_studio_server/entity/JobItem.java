@@ -24,7 +24,7 @@ public class JobItem {
     private Long jobId;
 
     /**
-     * 目标对象类型：LIB_CHAR/PCHAR/LIB_SCENE/PSCENE/SHOT/PROJECT
+     * 目标对象类型：LIB_CHAR/PCHAR/LIB_SCENE/PSCENE/PPROP/SHOT/PROJECT
      */
     private String targetType;
 
@@ -48,6 +48,11 @@ public class JobItem {
      */
     private Long outputAssetVersionId;
 
+    /**
+     * 输出结果（JSON）：生成的图片URL列表等
+     */
+    private String outputJson;
+
     /**
      * 子任务错误信息
      */
@@ -0,0 +1,86 @@
+package com.ym.ai_story_studio_server.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * MQ发件箱消息（与任务在同一事务中写入，由MQOutboxPublisher发送）
+ */
+@Data
+@TableName("mq_outbox_messages")
+public class MqOutboxMessage {
+
+    /**
+     * 消息ID
+     */
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    /**
+     * 关联任务ID
+     */
+    private Long jobId;
+
+    /**
+     * 任务所属用户ID（仅批量子项消息，用于按用户公平放行）
+     */
+    private Long userId;
+
+    /**
+     * 交换机
+     */
+    private String exchangeName;
+
+    /**
+     * 路由键
+     */
+    private String routingKey;
+
+    /**
+     * 消息体编码类型（application/cbor 或 Java序列化）
+     */
+    private String contentType;
+
+    /**
+     * 消息类型头（x-message-type）
+     */
+    private String messageType;
+
+    /**
+     * 消息结构版本头（x-schema-version）
+     */
+    private Integer schemaVersion;
+
+    /**
+     * 编码后的消息体
+     */
+    private byte[] payload;
+
+    /**
+     * 已发送次数
+     */
+    private Integer attempts;
+
+    /**
+     * 下次可发送时间；发送中时为等待确认的租约到期时间，为空表示批量子项尚未放行
+     */
+    private LocalDateTime nextAttemptAt;
+
+    /**
+     * 最近一次领取批次标识
+     */
+    private String claimToken;
+
+    /**
+     * 最近一次发送失败原因
+     */
+    private String lastError;
+
+    /**
+     * 创建时间
+     */
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+}
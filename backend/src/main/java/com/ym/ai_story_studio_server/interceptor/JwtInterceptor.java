@@ -15,7 +15,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 /**
  * JWT拦截器
@@ -51,7 +51,7 @@ import org.springframework.web.servlet.HandlerInterceptor;
 @Slf4j
 @Component
 @RequiredArgsConstructor
-public class JwtInterceptor implements HandlerInterceptor {
+public class JwtInterceptor implements AsyncHandlerInterceptor {
 
     private final JwtUtil jwtUtil;
     private final JwtProperties jwtProperties;
@@ -156,6 +156,21 @@ public class JwtInterceptor implements HandlerInterceptor {
         log.debug("清理UserContext完成");
     }
 
+    /**
+     * 异步请求(如SSE)启动后清理
+     *
+     * <p>异步请求在原线程上不会调用{@link #afterCompletion},需要在这里清理,
+     * 否则userId会残留在Servlet线程中被后续请求读到
+     *
+     * @param request  HTTP请求
+     * @param response HTTP响应
+     * @param handler  处理器
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        UserContext.clear();
+    }
+
     /**
      * 处理认证错误，返回统一格式的JSON响应
      *
@@ -0,0 +1,12 @@
+package com.ym.ai_story_studio_server.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.ym.ai_story_studio_server.entity.MqOutboxMessage;
+import org.apache.ibatis.annotations.Mapper;
+
+/**
+ * MQ发件箱 Mapper 接口
+ */
+@Mapper
+public interface MqOutboxMessageMapper extends BaseMapper<MqOutboxMessage> {
+}
@@ -12,6 +12,9 @@ import java.util.List;
  *
  * <p>用于MQ传递批量生成任务信息
  *
+ * <p>批量任务按子项拆分发送:每条消息只携带一个目标ID及对应的jobItemId,
+ * 多个消费者/节点可并行处理同一批次。jobItemId为空的消息是旧格式的整批消息,仍按整批执行
+ *
  * @author AI Story Studio
  * @since 1.0.0
  */
@@ -19,6 +22,12 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class BatchTaskMessage implements Serializable {
+
+    /**
+     * 与未声明serialVersionUID时编译器按原有字段计算的值一致,升级前入队的Java序列化消息仍可读取;
+     * 之后只允许新增字段
+     */
+    private static final long serialVersionUID = -668860841714218561L;
     
     /**
      * 任务ID
@@ -36,7 +45,7 @@ public class BatchTaskMessage implements Serializable {
     private Long projectId;
     
     /**
-     * 目标ID列表（分镜ID/角色ID/场景ID）
+     * 目标ID列表（分镜ID/角色ID/场景ID），按子项拆分时只有一个元素
      */
     private List<Long> targetIds;
     
@@ -59,4 +68,14 @@ public class BatchTaskMessage implements Serializable {
      * 模型名称
      */
     private String model;
+
+    /**
+     * 子任务ID（job_items.id），为空表示整批消息
+     */
+    private Long jobItemId;
+
+    /**
+     * 子项在批次中的序号（从0开始）
+     */
+    private Integer itemIndex;
 }
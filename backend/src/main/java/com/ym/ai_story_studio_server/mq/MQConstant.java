@@ -129,6 +129,17 @@ public class MQConstant {
      */
     public static final String X_MESSAGE_TTL = "x-message-ttl";
 
+    // ==================== 消息头 ====================
+    /**
+     * 消息类型头，值为{@link MQMessageCodec}登记的逻辑类型名（不含类名）
+     */
+    public static final String HEADER_MESSAGE_TYPE = "x-message-type";
+
+    /**
+     * 消息结构版本头
+     */
+    public static final String HEADER_SCHEMA_VERSION = "x-schema-version";
+
     // ==================== 其他配置 ====================
     /**
      * 默认消息TTL：7天（毫秒）
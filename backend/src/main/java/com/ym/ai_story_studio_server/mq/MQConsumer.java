@@ -1,6 +1,8 @@
 package com.ym.ai_story_studio_server.mq;
 
 import com.rabbitmq.client.Channel;
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import com.ym.ai_story_studio_server.client.ImageSpool;
 import com.ym.ai_story_studio_server.client.VectorEngineClient;
 import com.ym.ai_story_studio_server.client.VectorEngineClient.ImageApiResponse;
 import com.ym.ai_story_studio_server.config.AiProperties;
@@ -32,7 +34,11 @@ import com.ym.ai_story_studio_server.service.AiTextService;
 import com.ym.ai_story_studio_server.service.AiVideoService;
 import com.ym.ai_story_studio_server.service.AsyncVideoTaskService;
 import com.ym.ai_story_studio_server.service.AssetCreationService;
+import com.ym.ai_story_studio_server.service.BatchJobRunner;
 import com.ym.ai_story_studio_server.service.ChargingService;
+import com.ym.ai_story_studio_server.service.JobEventHub;
+import com.ym.ai_story_studio_server.service.LibraryShotViewEvictor;
+import com.ym.ai_story_studio_server.service.ShotViewCache;
 import com.ym.ai_story_studio_server.service.StorageService;
 import com.ym.ai_story_studio_server.util.ImageMergeUtil;
 import com.ym.ai_story_studio_server.util.UserContext;
@@ -44,15 +50,13 @@ import org.springframework.stereotype.Component;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -68,13 +72,24 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 @RequiredArgsConstructor
 public class MQConsumer {
 
+    /**
+     * 图片下载等待响应的超时时间
+     */
+    private static final Duration IMAGE_DOWNLOAD_TIMEOUT = Duration.ofSeconds(60);
+
     private final VectorEngineClient vectorEngineClient;
     private final StorageService storageService;
+    private final HttpTransport httpTransport;
+    private final ImageSpool imageSpool;
     private final AssetCreationService assetCreationService;
     private final ChargingService chargingService;
     private final AiVideoService aiVideoService;
     private final AsyncVideoTaskService asyncVideoTaskService;
     private final AiTextService aiTextService;
+    private final BatchJobRunner batchJobRunner;
+    private final JobEventHub jobEventHub;
+    private final ShotViewCache shotViewCache;
+    private final LibraryShotViewEvictor libraryShotViewEvictor;
     private final ImageMergeUtil imageMergeUtil;
     private final JobMapper jobMapper;
     private final AiProperties aiProperties;
@@ -116,8 +131,7 @@ public class MQConsumer {
             // 拒绝消息，不重新入队（进入死信队列）
             channel.basicNack(deliveryTag, false, false);
             
-            // 更新Job状态为失败
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            failBatchMessage(msg, false, e);
         }
     }
 
@@ -148,7 +162,7 @@ public class MQConsumer {
             channel.basicNack(deliveryTag, false, false);
             
             // 更新Job状态为失败
-            updateJobFailed(msg.jobId(), e.getMessage());
+            updateJobFailed(msg.jobId(), msg.userId(), e.getMessage());
         }
     }
 
@@ -172,7 +186,7 @@ public class MQConsumer {
         } catch (Exception e) {
             log.error("消息处理失败 - jobId: {}", msg.getJobId(), e);
             channel.basicNack(deliveryTag, false, false);
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            failBatchMessage(msg, false, e);
         }
     }
 
@@ -196,7 +210,7 @@ public class MQConsumer {
         } catch (Exception e) {
             log.error("消息处理失败 - jobId: {}", msg.getJobId(), e);
             channel.basicNack(deliveryTag, false, false);
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            failBatchMessage(msg, true, e);
         }
     }
 
@@ -220,7 +234,7 @@ public class MQConsumer {
         } catch (Exception e) {
             log.error("消息处理失败 - jobId: {}", msg.getJobId(), e);
             channel.basicNack(deliveryTag, false, false);
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            failBatchMessage(msg, false, e);
         }
     }
 
@@ -244,7 +258,7 @@ public class MQConsumer {
         } catch (Exception e) {
             log.error("消息处理失败 - jobId: {}", msg.getJobId(), e);
             channel.basicNack(deliveryTag, false, false);
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            failBatchMessage(msg, true, e);
         }
     }
 
@@ -275,7 +289,7 @@ public class MQConsumer {
             channel.basicNack(deliveryTag, false, false);
             
             // 更新Job状态为失败
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            updateJobFailed(msg.getJobId(), msg.getUserId(), e.getMessage());
         }
     }
 
@@ -299,7 +313,7 @@ public class MQConsumer {
         } catch (Exception e) {
             log.error("消息处理失败 - jobId: {}", msg.getJobId(), e);
             channel.basicNack(deliveryTag, false, false);
-            updateJobFailed(msg.getJobId(), e.getMessage());
+            updateJobFailed(msg.getJobId(), msg.getUserId(), e.getMessage());
         }
     }
 
@@ -319,7 +333,7 @@ public class MQConsumer {
         log.info("执行单个分镜图生成 - jobId: {}, shotId: {}, customPrompt: {}, referenceImageUrls: {}", 
                 jobId, shotId, customPrompt != null ? "[自定义内容]" : "使用分镜剧本",
                 referenceImageUrls != null ? referenceImageUrls.size() : 0);
-        updateJobRunning(jobId);
+        updateJobRunning(jobId, userId);
     
         // 应用配置
         String finalAspectRatio = msg.aspectRatio() != null ? msg.aspectRatio() :
@@ -404,12 +418,12 @@ public class MQConsumer {
             // 7. 更新Job为成功，并设置resultUrl
             List<String> imageUrls = new java.util.ArrayList<>();
             imageUrls.add(ossUrl);
-            updateJobSuccessWithImages(jobId, 1, 0, imageUrls);
+            updateJobSuccessWithImages(jobId, userId, 1, 0, imageUrls);
             log.info("单个分镜图生成完成 - shotId: {}", shotId);
 
         } catch (Exception e) {
             log.error("单个分镜图生成失败 - shotId: {}", shotId, e);
-            updateJobFailed(jobId, e.getMessage());
+            updateJobFailed(jobId, userId, e.getMessage());
             throw e;
         }
     }
@@ -419,13 +433,8 @@ public class MQConsumer {
      */
     private void executeBatchShotImageGeneration(BatchTaskMessage msg) {
         Long jobId = msg.getJobId();
-        List<Long> shotIds = msg.getTargetIds();
-        String mode = msg.getMode();
-        Integer countPerItem = msg.getCountPerItem();
-        Long userId = msg.getUserId();
-        Long projectId = msg.getProjectId();
 
-        updateJobRunning(jobId);
+        batchJobRunner.markJobRunning(jobId, msg.getUserId());
 
         String finalAspectRatio = msg.getAspectRatio() != null ? msg.getAspectRatio() :
                 aiProperties.getImage().getDefaultAspectRatio();
@@ -436,182 +445,155 @@ public class MQConsumer {
 
         log.info("应用配置 - aspectRatio: {}, model: {}", finalAspectRatio, finalModel);
 
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger failCount = new AtomicInteger(0);
+        runBatch(msg, "SHOT", finalModel, false,
+                (shotId, index) -> generateShotImages(msg, shotId, finalModel, finalAspectRatio));
+    }
 
-        for (int i = 0; i < shotIds.size(); i++) {
-            Long shotId = shotIds.get(i);
-            log.info("处理分镜 [{}/{}] - shotId: {}", i + 1, shotIds.size(), shotId);
+    /**
+     * 为单个分镜生成countPerItem张图片(批量分镜图任务的子项)
+     */
+    private BatchJobRunner.ItemOutcome generateShotImages(BatchTaskMessage msg, Long shotId,
+                                                          String finalModel, String finalAspectRatio) {
+        Long jobId = msg.getJobId();
+        Long userId = msg.getUserId();
+        Long projectId = msg.getProjectId();
+        Integer countPerItem = msg.getCountPerItem();
 
-            try {
-                var shot = storyboardShotMapper.selectById(shotId);
-                if (shot == null) {
-                    log.warn("分镜不存在,跳过 - shotId: {}", shotId);
-                    failCount.incrementAndGet();
-                    continue;
-                }
+        var shot = storyboardShotMapper.selectById(shotId);
+        if (shot == null) {
+            log.warn("分镜不存在,跳过 - shotId: {}", shotId);
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.SHOT_NOT_FOUND);
+        }
 
-                if ("MISSING".equals(mode)) {
-                    var assetQuery = new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<com.ym.ai_story_studio_server.entity.Asset>();
-                    assetQuery.eq(com.ym.ai_story_studio_server.entity.Asset::getOwnerType, "SHOT")
-                              .eq(com.ym.ai_story_studio_server.entity.Asset::getOwnerId, shotId)
-                              .eq(com.ym.ai_story_studio_server.entity.Asset::getAssetType, "SHOT_IMG")
-                              .eq(com.ym.ai_story_studio_server.entity.Asset::getProjectId, projectId);
-
-                    long imageCount = assetMapper.selectCount(assetQuery);
-                    if (imageCount > 0) {
-                        log.info("MISSING模式 - 分镜已有图片资产,跳过 - shotId: {}", shotId);
-                        successCount.incrementAndGet();
-                        continue;
-                    }
-                }
+        if ("MISSING".equals(msg.getMode())) {
+            var assetQuery = new com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper<com.ym.ai_story_studio_server.entity.Asset>();
+            assetQuery.eq(com.ym.ai_story_studio_server.entity.Asset::getOwnerType, "SHOT")
+                      .eq(com.ym.ai_story_studio_server.entity.Asset::getOwnerId, shotId)
+                      .eq(com.ym.ai_story_studio_server.entity.Asset::getAssetType, "SHOT_IMG")
+                      .eq(com.ym.ai_story_studio_server.entity.Asset::getProjectId, projectId);
+
+            long imageCount = assetMapper.selectCount(assetQuery);
+            if (imageCount > 0) {
+                log.info("MISSING模式 - 分镜已有图片资产,跳过 - shotId: {}", shotId);
+                return BatchJobRunner.ItemOutcome.empty();
+            }
+        }
 
-                String scriptText = shot.getScriptText() != null ? shot.getScriptText() :
-                               "为分镜生成图片 - shotId: " + shotId;
-                String prompt = buildShotImagePrompt(scriptText);
-
-                // 查询分镜绑定的角色图片作为参考图
-                List<String> referenceImageUrls = getBoundCharacterImages(shotId);
-                log.info("分镜绑定的角色图片数量 - shotId: {}, count: {}", shotId, referenceImageUrls.size());
-
-                // 为每个分镜生成多张图片
-                for (int j = 0; j < countPerItem; j++) {
-                    try {
-                        // 1. 调用AI生成图片，传入角色图片作为参考图
-                        log.info("调用AI生成图片 [{}/{}] - shotId: {}, prompt: {}, referenceImages: {}", 
-                                j + 1, countPerItem, shotId, prompt, referenceImageUrls.size());
-                        VectorEngineClient.ImageApiResponse apiResponse = vectorEngineClient.generateImage(
-                                prompt,
-                                finalModel,
-                                finalAspectRatio,
-                                referenceImageUrls  // 传入绑定的角色图片作为参考图
-                        );
-
-                        if (apiResponse == null || apiResponse.data() == null || apiResponse.data().isEmpty()) {
-                            log.error("AI返回空响应 - shotId: {}", shotId);
-                            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "AI返回空响应");
-                        }
-
-                        String imageData = apiResponse.data().get(0).url();
-                        log.info("AI生成成功 - shotId: {}, imageData类型: {}", shotId, 
-                                isBase64(imageData) ? "base64" : "url");
-
-                        // 2. 上传到OSS
-                        String ossUrl = processImageAndUploadToOss(imageData, jobId, j);
-                        log.info("上传OSS成功 - shotId: {}, ossUrl: {}", shotId, ossUrl);
-
-                        // 3. 保存到Asset表
-                        assetCreationService.createAssetWithVersion(
-                                projectId,
-                                "SHOT",
-                                shotId,
-                                "SHOT_IMG",
-                                ossUrl,
-                                prompt,
-                                finalModel,
-                                finalAspectRatio,
-                                userId
-                        );
-                        log.info("Asset保存成功 - shotId: {}, ossUrl: {}", shotId, ossUrl);
-
-                        // 4. 扣积分（每张图片扣一次）
-                        Map<String, Object> metaData = new HashMap<>();
-                        metaData.put("model", finalModel);
-                        metaData.put("aspectRatio", finalAspectRatio);
-                        metaData.put("imageUrl", ossUrl);
-                        metaData.put("shotId", shotId);
-
-                        chargingService.charge(
-                                ChargingService.ChargingRequest.builder()
-                                        .jobId(jobId)
-                                        .bizType("IMAGE_GENERATION")
-                                        .modelCode(finalModel)
-                                        .quantity(1)
-                                        .metaData(metaData)
-                                        .build()
-                        );
-                        log.info("积分扣除成功 - shotId: {}", shotId);
-
-                    } catch (Exception e) {
-                        log.error("生成单张图片失败 [{}/{}] - shotId: {}", j + 1, countPerItem, shotId, e);
-                        // 单张失败不影响其他张
-                    }
+        String scriptText = shot.getScriptText() != null ? shot.getScriptText() :
+                       "为分镜生成图片 - shotId: " + shotId;
+        String prompt = buildShotImagePrompt(scriptText);
+
+        // 查询分镜绑定的角色图片作为参考图
+        List<String> referenceImageUrls = getBoundCharacterImages(shotId);
+        log.info("分镜绑定的角色图片数量 - shotId: {}, count: {}", shotId, referenceImageUrls.size());
+
+        List<String> ossUrls = new ArrayList<>();
+
+        // 为每个分镜生成多张图片
+        for (int j = 0; j < countPerItem; j++) {
+            try {
+                // 1. 调用AI生成图片，传入角色图片作为参考图
+                log.info("调用AI生成图片 [{}/{}] - shotId: {}, prompt: {}, referenceImages: {}", 
+                        j + 1, countPerItem, shotId, prompt, referenceImageUrls.size());
+                VectorEngineClient.ImageApiResponse apiResponse = vectorEngineClient.generateImage(
+                        prompt,
+                        finalModel,
+                        finalAspectRatio,
+                        referenceImageUrls  // 传入绑定的角色图片作为参考图
+                );
+
+                if (apiResponse == null || apiResponse.data() == null || apiResponse.data().isEmpty()) {
+                    log.error("AI返回空响应 - shotId: {}", shotId);
+                    throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "AI返回空响应");
                 }
 
-                successCount.incrementAndGet();
-                log.info("分镜图生成完成 - shotId: {}, 数量: {}", shotId, countPerItem);
+                String imageData = apiResponse.data().get(0).url();
+                log.info("AI生成成功 - shotId: {}, imageData类型: {}", shotId, 
+                        isBase64(imageData) ? "base64" : "url");
+
+                // 2. 上传到OSS
+                String ossUrl = processImageAndUploadToOss(imageData, jobId, j);
+                log.info("上传OSS成功 - shotId: {}, ossUrl: {}", shotId, ossUrl);
+
+                // 3. 保存到Asset表
+                assetCreationService.createAssetWithVersion(
+                        projectId,
+                        "SHOT",
+                        shotId,
+                        "SHOT_IMG",
+                        ossUrl,
+                        prompt,
+                        finalModel,
+                        finalAspectRatio,
+                        userId
+                );
+                ossUrls.add(ossUrl);
+                log.info("Asset保存成功 - shotId: {}, ossUrl: {}", shotId, ossUrl);
+
+                // 4. 扣积分（每张图片扣一次）
+                Map<String, Object> metaData = new HashMap<>();
+                metaData.put("model", finalModel);
+                metaData.put("aspectRatio", finalAspectRatio);
+                metaData.put("imageUrl", ossUrl);
+                metaData.put("shotId", shotId);
+
+                chargingService.charge(
+                        ChargingService.ChargingRequest.builder()
+                                .jobId(jobId)
+                                .bizType("IMAGE_GENERATION")
+                                .modelCode(finalModel)
+                                .quantity(1)
+                                .metaData(metaData)
+                                .build()
+                );
+                log.info("积分扣除成功 - shotId: {}", shotId);
 
             } catch (Exception e) {
-                failCount.incrementAndGet();
-                log.error("分镜图生成失败 - shotId: {}", shotId, e);
+                log.error("生成单张图片失败 [{}/{}] - shotId: {}", j + 1, countPerItem, shotId, e);
+                // 单张失败不影响其他张
             }
-
-            updateJobProgress(jobId, i + 1, shotIds.size());
         }
 
-        log.info("批量生成分镜图完成 - 成功: {}, 失败: {}", successCount.get(), failCount.get());
-        updateJobSuccess(jobId, successCount.get(), failCount.get());
+        log.info("分镜图生成完成 - shotId: {}, 数量: {}", shotId, countPerItem);
+        return BatchJobRunner.ItemOutcome.of(ossUrls);
     }
 
     private void executeBatchVideoGeneration(BatchTaskMessage msg) {
         Long jobId = msg.getJobId();
-        List<Long> shotIds = msg.getTargetIds();
-        Long userId = msg.getUserId();
         Long projectId = msg.getProjectId();
 
-        updateJobRunning(jobId);
+        batchJobRunner.markJobRunning(jobId, msg.getUserId());
 
         String finalAspectRatio = msg.getAspectRatio() != null ? msg.getAspectRatio() :
                 aiProperties.getVideo().getDefaultAspectRatio();
         String finalModel = msg.getModel() != null ? msg.getModel() :
                 aiProperties.getVideo().getModel();
 
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger failCount = new AtomicInteger(0);
-
-        for (int i = 0; i < shotIds.size(); i++) {
-            Long shotId = shotIds.get(i);
-            log.info("处理分镜视频 [{}/{}] - shotId: {}", i + 1, shotIds.size(), shotId);
-
-            try {
-                var shot = storyboardShotMapper.selectById(shotId);
-                if (shot == null) {
-                    log.warn("分镜不存在,跳过 - shotId: {}", shotId);
-                    failCount.incrementAndGet();
-                    continue;
-                }
+        // UserContext由BatchJobRunner在子项线程中设置
+        runBatch(msg, "SHOT", finalModel, false,
+                (shotId, index) -> {
+                    var shot = storyboardShotMapper.selectById(shotId);
+                    if (shot == null) {
+                        log.warn("分镜不存在,跳过 - shotId: {}", shotId);
+                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.SHOT_NOT_FOUND);
+                    }
 
-                String prompt = shot.getScriptText() != null ? shot.getScriptText() :
-                               "为分镜生成视频 - shotId: " + shotId;
+                    String prompt = shot.getScriptText() != null ? shot.getScriptText() :
+                                   "为分镜生成视频 - shotId: " + shotId;
 
-                VideoGenerateRequest request = new VideoGenerateRequest(
-                        prompt,
-                        finalAspectRatio,
-                        aiProperties.getVideo().getDefaultDuration(),
-                        null,
-                        null,
-                        projectId
-                );
+                    VideoGenerateRequest request = new VideoGenerateRequest(
+                            prompt,
+                            finalAspectRatio,
+                            aiProperties.getVideo().getDefaultDuration(),
+                            null,
+                            null,
+                            projectId
+                    );
 
-                UserContext.setUserId(userId);
-                try {
                     aiVideoService.generateVideo(request);
                     log.info("分镜视频生成任务已提交 - shotId: {}", shotId);
-                } finally {
-                    UserContext.clear();
-                }
-
-                successCount.incrementAndGet();
-
-            } catch (Exception e) {
-                failCount.incrementAndGet();
-                log.error("分镜视频生成失败 - shotId: {}", shotId, e);
-            }
-
-            updateJobProgress(jobId, i + 1, shotIds.size());
-        }
-
-        updateJobSuccess(jobId, successCount.get(), failCount.get());
+                    return BatchJobRunner.ItemOutcome.empty();
+                });
     }
 
     /**
@@ -630,7 +612,7 @@ public class MQConsumer {
 
         log.info("执行单个分镜视频生成 - jobId: {}, shotId: {}, promptLength: {}, hasReference: {}",
                 jobId, shotId, prompt != null ? prompt.length() : 0, referenceImageUrl != null);
-        updateJobRunning(jobId);
+        updateJobRunning(jobId, userId);
 
         // 应用配置
         String finalAspectRatio = aspectRatio != null ? aspectRatio :
@@ -672,7 +654,7 @@ public class MQConsumer {
             if (referenceImageUrl == null || referenceImageUrl.isBlank()) {
                 String errorMsg = "该分镜尚未生成图片，请先生成分镜图片后再生成视频";
                 log.error(errorMsg + " - shotId: {}", shotId);
-                updateJobFailed(jobId, errorMsg);
+                updateJobFailed(jobId, userId, errorMsg);
                 throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, errorMsg);
             }
 
@@ -707,6 +689,8 @@ public class MQConsumer {
                     metaData.put("size", size);
                     metaData.put("prompt", finalPrompt);
                     metaData.put("apiTaskId", apiTaskId);
+                    // 轮询超时从提交时间起算,其他节点接管时沿用
+                    metaData.put("submittedAt", String.valueOf(System.currentTimeMillis()));
                     Job job = jobMapper.selectById(jobId);
                     if (job != null) {
                         job.setMetaJson(objectMapper.writeValueAsString(metaData));
@@ -734,7 +718,7 @@ public class MQConsumer {
 
         } catch (Exception e) {
             log.error("单个分镜视频生成失败 - shotId: {}", shotId, e);
-            updateJobFailed(jobId, e.getMessage());
+            updateJobFailed(jobId, userId, e.getMessage());
             throw e;
         }
     }
@@ -865,11 +849,9 @@ public class MQConsumer {
     private void executeBatchCharacterImageGeneration(BatchTaskMessage msg) {
         Long jobId = msg.getJobId();
         List<Long> characterIds = msg.getTargetIds(); // 这是 project_character 的 ID
-        Long userId = msg.getUserId();
-        Long projectId = msg.getProjectId();
 
         log.info("执行批量角色画像生成 - jobId: {}, characterCount: {}", jobId, characterIds.size());
-        updateJobRunning(jobId);
+        batchJobRunner.markJobRunning(jobId, msg.getUserId());
 
         String finalAspectRatio = msg.getAspectRatio() != null ? msg.getAspectRatio() : "1:1";
         String finalModel = msg.getModel() != null ? msg.getModel() :
@@ -877,176 +859,156 @@ public class MQConsumer {
                         aiProperties.getImage().getJimengModel() :
                         aiProperties.getImage().getDefaultModel());
 
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger failCount = new AtomicInteger(0);
-        
-        // 收集所有生成的图片URL（用于Job的allImageUrls）
-        List<String> allGeneratedImageUrls = new java.util.ArrayList<>();
-
-        for (int i = 0; i < characterIds.size(); i++) {
-            Long projectCharacterId = characterIds.get(i);
-
-            try {
-                // 1. 查询项目角色
-                ProjectCharacter projectCharacter = projectCharacterMapper.selectById(projectCharacterId);
-                if (projectCharacter == null) {
-                    log.warn("项目角色不存在 - projectCharacterId: {}", projectCharacterId);
-                    failCount.incrementAndGet();
-                    continue;
-                }
-
-                // 2. 查询角色库中的角色（可能为NULL，支持自定义角色）
-                CharacterLibrary character = null;
-                if (projectCharacter.getLibraryCharacterId() != null) {
-                    character = characterLibraryMapper.selectById(projectCharacter.getLibraryCharacterId());
-                }
-                
-                // 判断是否为自定义角色（未关联角色库）
-                boolean isCustomCharacter = (character == null);
-                log.info("角色类型 - projectCharacterId: {}, 自定义角色: {}", projectCharacterId, isCustomCharacter);
-
-                // 3. MISSING模式：检查是否已有图片
-                String existingThumbnail = isCustomCharacter ? 
-                        projectCharacter.getThumbnailUrl() : character.getThumbnailUrl();
-                if ("MISSING".equals(msg.getMode()) && existingThumbnail != null && !existingThumbnail.isEmpty()) {
-                    log.info("MISSING模式 - 角色已有图片,跳过 - projectCharacterId: {}", projectCharacterId);
-                    successCount.incrementAndGet();
-                    continue;
-                }
-
-                // 4. 构建提示词：基于AI分析的描述生成角色立绘
-                // 内嵌规则：提取角色的年龄、性别、外貌、服装
-                String characterName;
-                String description;
-                if (isCustomCharacter) {
-                    // 自定义角色：使用项目角色的信息
-                    characterName = projectCharacter.getDisplayName() != null ? 
-                            projectCharacter.getDisplayName() : "未命名角色";
-                    description = projectCharacter.getOverrideDescription();
-                } else {
-                    // 关联角色库：优先使用覆盖描述
-                    characterName = projectCharacter.getDisplayName() != null ?
-                            projectCharacter.getDisplayName() : character.getName();
-                    description = projectCharacter.getOverrideDescription() != null ?
-                            projectCharacter.getOverrideDescription() : character.getDescription();
-                }
-                
-                // 构建优化的提示词：强调角色特征（年龄、性别、外貌、服装）
-                String prompt;
-                if (description != null && !description.trim().isEmpty()) {
-                    // 有AI分析描述：直接使用描述作为主要提示词
-                    prompt = String.format("角色立绘，%s，2D动漫风格，高质量，精细绘制，全身像，正面站立，面向镜头",
-                            description.trim());
-                } else {
-                    // 无描述：使用角色名称
-                    prompt = String.format("角色立绘，%s，2D动漫风格，高质量，精细绘制，全身像，正面站立",
-                            characterName);
-                }
-
-                log.info("生成角色图片 - projectCharacterId: {}, name: {}, prompt: {}", projectCharacterId, characterName, prompt);
-
-                // 5. 调用向量引擎生成图片
-                UserContext.setUserId(userId);
-                try {
-                    ImageApiResponse response = vectorEngineClient.generateImage(
-                            prompt,
-                            finalModel,
-                            finalAspectRatio,
-                            Collections.emptyList()  // 无参考图片
-                    );
-
-                    // 6. 解析图片结果
-                    if (response == null || response.data() == null || response.data().isEmpty()) {
-                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "图片生成结果为空");
-                    }
+        // 所有子项结束后汇总生成的图片URL到Job的resultUrl和metaJson
+        runBatch(msg, "PCHAR", finalModel, true,
+                (projectCharacterId, index) -> generateCharacterImage(msg, projectCharacterId, index,
+                        finalModel, finalAspectRatio));
+    }
 
-                    // 获取所有返回的图片数据（即梦模型返回4张图片）
-                    List<ImageApiResponse.ImageData> allResults = response.data();
-                    log.info("AI返回 {} 张图片 - projectCharacterId: {}", allResults.size(), projectCharacterId);
-
-                    // 7. 处理所有图片并上传到OSS
-                    List<String> ossUrls = new java.util.ArrayList<>();
-                    for (int j = 0; j < allResults.size(); j++) {
-                        String imageData = allResults.get(j).url();
-                        if (imageData == null) {
-                            log.warn("第 {} 张图片数据为空,跳过", j + 1);
-                            continue;
-                        }
-                        String ossUrl = processImageAndUploadToOss(imageData, jobId, i * 10 + j);
-                        ossUrls.add(ossUrl);
-                        allGeneratedImageUrls.add(ossUrl);
-                        log.info("上传图片 [{}/{}] 到OSS成功 - ossUrl: {}", j + 1, allResults.size(), ossUrl);
-                    }
+    /**
+     * 生成单个角色画像(批量角色画像任务的子项)
+     */
+    private BatchJobRunner.ItemOutcome generateCharacterImage(BatchTaskMessage msg, Long projectCharacterId, int index,
+                                                              String finalModel, String finalAspectRatio) {
+        Long jobId = msg.getJobId();
 
-                    if (ossUrls.isEmpty()) {
-                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "无法获取有效的图片数据");
-                    }
+        // 1. 查询项目角色
+        ProjectCharacter projectCharacter = projectCharacterMapper.selectById(projectCharacterId);
+        if (projectCharacter == null) {
+            log.warn("项目角色不存在 - projectCharacterId: {}", projectCharacterId);
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.CHARACTER_NOT_FOUND);
+        }
 
-                    // 8. 使用第一张图片更新缩略图URL
-                    String primaryOssUrl = ossUrls.get(0);
-                    if (isCustomCharacter) {
-                        // 自定义角色：保存到项目角色表
-                        projectCharacter.setThumbnailUrl(primaryOssUrl);
-                        projectCharacterMapper.updateById(projectCharacter);
-                        log.info("自定义角色图片保存成功 - projectCharacterId: {}, ossUrl: {}", projectCharacterId, primaryOssUrl);
-                    } else {
-                        // 关联角色库：保存到角色库表
-                        character.setThumbnailUrl(primaryOssUrl);
-                        characterLibraryMapper.updateById(character);
-                        log.info("角色库图片更新成功 - characterId: {}, ossUrl: {}", character.getId(), primaryOssUrl);
-                    }
+        // 2. 查询角色库中的角色（可能为NULL，支持自定义角色）
+        CharacterLibrary character = null;
+        if (projectCharacter.getLibraryCharacterId() != null) {
+            character = characterLibraryMapper.selectById(projectCharacter.getLibraryCharacterId());
+        }
+        
+        // 判断是否为自定义角色（未关联角色库）
+        boolean isCustomCharacter = (character == null);
+        log.info("角色类型 - projectCharacterId: {}, 自定义角色: {}", projectCharacterId, isCustomCharacter);
+
+        // 3. MISSING模式：检查是否已有图片
+        String existingThumbnail = isCustomCharacter ? 
+                projectCharacter.getThumbnailUrl() : character.getThumbnailUrl();
+        if ("MISSING".equals(msg.getMode()) && existingThumbnail != null && !existingThumbnail.isEmpty()) {
+            log.info("MISSING模式 - 角色已有图片,跳过 - projectCharacterId: {}", projectCharacterId);
+            return BatchJobRunner.ItemOutcome.empty();
+        }
 
-                    log.info("角色图片生成成功 - projectCharacterId: {}, 总图片数: {}, 主图: {}", 
-                            projectCharacterId, ossUrls.size(), primaryOssUrl);
+        // 4. 构建提示词：基于AI分析的描述生成角色立绘
+        // 内嵌规则：提取角色的年龄、性别、外貌、服装
+        String characterName;
+        String description;
+        if (isCustomCharacter) {
+            // 自定义角色：使用项目角色的信息
+            characterName = projectCharacter.getDisplayName() != null ? 
+                    projectCharacter.getDisplayName() : "未命名角色";
+            description = projectCharacter.getOverrideDescription();
+        } else {
+            // 关联角色库：优先使用覆盖描述
+            characterName = projectCharacter.getDisplayName() != null ?
+                    projectCharacter.getDisplayName() : character.getName();
+            description = projectCharacter.getOverrideDescription() != null ?
+                    projectCharacter.getOverrideDescription() : character.getDescription();
+        }
+        
+        // 构建优化的提示词：强调角色特征（年龄、性别、外貌、服装）
+        String prompt;
+        if (description != null && !description.trim().isEmpty()) {
+            // 有AI分析描述：直接使用描述作为主要提示词
+            prompt = String.format("角色立绘，%s，2D动漫风格，高质量，精细绘制，全身像，正面站立，面向镜头",
+                    description.trim());
+        } else {
+            // 无描述：使用角色名称
+            prompt = String.format("角色立绘，%s，2D动漫风格，高质量，精细绘制，全身像，正面站立",
+                    characterName);
+        }
 
-                    // 9. 扣除积分（按批次扣费，不按图片张数）
-                    Map<String, Object> metaData = new HashMap<>();
-                    metaData.put("projectCharacterId", projectCharacterId);
-                    metaData.put("characterName", characterName);
-                    metaData.put("isCustomCharacter", isCustomCharacter);
-                    metaData.put("model", finalModel);
-                    metaData.put("imageCount", ossUrls.size());
-                    metaData.put("allImageUrls", ossUrls);
-
-                    chargingService.charge(
-                            ChargingService.ChargingRequest.builder()
-                                    .jobId(jobId)
-                                    .bizType("IMAGE_GENERATION")
-                                    .modelCode(finalModel)
-                                    .quantity(1)  // 按批次扣费
-                                    .metaData(metaData)
-                                    .build()
-                    );
+        log.info("生成角色图片 - projectCharacterId: {}, name: {}, prompt: {}", projectCharacterId, characterName, prompt);
 
-                    successCount.incrementAndGet();
+        // 5. 调用向量引擎生成图片
+        ImageApiResponse response = vectorEngineClient.generateImage(
+                prompt,
+                finalModel,
+                finalAspectRatio,
+                Collections.emptyList()  // 无参考图片
+        );
 
-                } finally {
-                    UserContext.clear();
-                }
+        // 6. 解析图片结果
+        if (response == null || response.data() == null || response.data().isEmpty()) {
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "图片生成结果为空");
+        }
 
-            } catch (Exception e) {
-                failCount.incrementAndGet();
-                log.error("角色图片生成失败 - projectCharacterId: {}", projectCharacterId, e);
+        // 获取所有返回的图片数据（即梦模型返回4张图片）
+        List<ImageApiResponse.ImageData> allResults = response.data();
+        log.info("AI返回 {} 张图片 - projectCharacterId: {}", allResults.size(), projectCharacterId);
+
+        // 7. 处理所有图片并上传到OSS
+        List<String> ossUrls = new java.util.ArrayList<>();
+        for (int j = 0; j < allResults.size(); j++) {
+            String imageData = allResults.get(j).url();
+            if (imageData == null) {
+                log.warn("第 {} 张图片数据为空,跳过", j + 1);
+                continue;
             }
+            String ossUrl = processImageAndUploadToOss(imageData, jobId, index * 10 + j);
+            ossUrls.add(ossUrl);
+            log.info("上传图片 [{}/{}] 到OSS成功 - ossUrl: {}", j + 1, allResults.size(), ossUrl);
+        }
 
-            updateJobProgress(jobId, i + 1, characterIds.size());
+        if (ossUrls.isEmpty()) {
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "无法获取有效的图片数据");
         }
 
-        log.info("批量生成角色画像完成 - 成功: {}, 失败: {}, 总图片数: {}", 
-                successCount.get(), failCount.get(), allGeneratedImageUrls.size());
-        
-        // 更新Job状态并保存所有图片URL到metaJson
-        updateJobSuccessWithImages(jobId, successCount.get(), failCount.get(), allGeneratedImageUrls);
+        // 8. 使用第一张图片更新缩略图URL
+        String primaryOssUrl = ossUrls.get(0);
+        if (isCustomCharacter) {
+            // 自定义角色：保存到项目角色表
+            projectCharacter.setThumbnailUrl(primaryOssUrl);
+            projectCharacterMapper.updateById(projectCharacter);
+            shotViewCache.evict(projectCharacter.getProjectId());
+            log.info("自定义角色图片保存成功 - projectCharacterId: {}, ossUrl: {}", projectCharacterId, primaryOssUrl);
+        } else {
+            // 关联角色库：保存到角色库表
+            character.setThumbnailUrl(primaryOssUrl);
+            characterLibraryMapper.updateById(character);
+            libraryShotViewEvictor.evictCharacter(character.getId());
+            log.info("角色库图片更新成功 - characterId: {}, ossUrl: {}", character.getId(), primaryOssUrl);
+        }
+
+        log.info("角色图片生成成功 - projectCharacterId: {}, 总图片数: {}, 主图: {}", 
+                projectCharacterId, ossUrls.size(), primaryOssUrl);
+
+        // 9. 扣除积分（按批次扣费，不按图片张数）
+        Map<String, Object> metaData = new HashMap<>();
+        metaData.put("projectCharacterId", projectCharacterId);
+        metaData.put("characterName", characterName);
+        metaData.put("isCustomCharacter", isCustomCharacter);
+        metaData.put("model", finalModel);
+        metaData.put("imageCount", ossUrls.size());
+        metaData.put("allImageUrls", ossUrls);
+
+        chargingService.charge(
+                ChargingService.ChargingRequest.builder()
+                        .jobId(jobId)
+                        .bizType("IMAGE_GENERATION")
+                        .modelCode(finalModel)
+                        .quantity(1)  // 按批次扣费
+                        .metaData(metaData)
+                        .build()
+        );
+
+        return BatchJobRunner.ItemOutcome.of(ossUrls);
     }
 
     private void executeBatchSceneImageGeneration(BatchTaskMessage msg) {
         Long jobId = msg.getJobId();
         List<Long> sceneIds = msg.getTargetIds(); // 这是 project_scene 的 ID
-        Long userId = msg.getUserId();
-        Long projectId = msg.getProjectId();
 
         log.info("执行批量场景画像生成 - jobId: {}, sceneCount: {}", jobId, sceneIds.size());
-        updateJobRunning(jobId);
+        batchJobRunner.markJobRunning(jobId, msg.getUserId());
 
         String finalAspectRatio = msg.getAspectRatio() != null ? msg.getAspectRatio() : "16:9";
         String finalModel = msg.getModel() != null ? msg.getModel() :
@@ -1054,136 +1016,122 @@ public class MQConsumer {
                         aiProperties.getImage().getJimengModel() :
                         aiProperties.getImage().getDefaultModel());
 
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger failCount = new AtomicInteger(0);
-
-        for (int i = 0; i < sceneIds.size(); i++) {
-            Long projectSceneId = sceneIds.get(i);
-
-            try {
-                // 1. 查询项目场景
-                ProjectScene projectScene = projectSceneMapper.selectById(projectSceneId);
-                if (projectScene == null) {
-                    log.warn("项目场景不存在 - projectSceneId: {}", projectSceneId);
-                    failCount.incrementAndGet();
-                    continue;
-                }
-
-                // 2. 查询场景库中的场景（可能为null，自定义场景不关联场景库）
-                SceneLibrary scene = null;
-                if (projectScene.getLibrarySceneId() != null) {
-                    scene = sceneLibraryMapper.selectById(projectScene.getLibrarySceneId());
-                }
-
-                // 3. 获取场景名称和描述（优先使用项目场景覆盖，其次使用场景库）
-                String sceneName = projectScene.getDisplayName();
-                String description = projectScene.getOverrideDescription();
-                if (sceneName == null && scene != null) {
-                    sceneName = scene.getName();
-                }
-                if (description == null && scene != null) {
-                    description = scene.getDescription();
-                }
-                if (sceneName == null) {
-                    sceneName = "场景";
-                }
-
-                // 4. MISSING模式：检查是否已有图片（优先检查项目场景，其次场景库）
-                String existingThumbnail = projectScene.getThumbnailUrl();
-                if (existingThumbnail == null && scene != null) {
-                    existingThumbnail = scene.getThumbnailUrl();
-                }
-                if ("MISSING".equals(msg.getMode()) && existingThumbnail != null) {
-                    log.info("MISSING模式 - 场景已有图片,跳过 - projectSceneId: {}", projectSceneId);
-                    successCount.incrementAndGet();
-                    continue;
-                }
-
-                // 5. 构建提示词：使用场景描述生成场景图
-                String prompt = String.format("纯场景背景图，%s，%s，2D动漫风格，高质量高清，画质细腻，空无一人的场景，禁止出现任何人物、角色、人影、动物，只有纯背景环境",
-                        sceneName, description != null ? description : "");
-
-                log.info("生成场景图片 - projectSceneId: {}, name: {}, prompt: {}", projectSceneId, sceneName, prompt);
-
-                // 6. 调用向量引擎生成图片
-                UserContext.setUserId(userId);
-                try {
-                    ImageApiResponse response = vectorEngineClient.generateImage(
-                            prompt,
-                            finalModel,
-                            finalAspectRatio,
-                            Collections.emptyList()  // 无参考图片
-                    );
-
-                    // 7. 解析图片结果
-                    if (response == null || response.data() == null || response.data().isEmpty()) {
-                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "图片生成结果为空");
-                    }
+        runBatch(msg, "PSCENE", finalModel, false,
+                (projectSceneId, index) -> generateSceneImage(msg, projectSceneId, index,
+                        finalModel, finalAspectRatio));
+    }
 
-                    // 获取图片URL或base64
-                    ImageApiResponse.ImageData firstResult = response.data().get(0);
-                    String imageData = firstResult.url();
+    /**
+     * 生成单个场景画像(批量场景画像任务的子项)
+     */
+    private BatchJobRunner.ItemOutcome generateSceneImage(BatchTaskMessage msg, Long projectSceneId, int index,
+                                                          String finalModel, String finalAspectRatio) {
+        Long jobId = msg.getJobId();
 
-                    if (imageData == null) {
-                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "无法获取图片数据");
-                    }
+        // 1. 查询项目场景
+        ProjectScene projectScene = projectSceneMapper.selectById(projectSceneId);
+        if (projectScene == null) {
+            log.warn("项目场景不存在 - projectSceneId: {}", projectSceneId);
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.SCENE_NOT_FOUND);
+        }
 
-                    // 8. 上传到OSS
-                    String ossUrl = processImageAndUploadToOss(imageData, jobId, i);
+        // 2. 查询场景库中的场景（可能为null，自定义场景不关联场景库）
+        SceneLibrary scene = null;
+        if (projectScene.getLibrarySceneId() != null) {
+            scene = sceneLibraryMapper.selectById(projectScene.getLibrarySceneId());
+        }
 
-                    // 9. 保存缩略图URL（优先保存到项目场景）
-                    projectScene.setThumbnailUrl(ossUrl);
-                    projectSceneMapper.updateById(projectScene);
-                    // 如果关联了场景库，也更新场景库
-                    if (scene != null) {
-                        scene.setThumbnailUrl(ossUrl);
-                        sceneLibraryMapper.updateById(scene);
-                    }
+        // 3. 获取场景名称和描述（优先使用项目场景覆盖，其次使用场景库）
+        String sceneName = projectScene.getDisplayName();
+        String description = projectScene.getOverrideDescription();
+        if (sceneName == null && scene != null) {
+            sceneName = scene.getName();
+        }
+        if (description == null && scene != null) {
+            description = scene.getDescription();
+        }
+        if (sceneName == null) {
+            sceneName = "场景";
+        }
 
-                    log.info("场景图片生成成功 - projectSceneId: {}, ossUrl: {}", projectSceneId, ossUrl);
+        // 4. MISSING模式：检查是否已有图片（优先检查项目场景，其次场景库）
+        String existingThumbnail = projectScene.getThumbnailUrl();
+        if (existingThumbnail == null && scene != null) {
+            existingThumbnail = scene.getThumbnailUrl();
+        }
+        if ("MISSING".equals(msg.getMode()) && existingThumbnail != null) {
+            log.info("MISSING模式 - 场景已有图片,跳过 - projectSceneId: {}", projectSceneId);
+            return BatchJobRunner.ItemOutcome.empty();
+        }
 
-                    // 10. 扣除积分
-                    Map<String, Object> metaData = new HashMap<>();
-                    metaData.put("projectSceneId", projectSceneId);
-                    metaData.put("sceneName", sceneName);
-                    metaData.put("model", finalModel);
+        // 5. 构建提示词：使用场景描述生成场景图
+        String prompt = String.format("纯场景背景图，%s，%s，2D动漫风格，高质量高清，画质细腻，空无一人的场景，禁止出现任何人物、角色、人影、动物，只有纯背景环境",
+                sceneName, description != null ? description : "");
 
-                    chargingService.charge(
-                            ChargingService.ChargingRequest.builder()
-                                    .jobId(jobId)
-                                    .bizType("IMAGE_GENERATION")
-                                    .modelCode(finalModel)
-                                    .quantity(1)
-                                    .metaData(metaData)
-                                    .build()
-                    );
+        log.info("生成场景图片 - projectSceneId: {}, name: {}, prompt: {}", projectSceneId, sceneName, prompt);
 
-                    successCount.incrementAndGet();
+        // 6. 调用向量引擎生成图片
+        ImageApiResponse response = vectorEngineClient.generateImage(
+                prompt,
+                finalModel,
+                finalAspectRatio,
+                Collections.emptyList()  // 无参考图片
+        );
 
-                } finally {
-                    UserContext.clear();
-                }
+        // 7. 解析图片结果
+        if (response == null || response.data() == null || response.data().isEmpty()) {
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "图片生成结果为空");
+        }
 
-            } catch (Exception e) {
-                failCount.incrementAndGet();
-                log.error("场景图片生成失败 - projectSceneId: {}", projectSceneId, e);
-            }
+        // 获取图片URL或base64
+        ImageApiResponse.ImageData firstResult = response.data().get(0);
+        String imageData = firstResult.url();
 
-            updateJobProgress(jobId, i + 1, sceneIds.size());
+        if (imageData == null) {
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "无法获取图片数据");
         }
 
-        log.info("批量生成场景画像完成 - 成功: {}, 失败: {}", successCount.get(), failCount.get());
-        updateJobSuccess(jobId, successCount.get(), failCount.get());
+        // 8. 上传到OSS
+        String ossUrl = processImageAndUploadToOss(imageData, jobId, index);
+
+        // 9. 保存缩略图URL（优先保存到项目场景）
+        projectScene.setThumbnailUrl(ossUrl);
+        projectSceneMapper.updateById(projectScene);
+        // 如果关联了场景库，也更新场景库
+        if (scene != null) {
+            scene.setThumbnailUrl(ossUrl);
+            sceneLibraryMapper.updateById(scene);
+            libraryShotViewEvictor.evictScene(scene.getId());
+        }
+        shotViewCache.evict(projectScene.getProjectId());
+
+        log.info("场景图片生成成功 - projectSceneId: {}, ossUrl: {}", projectSceneId, ossUrl);
+
+        // 10. 扣除积分
+        Map<String, Object> metaData = new HashMap<>();
+        metaData.put("projectSceneId", projectSceneId);
+        metaData.put("sceneName", sceneName);
+        metaData.put("model", finalModel);
+
+        chargingService.charge(
+                ChargingService.ChargingRequest.builder()
+                        .jobId(jobId)
+                        .bizType("IMAGE_GENERATION")
+                        .modelCode(finalModel)
+                        .quantity(1)
+                        .metaData(metaData)
+                        .build()
+        );
+
+        return BatchJobRunner.ItemOutcome.of(List.of(ossUrl));
     }
 
     private void executeBatchPropImageGeneration(BatchTaskMessage msg) {
         Long jobId = msg.getJobId();
         List<Long> propIds = msg.getTargetIds(); // 这是 project_prop 的 ID
-        Long userId = msg.getUserId();
-        Long projectId = msg.getProjectId();
 
         log.info("执行批量道具画像生成 - jobId: {}, propCount: {}", jobId, propIds.size());
-        updateJobRunning(jobId);
+        batchJobRunner.markJobRunning(jobId, msg.getUserId());
 
         String finalAspectRatio = msg.getAspectRatio() != null ? msg.getAspectRatio() : "1:1";
         String finalModel = msg.getModel() != null ? msg.getModel() :
@@ -1191,170 +1139,179 @@ public class MQConsumer {
                         aiProperties.getImage().getJimengModel() :
                         aiProperties.getImage().getDefaultModel());
 
-        AtomicInteger successCount = new AtomicInteger(0);
-        AtomicInteger failCount = new AtomicInteger(0);
-        
-        // 收集所有生成的图片URL（用于Job的allImageUrls）
-        List<String> allGeneratedImageUrls = new java.util.ArrayList<>();
-
-        for (int i = 0; i < propIds.size(); i++) {
-            Long projectPropId = propIds.get(i);
-
-            try {
-                // 1. 查询项目道具
-                ProjectProp projectProp = projectPropMapper.selectById(projectPropId);
-                if (projectProp == null) {
-                    log.warn("项目道具不存在 - projectPropId: {}", projectPropId);
-                    failCount.incrementAndGet();
-                    continue;
-                }
-
-                // 2. 查询道具库中的道具
-                PropLibrary prop = propLibraryMapper.selectById(projectProp.getLibraryPropId());
-                if (prop == null) {
-                    log.warn("道具库道具不存在 - libraryPropId: {}", projectProp.getLibraryPropId());
-                    failCount.incrementAndGet();
-                    continue;
-                }
-
-                // 3. MISSING模式：检查是否已有图片
-                if ("MISSING".equals(msg.getMode()) && prop.getThumbnailUrl() != null) {
-                    log.info("MISSING模式 - 道具已有图片,跳过 - propId: {}", prop.getId());
-                    successCount.incrementAndGet();
-                    continue;
-                }
-
-                // 4. 构建提示词：使用道具描述生成道具图
-                String description = projectProp.getOverrideDescription() != null ?
-                        projectProp.getOverrideDescription() : prop.getDescription();
-                String propName = projectProp.getDisplayName() != null ?
-                        projectProp.getDisplayName() : prop.getName();
-                String prompt = String.format("道具画像，%s，%s，2D动漫风格，高质量高清，画质细腻，白色背景，单个物件",
-                        propName, description != null ? description : "");
-
-                log.info("生成道具图片 - propId: {}, name: {}, prompt: {}", prop.getId(), propName, prompt);
-
-                // 5. 调用向量引擎生成图片
-                UserContext.setUserId(userId);
-                try {
-                    ImageApiResponse response = vectorEngineClient.generateImage(
-                            prompt,
-                            finalModel,
-                            finalAspectRatio,
-                            Collections.emptyList()  // 无参考图片
-                    );
-
-                    // 6. 解析图片结果
-                    if (response == null || response.data() == null || response.data().isEmpty()) {
-                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "图片生成结果为空");
-                    }
-
-                    // 获取所有返回的图片数据（即梦模型返回4张图片）
-                    List<ImageApiResponse.ImageData> allResults = response.data();
-                    log.info("AI返回 {} 张图片 - propId: {}", allResults.size(), prop.getId());
-
-                    // 7. 处理所有图片并上传到OSS
-                    List<String> ossUrls = new java.util.ArrayList<>();
-                    for (int j = 0; j < allResults.size(); j++) {
-                        String imageData = allResults.get(j).url();
-                        if (imageData == null) {
-                            log.warn("第 {} 张图片数据为空,跳过", j + 1);
-                            continue;
-                        }
-                        String ossUrl = processImageAndUploadToOss(imageData, jobId, i * 10 + j);
-                        ossUrls.add(ossUrl);
-                        allGeneratedImageUrls.add(ossUrl);
-                        log.info("上传图片 [{}/{}] 到OSS成功 - ossUrl: {}", j + 1, allResults.size(), ossUrl);
-                    }
-
-                    if (ossUrls.isEmpty()) {
-                        throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "无法获取有效的图片数据");
-                    }
+        // 所有子项结束后汇总生成的图片URL到Job的resultUrl和metaJson
+        runBatch(msg, "PPROP", finalModel, true,
+                (projectPropId, index) -> generatePropImage(msg, projectPropId, index,
+                        finalModel, finalAspectRatio));
+    }
 
-                    // 8. 使用第一张图片更新道具库的缩略图URL
-                    String primaryOssUrl = ossUrls.get(0);
-                    prop.setThumbnailUrl(primaryOssUrl);
-                    propLibraryMapper.updateById(prop);
+    /**
+     * 生成单个道具画像(批量道具画像任务的子项)
+     */
+    private BatchJobRunner.ItemOutcome generatePropImage(BatchTaskMessage msg, Long projectPropId, int index,
+                                                         String finalModel, String finalAspectRatio) {
+        Long jobId = msg.getJobId();
 
-                    log.info("道具图片生成成功 - propId: {}, 总图片数: {}, 主图: {}", 
-                            prop.getId(), ossUrls.size(), primaryOssUrl);
+        // 1. 查询项目道具
+        ProjectProp projectProp = projectPropMapper.selectById(projectPropId);
+        if (projectProp == null) {
+            log.warn("项目道具不存在 - projectPropId: {}", projectPropId);
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.RESOURCE_NOT_FOUND, "项目道具不存在");
+        }
 
-                    // 9. 扣除积分（按批次扣费，不按图片张数）
-                    Map<String, Object> metaData = new HashMap<>();
-                    metaData.put("propId", prop.getId());
-                    metaData.put("propName", propName);
-                    metaData.put("model", finalModel);
-                    metaData.put("imageCount", ossUrls.size());
-                    metaData.put("allImageUrls", ossUrls);
-
-                    chargingService.charge(
-                            ChargingService.ChargingRequest.builder()
-                                    .jobId(jobId)
-                                    .bizType("IMAGE_GENERATION")
-                                    .modelCode(finalModel)
-                                    .quantity(1)  // 按批次扣费
-                                    .metaData(metaData)
-                                    .build()
-                    );
+        // 2. 查询道具库中的道具
+        PropLibrary prop = propLibraryMapper.selectById(projectProp.getLibraryPropId());
+        if (prop == null) {
+            log.warn("道具库道具不存在 - libraryPropId: {}", projectProp.getLibraryPropId());
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.RESOURCE_NOT_FOUND, "道具库道具不存在");
+        }
 
-                    successCount.incrementAndGet();
+        // 3. MISSING模式：检查是否已有图片
+        if ("MISSING".equals(msg.getMode()) && prop.getThumbnailUrl() != null) {
+            log.info("MISSING模式 - 道具已有图片,跳过 - propId: {}", prop.getId());
+            return BatchJobRunner.ItemOutcome.empty();
+        }
 
-                } finally {
-                    UserContext.clear();
-                }
+        // 4. 构建提示词：使用道具描述生成道具图
+        String description = projectProp.getOverrideDescription() != null ?
+                projectProp.getOverrideDescription() : prop.getDescription();
+        String propName = projectProp.getDisplayName() != null ?
+                projectProp.getDisplayName() : prop.getName();
+        String prompt = String.format("道具画像，%s，%s，2D动漫风格，高质量高清，画质细腻，白色背景，单个物件",
+                propName, description != null ? description : "");
+
+        log.info("生成道具图片 - propId: {}, name: {}, prompt: {}", prop.getId(), propName, prompt);
+
+        // 5. 调用向量引擎生成图片
+        ImageApiResponse response = vectorEngineClient.generateImage(
+                prompt,
+                finalModel,
+                finalAspectRatio,
+                Collections.emptyList()  // 无参考图片
+        );
+
+        // 6. 解析图片结果
+        if (response == null || response.data() == null || response.data().isEmpty()) {
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "图片生成结果为空");
+        }
 
-            } catch (Exception e) {
-                failCount.incrementAndGet();
-                log.error("道具图片生成失败 - projectPropId: {}", projectPropId, e);
+        // 获取所有返回的图片数据（即梦模型返回4张图片）
+        List<ImageApiResponse.ImageData> allResults = response.data();
+        log.info("AI返回 {} 张图片 - propId: {}", allResults.size(), prop.getId());
+
+        // 7. 处理所有图片并上传到OSS
+        List<String> ossUrls = new java.util.ArrayList<>();
+        for (int j = 0; j < allResults.size(); j++) {
+            String imageData = allResults.get(j).url();
+            if (imageData == null) {
+                log.warn("第 {} 张图片数据为空,跳过", j + 1);
+                continue;
             }
+            String ossUrl = processImageAndUploadToOss(imageData, jobId, index * 10 + j);
+            ossUrls.add(ossUrl);
+            log.info("上传图片 [{}/{}] 到OSS成功 - ossUrl: {}", j + 1, allResults.size(), ossUrl);
+        }
 
-            updateJobProgress(jobId, i + 1, propIds.size());
+        if (ossUrls.isEmpty()) {
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.AI_SERVICE_ERROR, "无法获取有效的图片数据");
         }
 
-        log.info("批量生成道具画像完成 - 成功: {}, 失败: {}, 总图片数: {}", 
-                successCount.get(), failCount.get(), allGeneratedImageUrls.size());
-        
-        // 更新Job状态并保存所有图片URL到metaJson
-        updateJobSuccessWithImages(jobId, successCount.get(), failCount.get(), allGeneratedImageUrls);
+        // 8. 使用第一张图片更新道具库的缩略图URL
+        String primaryOssUrl = ossUrls.get(0);
+        prop.setThumbnailUrl(primaryOssUrl);
+        propLibraryMapper.updateById(prop);
+        libraryShotViewEvictor.evictProps(List.of(prop.getId()));
+
+        log.info("道具图片生成成功 - propId: {}, 总图片数: {}, 主图: {}", 
+                prop.getId(), ossUrls.size(), primaryOssUrl);
+
+        // 9. 扣除积分（按批次扣费，不按图片张数）
+        Map<String, Object> metaData = new HashMap<>();
+        metaData.put("propId", prop.getId());
+        metaData.put("propName", propName);
+        metaData.put("model", finalModel);
+        metaData.put("imageCount", ossUrls.size());
+        metaData.put("allImageUrls", ossUrls);
+
+        chargingService.charge(
+                ChargingService.ChargingRequest.builder()
+                        .jobId(jobId)
+                        .bizType("IMAGE_GENERATION")
+                        .modelCode(finalModel)
+                        .quantity(1)  // 按批次扣费
+                        .metaData(metaData)
+                        .build()
+        );
+
+        return BatchJobRunner.ItemOutcome.of(ossUrls);
     }
 
     private void executeTextParsing(TextParsingMessage msg) {
         log.info("执行文本解析 - jobId: {}", msg.getJobId());
-        updateJobRunning(msg.getJobId());
+        updateJobRunning(msg.getJobId(), msg.getUserId());
         
         UserContext.setUserId(msg.getUserId());
         try {
             aiTextService.generateText(new com.ym.ai_story_studio_server.dto.ai.TextGenerateRequest(
                 msg.getRawText(), null, null, msg.getProjectId()
             ));
-            updateJobSuccess(msg.getJobId(), 1, 0);
+            updateJobSuccess(msg.getJobId(), msg.getUserId(), 1, 0);
         } finally {
             UserContext.clear();
         }
     }
 
+    /**
+     * 执行批量任务消息
+     *
+     * <p>按子项拆分的消息只执行对应的一个子项;旧格式的整批消息在本节点并行执行全部子项。
+     * 每条消息处理完后检查是否为最后一个子项,是则汇总结果并将Job置为终态
+     */
+    private void runBatch(BatchTaskMessage msg, String targetType, String model, boolean withImages,
+                          BatchJobRunner.ItemHandler handler) {
+        if (msg.getJobItemId() != null) {
+            int index = msg.getItemIndex() != null ? msg.getItemIndex() : 0;
+            batchJobRunner.runItem(msg.getJobId(), msg.getUserId(), msg.getJobItemId(), index, model, handler);
+        } else {
+            batchJobRunner.run(msg.getJobId(), msg.getUserId(), targetType, msg.getTargetIds(), model, handler);
+        }
+        batchJobRunner.completeIfFinished(msg.getJobId(), withImages);
+    }
+
+    /**
+     * 批量消息处理失败
+     *
+     * <p>按子项拆分的消息只将对应子项置为FAILED,其余子项继续执行,最后一个结束的子项负责汇总任务;
+     * 旧格式的整批消息没有对应的子项,将整个任务置为FAILED
+     */
+    private void failBatchMessage(BatchTaskMessage msg, boolean withImages, Exception e) {
+        if (msg.getJobItemId() == null) {
+            updateJobFailed(msg.getJobId(), msg.getUserId(), e.getMessage());
+            return;
+        }
+        try {
+            batchJobRunner.failItem(msg.getJobId(), msg.getUserId(), msg.getJobItemId(), e.getMessage());
+            batchJobRunner.completeIfFinished(msg.getJobId(), withImages);
+        } catch (Exception ex) {
+            log.error("子项失败状态写入失败 - jobId: {}, jobItemId: {}", msg.getJobId(), msg.getJobItemId(), ex);
+        }
+    }
+
     // ==================== Job状态更新方法 ====================
+    // 每次写库后发布任务事件,订阅了任务进度的浏览器据此更新,不必轮询任务接口
 
-    private void updateJobRunning(Long jobId) {
+    private void updateJobRunning(Long jobId, Long userId) {
         Job job = new Job();
         job.setId(jobId);
         job.setStatus("RUNNING");
         jobMapper.updateById(job);
+        jobEventHub.publish(userId, job);
         log.info("Job状态更新为RUNNING - jobId: {}", jobId);
     }
 
-    private void updateJobProgress(Long jobId, Integer doneItems, Integer totalItems) {
-        Job job = new Job();
-        job.setId(jobId);
-        job.setDoneItems(doneItems);
-        job.setProgress((int) Math.round((doneItems * 100.0) / totalItems));
-        jobMapper.updateById(job);
-        log.debug("Job进度更新 - jobId: {}, progress: {}%", jobId, job.getProgress());
-    }
-
-    private void updateJobSuccess(Long jobId, Integer successCount, Integer failCount) {
+    private void updateJobSuccess(Long jobId, Long userId, Integer successCount, Integer failCount) {
         if (successCount == 0 && failCount > 0) {
-            updateJobFailedWithCounts(jobId, successCount, failCount, "All items failed");
+            updateJobFailedWithCounts(jobId, userId, successCount, failCount, "All items failed");
             return;
         }
 
@@ -1367,6 +1324,7 @@ public class MQConsumer {
         String metaJson = String.format("{\"successCount\": %d, \"failCount\": %d}", successCount, failCount);
         job.setMetaJson(metaJson);
         jobMapper.updateById(job);
+        jobEventHub.publish(userId, job);
         log.info("Job状态更新为SUCCEEDED - jobId: {}, 成功: {}, 失败: {}", jobId, successCount, failCount);
     }
 
@@ -1374,13 +1332,15 @@ public class MQConsumer {
      * 更新Job状态为成功，并保存所有生成的图片URL
      *
      * @param jobId 任务ID
+     * @param userId 用户ID
      * @param successCount 成功数量
      * @param failCount 失败数量
      * @param allImageUrls 所有生成的图片URL列表
      */
-    private void updateJobSuccessWithImages(Long jobId, Integer successCount, Integer failCount, List<String> allImageUrls) {
+    private void updateJobSuccessWithImages(Long jobId, Long userId, Integer successCount, Integer failCount,
+                                            List<String> allImageUrls) {
         if (successCount == 0 && failCount > 0) {
-            updateJobFailedWithCounts(jobId, successCount, failCount, "All items failed");
+            updateJobFailedWithCounts(jobId, userId, successCount, failCount, "All items failed");
             return;
         }
 
@@ -1414,20 +1374,23 @@ public class MQConsumer {
         }
         
         jobMapper.updateById(job);
+        jobEventHub.publish(userId, job);
         log.info("Job状态更新为SUCCEEDED(带图片) - jobId: {}, 成功: {}, 失败: {}, 总图片数: {}", 
                 jobId, successCount, failCount, allImageUrls.size());
     }
 
-    private void updateJobFailed(Long jobId, String errorMessage) {
+    private void updateJobFailed(Long jobId, Long userId, String errorMessage) {
         Job job = new Job();
         job.setId(jobId);
         job.setStatus("FAILED");
         job.setErrorMessage(errorMessage);
         jobMapper.updateById(job);
+        jobEventHub.publish(userId, job);
         log.error("Job状态更新为FAILED - jobId: {}, error: {}", jobId, errorMessage);
     }
 
-    private void updateJobFailedWithCounts(Long jobId, Integer successCount, Integer failCount, String errorMessage) {
+    private void updateJobFailedWithCounts(Long jobId, Long userId, Integer successCount, Integer failCount,
+                                           String errorMessage) {
         Job job = new Job();
         job.setId(jobId);
         job.setStatus("FAILED");
@@ -1435,6 +1398,7 @@ public class MQConsumer {
         job.setProgress(100);
         job.setErrorMessage(errorMessage);
         jobMapper.updateById(job);
+        jobEventHub.publish(userId, job);
         log.error("Job状态更新为FAILED - jobId: {}, success: {}, fail: {}, error: {}", jobId, successCount, failCount, errorMessage);
     }
 
@@ -1449,6 +1413,11 @@ public class MQConsumer {
      * @return OSS存储的URL
      */
     private String processImageAndUploadToOss(String imageData, Long jobId, int index) {
+        if (imageSpool.isSpooled(imageData)) {
+            log.debug("检测到落盘图片 - index: {}", index);
+            return uploadSpooledToOss(imageData, jobId, index);
+        }
+
         if (isBase64(imageData)) {
             log.debug("检测到base64图片 - index: {}", index);
             return uploadBase64ToOss(imageData, jobId, index);
@@ -1462,6 +1431,21 @@ public class MQConsumer {
         throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.PARAM_INVALID, "无法识别的图片数据格式");
     }
 
+    /**
+     * 流式上传落盘图片到OSS,上传后删除本地文件
+     */
+    private String uploadSpooledToOss(String imageData, Long jobId, int index) {
+        try (InputStream inputStream = imageSpool.open(imageData)) {
+            String fileName = String.format("ai_image_%d_%d.png", jobId, index);
+            String ossUrl = storageService.upload(inputStream, fileName, "image/png");
+            log.debug("落盘图片上传成功 - index: {}, ossUrl: {}", index, ossUrl);
+            return ossUrl;
+        } catch (Exception e) {
+            log.error("落盘图片上传失败", e);
+            throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.OSS_ERROR, "图片上传失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 上传base64图片到OSS
      */
@@ -1483,13 +1467,8 @@ public class MQConsumer {
      * 下URL下载图片并上传到OSS
      */
     private String downloadAndUploadToOss(String imageUrl, Long jobId, int index) {
-        try {
-            URL url = new URL(imageUrl);
-            URLConnection connection = url.openConnection();
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(60000);
-
-            String contentType = connection.getContentType();
+        try (HttpTransport.Download download = httpTransport.open(imageUrl, IMAGE_DOWNLOAD_TIMEOUT)) {
+            String contentType = download.contentType();
             if (contentType == null) {
                 contentType = "image/jpeg";
             }
@@ -1497,11 +1476,9 @@ public class MQConsumer {
             String extension = getExtensionFromContentType(contentType);
             String fileName = String.format("ai_image_%d_%d%s", jobId, index, extension);
 
-            try (InputStream inputStream = connection.getInputStream()) {
-                String ossUrl = storageService.upload(inputStream, fileName, contentType);
-                log.debug("URL图片下载并上传成功 - ossUrl: {}", ossUrl);
-                return ossUrl;
-            }
+            String ossUrl = storageService.upload(download.body(), fileName, contentType);
+            log.debug("URL图片下载并上传成功 - ossUrl: {}", ossUrl);
+            return ossUrl;
         } catch (Exception e) {
             log.error("图片下载或上传失败 - url: {}", imageUrl, e);
             throw new BusinessException(com.ym.ai_story_studio_server.common.ResultCode.OSS_ERROR, "图片下载失败: " + e.getMessage());
@@ -0,0 +1,271 @@
+package com.ym.ai_story_studio_server.mq;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.entity.JobItem;
+import com.ym.ai_story_studio_server.entity.MqOutboxMessage;
+import com.ym.ai_story_studio_server.mapper.JobItemMapper;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import com.ym.ai_story_studio_server.mapper.MqOutboxMessageMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 批量子项消息的按用户公平放行
+ *
+ * <p>所有用户共用同一组批量队列,队列按FIFO消费;如果一个500条的批次一次性发出,
+ * 之后其他用户的子项都要排在它后面。因此批量子项消息写入发件箱时先不放行
+ * ({@code next_attempt_at}为空),每个用户相当于一个子队列,由本类按以下规则放行后再交给发布器发送:
+ * <ul>
+ *   <li><strong>用户上限:</strong> 每个用户已放行但未完成的子项不超过
+ *       {@code ai.batch.per-user-in-flight}×权重,队列中任一用户的积压都是有界的</li>
+ *   <li><strong>总量上限:</strong> 所有用户已放行但未完成的子项不超过{@code ai.batch.max-released},
+ *       额度不足时按赤字轮转(DRR)分配,每轮每个用户累加与权重相等的额度</li>
+ * </ul>
+ *
+ * <p>单个分镜图/视频等交互式消息不经过这里,写入后立即发送。
+ * 在途数按job_items中未结束的子项减去尚未放行的消息计算,多节点同时放行时上限可能被短暂超出;
+ * 已取消或已失败任务的未放行消息在放行前删除
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MQFairReleaser {
+
+    private static final List<String> ACTIVE_STATUSES = List.of("PENDING", "RUNNING");
+
+    private final MqOutboxMessageMapper outboxMapper;
+    private final JobMapper jobMapper;
+    private final JobItemMapper jobItemMapper;
+    private final AiProperties aiProperties;
+
+    /**
+     * 用户 -> 上一轮因总量额度用尽而未用完的份额
+     */
+    private final Map<Long, Integer> deficits = new HashMap<>();
+
+    /**
+     * 上一轮最后获得放行的用户,下一轮从其后开始轮转
+     */
+    private Long lastServed;
+
+    /**
+     * 用户的放行需求
+     *
+     * @param userId 用户ID
+     * @param held 尚未放行的消息数
+     * @param inFlight 已放行但未完成的子项数
+     * @param weight 权重
+     * @param cap 在途上限
+     */
+    record Demand(Long userId, int held, int inFlight, int weight, int cap) {
+
+        int limit() {
+            return Math.max(0, Math.min(held, cap - inFlight));
+        }
+    }
+
+    /**
+     * 按在途上限和权重放行一轮消息
+     *
+     * <p>只在发件箱发布线程上调用
+     *
+     * @return 本轮放行的消息数
+     */
+    public int releaseDue() {
+        // 1. 未放行的消息,按用户和任务分组;已结束任务的消息直接删除
+        List<Map<String, Object>> rows = outboxMapper.selectMaps(new QueryWrapper<MqOutboxMessage>()
+                .select("user_id", "job_id", "COUNT(*) AS cnt")
+                .isNull("next_attempt_at")
+                .isNotNull("user_id")
+                .groupBy("user_id", "job_id"));
+        Set<Long> finishedJobs = rows.isEmpty() ? Set.of() : discardFinished(rows);
+        Map<Long, Integer> heldByJob = new HashMap<>();
+        Map<Long, Integer> heldByUser = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            if (finishedJobs.contains(toLong(row.get("job_id")))) {
+                continue;
+            }
+            int count = toInt(row.get("cnt"));
+            heldByJob.merge(toLong(row.get("job_id")), count, Integer::sum);
+            heldByUser.merge(toLong(row.get("user_id")), count, Integer::sum);
+        }
+        if (heldByUser.isEmpty()) {
+            deficits.clear();
+            return 0;
+        }
+
+        // 2. 在途数 = 未结束的子项 - 未放行的消息
+        Map<Long, Integer> inFlightByUser = countInFlight(heldByJob);
+        int totalInFlight = inFlightByUser.values().stream().mapToInt(Integer::intValue).sum();
+        AiProperties.Batch config = aiProperties.getBatch();
+        int budget = config.getMaxReleased() - totalInFlight;
+        if (budget <= 0) {
+            return 0;
+        }
+
+        // 3. 分配额度并放行
+        List<Demand> demands = new ArrayList<>(heldByUser.size());
+        heldByUser.forEach((userId, held) -> {
+            int weight = config.weightFor(userId);
+            demands.add(new Demand(userId, held, inFlightByUser.getOrDefault(userId, 0),
+                    weight, config.getPerUserInFlight() * weight));
+        });
+        Map<Long, Integer> grants = plan(demands, budget);
+
+        LocalDateTime now = LocalDateTime.now();
+        int released = 0;
+        for (Map.Entry<Long, Integer> grant : grants.entrySet()) {
+            released += outboxMapper.update(null, new LambdaUpdateWrapper<MqOutboxMessage>()
+                    .set(MqOutboxMessage::getNextAttemptAt, now)
+                    .eq(MqOutboxMessage::getUserId, grant.getKey())
+                    .isNull(MqOutboxMessage::getNextAttemptAt)
+                    .last("ORDER BY id LIMIT " + grant.getValue()));
+        }
+        if (released > 0) {
+            log.info("批量子项放行 - 用户数: {}, 放行: {}, 全局在途: {}, 剩余额度: {}",
+                    grants.size(), released, totalInFlight, budget - released);
+        }
+        return released;
+    }
+
+    /**
+     * 按赤字轮转分配本轮额度
+     *
+     * @param demands 各用户的放行需求
+     * @param budget 本轮可放行的总数
+     * @return 用户 -> 放行条数(按分配顺序)
+     */
+    Map<Long, Integer> plan(List<Demand> demands, int budget) {
+        List<Demand> active = new ArrayList<>(demands);
+        active.sort(Comparator.comparing(Demand::userId));
+        deficits.keySet().retainAll(active.stream().map(Demand::userId).toList());
+        active.removeIf(demand -> {
+            if (demand.limit() == 0) {
+                deficits.remove(demand.userId());
+                return true;
+            }
+            return false;
+        });
+        // 从上一轮最后放行的用户之后开始,额度较少时各用户轮流排在前面
+        int start = 0;
+        while (lastServed != null && start < active.size() && active.get(start).userId() <= lastServed) {
+            start++;
+        }
+        List<Demand> rotated = new ArrayList<>(active.subList(start, active.size()));
+        rotated.addAll(active.subList(0, start));
+
+        Map<Long, Integer> grants = new LinkedHashMap<>();
+        while (budget > 0 && !rotated.isEmpty()) {
+            Iterator<Demand> it = rotated.iterator();
+            while (it.hasNext() && budget > 0) {
+                Demand demand = it.next();
+                Long userId = demand.userId();
+                int granted = grants.getOrDefault(userId, 0);
+                int deficit = deficits.getOrDefault(userId, 0) + demand.weight();
+                int n = Math.min(Math.min(deficit, demand.limit() - granted), budget);
+                if (n > 0) {
+                    grants.put(userId, granted + n);
+                    budget -= n;
+                    lastServed = userId;
+                }
+                if (granted + n >= demand.limit()) {
+                    // 子队列已放空或到达上限,赤字清零
+                    it.remove();
+                    deficits.remove(userId);
+                } else {
+                    deficits.put(userId, deficit - n);
+                }
+            }
+        }
+        return grants;
+    }
+
+    /**
+     * 删除任务尚未放行的批量子项消息
+     *
+     * <p>任务取消后调用,已入队的子项不再发送到broker
+     *
+     * @param jobId 任务ID
+     * @return 删除的消息数
+     */
+    public int discardHeld(Long jobId) {
+        return outboxMapper.delete(new LambdaQueryWrapper<MqOutboxMessage>()
+                .eq(MqOutboxMessage::getJobId, jobId)
+                .isNull(MqOutboxMessage::getNextAttemptAt));
+    }
+
+    /**
+     * 删除已结束(取消/失败/已删除)任务的未放行消息
+     *
+     * <p>这些任务不计入在途数,放行后会绕过用户上限和总量上限
+     *
+     * @return 已结束的任务ID
+     */
+    private Set<Long> discardFinished(List<Map<String, Object>> rows) {
+        Set<Long> jobIds = new HashSet<>();
+        rows.forEach(row -> jobIds.add(toLong(row.get("job_id"))));
+        jobMapper.selectList(new LambdaQueryWrapper<Job>()
+                        .select(Job::getId)
+                        .in(Job::getId, jobIds)
+                        .in(Job::getStatus, ACTIVE_STATUSES))
+                .forEach(job -> jobIds.remove(job.getId()));
+        if (!jobIds.isEmpty()) {
+            int deleted = outboxMapper.delete(new LambdaQueryWrapper<MqOutboxMessage>()
+                    .in(MqOutboxMessage::getJobId, jobIds)
+                    .isNull(MqOutboxMessage::getNextAttemptAt));
+            log.info("已结束任务的批量子项不再放行 - 任务数: {}, 删除消息: {}", jobIds.size(), deleted);
+        }
+        return jobIds;
+    }
+
+    private Map<Long, Integer> countInFlight(Map<Long, Integer> heldByJob) {
+        Map<Long, Integer> pendingByJob = new HashMap<>();
+        for (Map<String, Object> row : jobItemMapper.selectMaps(new QueryWrapper<JobItem>()
+                .select("job_id", "COUNT(*) AS cnt")
+                .in("status", ACTIVE_STATUSES)
+                .inSql("job_id", "SELECT id FROM jobs WHERE status IN ('PENDING', 'RUNNING')")
+                .groupBy("job_id"))) {
+            pendingByJob.put(toLong(row.get("job_id")), toInt(row.get("cnt")));
+        }
+        Map<Long, Integer> inFlightByUser = new HashMap<>();
+        if (pendingByJob.isEmpty()) {
+            return inFlightByUser;
+        }
+        List<Job> jobs = jobMapper.selectList(new LambdaQueryWrapper<Job>()
+                .select(Job::getId, Job::getUserId)
+                .in(Job::getId, pendingByJob.keySet()));
+        for (Job job : jobs) {
+            // 已取消任务的消息仍可能未放行,单个任务的在途数不小于0
+            int inFlight = Math.max(0, pendingByJob.get(job.getId()) - heldByJob.getOrDefault(job.getId(), 0));
+            inFlightByUser.merge(job.getUserId(), inFlight, Integer::sum);
+        }
+        return inFlightByUser;
+    }
+
+    private static long toLong(Object value) {
+        return ((Number) value).longValue();
+    }
+
+    private static int toInt(Object value) {
+        return ((Number) value).intValue();
+    }
+}
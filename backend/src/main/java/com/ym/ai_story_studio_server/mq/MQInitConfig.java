@@ -2,12 +2,11 @@ package com.ym.ai_story_studio_server.mq;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
-import org.springframework.amqp.support.converter.SimpleMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 /**
@@ -25,20 +24,14 @@ public class MQInitConfig {
     // ==================== 消息转换器配置 ====================
     
     /**
-     * 配置消息转换器，允许反序列化自定义类
+     * 配置消息转换器：CBOR编码并携带类型和版本头，兼容读取旧版Java序列化消息
+     *
+     * @param legacyWrite 是否仍以Java序列化发送，从旧版本滚动升级时开启，全部实例升级后关闭
      */
     @Bean
-    public SimpleMessageConverter messageConverter() {
-        SimpleMessageConverter converter = new SimpleMessageConverter();
-        // 允许反序列化的类模式
-        converter.setAllowedListPatterns(List.of(
-                "com.ym.ai_story_studio_server.dto.ai.*",
-                "com.ym.ai_story_studio_server.mq.*",
-                "java.util.*",
-                "java.lang.*"
-        ));
-        log.info("配置RabbitMQ消息转换器，允许反序列化mq包下的类");
-        return converter;
+    public MQMessageCodec messageConverter(@Value("${mq.codec.legacy-write:false}") boolean legacyWrite) {
+        log.info("配置RabbitMQ消息转换器，发送格式: {}", legacyWrite ? "Java序列化" : "CBOR");
+        return new MQMessageCodec(legacyWrite);
     }
 
     // ==================== 交换机声明 ====================
@@ -0,0 +1,144 @@
+package com.ym.ai_story_studio_server.mq;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * MQ消息编解码器
+ *
+ * <p>消息体使用CBOR编码,消息头携带逻辑类型名({@link MQConstant#HEADER_MESSAGE_TYPE})和
+ * 结构版本({@link MQConstant#HEADER_SCHEMA_VERSION}),生产者与消费者之间只约定类型名和字段名,
+ * 不再依赖类名和serialVersionUID
+ *
+ * <p><strong>结构演进规则:</strong>
+ * <ul>
+ *   <li>只新增字段,不修改已有字段的名称和类型;新增字段后将对应类型的版本号加一</li>
+ *   <li>解码时忽略未知字段,缺失字段为null,因此新旧版本的生产者和消费者可以混跑</li>
+ *   <li>废弃的字段名不再复用</li>
+ * </ul>
+ *
+ * <p><strong>兼容旧消息:</strong>非CBOR的消息(旧版本发出的Java序列化消息、死信重投)
+ * 交给白名单受限的{@link SimpleMessageConverter}解码;{@code legacyWrite=true}时发送端也使用Java序列化,
+ * 用于从旧版本滚动升级的过渡期,避免尚未升级的消费者收到无法解析的消息
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+public class MQMessageCodec extends AbstractMessageConverter {
+
+    public static final String CONTENT_TYPE_CBOR = "application/cbor";
+
+    /**
+     * 已登记的消息类型
+     *
+     * @param name 逻辑类型名,写入消息头
+     * @param type 消息类
+     * @param version 当前结构版本
+     */
+    private record MessageType(String name, Class<?> type, int version) {
+    }
+
+    private static final List<MessageType> MESSAGE_TYPES = List.of(
+            new MessageType("batch-task", BatchTaskMessage.class, 1),
+            new MessageType("single-shot-image", SingleShotImageMessage.class, 1),
+            new MessageType("single-shot-video", SingleShotVideoMessage.class, 1),
+            new MessageType("text-parsing", TextParsingMessage.class, 1)
+    );
+
+    private static final Map<String, MessageType> TYPES_BY_NAME = MESSAGE_TYPES.stream()
+            .collect(Collectors.toUnmodifiableMap(MessageType::name, Function.identity()));
+
+    private static final Map<Class<?>, MessageType> TYPES_BY_CLASS = MESSAGE_TYPES.stream()
+            .collect(Collectors.toUnmodifiableMap(MessageType::type, Function.identity()));
+
+    private final ObjectMapper cborMapper = CBORMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+
+    private final SimpleMessageConverter legacyConverter = legacyConverter();
+
+    private final boolean legacyWrite;
+
+    /**
+     * @param legacyWrite 是否以Java序列化发送(滚动升级过渡期使用)
+     */
+    public MQMessageCodec(boolean legacyWrite) {
+        this.legacyWrite = legacyWrite;
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        if (legacyWrite) {
+            return legacyConverter.toMessage(object, messageProperties);
+        }
+        MessageType type = TYPES_BY_CLASS.get(object.getClass());
+        if (type == null) {
+            throw new MessageConversionException("未登记的MQ消息类型: " + object.getClass().getName());
+        }
+        byte[] body;
+        try {
+            body = cborMapper.writeValueAsBytes(object);
+        } catch (IOException e) {
+            throw new MessageConversionException("MQ消息编码失败: " + type.name(), e);
+        }
+        messageProperties.setContentType(CONTENT_TYPE_CBOR);
+        messageProperties.setContentLength(body.length);
+        messageProperties.setHeader(MQConstant.HEADER_MESSAGE_TYPE, type.name());
+        messageProperties.setHeader(MQConstant.HEADER_SCHEMA_VERSION, type.version());
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        if (!CONTENT_TYPE_CBOR.equals(properties.getContentType())) {
+            return legacyConverter.fromMessage(message);
+        }
+
+        Object typeName = properties.getHeader(MQConstant.HEADER_MESSAGE_TYPE);
+        MessageType type = typeName != null ? TYPES_BY_NAME.get(typeName.toString()) : null;
+        if (type == null) {
+            throw new MessageConversionException("未知的MQ消息类型: " + typeName);
+        }
+        Object version = properties.getHeader(MQConstant.HEADER_SCHEMA_VERSION);
+        if (version instanceof Number number && number.intValue() > type.version()) {
+            log.debug("收到更高版本的MQ消息,未知字段将被忽略 - 类型: {}, 消息版本: {}, 当前版本: {}",
+                    type.name(), number, type.version());
+        }
+        try {
+            return cborMapper.readValue(message.getBody(), type.type());
+        } catch (IOException e) {
+            throw new MessageConversionException("MQ消息解码失败: " + type.name(), e);
+        }
+    }
+
+    /**
+     * Java序列化转换器,只允许反序列化消息及其字段涉及的类
+     */
+    static SimpleMessageConverter legacyConverter() {
+        SimpleMessageConverter converter = new SimpleMessageConverter();
+        converter.setAllowedListPatterns(List.of(
+                "com.ym.ai_story_studio_server.dto.ai.*",
+                "com.ym.ai_story_studio_server.mq.*",
+                "java.util.*",
+                "java.lang.*"
+        ));
+        return converter;
+    }
+}
@@ -0,0 +1,339 @@
+package com.ym.ai_story_studio_server.mq;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.ym.ai_story_studio_server.entity.MqOutboxMessage;
+import com.ym.ai_story_studio_server.mapper.MqOutboxMessageMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * MQ发件箱发布器
+ *
+ * <p>任务消息先由{@link #enqueue}在业务事务内写入{@code mq_outbox_messages},事务提交后唤醒发布线程;
+ * 发布线程每轮领取一批到期消息,连续发送后统一等待correlated确认:
+ * <ul>
+ *   <li>ack且未被退回 - 删除发件箱记录</li>
+ *   <li>nack、被退回(无法路由)或发送异常 - 按指数退避设置下次发送时间,记录失败原因</li>
+ *   <li>确认超时或节点在等待确认时宕机 - 领取时设置的租约到期后重新发送</li>
+ * </ul>
+ *
+ * <p>批量子项消息由{@link #enqueueBulk}写入,先不放行,每轮发送前由{@link MQFairReleaser}按用户公平放行。
+ *
+ * <p>因此消息至少投递一次,可能重复;批量子项消息由{@code BatchJobRunner}按子项状态去重。
+ * 领取是带{@code LIMIT}的条件UPDATE,多节点同时发布时每条消息只会被一个节点领取
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class MQOutboxPublisher {
+
+    /**
+     * 兜底扫描间隔(毫秒),覆盖重试到期和其他节点遗留的消息
+     */
+    private static final long SCAN_INTERVAL_MS = 1000L;
+
+    /**
+     * 每轮领取的消息数
+     */
+    private static final int BATCH_SIZE = 200;
+
+    /**
+     * 每次唤醒最多连续发送的轮数,避免长时间占用发布线程
+     */
+    private static final int MAX_ROUNDS_PER_DRAIN = 50;
+
+    /**
+     * 一轮发送后等待确认的最长时间(毫秒)
+     */
+    private static final long CONFIRM_TIMEOUT_MS = 10_000L;
+
+    /**
+     * 领取租约(毫秒),超过后未确认的消息可被重新领取
+     */
+    private static final long CLAIM_LEASE_MS = 30_000L;
+
+    /**
+     * 失败重试的最大退避(毫秒)
+     */
+    private static final long MAX_BACKOFF_MS = 60_000L;
+
+    /**
+     * 发送次数达到该值后每次失败都输出告警日志
+     */
+    private static final int WARN_ATTEMPTS = 5;
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MqOutboxMessageMapper outboxMapper;
+    private final TaskScheduler outboxScheduler;
+    private final MQFairReleaser fairReleaser;
+
+    /**
+     * 是否已有待执行的唤醒,多次提交只触发一次发送
+     */
+    private final AtomicBoolean wakeUpPending = new AtomicBoolean();
+
+    public MQOutboxPublisher(RabbitTemplate rabbitTemplate,
+                             MqOutboxMessageMapper outboxMapper,
+                             @Qualifier("outboxScheduler") TaskScheduler outboxScheduler,
+                             MQFairReleaser fairReleaser) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.outboxMapper = outboxMapper;
+        this.outboxScheduler = outboxScheduler;
+        this.fairReleaser = fairReleaser;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            log.warn("未开启publisher-confirm-type: correlated,发件箱消息发送成功即视为已确认");
+        }
+        outboxScheduler.scheduleWithFixedDelay(this::drain, Duration.ofMillis(SCAN_INTERVAL_MS));
+        log.info("MQ发件箱发布器已启动 - 每轮: {}条, 确认超时: {}ms, 领取租约: {}ms",
+                BATCH_SIZE, CONFIRM_TIMEOUT_MS, CLAIM_LEASE_MS);
+    }
+
+    /**
+     * 将消息写入发件箱
+     *
+     * <p>应在创建任务的事务内调用,事务回滚时消息一并丢弃;事务提交后立即唤醒发布线程
+     *
+     * @param exchange 交换机
+     * @param routingKey 路由键
+     * @param jobId 关联任务ID
+     * @param messages 消息列表(按顺序发送)
+     */
+    public void enqueue(String exchange, String routingKey, Long jobId, List<?> messages) {
+        insert(exchange, routingKey, jobId, null, messages);
+    }
+
+    /**
+     * 将批量子项消息写入发件箱,等待按用户公平放行后发送
+     *
+     * @param exchange 交换机
+     * @param routingKey 路由键
+     * @param jobId 关联任务ID
+     * @param userId 任务所属用户ID
+     * @param messages 消息列表(同一用户内按顺序放行)
+     */
+    public void enqueueBulk(String exchange, String routingKey, Long jobId, Long userId, List<?> messages) {
+        insert(exchange, routingKey, jobId, userId, messages);
+    }
+
+    /**
+     * @param bulkUserId 批量子项所属用户,为空时消息立即可发送
+     */
+    private void insert(String exchange, String routingKey, Long jobId, Long bulkUserId, List<?> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        MessageConverter converter = rabbitTemplate.getMessageConverter();
+        LocalDateTime now = bulkUserId == null ? LocalDateTime.now() : null;
+        List<MqOutboxMessage> rows = new ArrayList<>(messages.size());
+        for (Object message : messages) {
+            Message encoded = converter.toMessage(message, new MessageProperties());
+            MessageProperties properties = encoded.getMessageProperties();
+            MqOutboxMessage row = new MqOutboxMessage();
+            row.setJobId(jobId);
+            row.setUserId(bulkUserId);
+            row.setExchangeName(exchange);
+            row.setRoutingKey(routingKey);
+            row.setContentType(properties.getContentType());
+            row.setMessageType(headerString(properties, MQConstant.HEADER_MESSAGE_TYPE));
+            row.setSchemaVersion(properties.getHeader(MQConstant.HEADER_SCHEMA_VERSION) instanceof Number version
+                    ? version.intValue() : null);
+            row.setPayload(encoded.getBody());
+            row.setAttempts(0);
+            row.setNextAttemptAt(now);
+            rows.add(row);
+        }
+        outboxMapper.insert(rows);
+        log.debug("消息写入发件箱 - 路由键: {}, jobId: {}, 条数: {}", routingKey, jobId, rows.size());
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    /**
+     * 唤醒发布线程立即执行一次发送
+     */
+    public void wakeUp() {
+        if (wakeUpPending.compareAndSet(false, true)) {
+            outboxScheduler.schedule(this::drain, Instant.now());
+        }
+    }
+
+    /**
+     * 放行批量子项后连续发送,直到没有到期消息或达到单次轮数上限
+     */
+    private void drain() {
+        wakeUpPending.set(false);
+        try {
+            fairReleaser.releaseDue();
+        } catch (Exception e) {
+            // 放行失败不影响已到期消息的发送
+            log.error("批量子项放行异常,下次扫描时重试", e);
+        }
+        try {
+            for (int round = 0; round < MAX_ROUNDS_PER_DRAIN; round++) {
+                if (publishBatch() < BATCH_SIZE) {
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("发件箱发送异常,下次扫描时重试", e);
+        }
+    }
+
+    /**
+     * 领取并发送一批消息
+     *
+     * @return 本轮领取的消息数
+     */
+    int publishBatch() {
+        String claimToken = UUID.randomUUID().toString();
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = outboxMapper.update(null, new LambdaUpdateWrapper<MqOutboxMessage>()
+                .set(MqOutboxMessage::getClaimToken, claimToken)
+                .set(MqOutboxMessage::getNextAttemptAt, now.plusNanos(CLAIM_LEASE_MS * 1_000_000L))
+                .setSql("attempts = attempts + 1")
+                .le(MqOutboxMessage::getNextAttemptAt, now)
+                .last("ORDER BY id LIMIT " + BATCH_SIZE));
+        if (claimed == 0) {
+            return 0;
+        }
+        List<MqOutboxMessage> rows = outboxMapper.selectList(new LambdaQueryWrapper<MqOutboxMessage>()
+                .eq(MqOutboxMessage::getClaimToken, claimToken)
+                .orderByAsc(MqOutboxMessage::getId));
+
+        // 1. 连续发送,不逐条等待broker往返
+        boolean confirms = rabbitTemplate.getConnectionFactory().isPublisherConfirms();
+        Map<MqOutboxMessage, CorrelationData> inFlight = new LinkedHashMap<>();
+        Map<MqOutboxMessage, String> failed = new LinkedHashMap<>();
+        List<Long> confirmed = new ArrayList<>();
+        for (MqOutboxMessage row : rows) {
+            if (!failed.isEmpty()) {
+                // 连接异常时本轮剩余消息不再尝试
+                failed.put(row, "同批次发送异常,稍后重试");
+                continue;
+            }
+            CorrelationData correlation = new CorrelationData("outbox-" + row.getId());
+            try {
+                rabbitTemplate.send(row.getExchangeName(), row.getRoutingKey(), toMessage(row), correlation);
+                if (confirms) {
+                    inFlight.put(row, correlation);
+                } else {
+                    confirmed.add(row.getId());
+                }
+            } catch (AmqpException e) {
+                failed.put(row, "发送异常: " + e.getMessage());
+            }
+        }
+
+        // 2. 统一等待确认
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONFIRM_TIMEOUT_MS);
+        int timedOut = 0;
+        for (Map.Entry<MqOutboxMessage, CorrelationData> entry : inFlight.entrySet()) {
+            CorrelationData correlation = entry.getValue();
+            try {
+                CorrelationData.Confirm confirm = correlation.getFuture()
+                        .get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                ReturnedMessage returned = correlation.getReturned();
+                if (!confirm.isAck()) {
+                    failed.put(entry.getKey(), "broker拒绝: " + confirm.getReason());
+                } else if (returned != null) {
+                    failed.put(entry.getKey(), "消息无法路由: " + returned.getReplyText());
+                } else {
+                    confirmed.add(entry.getKey().getId());
+                }
+            } catch (TimeoutException e) {
+                // 不处理,租约到期后重新发送
+                timedOut++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                failed.put(entry.getKey(), "等待确认异常: " + e.getCause());
+            }
+        }
+
+        // 3. 删除已确认消息,失败消息退避后重试
+        if (!confirmed.isEmpty()) {
+            outboxMapper.delete(new LambdaQueryWrapper<MqOutboxMessage>().in(MqOutboxMessage::getId, confirmed));
+        }
+        failed.forEach((row, reason) -> scheduleRetry(row, claimToken, reason));
+
+        log.info("发件箱发送完成 - 领取: {}, 已确认: {}, 失败: {}, 确认超时: {}",
+                rows.size(), confirmed.size(), failed.size(), timedOut);
+        return rows.size();
+    }
+
+    private void scheduleRetry(MqOutboxMessage row, String claimToken, String reason) {
+        int attempts = row.getAttempts() != null ? row.getAttempts() : 1;
+        long backoffMs = Math.min(MAX_BACKOFF_MS, 1000L << Math.min(attempts - 1, 16));
+        String error = reason.length() > 500 ? reason.substring(0, 500) : reason;
+        outboxMapper.update(null, new LambdaUpdateWrapper<MqOutboxMessage>()
+                .set(MqOutboxMessage::getNextAttemptAt, LocalDateTime.now().plusNanos(backoffMs * 1_000_000L))
+                .set(MqOutboxMessage::getLastError, error)
+                .eq(MqOutboxMessage::getId, row.getId())
+                .eq(MqOutboxMessage::getClaimToken, claimToken));
+        if (attempts >= WARN_ATTEMPTS) {
+            log.warn("发件箱消息多次发送失败 - id: {}, jobId: {}, 路由键: {}, 次数: {}, 原因: {}",
+                    row.getId(), row.getJobId(), row.getRoutingKey(), attempts, error);
+        }
+    }
+
+    private static Message toMessage(MqOutboxMessage row) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(row.getContentType());
+        properties.setContentLength(row.getPayload().length);
+        properties.setMessageId("outbox-" + row.getId());
+        if (row.getMessageType() != null) {
+            properties.setHeader(MQConstant.HEADER_MESSAGE_TYPE, row.getMessageType());
+        }
+        if (row.getSchemaVersion() != null) {
+            properties.setHeader(MQConstant.HEADER_SCHEMA_VERSION, row.getSchemaVersion());
+        }
+        return new Message(row.getPayload(), properties);
+    }
+
+    private static String headerString(MessageProperties properties, String name) {
+        Object value = properties.getHeader(name);
+        return value != null ? value.toString() : null;
+    }
+}
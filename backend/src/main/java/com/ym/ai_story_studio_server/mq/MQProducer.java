@@ -1,19 +1,21 @@
 package com.ym.ai_story_studio_server.mq;
 
 import com.ym.ai_story_studio_server.dto.ai.ShotVideoGenerateRequest.AssetResource;
+import com.ym.ai_story_studio_server.entity.JobItem;
 import com.ym.ai_story_studio_server.mq.BatchTaskMessage;
 import com.ym.ai_story_studio_server.mq.TextParsingMessage;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
  * MQ消息生产者
  * 
- * <p>负责发送各类任务消息到RabbitMQ
+ * <p>负责发送各类任务消息到RabbitMQ。消息不直接发送,而是写入发件箱({@link MQOutboxPublisher}),
+ * 与调用方创建Job/JobItem的事务一起提交,由后台发布线程批量发送并跟踪broker确认
  * 
  * @author AI Story Studio
  * @since 1.0.0
@@ -23,7 +25,7 @@ import java.util.List;
 @RequiredArgsConstructor
 public class MQProducer {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final MQOutboxPublisher outboxPublisher;
 
     /**
      * 发送批量生成分镜图任务
@@ -31,28 +33,16 @@ public class MQProducer {
      * @param jobId 任务ID
      * @param userId 用户ID
      * @param projectId 项目ID
-     * @param shotIds 分镜ID列表
+     * @param items 子任务列表(每个子任务发送一条消息)
      * @param mode 生成模式
      * @param countPerItem 每个目标生成数量
      * @param aspectRatio 画幅比例
      * @param model 模型名称
      */
-    public void sendBatchShotImageTask(Long jobId, Long userId, Long projectId, List<Long> shotIds,
+    public void sendBatchShotImageTask(Long jobId, Long userId, Long projectId, List<JobItem> items,
                                        String mode, Integer countPerItem, String aspectRatio, String model) {
-        BatchTaskMessage message = new BatchTaskMessage(
-                jobId, userId, projectId, shotIds, mode, countPerItem, aspectRatio, model
-        );
-        
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, shotCount: {}", 
-                MQConstant.EXCHANGE_BUSINESS, 
-                MQConstant.ROUTING_KEY_BATCH_SHOT_IMAGE,
-                jobId, shotIds.size());
-        
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_BATCH_SHOT_IMAGE,
-                message
-        );
+        sendBatchItems(MQConstant.ROUTING_KEY_BATCH_SHOT_IMAGE, jobId, userId, projectId, items,
+                mode, countPerItem, aspectRatio, model);
     }
 
     /**
@@ -73,100 +63,49 @@ public class MQProducer {
                 jobId, userId, projectId, shotId, aspectRatio, model, customPrompt, referenceImageUrls
         );
         
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, shotId: {}, customPrompt: {}", 
+        log.info("写入发件箱 - 交换机: {}, 路由键: {}, jobId: {}, shotId: {}, customPrompt: {}", 
                 MQConstant.EXCHANGE_BUSINESS, 
                 MQConstant.ROUTING_KEY_SINGLE_SHOT_IMAGE,
                 jobId, shotId, customPrompt != null ? "自定义" : "默认");
         
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_SINGLE_SHOT_IMAGE,
-                message
-        );
+        outboxPublisher.enqueue(MQConstant.EXCHANGE_BUSINESS, MQConstant.ROUTING_KEY_SINGLE_SHOT_IMAGE,
+                jobId, List.of(message));
     }
 
     /**
      * 发送批量生成视频任务
      */
-    public void sendBatchVideoTask(Long jobId, Long userId, Long projectId, List<Long> shotIds,
+    public void sendBatchVideoTask(Long jobId, Long userId, Long projectId, List<JobItem> items,
                                    String mode, Integer countPerItem, String aspectRatio, String model) {
-        BatchTaskMessage message = new BatchTaskMessage(
-                jobId, userId, projectId, shotIds, mode, countPerItem, aspectRatio, model
-        );
-        
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, shotCount: {}", 
-                MQConstant.EXCHANGE_BUSINESS, 
-                MQConstant.ROUTING_KEY_BATCH_VIDEO,
-                jobId, shotIds.size());
-        
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_BATCH_VIDEO,
-                message
-        );
+        sendBatchItems(MQConstant.ROUTING_KEY_BATCH_VIDEO, jobId, userId, projectId, items,
+                mode, countPerItem, aspectRatio, model);
     }
 
     /**
      * 发送批量生成角色画像任务
      */
-    public void sendBatchCharacterImageTask(Long jobId, Long userId, Long projectId, List<Long> characterIds,
+    public void sendBatchCharacterImageTask(Long jobId, Long userId, Long projectId, List<JobItem> items,
                                             String mode, Integer countPerItem, String aspectRatio, String model) {
-        BatchTaskMessage message = new BatchTaskMessage(
-                jobId, userId, projectId, characterIds, mode, countPerItem, aspectRatio, model
-        );
-        
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, characterCount: {}", 
-                MQConstant.EXCHANGE_BUSINESS, 
-                MQConstant.ROUTING_KEY_BATCH_CHARACTER_IMAGE,
-                jobId, characterIds.size());
-        
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_BATCH_CHARACTER_IMAGE,
-                message
-        );
+        sendBatchItems(MQConstant.ROUTING_KEY_BATCH_CHARACTER_IMAGE, jobId, userId, projectId, items,
+                mode, countPerItem, aspectRatio, model);
     }
 
     /**
      * 发送批量生成场景画像任务
      */
-    public void sendBatchSceneImageTask(Long jobId, Long userId, Long projectId, List<Long> sceneIds,
+    public void sendBatchSceneImageTask(Long jobId, Long userId, Long projectId, List<JobItem> items,
                                         String mode, Integer countPerItem, String aspectRatio, String model) {
-        BatchTaskMessage message = new BatchTaskMessage(
-                jobId, userId, projectId, sceneIds, mode, countPerItem, aspectRatio, model
-        );
-        
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, sceneCount: {}", 
-                MQConstant.EXCHANGE_BUSINESS, 
-                MQConstant.ROUTING_KEY_BATCH_SCENE_IMAGE,
-                jobId, sceneIds.size());
-        
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_BATCH_SCENE_IMAGE,
-                message
-        );
+        sendBatchItems(MQConstant.ROUTING_KEY_BATCH_SCENE_IMAGE, jobId, userId, projectId, items,
+                mode, countPerItem, aspectRatio, model);
     }
 
     /**
      * 发送批量生成道具画像任务
      */
-    public void sendBatchPropImageTask(Long jobId, Long userId, Long projectId, List<Long> propIds,
+    public void sendBatchPropImageTask(Long jobId, Long userId, Long projectId, List<JobItem> items,
                                        String mode, Integer countPerItem, String aspectRatio, String model) {
-        BatchTaskMessage message = new BatchTaskMessage(
-                jobId, userId, projectId, propIds, mode, countPerItem, aspectRatio, model
-        );
-        
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, propCount: {}", 
-                MQConstant.EXCHANGE_BUSINESS, 
-                MQConstant.ROUTING_KEY_BATCH_PROP_IMAGE,
-                jobId, propIds.size());
-        
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_BATCH_PROP_IMAGE,
-                message
-        );
+        sendBatchItems(MQConstant.ROUTING_KEY_BATCH_PROP_IMAGE, jobId, userId, projectId, items,
+                mode, countPerItem, aspectRatio, model);
     }
 
     /**
@@ -194,18 +133,15 @@ public class MQProducer {
                 jobId, userId, projectId, shotId, prompt, aspectRatio, duration, size, referenceImageUrl, scene, characters, props
         );
         
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, shotId: {}, promptLength: {}, hasScene: {}, characterCount: {}, propCount: {}", 
+        log.info("写入发件箱 - 交换机: {}, 路由键: {}, jobId: {}, shotId: {}, promptLength: {}, hasScene: {}, characterCount: {}, propCount: {}", 
                 MQConstant.EXCHANGE_BUSINESS, 
                 MQConstant.ROUTING_KEY_SINGLE_SHOT_VIDEO,
                 jobId, shotId, prompt.length(), scene != null, 
                 characters != null ? characters.size() : 0,
                 props != null ? props.size() : 0);
         
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_SINGLE_SHOT_VIDEO,
-                message
-        );
+        outboxPublisher.enqueue(MQConstant.EXCHANGE_BUSINESS, MQConstant.ROUTING_KEY_SINGLE_SHOT_VIDEO,
+                jobId, List.of(message));
     }
 
     /**
@@ -214,15 +150,34 @@ public class MQProducer {
     public void sendTextParsingTask(Long jobId, Long userId, Long projectId, String rawText) {
         TextParsingMessage message = new TextParsingMessage(jobId, userId, projectId, rawText);
         
-        log.info("发送消息 - 交换机: {}, 路由键: {}, jobId: {}, textLength: {}", 
+        log.info("写入发件箱 - 交换机: {}, 路由键: {}, jobId: {}, textLength: {}", 
                 MQConstant.EXCHANGE_BUSINESS, 
                 MQConstant.ROUTING_KEY_TEXT_PARSING,
                 jobId, rawText.length());
         
-        rabbitTemplate.convertAndSend(
-                MQConstant.EXCHANGE_BUSINESS,
-                MQConstant.ROUTING_KEY_TEXT_PARSING,
-                message
-        );
+        outboxPublisher.enqueue(MQConstant.EXCHANGE_BUSINESS, MQConstant.ROUTING_KEY_TEXT_PARSING,
+                jobId, List.of(message));
+    }
+
+    /**
+     * 按子任务拆分发送批量任务消息
+     *
+     * <p>每个JobItem发送一条只包含单个目标的消息,使同一批次可以被多个消费者/节点并行消费,
+     * 节点宕机时也只会重放未确认的子项;消息按用户公平放行,大批次不会阻塞其他用户
+     */
+    private void sendBatchItems(String routingKey, Long jobId, Long userId, Long projectId, List<JobItem> items,
+                                String mode, Integer countPerItem, String aspectRatio, String model) {
+        log.info("写入发件箱 - 交换机: {}, 路由键: {}, jobId: {}, itemCount: {}",
+                MQConstant.EXCHANGE_BUSINESS, routingKey, jobId, items.size());
+
+        List<BatchTaskMessage> messages = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            JobItem item = items.get(i);
+            messages.add(new BatchTaskMessage(
+                    jobId, userId, projectId, List.of(item.getTargetId()), mode, countPerItem, aspectRatio, model,
+                    item.getId(), i
+            ));
+        }
+        outboxPublisher.enqueueBulk(MQConstant.EXCHANGE_BUSINESS, routingKey, jobId, userId, messages);
     }
 }
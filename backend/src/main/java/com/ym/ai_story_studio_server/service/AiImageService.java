@@ -1,5 +1,7 @@
 package com.ym.ai_story_studio_server.service;
 
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import com.ym.ai_story_studio_server.client.ImageSpool;
 import com.ym.ai_story_studio_server.client.VectorEngineClient;
 import com.ym.ai_story_studio_server.common.ResultCode;
 import com.ym.ai_story_studio_server.config.AiProperties;
@@ -16,8 +18,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.HashMap;
@@ -87,9 +88,16 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AiImageService {
 
+    /**
+     * 图片下载等待响应的超时时间
+     */
+    private static final Duration IMAGE_DOWNLOAD_TIMEOUT = Duration.ofSeconds(60);
+
     private final VectorEngineClient vectorEngineClient;
     private final ChargingService chargingService;
     private final StorageService storageService;
+    private final HttpTransport httpTransport;
+    private final ImageSpool imageSpool;
     private final JobMapper jobMapper;
     private final AiProperties aiProperties;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
@@ -391,6 +399,12 @@ public class AiImageService {
      * @throws BusinessException 当处理失败时抛出
      */
     private String processImageResult(String imageData, Long jobId, int index) {
+        // 判断0: 是否为落盘文件(Gemini原生格式流式解码的结果)
+        if (imageSpool.isSpooled(imageData)) {
+            log.debug("Detected spooled image file - index: {}", index);
+            return uploadSpooledToOss(imageData, jobId, index);
+        }
+
         // 判断1: 是否为base64编码
         if (isBase64(imageData)) {
             log.debug("Detected base64 image data - index: {}, length: {}", index, imageData.length());
@@ -421,6 +435,29 @@ public class AiImageService {
         return processImageResult(imageData, jobId, 0);
     }
 
+    /**
+     * 流式上传落盘图片到OSS
+     *
+     * <p>文件由{@link ImageSpool}在解析响应时写入,上传完成后删除
+     *
+     * @param imageData 落盘文件URI
+     * @param jobId 任务ID(用于生成文件名)
+     * @param index 图片索引
+     * @return OSS存储的图片URL
+     * @throws BusinessException 当上传失败时抛出
+     */
+    private String uploadSpooledToOss(String imageData, Long jobId, int index) {
+        try (InputStream inputStream = imageSpool.open(imageData)) {
+            String fileName = String.format("ai_image_%d_%d.png", jobId, index);
+            String ossUrl = storageService.upload(inputStream, fileName, "image/png");
+            log.debug("Spooled image uploaded to OSS successfully - index: {}, ossUrl: {}", index, ossUrl);
+            return ossUrl;
+        } catch (Exception e) {
+            log.error("Failed to upload spooled image to OSS", e);
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "图片上传失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 上传base64编码的图片到OSS
      *
@@ -499,14 +536,9 @@ public class AiImageService {
      * @throws BusinessException 当下载或上传失败时抛出
      */
     private String downloadAndUploadToOss(String imageUrl, Long jobId, int index) {
-        try {
-            // 1. 从URL下载图片
-            URL url = new URL(imageUrl);
-            URLConnection connection = url.openConnection();
-            connection.setConnectTimeout(30000);  // 30秒连接超时
-            connection.setReadTimeout(60000);      // 60秒读取超时
-
-            String contentType = connection.getContentType();
+        // 1. 从URL下载图片(共享连接池)
+        try (HttpTransport.Download download = httpTransport.open(imageUrl, IMAGE_DOWNLOAD_TIMEOUT)) {
+            String contentType = download.contentType();
             if (contentType == null) {
                 contentType = "image/jpeg";  // 默认类型
             }
@@ -519,11 +551,9 @@ public class AiImageService {
                     index, imageUrl, contentType, fileName);
 
             // 3. 上传到OSS
-            try (InputStream inputStream = connection.getInputStream()) {
-                String ossUrl = storageService.upload(inputStream, fileName, contentType);
-                log.debug("Image uploaded to OSS successfully - ossUrl: {}", ossUrl);
-                return ossUrl;
-            }
+            String ossUrl = storageService.upload(download.body(), fileName, contentType);
+            log.debug("Image uploaded to OSS successfully - ossUrl: {}", ossUrl);
+            return ossUrl;
 
         } catch (Exception e) {
             log.error("Failed to download and upload image - url: {}", imageUrl, e);
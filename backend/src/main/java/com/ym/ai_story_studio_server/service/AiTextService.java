@@ -13,6 +13,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -78,6 +79,7 @@ public class AiTextService {
     private final JobMapper jobMapper;
     private final AiProperties aiProperties;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    private final TextStreamRelay textStreamRelay;
 
     /**
      * 异步生成文本（工具箱使用）
@@ -342,6 +344,82 @@ public class AiTextService {
         }
     }
 
+    /**
+     * 流式生成文本
+     *
+     * <p>创建任务后立即返回SSE连接,Servlet线程不随生成过程阻塞。预扣费和生成在流式执行器中进行,
+     * 执行器已满时不会扣费;余额不足等错误以{@code error}事件返回。
+     * 流结束后完整文本写入任务的meta_json,{@code done}事件返回与{@link #generateText}相同结构的响应(包含jobId)
+     *
+     * @param request 文本生成请求参数
+     * @return SSE连接
+     * @throws BusinessException 流式执行器已满时抛出
+     */
+    public SseEmitter streamText(TextGenerateRequest request) {
+        Long userId = UserContext.getUserId();
+        log.info("Starting streaming text generation - userId: {}, promptLength: {}",
+                userId, request.prompt().length());
+
+        AiProperties.Text textConfig = aiProperties.getText();
+        String model = textConfig.getModel();
+        Integer maxTokens = textConfig.getMaxTokens();
+        Double temperature = request.temperature() != null ? request.temperature() : textConfig.getTemperature();
+        Double topP = request.topP() != null ? request.topP() : textConfig.getTopP();
+
+        Job job = createJob(userId, request.projectId(), model, request.prompt());
+        log.info("Job created - jobId: {}, jobType: TEXT_GENERATION, streaming", job.getId());
+
+        try {
+            return textStreamRelay.relay(onDelta -> {
+                try {
+                    Map<String, Object> chargingMetaData = new HashMap<>();
+                    chargingMetaData.put("model", model);
+                    chargingMetaData.put("maxTokens", maxTokens);
+                    chargingMetaData.put("temperature", temperature);
+                    chargingMetaData.put("topP", topP);
+                    chargingMetaData.put("prompt", request.prompt());
+
+                    ChargingService.ChargingResult chargingResult = chargingService.charge(
+                            ChargingService.ChargingRequest.builder()
+                                    .jobId(job.getId())
+                                    .bizType("TEXT_GENERATION")
+                                    .modelCode(model)
+                                    .quantity(1)
+                                    .metaData(chargingMetaData)
+                                    .build()
+                    );
+
+                    VectorEngineClient.TextApiResponse apiResponse = vectorEngineClient.streamText(
+                            request.prompt(), model, maxTokens, temperature, topP, onDelta);
+
+                    String generatedText = apiResponse.choices().get(0).message().content();
+                    Integer tokensUsed = apiResponse.usage() != null && apiResponse.usage().totalTokens() != null
+                            ? apiResponse.usage().totalTokens()
+                            : 0;
+
+                    log.info("Streaming text generation succeeded - jobId: {}, tokensUsed: {}, textLength: {}",
+                            job.getId(), tokensUsed, generatedText.length());
+                    updateJobSuccess(job, model, request.prompt(), generatedText, tokensUsed);
+
+                    return new TextGenerateResponse(
+                            generatedText,
+                            tokensUsed,
+                            model,
+                            chargingResult.getTotalCost(),
+                            job.getId()
+                    );
+                } catch (RuntimeException e) {
+                    log.error("Streaming text generation failed - jobId: {}", job.getId(), e);
+                    updateJobFailed(job, e.getMessage());
+                    throw e;
+                }
+            });
+        } catch (BusinessException e) {
+            updateJobFailed(job, e.getMessage());
+            throw e;
+        }
+    }
+
     /**
      * 创建任务记录
      *
@@ -187,6 +187,8 @@ public class AiVideoService {
                 metaData.put("size", size);
                 metaData.put("prompt", request.prompt());
                 metaData.put("apiTaskId", apiTaskId);
+                // 轮询超时从提交时间起算,其他节点接管时沿用
+                metaData.put("submittedAt", String.valueOf(System.currentTimeMillis()));
                 job.setMetaJson(objectMapper.writeValueAsString(metaData));
                 jobMapper.updateById(job);
             } catch (Exception e) {
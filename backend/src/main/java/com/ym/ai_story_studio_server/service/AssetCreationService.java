@@ -24,6 +24,7 @@ public class AssetCreationService {
 
     private final AssetMapper assetMapper;
     private final AssetVersionMapper assetVersionMapper;
+    private final ShotViewCache shotViewCache;
 
     /**
      * 创建资产并保存第一个版本
@@ -85,6 +86,9 @@ public class AssetCreationService {
         log.info("AssetVersion创建成功 - versionId: {}, assetId: {}, url: {}", 
                 version.getId(), asset.getId(), ossUrl);
 
+        // 提交后使分镜列表缓存失效(分镜图/视频及角色/场景/道具缩略图都可能变化)
+        shotViewCache.evict(projectId);
+
         return asset;
     }
 
@@ -1,5 +1,7 @@
 package com.ym.ai_story_studio_server.service;
 
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import com.ym.ai_story_studio_server.client.ImageSpool;
 import com.ym.ai_story_studio_server.client.VectorEngineClient;
 import com.ym.ai_story_studio_server.common.ResultCode;
 import com.ym.ai_story_studio_server.config.AiProperties;
@@ -15,8 +17,7 @@ import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.net.URL;
-import java.net.URLConnection;
+import java.time.Duration;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.HashMap;
@@ -72,6 +73,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 @RequiredArgsConstructor
 public class AsyncBatchTaskService {
 
+    /**
+     * 图片下载等待响应的超时时间
+     */
+    private static final Duration IMAGE_DOWNLOAD_TIMEOUT = Duration.ofSeconds(60);
+
     private final AiImageService aiImageService;
     private final AiVideoService aiVideoService;
     private final AiTextService aiTextService;
@@ -84,10 +90,14 @@ public class AsyncBatchTaskService {
     private final com.ym.ai_story_studio_server.mapper.CharacterLibraryMapper characterLibraryMapper;
     private final com.ym.ai_story_studio_server.mapper.ShotBindingMapper shotBindingMapper;
     private final com.ym.ai_story_studio_server.mapper.ProjectSceneMapper projectSceneMapper;
+    private final JobEventHub jobEventHub;
+    private final JobProgressTracker jobProgressTracker;
     
     // 新增依赖：用于直接创建Asset记录
     private final VectorEngineClient vectorEngineClient;
     private final StorageService storageService;
+    private final HttpTransport httpTransport;
+    private final ImageSpool imageSpool;
     private final AssetCreationService assetCreationService;
     private final ChargingService chargingService;
 
@@ -271,7 +281,7 @@ public class AsyncBatchTaskService {
                 }
 
                 // 4. 更新进度
-                updateJobProgress(jobId, i + 1, shotIds.size());
+                updateJobProgress(jobId, userId, i + 1, shotIds.size());
             }
 
             log.info("批量生成分镜图完成 - 成功: {}, 失败: {}", successCount.get(), failCount.get());
@@ -449,7 +459,7 @@ public class AsyncBatchTaskService {
                 }
 
                 // 4. 更新进度
-                updateJobProgress(jobId, i + 1, shotIds.size());
+                updateJobProgress(jobId, userId, i + 1, shotIds.size());
             }
 
             log.info("批量生成视频完成 - 成功: {}, 失败: {}", successCount.get(), failCount.get());
@@ -571,7 +581,7 @@ public class AsyncBatchTaskService {
                 }
 
                 // 更新进度
-                updateJobProgress(jobId, i + 1, characterIds.size());
+                updateJobProgress(jobId, userId, i + 1, characterIds.size());
             }
 
             log.info("批量生成角色画像完成 - 成功: {}, 失败: {}", successCount.get(), failCount.get());
@@ -695,7 +705,7 @@ public class AsyncBatchTaskService {
                 }
 
                 // 更新进度
-                updateJobProgress(jobId, i + 1, sceneIds.size());
+                updateJobProgress(jobId, userId, i + 1, sceneIds.size());
             }
 
             log.info("批量生成场景画像完成 - 成功: {}, 失败: {}", successCount.get(), failCount.get());
@@ -831,6 +841,7 @@ public class AsyncBatchTaskService {
             job.setStatus("RUNNING");
             job.setProgress(0);
             jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
             log.info("任务状态已更新为RUNNING - jobId: {}", jobId);
         }
     }
@@ -838,19 +849,16 @@ public class AsyncBatchTaskService {
     /**
      * 更新任务进度
      *
+     * <p>进度由{@link JobProgressTracker}按周期合并写回,不在每个子项完成时写库
+     *
      * @param jobId 任务ID
+     * @param userId 用户ID
      * @param doneItems 已完成数量
      * @param totalItems 总数量
      */
-    private void updateJobProgress(Long jobId, int doneItems, int totalItems) {
-        Job job = jobMapper.selectById(jobId);
-        if (job != null) {
-            job.setDoneItems(doneItems);
-            job.setProgress((int) (doneItems * 100.0 / totalItems));
-            jobMapper.updateById(job);
-            log.debug("任务进度已更新 - jobId: {}, progress: {}%, done: {}/{}",
-                    jobId, job.getProgress(), doneItems, totalItems);
-        }
+    private void updateJobProgress(Long jobId, Long userId, int doneItems, int totalItems) {
+        jobProgressTracker.record(jobId, userId, doneItems, totalItems);
+        log.debug("任务进度已记录 - jobId: {}, done: {}/{}", jobId, doneItems, totalItems);
     }
 
     /**
@@ -861,6 +869,7 @@ public class AsyncBatchTaskService {
      * @param failCount 失败数量
      */
     private void updateJobSuccess(Long jobId, int successCount, int failCount) {
+        jobProgressTracker.discard(jobId);
         Job job = jobMapper.selectById(jobId);
         if (job != null) {
             job.setStatus("SUCCEEDED");
@@ -869,6 +878,7 @@ public class AsyncBatchTaskService {
             job.setMetaJson(String.format("{\"successCount\":%d,\"failCount\":%d}",
                     successCount, failCount));
             jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
             log.info("任务已完成 - jobId: {}, 成功: {}, 失败: {}", jobId, successCount, failCount);
         }
     }
@@ -880,11 +890,13 @@ public class AsyncBatchTaskService {
      * @param errorMessage 错误信息
      */
     private void updateJobFailed(Long jobId, String errorMessage) {
+        jobProgressTracker.discard(jobId);
         Job job = jobMapper.selectById(jobId);
         if (job != null) {
             job.setStatus("FAILED");
             job.setErrorMessage(errorMessage);
             jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
             log.error("任务已失败 - jobId: {}, error: {}", jobId, errorMessage);
         }
     }
@@ -900,6 +912,11 @@ public class AsyncBatchTaskService {
      * @return OSS存储的URL
      */
     private String processImageAndUploadToOss(String imageData, Long jobId, int index) {
+        if (imageSpool.isSpooled(imageData)) {
+            log.debug("检测到落盘图片 - index: {}", index);
+            return uploadSpooledToOss(imageData, jobId, index);
+        }
+
         if (isBase64(imageData)) {
             log.debug("检测到base64图片 - index: {}", index);
             return uploadBase64ToOss(imageData, jobId, index);
@@ -913,6 +930,21 @@ public class AsyncBatchTaskService {
         throw new BusinessException(ResultCode.PARAM_INVALID, "无法识别的图片数据格式");
     }
 
+    /**
+     * 流式上传落盘图片到OSS,上传后删除本地文件
+     */
+    private String uploadSpooledToOss(String imageData, Long jobId, int index) {
+        try (InputStream inputStream = imageSpool.open(imageData)) {
+            String fileName = String.format("ai_image_%d_%d.png", jobId, index);
+            String ossUrl = storageService.upload(inputStream, fileName, "image/png");
+            log.debug("落盘图片上传成功 - index: {}, ossUrl: {}", index, ossUrl);
+            return ossUrl;
+        } catch (Exception e) {
+            log.error("落盘图片上传失败", e);
+            throw new BusinessException(ResultCode.OSS_ERROR, "图片上传失败: " + e.getMessage());
+        }
+    }
+
     /**
      * 上传base64图片到OSS
      */
@@ -934,13 +966,8 @@ public class AsyncBatchTaskService {
      * 从URL下载图片并上传到OSS
      */
     private String downloadAndUploadToOss(String imageUrl, Long jobId, int index) {
-        try {
-            URL url = new URL(imageUrl);
-            URLConnection connection = url.openConnection();
-            connection.setConnectTimeout(30000);
-            connection.setReadTimeout(60000);
-
-            String contentType = connection.getContentType();
+        try (HttpTransport.Download download = httpTransport.open(imageUrl, IMAGE_DOWNLOAD_TIMEOUT)) {
+            String contentType = download.contentType();
             if (contentType == null) {
                 contentType = "image/jpeg";
             }
@@ -948,11 +975,9 @@ public class AsyncBatchTaskService {
             String extension = getExtensionFromContentType(contentType);
             String fileName = String.format("ai_image_%d_%d%s", jobId, index, extension);
 
-            try (InputStream inputStream = connection.getInputStream()) {
-                String ossUrl = storageService.upload(inputStream, fileName, contentType);
-                log.debug("URL图片下载并上传成功 - ossUrl: {}", ossUrl);
-                return ossUrl;
-            }
+            String ossUrl = storageService.upload(download.body(), fileName, contentType);
+            log.debug("URL图片下载并上传成功 - ossUrl: {}", ossUrl);
+            return ossUrl;
         } catch (Exception e) {
             log.error("图片下载或上传失败 - url: {}", imageUrl, e);
             throw new BusinessException(ResultCode.OSS_ERROR, "图片下载失败: " + e.getMessage());
@@ -10,6 +10,8 @@
 package com.ym.ai_story_studio_server.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.ym.ai_story_studio_server.client.HttpTransport;
 import com.ym.ai_story_studio_server.client.VectorEngineClient;
 import com.ym.ai_story_studio_server.common.ResultCode;
 import com.ym.ai_story_studio_server.config.AiProperties;
@@ -20,38 +22,41 @@ import com.ym.ai_story_studio_server.util.UserContext;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 异步视频任务处理服务
  *
- * <p>专门负责视频生成任务的异步轮询和状态更新,与AiVideoService分离以确保@Async注解生效
+ * <p>专门负责视频生成任务的异步轮询和状态更新,轮询由{@link VideoTaskPoller}统一调度
  *
  * <p><strong>核心功能:</strong>
  * <ul>
- *   <li>异步轮询视频生成任务状态</li>
+ *   <li>调度器驱动的视频生成任务状态轮询(退避+抖动,少量线程承载大量在途任务)</li>
  *   <li>根据API状态自动映射任务进度(pending→10%, processing→50%, completed→100%)</li>
  *   <li>处理生成成功回调:下载视频、上传OSS、积分扣费</li>
  *   <li>处理生成失败回调:记录错误信息、更新任务状态</li>
  *   <li>支持超时自动失败</li>
  * </ul>
  *
- * <p><strong>为什么需要独立的Service类?</strong>
+ * <p><strong>轮询模型:</strong>
  * <ul>
- *   <li>Spring的@Async基于AOP代理实现</li>
- *   <li>同一类内部的方法调用(this.method())不会经过Spring代理</li>
- *   <li>因此@Async注解在同一类内部调用时会失效,方法会同步执行</li>
- *   <li>将异步方法提取到独立Service类中,通过Spring注入调用,确保代理生效</li>
+ *   <li>登记任务时立即返回,不占用调用方线程</li>
+ *   <li>{@link VideoTaskPoller}按下次检查时间调度,每次到期只查询一次API状态</li>
+ *   <li>数千个在途任务只占用一个调度线程和固定数量的工作线程</li>
+ *   <li>通过{@link VideoPollLeaseService}的租约保证多节点下每个任务只由一个节点轮询,节点宕机后由其他节点接管</li>
  * </ul>
  *
  * <p><strong>线程安全注意事项:</strong>
  * <ul>
- *   <li>异步方法运行在独立线程中,无法访问主线程的ThreadLocal(如UserContext)</li>
+ *   <li>状态检查运行在轮询工作线程中,无法访问主线程的ThreadLocal(如UserContext)</li>
  *   <li>因此userId等关键参数必须通过方法参数显式传递</li>
  *   <li>在需要使用UserContext的地方(如chargingService.charge()),手动设置并清理</li>
  * </ul>
@@ -64,83 +69,126 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AsyncVideoTaskService {
 
+    /**
+     * 视频下载等待响应的超时时间(视频文件较大)
+     */
+    private static final Duration VIDEO_DOWNLOAD_TIMEOUT = Duration.ofSeconds(300);
+
     private final VectorEngineClient vectorEngineClient;
     private final ChargingService chargingService;
     private final StorageService storageService;
+    private final HttpTransport httpTransport;
     private final JobMapper jobMapper;
     private final AiProperties aiProperties;
     private final com.fasterxml.jackson.databind.ObjectMapper objectMapper;
+    private final VideoTaskPoller videoTaskPoller;
+    private final VideoPollLeaseService videoPollLeaseService;
+    private final JobEventHub jobEventHub;
+
+    /**
+     * 孤儿任务扫描的分页大小,每轮按ID翻页直到扫完
+     */
+    private static final int ORPHAN_SCAN_LIMIT = 100;
+
+    /**
+     * 检查间隔退避倍数
+     */
+    private static final double BACKOFF_MULTIPLIER = 1.5;
 
     /**
-     * 服务启动时恢复中断的视频生成任务
+     * 检查间隔抖动比例(±20%),避免同时提交的任务在同一tick集中查询
+     */
+    private static final double JITTER_RATIO = 0.2;
+
+    /**
+     * 当前节点正在轮询的任务ID,防止同一任务被重复登记
+     */
+    private final Set<Long> activeJobIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 启动租约维护:立即执行一次恢复,之后按leaseRenewInterval周期执行
+     */
+    @PostConstruct
+    public void startLeaseMaintenance() {
+        long interval = aiProperties.getVideo().getLeaseRenewInterval();
+        videoTaskPoller.scheduleMaintenance(Duration.ofMillis(interval), this::recoverPendingVideoTasks);
+    }
+
+    /**
+     * 续期本节点的轮询租约,并接管无人持有的视频生成任务
      * 
-     * <p>参考huobao-drama-master项目的RecoverPendingTasks实现
+     * <p>参考huobao-drama-master项目的RecoverPendingTasks实现,由启动时一次性恢复改为周期执行,
+     * 以便多节点部署时某个节点宕机后,其他节点能在租约过期后接管其在途任务
      * 
      * <p><strong>恢复逻辑:</strong>
      * <ul>
-     *   <li>查找所有RUNNING状态且有apiTaskId的视频生成任务</li>
-     *   <li>为每个任务启动异步轮询</li>
+     *   <li>为本节点正在轮询的任务续期租约</li>
+     *   <li>按ID分页查找租约为空或已过期、且有apiTaskId的PENDING/RUNNING视频生成任务</li>
+     *   <li>抢到租约的任务登记到轮询调度器,抢占失败说明已被其他节点接管</li>
      * </ul>
      */
-    @PostConstruct
     public void recoverPendingVideoTasks() {
         try {
-            // 查找所有RUNNING状态的视频生成任务
-            List<Job> pendingJobs = jobMapper.selectList(
-                    new LambdaQueryWrapper<Job>()
-                            .eq(Job::getStatus, "RUNNING")
-                            .eq(Job::getJobType, "SINGLE_SHOT_VIDEO")
-            );
-            
-            if (pendingJobs.isEmpty()) {
-                log.info("服务启动: 没有需要恢复的视频生成任务");
-                return;
-            }
-            
-            log.info("服务启动: 发现 {} 个需要恢复的视频生成任务", pendingJobs.size());
-            
-            for (Job job : pendingJobs) {
-                try {
-                    // 从metaJson中提取必要信息
-                    String apiTaskId = extractFieldFromJson(job.getMetaJson(), "apiTaskId");
-                    String model = extractFieldFromJson(job.getMetaJson(), "model");
-                    String aspectRatio = extractFieldFromJson(job.getMetaJson(), "aspectRatio");
-                    String durationStr = extractFieldFromJson(job.getMetaJson(), "duration");
-                    Integer duration = durationStr != null ? Integer.parseInt(durationStr) : 5;
-                    
-                    if (apiTaskId == null || apiTaskId.isBlank()) {
-                        log.warn("任务没有apiTaskId,跳过恢复 - jobId: {}", job.getId());
-                        continue;
-                    }
-                    
-                    log.info("恢复视频生成任务轮询 - jobId: {}, apiTaskId: {}", job.getId(), apiTaskId);
-                    
-                    // 启动异步轮询
-                    pollVideoGenerationTask(
-                            job.getId(),
-                            apiTaskId,
-                            model != null ? model : "sora-2",
-                            aspectRatio != null ? aspectRatio : "16:9",
-                            duration,
-                            job.getUserId()
-                    );
-                    
-                } catch (Exception e) {
-                    log.error("恢复任务失败 - jobId: {}", job.getId(), e);
+            videoPollLeaseService.renew(List.copyOf(activeJobIds));
+
+            long cursor = 0L;
+            List<Job> orphanJobs;
+            do {
+                orphanJobs = videoPollLeaseService.findOrphans(cursor, ORPHAN_SCAN_LIMIT);
+                for (Job job : orphanJobs) {
+                    cursor = job.getId();
+                    recoverOrphan(job);
                 }
+            } while (orphanJobs.size() == ORPHAN_SCAN_LIMIT);
+
+        } catch (Exception e) {
+            log.error("恢复视频生成任务失败", e);
+        }
+    }
+
+    /**
+     * 接管单个孤儿任务的轮询,单个任务失败不影响同一轮的其他任务
+     */
+    private void recoverOrphan(Job job) {
+        if (activeJobIds.contains(job.getId())) {
+            return;
+        }
+        try {
+            // 从metaJson中提取必要信息
+            String apiTaskId = extractFieldFromJson(job.getMetaJson(), "apiTaskId");
+            if (apiTaskId == null || apiTaskId.isBlank()) {
+                // 尚未提交到API的任务由提交方登记轮询,这里不抢占
+                return;
             }
-            
-            log.info("服务启动: 视频生成任务恢复完成");
-            
+            String model = extractFieldFromJson(job.getMetaJson(), "model");
+            String aspectRatio = extractFieldFromJson(job.getMetaJson(), "aspectRatio");
+            String durationStr = extractFieldFromJson(job.getMetaJson(), "duration");
+            Integer duration = durationStr != null ? Integer.parseInt(durationStr) : 5;
+
+            log.info("接管视频生成任务轮询 - jobId: {}, apiTaskId: {}, 原持有节点: {}",
+                    job.getId(), apiTaskId, job.getPollOwner());
+
+            // 超时按最初提交时间计算,接管不重置截止时间
+            registerPoll(
+                    job.getId(),
+                    apiTaskId,
+                    model != null ? model : "sora-2",
+                    aspectRatio != null ? aspectRatio : "16:9",
+                    duration,
+                    job.getUserId(),
+                    submittedAt(job)
+            );
+
         } catch (Exception e) {
-            log.error("服务启动: 恢复视频生成任务失败", e);
+            log.error("恢复任务失败 - jobId: {}", job.getId(), e);
         }
     }
 
     /**
-     * 轮询视频生成任务(异步方法)
+     * 登记视频生成任务的状态轮询
      *
-     * <p>在后台线程中定期查询API任务状态,直到成功或失败
+     * <p>不再为每个任务占用一个线程循环{@code Thread.sleep},而是把任务交给{@link VideoTaskPoller}
+     * 按下次检查时间调度,每次到期只查询一次API状态,然后按退避间隔重新入队
      *
      * <p><strong>进度映射规则:</strong>
      * <ul>
@@ -152,10 +200,11 @@ public class AsyncVideoTaskService {
      *
      * <p><strong>安全保障:</strong>
      * <ul>
-     *   <li>✅ 幂等性:每次更新前先查询最新状态,避免重复处理</li>
-     *   <li>✅ 异常隔离:任何异常都会被捕获并记录到任务状态</li>
-     *   <li>✅ 资源清理:确保UserContext在finally块中清理</li>
-     *   <li>✅ 超时保护:超过最大轮询次数自动标记为失败</li>
+     *   <li>✅ 幂等性:每次检查前先查询最新状态,任务已结束则停止轮询;同一任务重复登记会被忽略</li>
+     *   <li>✅ 多节点:登记前先抢占jobs表上的轮询租约,同一任务只由一个节点轮询</li>
+     *   <li>✅ 异常隔离:单次查询失败只会推迟下一次检查,不终止整个任务</li>
+     *   <li>✅ 退避+抖动:检查间隔从pollInterval起按1.5倍递增至maxPollInterval,并加入±20%抖动</li>
+     *   <li>✅ 超时保护:总轮询时长超过pollInterval × maxPollCount自动标记为失败</li>
      * </ul>
      *
      * @param jobId 本地任务ID
@@ -165,7 +214,6 @@ public class AsyncVideoTaskService {
      * @param duration 视频时长
      * @param userId 用户ID(用于积分扣费时设置UserContext)
      */
-    @Async("taskExecutor")
     public void pollVideoGenerationTask(
             Long jobId,
             String apiTaskId,
@@ -174,116 +222,180 @@ public class AsyncVideoTaskService {
             Integer duration,
             Long userId
     ) {
-        log.info("========== 异步轮询任务启动 ==========");
-        log.info("jobId: {}, apiTaskId: {}, userId: {}", jobId, apiTaskId, userId);
-        log.info("线程: {}", Thread.currentThread().getName());
-        log.info("=====================================");
+        registerPoll(jobId, apiTaskId, model, aspectRatio, duration, userId, System.currentTimeMillis());
+    }
+
+    /**
+     * 登记轮询
+     *
+     * @param submittedAt 任务提交到API的时间(毫秒时间戳),总轮询时长从该时间起算
+     */
+    private void registerPoll(
+            Long jobId,
+            String apiTaskId,
+            String model,
+            String aspectRatio,
+            Integer duration,
+            Long userId,
+            long submittedAt
+    ) {
+        if (!activeJobIds.add(jobId)) {
+            log.info("任务已在轮询中,忽略重复登记 - jobId: {}, apiTaskId: {}", jobId, apiTaskId);
+            return;
+        }
+        if (!videoPollLeaseService.tryAcquire(jobId)) {
+            activeJobIds.remove(jobId);
+            log.info("任务租约由其他节点持有,本节点不轮询 - jobId: {}, apiTaskId: {}", jobId, apiTaskId);
+            return;
+        }
 
         AiProperties.Video videoConfig = aiProperties.getVideo();
-        Long pollInterval = videoConfig.getPollInterval();
-        Integer maxPollCount = videoConfig.getMaxPollCount();
+        long pollInterval = videoConfig.getPollInterval();
+        long deadlineAt = submittedAt + pollInterval * videoConfig.getMaxPollCount();
 
-        int pollCount = 0;
+        PollTask task = new PollTask(jobId, apiTaskId, model, aspectRatio, duration, userId, deadlineAt);
+        task.interval = pollInterval;
 
-        try {
-            while (pollCount < maxPollCount) {
-                pollCount++;
+        log.info("登记视频轮询任务 - jobId: {}, apiTaskId: {}, userId: {}, 在途任务数: {}",
+                jobId, apiTaskId, userId, activeJobIds.size());
+        videoTaskPoller.schedule(pollInterval, () -> checkOnce(task));
+    }
 
-                // 等待一段时间后再查询(避免过于频繁的API调用)
-                Thread.sleep(pollInterval);
+    /**
+     * 执行一次状态检查
+     *
+     * <p>由轮询调度器的工作线程调用,任务未结束时按退避间隔重新入队
+     *
+     * @param task 轮询任务
+     */
+    private void checkOnce(PollTask task) {
+        Long jobId = task.jobId;
+        task.pollCount++;
 
-                // 查询任务状态
-                log.info("轮询第 {}/{} 次 - jobId: {}, apiTaskId: {}",
-                        pollCount, maxPollCount, jobId, apiTaskId);
+        try {
+            // ✅ 安全保障:每次检查前先查询最新状态(幂等性)
+            Job job = jobMapper.selectById(jobId);
+            if (job == null) {
+                log.error("任务不存在,停止轮询 - jobId: {}", jobId);
+                finish(task);
+                return;
+            }
+            if (isTerminal(job.getStatus())) {
+                log.info("任务已结束,停止轮询 - jobId: {}, status: {}", jobId, job.getStatus());
+                finish(task);
+                return;
+            }
+            if (!videoPollLeaseService.isOwnedByMe(job)) {
+                // 本节点续期中断期间租约过期并被其他节点接管,放弃本地轮询
+                log.warn("任务租约已被其他节点接管,停止本地轮询 - jobId: {}, owner: {}", jobId, job.getPollOwner());
+                activeJobIds.remove(jobId);
+                return;
+            }
+
+            VectorEngineClient.TaskStatusApiResponse statusResponse;
+            try {
+                statusResponse = vectorEngineClient.queryTaskStatus(task.apiTaskId);
+            } catch (Exception e) {
+                // 单次查询失败不终止整个任务,推迟到下一次检查(参考huobao-drama-master)
+                log.warn("任务查询失败,稍后重试 - jobId: {}, 第{}次检查, 错误: {}",
+                        jobId, task.pollCount, e.getMessage());
+                rescheduleOrTimeout(task);
+                return;
+            }
 
-                // 带容错的轮询(单次失败不终止整个任务,参考huobao-drama-master)
-                VectorEngineClient.TaskStatusApiResponse statusResponse = null;
-                int queryRetryCount = 0;
-                int maxQueryRetries = 3;
+            String status = statusResponse.status();
+            log.debug("API返回状态: {} - jobId: {}, 第{}次检查, videoUrl存在: {}",
+                    status, jobId, task.pollCount, statusResponse.videoUrl() != null);
 
-                while (queryRetryCount < maxQueryRetries) {
+            // 成功/失败回调处理完成后再释放租约,处理期间租约仍由维护任务续期
+            if ("completed".equalsIgnoreCase(status)) {
+                // 下载和转存耗时较长,交给转存线程池,不占用轮询线程
+                boolean submitted = videoTaskPoller.submitTransfer(() -> {
                     try {
-                        statusResponse = vectorEngineClient.queryTaskStatus(apiTaskId);
-                        break;  // 查询成功，跳出重试循环
-
-                    } catch (Exception e) {
-                        queryRetryCount++;
-                        log.warn("任务查询失败 - jobId: {}, 第{}/{}次重试, 错误: {}",
-                                jobId, queryRetryCount, maxQueryRetries, e.getMessage());
-                        
-                        if (queryRetryCount < maxQueryRetries) {
-                            Thread.sleep(3000);  // 等待3秒后重试
-                        }
+                        handleVideoGenerationSuccess(jobId, statusResponse, task.model, task.aspectRatio,
+                                task.duration, task.userId, task.apiTaskId);
+                    } finally {
+                        finish(task);
                     }
+                });
+                if (!submitted) {
+                    log.warn("视频转存队列已满,稍后重新检查 - jobId: {}", jobId);
+                    videoTaskPoller.schedule(aiProperties.getVideo().getPollInterval(), () -> checkOnce(task));
                 }
-                
-                // 如果查询失败但未超过最大轮询次数,继续下一轮(参考huobao的continue逻辑)
-                if (statusResponse == null) {
-                    log.warn("本次轮询查询失败,继续下一轮 - jobId: {}, pollCount: {}", jobId, pollCount);
-                    continue;  // 不抛异常，继续下一次轮询
-                }
-
-                String status = statusResponse.status();
-                log.info("✅ API返回状态: {} - jobId: {}, videoUrl存在: {}",
-                        status, jobId, statusResponse.videoUrl() != null);
+                return;
+            }
+            if ("error".equalsIgnoreCase(status) || "failed".equalsIgnoreCase(status)) {
+                handleVideoGenerationFailure(jobId, "视频生成失败(status: " + status + ")");
+                finish(task);
+                return;
+            }
 
-                // ✅ 修复:根据status映射进度百分比(API不返回progress字段)
+            // 状态未变化时不重复写库
+            if (!java.util.Objects.equals(status, task.lastStatus)) {
                 Integer progress = mapStatusToProgress(status);
+                updateJobProgress(job, status, progress);
+                task.lastStatus = status;
+                log.info("任务进度已更新 - jobId: {}, status: {}, progress: {}%", jobId, status, progress);
+            }
 
-                // ✅ 安全保障:每次更新前先查询最新状态(幂等性)
-                Job job = jobMapper.selectById(jobId);
-                if (job == null) {
-                    log.error("任务不存在,停止轮询 - jobId: {}", jobId);
-                    break;
-                }
+            rescheduleOrTimeout(task);
 
-                // 检查任务是否已被取消
-                if ("CANCELED".equals(job.getStatus())) {
-                    log.info("任务已被取消,停止轮询 - jobId: {}", jobId);
-                    break;
-                }
+        } catch (Exception e) {
+            log.error("轮询失败 - jobId: {}", jobId, e);
+            handleVideoGenerationFailure(jobId, "轮询任务失败: " + e.getMessage());
+            finish(task);
+        }
+    }
 
-                // 检查任务是否完成
-                if ("completed".equalsIgnoreCase(status)) {
-                    // ? 任务成功:处理视频下载、上传OSS、积分扣费 (修复: 传入 aspectRatio)
-                    handleVideoGenerationSuccess(jobId, statusResponse, model, aspectRatio, duration, userId, apiTaskId);
-                    break;
-
-                } else if ("error".equalsIgnoreCase(status) || "failed".equalsIgnoreCase(status)) {
-                    // ? 任务失败:记录错误信息
-                    String errorMsg = "视频生成失败(status: " + status + ")";
-                    handleVideoGenerationFailure(jobId, errorMsg);
-                    break;
-                }
+    /**
+     * 按退避间隔重新入队,超过总时长则标记超时失败
+     */
+    private void rescheduleOrTimeout(PollTask task) {
+        long now = System.currentTimeMillis();
+        if (now >= task.deadlineAt) {
+            log.warn("轮询超时 - jobId: {}, apiTaskId: {}, 已轮询{}次", task.jobId, task.apiTaskId, task.pollCount);
+            handleVideoGenerationFailure(task.jobId, "视频生成超时(API响应超过预期时间)");
+            finish(task);
+            return;
+        }
 
-                // 更新任务进度和状态
-                updateJobProgress(job, status, progress);
+        long maxInterval = Math.max(aiProperties.getVideo().getMaxPollInterval(), aiProperties.getVideo().getPollInterval());
+        task.interval = Math.min(maxInterval, (long) (task.interval * BACKOFF_MULTIPLIER));
+        long jitter = (long) (task.interval * JITTER_RATIO);
+        long delay = task.interval + ThreadLocalRandom.current().nextLong(-jitter, jitter + 1);
+        // 不越过截止时间,保证超时能按时判定
+        delay = Math.max(0L, Math.min(delay, task.deadlineAt - now));
 
-                log.info("任务进度已更新 - jobId: {}, status: {}, progress: {}%",
-                        jobId, status, progress);
+        videoTaskPoller.schedule(delay, () -> checkOnce(task));
+    }
 
-                // 继续轮询...
-            }
+    private void finish(PollTask task) {
+        activeJobIds.remove(task.jobId);
+        videoPollLeaseService.release(task.jobId);
+        log.info("视频轮询结束 - jobId: {}, 总检查次数: {}", task.jobId, task.pollCount);
+    }
 
-            // ✅ 超时保护:超过最大轮询次数
-            if (pollCount >= maxPollCount) {
-                log.warn("轮询超时 - jobId: {}, apiTaskId: {}, 已轮询{}次", jobId, apiTaskId, pollCount);
-                handleVideoGenerationFailure(jobId, "视频生成超时(API响应超过预期时间)");
+    /**
+     * 任务提交到API的时间
+     *
+     * <p>提交方写入metaJson的submittedAt;旧任务没有该字段时退回任务创建时间,不会晚于实际提交时间
+     */
+    private long submittedAt(Job job) {
+        String submittedAt = extractFieldFromJson(job.getMetaJson(), "submittedAt");
+        if (submittedAt != null) {
+            try {
+                return Long.parseLong(submittedAt);
+            } catch (NumberFormatException e) {
+                log.warn("submittedAt格式错误 - jobId: {}, value: {}", job.getId(), submittedAt);
             }
-
-        } catch (InterruptedException e) {
-            log.error("轮询被中断 - jobId: {}", jobId, e);
-            Thread.currentThread().interrupt();
-            handleVideoGenerationFailure(jobId, "任务被中断");
-
-        } catch (Exception e) {
-            log.error("轮询失败 - jobId: {}", jobId, e);
-            handleVideoGenerationFailure(jobId, "轮询任务失败: " + e.getMessage());
         }
+        return job.getCreatedAt() != null
+                ? job.getCreatedAt().atZone(java.time.ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+    }
 
-        log.info("========== 异步轮询任务结束 ==========");
-        log.info("jobId: {}, 总轮询次数: {}", jobId, pollCount);
-        log.info("=====================================");
+    private boolean isTerminal(String status) {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status) || "CANCELED".equals(status);
     }
 
     /**
@@ -311,6 +423,8 @@ public class AsyncVideoTaskService {
     /**
      * 更新任务进度和状态
      *
+     * <p>只写状态、进度和开始时间,且仅在本节点仍持有租约时生效,不会用查询时的快照覆盖租约列
+     *
      * @param job 任务对象
      * @param apiStatus API返回的状态
      * @param progress 进度百分比
@@ -323,11 +437,19 @@ public class AsyncVideoTaskService {
         job.setProgress(progress);
 
         // 如果任务从PENDING变为RUNNING,记录开始时间
+        LambdaUpdateWrapper<Job> update = videoPollLeaseService.ownedUpdate(job.getId())
+                .set(Job::getStatus, localStatus)
+                .set(Job::getProgress, progress);
         if ("RUNNING".equals(localStatus) && job.getStartedAt() == null) {
             job.setStartedAt(java.time.LocalDateTime.now());
+            update.set(Job::getStartedAt, job.getStartedAt());
         }
 
-        jobMapper.updateById(job);
+        if (jobMapper.update(null, update) == 0) {
+            log.warn("任务已结束或租约已被接管,跳过进度更新 - jobId: {}", job.getId());
+            return;
+        }
+        jobEventHub.publish(job.getUserId(), job);
     }
 
     /**
@@ -355,6 +477,7 @@ public class AsyncVideoTaskService {
      *
      * <p><strong>处理流程:</strong>
      * <ol>
+     *   <li>确认仍持有租约(转存和扣费前各一次),否则放弃处理</li>
      *   <li>从API响应中获取视频URL</li>
      *   <li>下载视频并上传到OSS</li>
      *   <li>进行积分扣费(需要手动设置UserContext)</li>
@@ -388,20 +511,32 @@ public class AsyncVideoTaskService {
         log.info("jobId: {}, userId: {}", jobId, userId);
 
         try {
+            // 转存前确认仍持有租约,已被其他节点接管或已结束的任务不再重复上传
+            if (!videoPollLeaseService.confirmOwned(jobId)) {
+                log.warn("任务已结束或租约已被接管,放弃转存 - jobId: {}", jobId);
+                return;
+            }
+
             // 1. 获取视频URL (可能为空)
             String tempVideoUrl = statusResponse.videoUrl();
             log.debug("API返回的视频URL: {}", tempVideoUrl);
 
             String ossVideoUrl;
             if (tempVideoUrl == null || tempVideoUrl.isBlank()) {
-                VectorEngineClient.VideoContentResponse contentResponse = vectorEngineClient.downloadVideoContent(apiTaskId);
-                ossVideoUrl = uploadVideoBytesToOss(contentResponse, jobId);
+                ossVideoUrl = vectorEngineClient.streamVideoContent(apiTaskId,
+                        (body, contentType) -> uploadVideoStreamToOss(body, contentType, jobId));
             } else {
                 // 2. 下载视频并上传到OSS
                 ossVideoUrl = downloadAndUploadToOss(tempVideoUrl, jobId);
             }
             log.info("视频已上传到OSS - jobId: {}, ossUrl: {}", jobId, ossVideoUrl);
 
+            // 转存可能耗时较长,扣费前再次确认,避免丢失租约的节点与新持有者重复扣费
+            if (!videoPollLeaseService.confirmOwned(jobId)) {
+                log.warn("转存期间租约已被接管或任务已结束,放弃扣费 - jobId: {}, ossUrl: {}", jobId, ossVideoUrl);
+                return;
+            }
+
             // 3. 进行积分计费(需要手动设置UserContext,因为这是异步线程)
             log.debug("开始积分扣费 - jobId: {}, userId: {}", jobId, userId);
             Map<String, Object> chargingMetaData = new HashMap<>();
@@ -449,7 +584,18 @@ public class AsyncVideoTaskService {
                     log.error("Failed to serialize meta_json", e);
                 }
 
-                jobMapper.updateById(job);
+                int updated = jobMapper.update(null, videoPollLeaseService.ownedUpdate(jobId)
+                        .set(Job::getStatus, job.getStatus())
+                        .set(Job::getProgress, job.getProgress())
+                        .set(Job::getDoneItems, job.getDoneItems())
+                        .set(Job::getResultUrl, job.getResultUrl())
+                        .set(Job::getFinishedAt, job.getFinishedAt())
+                        .set(Job::getMetaJson, job.getMetaJson()));
+                if (updated > 0) {
+                    jobEventHub.publish(job.getUserId(), job);
+                } else {
+                    log.warn("任务已结束或租约已被接管,跳过成功状态写回 - jobId: {}", jobId);
+                }
             }
 
             log.info("========== 视频生成成功处理完成 ==========");
@@ -478,7 +624,15 @@ public class AsyncVideoTaskService {
             job.setStatus("FAILED");
             job.setErrorMessage(errorMessage);
             job.setFinishedAt(java.time.LocalDateTime.now());
-            jobMapper.updateById(job);
+            int updated = jobMapper.update(null, videoPollLeaseService.ownedUpdate(jobId)
+                    .set(Job::getStatus, job.getStatus())
+                    .set(Job::getErrorMessage, job.getErrorMessage())
+                    .set(Job::getFinishedAt, job.getFinishedAt()));
+            if (updated > 0) {
+                jobEventHub.publish(job.getUserId(), job);
+            } else {
+                log.warn("任务已结束或租约已被接管,跳过失败状态写回 - jobId: {}", jobId);
+            }
         }
 
         log.error("====================================");
@@ -487,21 +641,16 @@ public class AsyncVideoTaskService {
     /**
      * 从URL下载视频并上传到OSS
      *
-     * <p>复用AiVideoService中的逻辑
+     * <p>复用AiVideoService中的逻辑,边下载边分片上传,不在内存中缓存整个视频
      *
      * @param videoUrl 视频URL
      * @param jobId 任务ID(用于生成文件名)
      * @return OSS存储的视频URL
      */
     private String downloadAndUploadToOss(String videoUrl, Long jobId) {
-        try {
-            // 1. 从URL下载视频
-            java.net.URL url = new java.net.URL(videoUrl);
-            java.net.URLConnection connection = url.openConnection();
-            connection.setConnectTimeout(30000);   // 30秒连接超时
-            connection.setReadTimeout(300000);     // 5分钟读取超时(视频文件较大)
-
-            String contentType = connection.getContentType();
+        // 1. 从URL下载视频(共享连接池)
+        try (HttpTransport.Download download = httpTransport.open(videoUrl, VIDEO_DOWNLOAD_TIMEOUT)) {
+            String contentType = download.contentType();
             if (contentType == null) {
                 contentType = "video/mp4";  // 默认类型
             }
@@ -513,12 +662,10 @@ public class AsyncVideoTaskService {
             log.debug("下载视频中 - url: {}, contentType: {}, fileName: {}",
                     videoUrl, contentType, fileName);
 
-            // 3. 上传到OSS
-            try (java.io.InputStream inputStream = connection.getInputStream()) {
-                String ossUrl = storageService.upload(inputStream, fileName, contentType);
-                log.debug("视频上传OSS成功 - ossUrl: {}", ossUrl);
-                return ossUrl;
-            }
+            // 3. 分片上传到OSS
+            String ossUrl = storageService.uploadStream(download.body(), fileName, contentType);
+            log.debug("视频上传OSS成功 - ossUrl: {}", ossUrl);
+            return ossUrl;
 
         } catch (Exception e) {
             log.error("视频下载或上传失败 - url: {}", videoUrl, e);
@@ -529,14 +676,26 @@ public class AsyncVideoTaskService {
         }
     }
 
-    private String uploadVideoBytesToOss(VectorEngineClient.VideoContentResponse contentResponse, Long jobId) {
+    /**
+     * 将API返回的视频流分片上传到OSS
+     *
+     * <p>视频不会整体读入内存,单个视频的内存占用恒定为一个上传分片
+     *
+     * @param body 视频响应体流
+     * @param contentType 响应的Content-Type
+     * @param jobId 任务ID(用于生成文件名)
+     * @return OSS存储的视频URL
+     */
+    private String uploadVideoStreamToOss(java.io.InputStream body, String contentType, Long jobId) {
         try {
-            byte[] content = contentResponse.content();
-            if (content == null || content.length == 0) {
+            // 先探测一个字节,空响应直接失败而不是上传空文件
+            java.io.PushbackInputStream inputStream = new java.io.PushbackInputStream(body, 1);
+            int first = inputStream.read();
+            if (first == -1) {
                 throw new BusinessException(ResultCode.OSS_ERROR, "视频内容为空");
             }
+            inputStream.unread(first);
 
-            String contentType = contentResponse.contentType();
             if (contentType == null || contentType.isBlank()) {
                 contentType = "video/mp4";
             }
@@ -544,11 +703,9 @@ public class AsyncVideoTaskService {
             String extension = getExtensionFromContentType(contentType);
             String fileName = String.format("ai_video_%d%s", jobId, extension);
 
-            try (java.io.InputStream inputStream = new java.io.ByteArrayInputStream(content)) {
-                String ossUrl = storageService.upload(inputStream, fileName, contentType);
-                log.debug("视频上传OSS成功 - ossUrl: {}", ossUrl);
-                return ossUrl;
-            }
+            String ossUrl = storageService.uploadStream(inputStream, fileName, contentType);
+            log.debug("视频上传OSS成功 - ossUrl: {}", ossUrl);
+            return ossUrl;
         } catch (Exception e) {
             log.error("视频上传失败 - jobId: {}", jobId, e);
             throw new BusinessException(ResultCode.OSS_ERROR, "视频下载或上传失败: " + e.getMessage(), e);
@@ -602,5 +759,35 @@ public class AsyncVideoTaskService {
 
         return json.substring(startIndex, endIndex);
     }
+
+    /**
+     * 单个视频任务的轮询状态
+     *
+     * <p>同一时刻只会有一个检查在执行(检查结束后才重新入队),可变字段无需额外同步
+     */
+    private static final class PollTask {
+        private final Long jobId;
+        private final String apiTaskId;
+        private final String model;
+        private final String aspectRatio;
+        private final Integer duration;
+        private final Long userId;
+        private final long deadlineAt;
+
+        private volatile int pollCount;
+        private volatile long interval;
+        private volatile String lastStatus;
+
+        private PollTask(Long jobId, String apiTaskId, String model, String aspectRatio,
+                         Integer duration, Long userId, long deadlineAt) {
+            this.jobId = jobId;
+            this.apiTaskId = apiTaskId;
+            this.model = model;
+            this.aspectRatio = aspectRatio;
+            this.duration = duration;
+            this.userId = userId;
+            this.deadlineAt = deadlineAt;
+        }
+    }
 }
 // {{END_MODIFICATIONS}}
@@ -24,7 +24,9 @@ import com.ym.ai_story_studio_server.util.UserContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -57,9 +59,9 @@ import java.util.stream.Collectors;
  * <ol>
  *   <li>Controller接收批量生成请求</li>
  *   <li>Service创建Job任务记录(状态:PENDING)</li>
- *   <li>Service调用AsyncBatchTaskService执行异步任务</li>
+ *   <li>Service在同一事务内将任务消息写入MQ发件箱,提交后由MQOutboxPublisher发送</li>
  *   <li>立即返回任务ID和PENDING状态</li>
- *   <li>AsyncBatchTaskService在后台执行实际生成操作</li>
+ *   <li>MQConsumer在后台执行实际生成操作</li>
  *   <li>任务完成后更新Job状态为SUCCEEDED或FAILED</li>
  * </ol>
  *
@@ -134,6 +136,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或分镜ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateShotsBatch(Long projectId, BatchGenerateRequest request) {
         Long userId = UserContext.getUserId();
         log.info("批量生成分镜图 - userId: {}, projectId: {}, targetCount: {}, mode: {}",
@@ -145,9 +148,10 @@ public class BatchGenerationService {
         // 2. 验证分镜ID列表
         validateShotIds(projectId, request.targetIds());
 
-        // 3. 创建Job任务
+        // 3. 创建Job任务及子任务
         Job job = createBatchJob(userId, projectId, "BATCH_GEN_SHOT_IMG",
                 request.targetIds().size());
+        List<JobItem> items = createJobItems(job.getId(), "SHOT", request.targetIds());
         log.info("批量生成分镜图任务已创建 - jobId: {}", job.getId());
 
         // 4. 发送MQ消息执行批量生成
@@ -155,7 +159,7 @@ public class BatchGenerationService {
                 job.getId(),
                 userId,
                 projectId,
-                request.targetIds(),
+                items,
                 request.mode(),
                 request.getCountPerItemOrDefault(),
                 request.aspectRatio(),
@@ -197,6 +201,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或分镜ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateVideosBatch(Long projectId, BatchGenerateRequest request) {
         Long userId = UserContext.getUserId();
         log.info("批量生成视频 - userId: {}, projectId: {}, targetCount: {}, mode: {}",
@@ -208,9 +213,10 @@ public class BatchGenerationService {
         // 2. 验证分镜ID列表
         validateShotIds(projectId, request.targetIds());
 
-        // 2. 创建Job任务
+        // 2. 创建Job任务及子任务
         Job job = createBatchJob(userId, projectId, "BATCH_GEN_VIDEO",
                 request.targetIds().size());
+        List<JobItem> items = createJobItems(job.getId(), "SHOT", request.targetIds());
         log.info("批量生成视频任务已创建 - jobId: {}", job.getId());
 
         // 3. 发送MQ消息执行批量生成
@@ -218,7 +224,7 @@ public class BatchGenerationService {
                 job.getId(),
                 userId,
                 projectId,
-                request.targetIds(),
+                items,
                 request.mode(),
                 request.getCountPerItemOrDefault(),
                 request.aspectRatio(),
@@ -260,6 +266,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或角色ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateCharactersBatch(Long projectId, BatchGenerateRequest request) {
         Long userId = UserContext.getUserId();
         log.info("批量生成角色画像 - userId: {}, projectId: {}, targetCount: {}, mode: {}",
@@ -271,9 +278,10 @@ public class BatchGenerationService {
         // 2. 验证角色ID列表
         validateProjectCharacterIds(projectId, request.targetIds());
 
-        // 2. 创建Job任务
+        // 2. 创建Job任务及子任务
         Job job = createBatchJob(userId, projectId, "BATCH_GEN_CHAR_IMG",
                 request.targetIds().size());
+        List<JobItem> items = createJobItems(job.getId(), "PCHAR", request.targetIds());
         log.info("批量生成角色画像任务已创建 - jobId: {}", job.getId());
 
         // 3. 发送MQ消息执行批量生成
@@ -281,7 +289,7 @@ public class BatchGenerationService {
                 job.getId(),
                 userId,
                 projectId,
-                request.targetIds(),
+                items,
                 request.mode(),
                 request.getCountPerItemOrDefault(),
                 request.aspectRatio(),
@@ -323,6 +331,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或场景ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateScenesBatch(Long projectId, BatchGenerateRequest request) {
         Long userId = UserContext.getUserId();
         log.info("批量生成场景画像 - userId: {}, projectId: {}, targetCount: {}, mode: {}",
@@ -334,9 +343,10 @@ public class BatchGenerationService {
         // 2. 验证场景ID列表
         validateProjectSceneIds(projectId, request.targetIds());
 
-        // 2. 创建Job任务
+        // 2. 创建Job任务及子任务
         Job job = createBatchJob(userId, projectId, "BATCH_GEN_SCENE_IMG",
                 request.targetIds().size());
+        List<JobItem> items = createJobItems(job.getId(), "PSCENE", request.targetIds());
         log.info("批量生成场景画像任务已创建 - jobId: {}", job.getId());
 
         // 3. 发送MQ消息执行批量生成
@@ -344,7 +354,7 @@ public class BatchGenerationService {
                 job.getId(),
                 userId,
                 projectId,
-                request.targetIds(),
+                items,
                 request.mode(),
                 request.getCountPerItemOrDefault(),
                 request.aspectRatio(),
@@ -369,6 +379,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或角色ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateSingleCharacter(Long projectId, Long characterId,
                                                           String aspectRatio, String model) {
         Long userId = UserContext.getUserId();
@@ -399,6 +410,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或场景ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateSingleScene(Long projectId, Long sceneId,
                                                       String aspectRatio, String model) {
         Long userId = UserContext.getUserId();
@@ -427,6 +439,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或道具ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generatePropsBatch(Long projectId, BatchGenerateRequest request) {
         Long userId = UserContext.getUserId();
         log.info("批量生成道具画像 - userId: {}, projectId: {}, targetCount: {}, mode: {}",
@@ -438,9 +451,10 @@ public class BatchGenerationService {
         // 2. 验证道具ID列表
         validateProjectPropIds(projectId, request.targetIds());
 
-        // 2. 创建Job任务
+        // 2. 创建Job任务及子任务
         Job job = createBatchJob(userId, projectId, "BATCH_GEN_PROP_IMG",
                 request.targetIds().size());
+        List<JobItem> items = createJobItems(job.getId(), "PPROP", request.targetIds());
         log.info("批量生成道具画像任务已创建 - jobId: {}", job.getId());
 
         // 3. 发送MQ消息执行批量生成
@@ -448,7 +462,7 @@ public class BatchGenerationService {
                 job.getId(),
                 userId,
                 projectId,
-                request.targetIds(),
+                items,
                 request.mode(),
                 request.getCountPerItemOrDefault(),
                 request.aspectRatio(),
@@ -473,6 +487,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或道具ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateSingleProp(Long projectId, Long propId,
                                                       String aspectRatio, String model) {
         Long userId = UserContext.getUserId();
@@ -504,6 +519,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或分镜ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateSingleShot(Long projectId, Long shotId,
                                                      String aspectRatio, String model, String customPrompt, List<String> referenceImageUrls) {
         Long userId = UserContext.getUserId();
@@ -555,6 +571,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在或无权限时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse parseText(Long projectId, ParseTextRequest request) {
         Long userId = UserContext.getUserId();
         log.info("解析文本 - userId: {}, projectId: {}, textLength: {}",
@@ -601,6 +618,7 @@ public class BatchGenerationService {
      * @return 批量生成响应(包含jobId和状态)
      * @throws BusinessException 当项目不存在、无权限或分镜ID无效时抛出
      */
+    @Transactional(rollbackFor = Exception.class)
     public BatchGenerateResponse generateSingleShotVideo(Long projectId, Long shotId, ShotVideoGenerateRequest request) {
         Long userId = UserContext.getUserId();
         log.info("单个分镜视频生成 - userId: {}, projectId: {}, shotId: {}, promptLength: {}",
@@ -765,10 +783,14 @@ public class BatchGenerationService {
 
     /**
      * Create job items for batch jobs.
+     *
+     * <p>Items are created as PENDING up front in one batch insert; each one is then published
+     * as its own MQ message carrying the item id.
      */
-    private void createJobItems(Long jobId, String targetType, List<Long> targetIds) {
+    private List<JobItem> createJobItems(Long jobId, String targetType, List<Long> targetIds) {
+        List<JobItem> items = new ArrayList<>();
         if (targetIds == null || targetIds.isEmpty()) {
-            return;
+            return items;
         }
         for (Long targetId : targetIds) {
             JobItem item = new JobItem();
@@ -776,7 +798,9 @@ public class BatchGenerationService {
             item.setTargetType(targetType);
             item.setTargetId(targetId);
             item.setStatus("PENDING");
-            jobItemMapper.insert(item);
+            items.add(item);
         }
+        jobItemMapper.insert(items);
+        return items;
     }
 }
@@ -0,0 +1,558 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ym.ai_story_studio_server.client.AiGateway;
+import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.entity.JobItem;
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import com.ym.ai_story_studio_server.mapper.JobItemMapper;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import com.ym.ai_story_studio_server.util.UserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+/**
+ * 批量任务执行引擎
+ *
+ * <p>将一个批量任务拆分为多个子项(分镜/角色/场景/道具)并行执行,替代MQ消费者中的串行循环
+ *
+ * <p>两种执行方式:
+ * <ul>
+ *   <li>{@link #runItem}: 每条MQ消息对应一个子项,由多个消费者/节点分摊,最后一个完成的子项触发{@link #completeIfFinished}汇总</li>
+ *   <li>{@link #run}: 兼容旧的整批消息,在本节点线程池内并行执行全部子项</li>
+ * </ul>
+ *
+ * <p><strong>执行规则:</strong>
+ * <ul>
+ *   <li>每个子项对应一条job_items记录,执行前后分别写入RUNNING/SUCCEEDED/FAILED及输出结果</li>
+ *   <li>同一模型在本节点上的在途子项数受{@code ai.batch}配置的信号量约束(跨任务共享)</li>
+ *   <li>每完成一个子项记录到{@link JobProgressTracker},按周期合并写回jobs.done_items和进度;
+ *       任务的状态迁移(开始/完成)同步写库</li>
+ *   <li>子项执行前以带条件的UPDATE认领,已结束或正由其他消费者执行的子项在消息重放时直接跳过,
+ *       不会重复生成和扣费</li>
+ *   <li>任务已取消或已失败时,尚未执行的子项置为CANCELED,不再调用AI接口</li>
+ * </ul>
+ *
+ * <p>子项在独立线程中执行,UserContext由引擎负责设置和清理,处理器无需自行传递;
+ * 子项内的AI调用在网关中排在交互式调用之后
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class BatchJobRunner {
+
+    private final JobMapper jobMapper;
+    private final JobItemMapper jobItemMapper;
+    private final AiProperties aiProperties;
+    private final ObjectMapper objectMapper;
+    private final Executor batchItemExecutor;
+    private final JobEventHub jobEventHub;
+    private final JobProgressTracker jobProgressTracker;
+
+    /**
+     * 模型 -> 并发许可
+     */
+    private final Map<String, Semaphore> modelPermits = new ConcurrentHashMap<>();
+
+    /**
+     * 本节点已置为RUNNING的任务,同一任务的后续子项消息不再写库
+     */
+    private final Cache<Long, Boolean> startedJobs = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    public BatchJobRunner(JobMapper jobMapper,
+                          JobItemMapper jobItemMapper,
+                          AiProperties aiProperties,
+                          ObjectMapper objectMapper,
+                          @Qualifier("batchItemExecutor") Executor batchItemExecutor,
+                          JobEventHub jobEventHub,
+                          JobProgressTracker jobProgressTracker) {
+        this.jobMapper = jobMapper;
+        this.jobItemMapper = jobItemMapper;
+        this.aiProperties = aiProperties;
+        this.objectMapper = objectMapper;
+        this.batchItemExecutor = batchItemExecutor;
+        this.jobEventHub = jobEventHub;
+        this.jobProgressTracker = jobProgressTracker;
+    }
+
+    /**
+     * 子项处理器
+     */
+    @FunctionalInterface
+    public interface ItemHandler {
+
+        /**
+         * 处理单个子项
+         *
+         * @param targetId 目标对象ID
+         * @param index 子项在批次中的序号(从0开始)
+         * @return 子项输出结果
+         * @throws Exception 子项失败时抛出,引擎记录为FAILED且不影响其他子项
+         */
+        ItemOutcome handle(Long targetId, int index) throws Exception;
+    }
+
+    /**
+     * 子项输出结果
+     *
+     * @param imageUrls 生成的图片URL列表(跳过或无图片输出时为空)
+     */
+    public record ItemOutcome(List<String> imageUrls) {
+
+        public static ItemOutcome empty() {
+            return new ItemOutcome(Collections.emptyList());
+        }
+
+        public static ItemOutcome of(List<String> imageUrls) {
+            return new ItemOutcome(imageUrls != null ? imageUrls : Collections.emptyList());
+        }
+    }
+
+    /**
+     * 批量执行结果
+     *
+     * @param successCount 成功子项数
+     * @param failCount 失败子项数
+     * @param imageUrls 按子项顺序汇总的图片URL
+     */
+    public record BatchResult(int successCount, int failCount, List<String> imageUrls) {
+    }
+
+    /**
+     * 并行执行批量任务的全部子项,阻塞直到所有子项结束
+     *
+     * @param jobId 任务ID
+     * @param userId 用户ID(子项线程中设置到UserContext)
+     * @param targetType 子项目标类型:SHOT/PCHAR/PSCENE/PPROP
+     * @param targetIds 目标ID列表
+     * @param model 使用的模型(决定并发上限)
+     * @param handler 子项处理器
+     * @return 批量执行结果
+     */
+    public BatchResult run(Long jobId, Long userId, String targetType, List<Long> targetIds,
+                           String model, ItemHandler handler) {
+        Map<Long, JobItem> items = loadOrCreateItems(jobId, targetType, targetIds);
+        Semaphore permits = permitsFor(model);
+
+        log.info("批量任务开始并行执行 - jobId: {}, itemCount: {}, model: {}, concurrency: {}",
+                jobId, targetIds.size(), model, aiProperties.getBatch().concurrencyFor(model));
+
+        ItemOutcome[] outcomes = new ItemOutcome[targetIds.size()];
+        List<CompletableFuture<Void>> futures = new ArrayList<>(targetIds.size());
+
+        for (int i = 0; i < targetIds.size(); i++) {
+            Long targetId = targetIds.get(i);
+            JobItem item = items.get(targetId);
+            int index = i;
+
+            if (isTerminal(item.getStatus())) {
+                log.info("子项已结束,跳过 - jobId: {}, targetId: {}, status: {}", jobId, targetId, item.getStatus());
+                if ("SUCCEEDED".equals(item.getStatus())) {
+                    outcomes[index] = ItemOutcome.of(readOutputUrls(item));
+                }
+                continue;
+            }
+            if (skipIfJobFinished(jobId, item)) {
+                continue;
+            }
+            if (!claimItem(item)) {
+                log.info("子项正在其他消费者上执行,跳过 - jobId: {}, targetId: {}", jobId, targetId);
+                continue;
+            }
+
+            acquire(permits, jobId);
+            try {
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        outcomes[index] = executeItem(jobId, userId, item, index, handler);
+                    } finally {
+                        permits.release();
+                    }
+                }, batchItemExecutor));
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        int successCount = 0;
+        int failCount = 0;
+        List<String> imageUrls = new ArrayList<>();
+        for (ItemOutcome outcome : outcomes) {
+            if (outcome == null) {
+                failCount++;
+                continue;
+            }
+            successCount++;
+            imageUrls.addAll(outcome.imageUrls());
+        }
+
+        log.info("批量任务并行执行结束 - jobId: {}, 成功: {}, 失败: {}", jobId, successCount, failCount);
+        return new BatchResult(successCount, failCount, imageUrls);
+    }
+
+    /**
+     * 执行一条按子项拆分的批量消息
+     *
+     * <p>在调用线程上执行,同样受模型并发上限约束;子项已处于终态(消息重放)、
+     * 或正由其他消费者执行(重复投递)时直接跳过
+     *
+     * @param jobId 任务ID
+     * @param userId 用户ID
+     * @param jobItemId 子任务ID
+     * @param index 子项在批次中的序号
+     * @param model 使用的模型
+     * @param handler 子项处理器
+     */
+    public void runItem(Long jobId, Long userId, Long jobItemId, int index, String model, ItemHandler handler) {
+        JobItem item = jobItemMapper.selectById(jobItemId);
+        if (item == null) {
+            log.warn("子任务不存在,忽略消息 - jobId: {}, jobItemId: {}", jobId, jobItemId);
+            return;
+        }
+        if (isTerminal(item.getStatus())) {
+            log.info("子项已结束,跳过重复消息 - jobId: {}, jobItemId: {}, status: {}",
+                    jobId, jobItemId, item.getStatus());
+            return;
+        }
+        if (skipIfJobFinished(jobId, item)) {
+            return;
+        }
+
+        if (!claimItem(item)) {
+            log.info("子项正在其他消费者上执行,跳过重复消息 - jobId: {}, jobItemId: {}", jobId, jobItemId);
+            return;
+        }
+
+        Semaphore permits = permitsFor(model);
+        acquire(permits, jobId);
+        try {
+            executeItem(jobId, userId, item, index, handler);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 将子项置为FAILED,用于子项消息在执行器之外处理失败的情况
+     *
+     * <p>只影响该子项,任务是否结束仍由{@link #completeIfFinished}判断
+     *
+     * @param jobId 任务ID
+     * @param userId 用户ID
+     * @param jobItemId 子任务ID
+     * @param errorMessage 错误信息
+     */
+    public void failItem(Long jobId, Long userId, Long jobItemId, String errorMessage) {
+        JobItem item = new JobItem();
+        item.setId(jobItemId);
+        if (finishItem(item, "FAILED", null, errorMessage)) {
+            jobProgressTracker.itemDone(jobId, userId);
+        }
+    }
+
+    /**
+     * 将任务从PENDING置为RUNNING(已开始或已结束的任务不受影响)
+     *
+     * <p>同一任务的多条子项消息在本节点上只写库一次;只有实际发生状态迁移时才发布任务事件
+     *
+     * @param jobId 任务ID
+     * @param userId 用户ID
+     */
+    public void markJobRunning(Long jobId, Long userId) {
+        if (startedJobs.asMap().putIfAbsent(jobId, Boolean.TRUE) != null) {
+            return;
+        }
+        int updated;
+        try {
+            updated = jobMapper.update(null, new LambdaUpdateWrapper<Job>()
+                    .eq(Job::getId, jobId)
+                    .eq(Job::getStatus, "PENDING")
+                    .set(Job::getStatus, "RUNNING")
+                    .set(Job::getStartedAt, LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            startedJobs.invalidate(jobId);
+            throw e;
+        }
+        if (updated > 0) {
+            Job job = new Job();
+            job.setId(jobId);
+            job.setStatus("RUNNING");
+            jobEventHub.publish(userId, job);
+        }
+    }
+
+    /**
+     * 所有子项结束后汇总结果并将任务置为终态
+     *
+     * <p>每个子项结束后都可以调用,只有在终态子项数达到total_items且全部子项处于终态时才会汇总;
+     * 汇总更新带有状态条件,多个消费者同时到达时只有一个会生效。
+     * jobs.done_items是延迟写回的,这里按job_items计数
+     *
+     * @param jobId 任务ID
+     * @param withImages 是否将子项输出的图片URL汇总到resultUrl和metaJson
+     * @return 本次调用是否完成了任务
+     */
+    public boolean completeIfFinished(Long jobId, boolean withImages) {
+        Job job = jobMapper.selectById(jobId);
+        if (job == null || isTerminal(job.getStatus())) {
+            return false;
+        }
+        int totalItems = job.getTotalItems() != null ? job.getTotalItems() : 0;
+        long doneItems = jobItemMapper.selectCount(new LambdaQueryWrapper<JobItem>()
+                .eq(JobItem::getJobId, jobId)
+                .in(JobItem::getStatus, "SUCCEEDED", "FAILED", "CANCELED"));
+        if (doneItems < totalItems) {
+            return false;
+        }
+
+        List<JobItem> items = jobItemMapper.selectList(
+                new LambdaQueryWrapper<JobItem>()
+                        .eq(JobItem::getJobId, jobId)
+                        .orderByAsc(JobItem::getId));
+        if (items.stream().anyMatch(item -> !isTerminal(item.getStatus()))) {
+            return false;
+        }
+
+        int successCount = 0;
+        int failCount = 0;
+        List<String> imageUrls = new ArrayList<>();
+        for (JobItem item : items) {
+            if ("SUCCEEDED".equals(item.getStatus())) {
+                successCount++;
+                imageUrls.addAll(readOutputUrls(item));
+            } else {
+                failCount++;
+            }
+        }
+
+        boolean failed = successCount == 0 && failCount > 0;
+        Map<String, Object> metaData = new HashMap<>();
+        metaData.put("successCount", successCount);
+        metaData.put("failCount", failCount);
+        if (withImages) {
+            metaData.put("allImageUrls", imageUrls);
+            metaData.put("imageCount", imageUrls.size());
+        }
+
+        LambdaUpdateWrapper<Job> update = new LambdaUpdateWrapper<Job>()
+                .eq(Job::getId, jobId)
+                .in(Job::getStatus, "PENDING", "RUNNING")
+                .set(Job::getStatus, failed ? "FAILED" : "SUCCEEDED")
+                .set(Job::getDoneItems, successCount + failCount)
+                .set(Job::getProgress, 100)
+                .set(Job::getFinishedAt, LocalDateTime.now())
+                .set(Job::getMetaJson, writeJson(metaData))
+                .set(failed, Job::getErrorMessage, "All items failed")
+                .set(withImages && !imageUrls.isEmpty(), Job::getResultUrl,
+                        imageUrls.isEmpty() ? null : imageUrls.get(0));
+
+        boolean completed = jobMapper.update(null, update) > 0;
+        if (completed) {
+            jobProgressTracker.discard(jobId);
+            startedJobs.invalidate(jobId);
+            Job finished = new Job();
+            finished.setId(jobId);
+            finished.setStatus(failed ? "FAILED" : "SUCCEEDED");
+            finished.setDoneItems(successCount + failCount);
+            finished.setTotalItems(totalItems);
+            finished.setProgress(100);
+            finished.setErrorMessage(failed ? "All items failed" : null);
+            finished.setResultUrl(withImages && !imageUrls.isEmpty() ? imageUrls.get(0) : null);
+            jobEventHub.publish(job.getUserId(), finished);
+            log.info("批量任务已完成 - jobId: {}, status: {}, 成功: {}, 失败: {}, 总图片数: {}",
+                    jobId, failed ? "FAILED" : "SUCCEEDED", successCount, failCount, imageUrls.size());
+        }
+        return completed;
+    }
+
+    /**
+     * 执行单个子项并记录结果
+     *
+     * @return 成功时返回输出结果,失败时返回null
+     */
+    private ItemOutcome executeItem(Long jobId, Long userId, JobItem item, int index, ItemHandler handler) {
+        boolean finished = false;
+        UserContext.setUserId(userId);
+        AiGateway.markBulkCaller();
+        try {
+            ItemOutcome outcome = handler.handle(item.getTargetId(), index);
+            finished = finishItem(item, "SUCCEEDED", writeOutput(outcome), null);
+            return outcome;
+        } catch (Exception e) {
+            log.error("子项执行失败 - jobId: {}, targetType: {}, targetId: {}",
+                    jobId, item.getTargetType(), item.getTargetId(), e);
+            finished = finishItem(item, "FAILED", null, e.getMessage());
+            return null;
+        } finally {
+            UserContext.clear();
+            AiGateway.clearBulkCaller();
+            // 只有真正完成状态迁移的子项才累加进度,避免重复消息导致done_items超出
+            if (finished) {
+                jobProgressTracker.itemDone(jobId, userId);
+            }
+        }
+    }
+
+    /**
+     * 任务已取消或已失败时不再执行子项,子项置为CANCELED,避免继续调用AI接口和扣费
+     *
+     * @return 是否跳过
+     */
+    private boolean skipIfJobFinished(Long jobId, JobItem item) {
+        Job job = jobMapper.selectOne(new LambdaQueryWrapper<Job>()
+                .select(Job::getId, Job::getStatus)
+                .eq(Job::getId, jobId));
+        if (job == null || !isTerminal(job.getStatus())) {
+            return false;
+        }
+        finishItem(item, "CANCELED", null, null);
+        log.info("任务已结束,跳过子项 - jobId: {}, status: {}, targetId: {}",
+                jobId, job.getStatus(), item.getTargetId());
+        return true;
+    }
+
+    private Semaphore permitsFor(String model) {
+        return modelPermits.computeIfAbsent(model,
+                m -> new Semaphore(aiProperties.getBatch().concurrencyFor(m), true));
+    }
+
+    private void acquire(Semaphore permits, Long jobId) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BusinessException(ResultCode.SYSTEM_ERROR, "批量任务执行被中断 - jobId: " + jobId);
+        }
+    }
+
+    /**
+     * 加载任务已有的子项,缺失的补建为PENDING
+     */
+    private Map<Long, JobItem> loadOrCreateItems(Long jobId, String targetType, List<Long> targetIds) {
+        List<JobItem> existing = jobItemMapper.selectList(
+                new LambdaQueryWrapper<JobItem>()
+                        .eq(JobItem::getJobId, jobId)
+                        .eq(JobItem::getTargetType, targetType));
+
+        Map<Long, JobItem> items = new HashMap<>();
+        for (JobItem item : existing) {
+            items.put(item.getTargetId(), item);
+        }
+
+        for (Long targetId : targetIds) {
+            if (items.containsKey(targetId)) {
+                continue;
+            }
+            JobItem item = new JobItem();
+            item.setJobId(jobId);
+            item.setTargetType(targetType);
+            item.setTargetId(targetId);
+            item.setStatus("PENDING");
+            jobItemMapper.insert(item);
+            items.put(targetId, item);
+        }
+        return items;
+    }
+
+    /**
+     * 认领子项:PENDING或RUNNING已超时的子项置为RUNNING
+     *
+     * <p>带条件的单行UPDATE,同一子项的重复消息(如发送确认超时后重发)同时到达时只有一个能认领成功,
+     * 另一个不会再次调用AI接口、生成资产和扣费;执行节点失联的子项超过
+     * {@code ai.batch.item-stale-timeout}后可被重新投递的消息认领
+     *
+     * @return 是否认领成功
+     */
+    private boolean claimItem(JobItem item) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minusNanos(aiProperties.getBatch().getItemStaleTimeout() * 1_000_000L);
+        return jobItemMapper.update(null, new LambdaUpdateWrapper<JobItem>()
+                .eq(JobItem::getId, item.getId())
+                .and(w -> w.eq(JobItem::getStatus, "PENDING")
+                        .or(r -> r.eq(JobItem::getStatus, "RUNNING")
+                                .and(t -> t.isNull(JobItem::getStartedAt).or().lt(JobItem::getStartedAt, staleBefore))))
+                .set(JobItem::getStatus, "RUNNING")
+                .set(JobItem::getStartedAt, now)) > 0;
+    }
+
+    /**
+     * 将子项置为终态,只允许从PENDING/RUNNING迁移
+     *
+     * @return 是否发生了状态迁移
+     */
+    private boolean finishItem(JobItem item, String status, String outputJson, String errorMessage) {
+        LambdaUpdateWrapper<JobItem> update = new LambdaUpdateWrapper<JobItem>()
+                .eq(JobItem::getId, item.getId())
+                .in(JobItem::getStatus, "PENDING", "RUNNING")
+                .set(JobItem::getStatus, status)
+                .set(JobItem::getFinishedAt, LocalDateTime.now())
+                .set(outputJson != null, JobItem::getOutputJson, outputJson)
+                .set(errorMessage != null, JobItem::getErrorMessage, errorMessage);
+        return jobItemMapper.update(null, update) > 0;
+    }
+
+    private boolean isTerminal(String status) {
+        return "SUCCEEDED".equals(status) || "FAILED".equals(status) || "CANCELED".equals(status);
+    }
+
+    private String writeOutput(ItemOutcome outcome) {
+        if (outcome == null || outcome.imageUrls().isEmpty()) {
+            return null;
+        }
+        Map<String, Object> output = new HashMap<>();
+        output.put("imageUrls", outcome.imageUrls());
+        return writeJson(output);
+    }
+
+    private String writeJson(Map<String, Object> value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            log.warn("序列化JSON失败", e);
+            return null;
+        }
+    }
+
+    private List<String> readOutputUrls(JobItem item) {
+        if (item.getOutputJson() == null) {
+            return Collections.emptyList();
+        }
+        try {
+            Map<String, List<String>> output = objectMapper.readValue(item.getOutputJson(),
+                    new TypeReference<Map<String, List<String>>>() {});
+            List<String> urls = output.get("imageUrls");
+            return urls != null ? urls : Collections.emptyList();
+        } catch (Exception e) {
+            log.warn("解析子项输出失败 - jobItemId: {}", item.getId(), e);
+            return Collections.emptyList();
+        }
+    }
+}
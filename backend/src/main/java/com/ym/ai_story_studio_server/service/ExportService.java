@@ -1,7 +1,6 @@
 package com.ym.ai_story_studio_server.service;
 
 import com.ym.ai_story_studio_server.dto.export.ExportRequest;
-import org.springframework.core.io.Resource;
 
 /**
  * 导出服务接口
@@ -34,21 +33,13 @@ public interface ExportService {
     Long submitExportTask(Long userId, Long projectId, ExportRequest request);
 
     /**
-     * 获取导出文件下载资源
+     * 获取导出文件下载链接
      *
-     * <p>根据任务ID获取导出的ZIP文件
+     * <p>导出文件保存在对象存储中,返回有时效的预签名URL,由调用方重定向下载
      *
      * @param userId 用户ID
      * @param jobId 导出任务ID
-     * @return 文件资源
+     * @return 临时下载链接
      */
-    Resource getExportFile(Long userId, Long jobId);
-
-    /**
-     * 获取导出文件名
-     *
-     * @param jobId 导出任务ID
-     * @return 文件名
-     */
-    String getExportFileName(Long jobId);
+    String getExportDownloadUrl(Long userId, Long jobId);
 }
@@ -0,0 +1,95 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.ym.ai_story_studio_server.config.StorageProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+/**
+ * 导出临时文件清理任务
+ *
+ * <p>正常情况下导出ZIP和预取文件在上传后即删除,进程崩溃或上传失败时会残留在临时目录。
+ * 定期删除修改时间超过TTL的文件,防止磁盘持续增长
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ExportTempJanitor {
+
+    private final StorageProperties storageProperties;
+    private final TaskScheduler maintenanceScheduler;
+
+    public ExportTempJanitor(StorageProperties storageProperties,
+                             @Qualifier("maintenanceScheduler") TaskScheduler maintenanceScheduler) {
+        this.storageProperties = storageProperties;
+        this.maintenanceScheduler = maintenanceScheduler;
+    }
+
+    @PostConstruct
+    public void start() {
+        StorageProperties.ExportConfig config = storageProperties.getExport();
+        maintenanceScheduler.scheduleWithFixedDelay(this::sweep,
+                Duration.ofMinutes(config.getJanitorIntervalMinutes()));
+        log.info("导出临时文件清理任务已启动 - 目录: {}, TTL: {}分钟, 间隔: {}分钟",
+                config.getTempDir(), config.getTempFileTtlMinutes(), config.getJanitorIntervalMinutes());
+    }
+
+    /**
+     * 删除临时目录中超过TTL的文件
+     *
+     * @return 删除的文件数
+     */
+    public int sweep() {
+        StorageProperties.ExportConfig config = storageProperties.getExport();
+        Path dir = Paths.get(config.getTempDir());
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(config.getTempFileTtlMinutes()));
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (isExpired(file, cutoff) && deleteQuietly(file)) {
+                    deleted++;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("扫描导出临时目录失败 - 目录: {}, 错误: {}", dir, e.getMessage());
+        }
+
+        if (deleted > 0) {
+            log.info("清理过期导出临时文件: {}个", deleted);
+        }
+        return deleted;
+    }
+
+    private static boolean isExpired(Path file, Instant cutoff) {
+        try {
+            return Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean deleteQuietly(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("删除导出临时文件失败: {}", file);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 导出ZIP写入器
+ *
+ * <p>下载线程池并行预取资产到临时文件,单个写线程按条目顺序写入同一个{@link ZipOutputStream}。
+ * 预取窗口固定,同时落盘的临时文件数量有上限
+ *
+ * <p>PNG/JPEG/MP4等本身已压缩的格式以STORED方式写入,下载时顺带计算CRC32,不再做无效的二次压缩
+ *
+ * <p>开启去重时按内容寻址:相同URL只下载一次,URL不同但SHA-256相同的内容只写入一次,
+ * 重复条目在结果中通过{@link WrittenEntry#sameAs()}指向实际写入的条目
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ExportZipWriter {
+
+    /**
+     * 预取窗口:写线程之前最多有多少个条目在下载或等待写入
+     */
+    static final int PREFETCH_WINDOW = 16;
+
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(30);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 已压缩格式,直接STORED写入
+     */
+    private static final Set<String> STORED_EXTENSIONS = Set.of(
+            ".png", ".jpg", ".jpeg", ".webp", ".gif", ".mp4", ".mov", ".webm", ".zip");
+
+    private final Executor downloadExecutor;
+    private final HttpTransport httpTransport;
+
+    public ExportZipWriter(@Qualifier("exportDownloadExecutor") Executor downloadExecutor,
+                           HttpTransport httpTransport) {
+        this.downloadExecutor = downloadExecutor;
+        this.httpTransport = httpTransport;
+    }
+
+    /**
+     * 导出条目
+     *
+     * @param entryName ZIP内的文件名
+     * @param url 资产URL
+     * @param assetVersionId 资产版本ID
+     */
+    public record ExportEntry(String entryName, String url, Long assetVersionId) {}
+
+    /**
+     * 写入结果
+     *
+     * @param entry 导出条目
+     * @param size 内容字节数
+     * @param sha256 内容SHA-256(十六进制)
+     * @param sameAs 内容相同且实际写入ZIP的条目名;本条目自身被写入时为null
+     */
+    public record WrittenEntry(ExportEntry entry, long size, String sha256, String sameAs) {}
+
+    /**
+     * 下载所有条目并按顺序写入ZIP
+     *
+     * <p>任意条目下载失败时跳过尚未开始的预取并抛出异常。不会finish/close ZIP流,
+     * 调用方可以继续追加条目(如manifest)
+     *
+     * @param entries 导出条目(写入顺序)
+     * @param workDir 预取临时文件所在目录
+     * @param zos ZIP输出流,由调用方负责关闭
+     * @param dedup 是否按URL和内容去重
+     * @return 每个条目的写入结果,与entries顺序一致
+     * @throws IOException 下载或写入失败
+     */
+    public List<WrittenEntry> write(List<ExportEntry> entries, Path workDir, ZipOutputStream zos, boolean dedup)
+            throws IOException {
+        long start = System.currentTimeMillis();
+
+        // 去重时同一URL只下载第一次出现的条目
+        List<ExportEntry> downloads = entries;
+        if (dedup) {
+            Map<String, ExportEntry> byUrl = new LinkedHashMap<>();
+            entries.forEach(entry -> byUrl.putIfAbsent(entry.url(), entry));
+            downloads = new ArrayList<>(byUrl.values());
+        }
+
+        Deque<CompletableFuture<Prefetched>> window = new ArrayDeque<>();
+        Iterator<ExportEntry> pending = downloads.iterator();
+        AtomicBoolean aborted = new AtomicBoolean(false);
+        Map<String, WrittenEntry> writtenByUrl = new HashMap<>();
+        Map<String, String> writtenBySha = new HashMap<>();
+        long totalBytes = 0;
+
+        try {
+            fill(window, pending, workDir, aborted);
+            while (!window.isEmpty()) {
+                Prefetched file = await(window.pollFirst());
+                fill(window, pending, workDir, aborted);
+                try {
+                    String sameAs = dedup ? writtenBySha.get(file.sha256()) : null;
+                    if (sameAs == null) {
+                        writeEntry(zos, file);
+                        totalBytes += file.size();
+                        writtenBySha.putIfAbsent(file.sha256(), file.entry().entryName());
+                    }
+                    writtenByUrl.putIfAbsent(file.entry().url(),
+                            new WrittenEntry(file.entry(), file.size(), file.sha256(), sameAs));
+                } finally {
+                    deleteQuietly(file.path());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            aborted.set(true);
+            discard(window);
+            throw e;
+        }
+
+        List<WrittenEntry> results = new ArrayList<>(entries.size());
+        for (ExportEntry entry : entries) {
+            WrittenEntry first = writtenByUrl.get(entry.url());
+            if (!dedup) {
+                results.add(new WrittenEntry(entry, first.size(), first.sha256(), null));
+            } else if (first.entry() == entry) {
+                results.add(first);
+            } else {
+                String target = first.sameAs() != null ? first.sameAs() : first.entry().entryName();
+                results.add(new WrittenEntry(entry, first.size(), first.sha256(), target));
+            }
+        }
+
+        log.info("导出ZIP写入完成 - 条目数: {}, 下载数: {}, 写入字节数: {}, 耗时: {}ms",
+                entries.size(), downloads.size(), totalBytes, System.currentTimeMillis() - start);
+        return results;
+    }
+
+    private void fill(Deque<CompletableFuture<Prefetched>> window, Iterator<ExportEntry> pending,
+                      Path workDir, AtomicBoolean aborted) {
+        while (window.size() < PREFETCH_WINDOW && pending.hasNext()) {
+            ExportEntry entry = pending.next();
+            window.addLast(CompletableFuture.supplyAsync(
+                    () -> aborted.get() ? null : prefetch(entry, workDir), downloadExecutor));
+        }
+    }
+
+    private Prefetched prefetch(ExportEntry entry, Path workDir) {
+        log.debug("预取导出文件: url={}, entry={}", entry.url(), entry.entryName());
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(workDir, "export-", ".part");
+
+            CRC32 crc = new CRC32();
+            MessageDigest sha = sha256();
+            long size = 0;
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (HttpTransport.Download download = httpTransport.open(entry.url(), READ_TIMEOUT);
+                 OutputStream fileOut = Files.newOutputStream(temp)) {
+                int read;
+                InputStream in = download.body();
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    sha.update(buffer, 0, read);
+                    fileOut.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            return new Prefetched(entry, temp, size, crc.getValue(), HexFormat.of().formatHex(sha.digest()));
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new CompletionException(new IOException("下载导出文件失败: " + entry.url(), e));
+        }
+    }
+
+    private void writeEntry(ZipOutputStream zos, Prefetched file) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(file.entry().entryName());
+        if (isStored(file.entry().entryName())) {
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(file.size());
+            zipEntry.setCompressedSize(file.size());
+            zipEntry.setCrc(file.crc());
+        }
+        zos.putNextEntry(zipEntry);
+        Files.copy(file.path(), zos);
+        zos.closeEntry();
+    }
+
+    static boolean isStored(String entryName) {
+        int dot = entryName.lastIndexOf('.');
+        return dot >= 0 && STORED_EXTENSIONS.contains(entryName.substring(dot).toLowerCase(Locale.ROOT));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Prefetched await(CompletableFuture<Prefetched> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 失败时丢弃窗口内的预取:尚未开始的直接跳过,已开始的完成后删除临时文件
+     */
+    private static void discard(Deque<CompletableFuture<Prefetched>> window) {
+        for (CompletableFuture<Prefetched> future : window) {
+            future.whenComplete((file, ex) -> {
+                if (file != null) {
+                    deleteQuietly(file.path());
+                }
+            });
+        }
+        window.clear();
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除导出临时文件失败: {}", path);
+        }
+    }
+
+    private record Prefetched(ExportEntry entry, Path path, long size, long crc, String sha256) {}
+}
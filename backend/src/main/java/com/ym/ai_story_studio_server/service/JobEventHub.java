@@ -0,0 +1,358 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.dto.job.JobEvent;
+import com.ym.ai_story_studio_server.entity.Job;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * 任务事件中心
+ *
+ * <p>替代浏览器轮询任务接口:任务状态/进度写库后调用{@link #publish}发布到Redis频道{@value #CHANNEL},
+ * 每个节点订阅该频道,把事件推送给本节点上该用户的SSE连接。
+ *
+ * <p><strong>订阅方式:</strong>
+ * <ul>
+ *   <li>用户级:接收该用户所有任务的事件,用于任务列表</li>
+ *   <li>任务级:先推送一次当前状态快照,之后推送该任务的事件,任务结束后关闭连接</li>
+ * </ul>
+ *
+ * <p>SSE事件名为{@code job},数据为{@link JobEvent};每{@link #HEARTBEAT_INTERVAL}发送一次注释行保活。
+ * 事件只推送给在线连接,不做补发,浏览器重连后应重新获取快照
+ *
+ * <p>收到的事件按任务合并后由{@code jobEventExecutor}单线程推送:推送跟不上时同一任务只保留合并后的最新状态,
+ * 待推送的事件数不超过在途任务数,不会因为积压丢弃事件,终态也不会被之后到达的进度覆盖
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class JobEventHub implements MessageListener {
+
+    /**
+     * Redis发布订阅频道
+     */
+    public static final String CHANNEL = "job:events";
+
+    /**
+     * SSE连接超时,到期后浏览器自动重连
+     */
+    private static final Duration EMITTER_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * 保活间隔,避免代理断开空闲连接
+     */
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(15);
+
+    /**
+     * 每个用户在单个节点上的最大连接数,超出时关闭最早的连接
+     */
+    private static final int MAX_SUBSCRIPTIONS_PER_USER = 8;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final TaskScheduler maintenanceScheduler;
+    private final ObjectMapper objectMapper;
+    private final Executor jobEventExecutor;
+
+    /**
+     * 用户ID -> 本节点上的订阅
+     */
+    private final Map<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 任务ID -> 待推送的事件(按到达顺序),由自身加锁保护
+     */
+    private final Map<Long, JobEvent> pendingEvents = new LinkedHashMap<>();
+
+    /**
+     * 是否已有推送任务在执行或排队,由{@link #pendingEvents}的锁保护
+     */
+    private boolean draining;
+
+    public JobEventHub(StringRedisTemplate stringRedisTemplate,
+                       RedisMessageListenerContainer listenerContainer,
+                       @Qualifier("maintenanceScheduler") TaskScheduler maintenanceScheduler,
+                       ObjectMapper objectMapper,
+                       @Qualifier("jobEventExecutor") Executor jobEventExecutor) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.maintenanceScheduler = maintenanceScheduler;
+        this.objectMapper = objectMapper;
+        this.jobEventExecutor = jobEventExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        maintenanceScheduler.scheduleWithFixedDelay(this::heartbeat, HEARTBEAT_INTERVAL);
+        log.info("任务事件中心已启动 - 频道: {}, 保活间隔: {}s", CHANNEL, HEARTBEAT_INTERVAL.toSeconds());
+    }
+
+    /**
+     * 发布任务事件
+     *
+     * <p>在事务内调用时于提交后发布;发布失败只记录日志,不影响任务执行
+     *
+     * @param userId 任务所属用户ID
+     * @param job 本次写入的任务字段(未设置的字段视为没有变化)
+     */
+    public void publish(Long userId, Job job) {
+        if (userId == null || job == null || job.getId() == null) {
+            return;
+        }
+        JobEvent event = toEvent(userId, job, System.currentTimeMillis());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    send(event);
+                }
+            });
+        } else {
+            send(event);
+        }
+    }
+
+    /**
+     * 订阅用户的所有任务事件
+     *
+     * @param userId 用户ID
+     * @return SSE连接
+     */
+    public SseEmitter subscribeUser(Long userId) {
+        return register(new Subscription(userId, null, new SseEmitter(EMITTER_TIMEOUT.toMillis()))).emitter;
+    }
+
+    /**
+     * 订阅单个任务的事件,先推送当前状态快照
+     *
+     * <p>先登记订阅再推送快照,快照读取期间发布的事件不会丢失
+     *
+     * @param userId 用户ID(调用方已校验任务归属)
+     * @param job 任务当前状态
+     * @return SSE连接
+     */
+    public SseEmitter subscribeJob(Long userId, Job job) {
+        Subscription subscription = register(
+                new Subscription(userId, job.getId(), new SseEmitter(EMITTER_TIMEOUT.toMillis())));
+        long timestamp = job.getUpdatedAt() != null
+                ? job.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        JobEvent snapshot = toEvent(userId, job, timestamp);
+        subscription.send(snapshot);
+        if (snapshot.terminal()) {
+            subscription.complete();
+        }
+        return subscription.emitter;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            enqueue(objectMapper.readValue(message.getBody(), JobEvent.class));
+        } catch (IOException e) {
+            log.warn("任务事件解析失败,已忽略", e);
+        }
+    }
+
+    /**
+     * 合并到待推送事件,需要时提交推送任务
+     *
+     * <p>在Redis订阅线程上执行,只做合并,不做任何IO
+     */
+    void enqueue(JobEvent event) {
+        if (!subscriptions.containsKey(event.userId())) {
+            return;
+        }
+        synchronized (pendingEvents) {
+            pendingEvents.merge(event.jobId(), event, JobEvent::merge);
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        try {
+            jobEventExecutor.execute(this::drain);
+        } catch (RuntimeException e) {
+            synchronized (pendingEvents) {
+                draining = false;
+            }
+            log.warn("任务事件推送任务提交失败,等待下一个事件时重试", e);
+        }
+    }
+
+    /**
+     * 推送所有待推送事件,直到没有新事件到达
+     */
+    private void drain() {
+        while (true) {
+            List<JobEvent> batch;
+            synchronized (pendingEvents) {
+                if (pendingEvents.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                batch = new ArrayList<>(pendingEvents.values());
+                pendingEvents.clear();
+            }
+            for (JobEvent event : batch) {
+                try {
+                    dispatch(event);
+                } catch (Exception e) {
+                    log.warn("任务事件推送失败 - jobId: {}", event.jobId(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把事件推送给本节点上匹配的订阅
+     */
+    void dispatch(JobEvent event) {
+        List<Subscription> userSubscriptions = subscriptions.get(event.userId());
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            if (subscription.jobId != null && !subscription.jobId.equals(event.jobId())) {
+                continue;
+            }
+            subscription.send(event);
+            if (subscription.jobId != null && event.terminal()) {
+                subscription.complete();
+            }
+        }
+    }
+
+    /**
+     * 本节点上的订阅数
+     */
+    int subscriptionCount() {
+        return subscriptions.values().stream().mapToInt(List::size).sum();
+    }
+
+    private void send(JobEvent event) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.warn("任务事件发布失败 - jobId: {}, status: {}", event.jobId(), event.status(), e);
+        }
+    }
+
+    private void heartbeat() {
+        subscriptions.values().forEach(list -> list.forEach(Subscription::heartbeat));
+    }
+
+    private Subscription register(Subscription subscription) {
+        // 与unregister移除空列表互斥,避免加入已被移除的列表
+        List<Subscription> userSubscriptions = subscriptions.compute(subscription.userId, (id, list) -> {
+            List<Subscription> current = list != null ? list : new CopyOnWriteArrayList<>();
+            current.add(subscription);
+            return current;
+        });
+        while (userSubscriptions.size() > MAX_SUBSCRIPTIONS_PER_USER) {
+            Subscription oldest = userSubscriptions.get(0);
+            oldest.complete();
+            userSubscriptions.remove(oldest);
+        }
+        return subscription;
+    }
+
+    private void unregister(Subscription subscription) {
+        subscriptions.computeIfPresent(subscription.userId, (id, list) -> {
+            list.remove(subscription);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private static JobEvent toEvent(Long userId, Job job, long timestamp) {
+        return new JobEvent(job.getId(), userId, job.getStatus(), job.getProgress(), job.getTotalItems(),
+                job.getDoneItems(), job.getResultUrl(), job.getErrorMessage(), timestamp);
+    }
+
+    /**
+     * 单个SSE连接;断开、超时或关闭后从订阅表移除
+     */
+    private final class Subscription {
+
+        private final Long userId;
+        private final Long jobId;
+        private final SseEmitter emitter;
+        private volatile boolean closed;
+
+        Subscription(Long userId, Long jobId, SseEmitter emitter) {
+            this.userId = userId;
+            this.jobId = jobId;
+            this.emitter = emitter;
+            emitter.onCompletion(this::close);
+            emitter.onTimeout(this::close);
+            emitter.onError(e -> close());
+        }
+
+        void send(JobEvent event) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name("job").data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                log.debug("任务事件连接已断开 - userId: {}, 原因: {}", userId, e.getMessage());
+                close();
+            }
+        }
+
+        void heartbeat() {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().comment("ping"));
+            } catch (IOException | IllegalStateException e) {
+                close();
+            }
+        }
+
+        void complete() {
+            if (closed) {
+                return;
+            }
+            close();
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                log.debug("SSE连接已关闭: {}", e.getMessage());
+            }
+        }
+
+        private void close() {
+            closed = true;
+            unregister(this);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 任务进度写回缓冲
+ *
+ * <p>批量任务每完成一个子项都要更新jobs表的进度,子项并行执行时同一行被反复UPDATE,
+ * 写入量随子项数增长且相互等待行锁。进度先记录在本节点内存中,按{@code ai.batch.progress-flush-interval}合并写回:
+ * <ul>
+ *   <li>{@link #itemDone}: 累加已完成子项数;同一任务的子项分布在多个节点时各节点写回自己的增量</li>
+ *   <li>{@link #record}: 记录最新的已完成数和进度,用于在单个线程内顺序执行的批量任务</li>
+ * </ul>
+ *
+ * <p>每个任务在每个节点上每个周期最多一次UPDATE,写回时只更新PENDING/RUNNING的任务,不会覆盖终态;
+ * 状态迁移仍由调用方同步写库。节点宕机时未写回的进度会丢失,任务完成时按子项重新汇总,不影响最终结果
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class JobProgressTracker {
+
+    private final JobMapper jobMapper;
+    private final AiProperties aiProperties;
+    private final TaskScheduler maintenanceScheduler;
+    private final JobEventHub jobEventHub;
+
+    /**
+     * 任务ID -> 尚未写回的进度
+     */
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+
+    public JobProgressTracker(JobMapper jobMapper,
+                              AiProperties aiProperties,
+                              @Qualifier("maintenanceScheduler") TaskScheduler maintenanceScheduler,
+                              JobEventHub jobEventHub) {
+        this.jobMapper = jobMapper;
+        this.aiProperties = aiProperties;
+        this.maintenanceScheduler = maintenanceScheduler;
+        this.jobEventHub = jobEventHub;
+    }
+
+    /**
+     * 尚未写回的进度
+     *
+     * @param userId 任务所属用户ID
+     * @param doneDelta 新增的已完成子项数
+     * @param doneItems 最新的已完成子项数(为空时按增量写回)
+     * @param progress 最新的进度(与doneItems同时设置)
+     */
+    record Pending(Long userId, int doneDelta, Integer doneItems, Integer progress) {
+
+        Pending merge(Pending newer) {
+            return new Pending(newer.userId, doneDelta + newer.doneDelta,
+                    newer.doneItems != null ? newer.doneItems : doneItems,
+                    newer.progress != null ? newer.progress : progress);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = aiProperties.getBatch().getProgressFlushInterval();
+        maintenanceScheduler.scheduleWithFixedDelay(this::flush, Duration.ofMillis(interval));
+        log.info("任务进度写回已启动 - 间隔: {}ms", interval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flush();
+    }
+
+    /**
+     * 记录任务完成了一个子项
+     *
+     * @param jobId 任务ID
+     * @param userId 任务所属用户ID
+     */
+    public void itemDone(Long jobId, Long userId) {
+        pending.merge(jobId, new Pending(userId, 1, null, null), Pending::merge);
+    }
+
+    /**
+     * 记录任务当前的已完成数和进度
+     *
+     * @param jobId 任务ID
+     * @param userId 任务所属用户ID
+     * @param doneItems 已完成子项数
+     * @param totalItems 子项总数
+     */
+    public void record(Long jobId, Long userId, int doneItems, int totalItems) {
+        int progress = totalItems > 0 ? (int) (doneItems * 100.0 / totalItems) : 0;
+        pending.merge(jobId, new Pending(userId, 0, doneItems, progress), Pending::merge);
+    }
+
+    /**
+     * 丢弃任务尚未写回的进度,任务写入终态前调用
+     *
+     * @param jobId 任务ID
+     */
+    public void discard(Long jobId) {
+        pending.remove(jobId);
+    }
+
+    /**
+     * 将缓冲的进度写回数据库并发布任务事件
+     *
+     * <p>写回失败的进度放回缓冲,与期间新增的进度合并后下个周期重试
+     */
+    public void flush() {
+        for (Long jobId : pending.keySet()) {
+            Pending update = pending.remove(jobId);
+            if (update == null) {
+                continue;
+            }
+            try {
+                write(jobId, update);
+            } catch (Exception e) {
+                pending.merge(jobId, update, (current, failed) -> failed.merge(current));
+                log.warn("任务进度写回失败,下个周期重试 - jobId: {}", jobId, e);
+            }
+        }
+    }
+
+    /**
+     * 尚未写回的任务数
+     */
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private void write(Long jobId, Pending update) {
+        LambdaUpdateWrapper<Job> wrapper = new LambdaUpdateWrapper<Job>()
+                .eq(Job::getId, jobId)
+                .in(Job::getStatus, "PENDING", "RUNNING");
+        if (update.doneItems() != null) {
+            wrapper.set(Job::getDoneItems, update.doneItems())
+                    .set(Job::getProgress, update.progress());
+        } else {
+            // MySQL按从左到右的顺序计算SET表达式,progress使用的是累加后的done_items
+            wrapper.setSql("done_items = done_items + {0}", update.doneDelta())
+                    .setSql("progress = LEAST(100, ROUND(done_items * 100 / GREATEST(total_items, 1)))");
+        }
+        if (jobMapper.update(null, wrapper) == 0) {
+            // 任务已结束或已取消
+            return;
+        }
+
+        Job progress;
+        if (update.doneItems() != null) {
+            progress = new Job();
+            progress.setId(jobId);
+            progress.setDoneItems(update.doneItems());
+            progress.setProgress(update.progress());
+        } else {
+            // 其他节点也可能写回了增量,按主键读回累加后的值
+            progress = jobMapper.selectOne(new LambdaQueryWrapper<Job>()
+                    .select(Job::getId, Job::getProgress, Job::getDoneItems, Job::getTotalItems)
+                    .eq(Job::getId, jobId));
+        }
+        if (progress != null) {
+            jobEventHub.publish(update.userId(), progress);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.ym.ai_story_studio_server.dto.job.JobDetailVO;
 import com.ym.ai_story_studio_server.dto.job.JobQueryRequest;
 import com.ym.ai_story_studio_server.dto.job.JobVO;
 import com.ym.ai_story_studio_server.exception.BusinessException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 /**
  * 任务服务接口
@@ -49,4 +50,24 @@ public interface JobService {
      * @throws BusinessException 如果任务不存在、无权限访问或任务已完成
      */
     void cancelJob(Long userId, Long jobId);
+
+    /**
+     * 订阅当前用户所有任务的状态/进度事件(SSE)
+     *
+     * @param userId 当前用户ID
+     * @return SSE连接
+     */
+    SseEmitter subscribeJobEvents(Long userId);
+
+    /**
+     * 订阅单个任务的状态/进度事件(SSE)
+     *
+     * <p>连接建立后先推送任务当前状态,任务结束后关闭连接
+     *
+     * @param userId 当前用户ID(用于权限验证)
+     * @param jobId 任务ID
+     * @return SSE连接
+     * @throws BusinessException 如果任务不存在或无权限访问
+     */
+    SseEmitter subscribeJobEvents(Long userId, Long jobId);
 }
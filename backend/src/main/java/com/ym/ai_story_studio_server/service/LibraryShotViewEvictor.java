@@ -0,0 +1,80 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ym.ai_story_studio_server.entity.ProjectCharacter;
+import com.ym.ai_story_studio_server.entity.ProjectProp;
+import com.ym.ai_story_studio_server.entity.ProjectScene;
+import com.ym.ai_story_studio_server.mapper.ProjectCharacterMapper;
+import com.ym.ai_story_studio_server.mapper.ProjectPropMapper;
+import com.ym.ai_story_studio_server.mapper.ProjectSceneMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * 素材库变更时的分镜列表缓存失效
+ *
+ * <p>分镜列表中角色/场景/道具的缩略图在项目未覆盖时取自素材库,
+ * 素材库条目的缩略图更新或删除后,引用该条目的所有项目的{@link ShotViewCache}都需要失效。
+ * 调用方应在校验归属并完成写入之后调用
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Component
+@RequiredArgsConstructor
+public class LibraryShotViewEvictor {
+
+    private final ProjectCharacterMapper projectCharacterMapper;
+    private final ProjectSceneMapper projectSceneMapper;
+    private final ProjectPropMapper projectPropMapper;
+    private final ShotViewCache shotViewCache;
+
+    /**
+     * 使引用角色库条目的项目缓存失效
+     *
+     * @param libraryCharacterId 角色库ID
+     */
+    public void evictCharacter(Long libraryCharacterId) {
+        evictProjects(projectCharacterMapper.selectList(new LambdaQueryWrapper<ProjectCharacter>()
+                .select(ProjectCharacter::getProjectId)
+                .eq(ProjectCharacter::getLibraryCharacterId, libraryCharacterId)), ProjectCharacter::getProjectId);
+    }
+
+    /**
+     * 使引用场景库条目的项目缓存失效
+     *
+     * @param librarySceneId 场景库ID
+     */
+    public void evictScene(Long librarySceneId) {
+        evictProjects(projectSceneMapper.selectList(new LambdaQueryWrapper<ProjectScene>()
+                .select(ProjectScene::getProjectId)
+                .eq(ProjectScene::getLibrarySceneId, librarySceneId)), ProjectScene::getProjectId);
+    }
+
+    /**
+     * 使引用道具库条目的项目缓存失效
+     *
+     * @param libraryPropIds 道具库ID
+     */
+    public void evictProps(Collection<Long> libraryPropIds) {
+        if (libraryPropIds.isEmpty()) {
+            return;
+        }
+        evictProjects(projectPropMapper.selectList(new LambdaQueryWrapper<ProjectProp>()
+                .select(ProjectProp::getProjectId)
+                .in(ProjectProp::getLibraryPropId, libraryPropIds)), ProjectProp::getProjectId);
+    }
+
+    private <T> void evictProjects(List<T> references, Function<T, Long> projectId) {
+        references.stream()
+                .map(projectId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .forEach(shotViewCache::evict);
+    }
+}
@@ -0,0 +1,290 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.dto.ai.AiParseScriptResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 长剧本分块并行解析
+ *
+ * <p>整篇剧本放在一个提示词里时,输出受{@code ai.text.max-tokens}限制,长剧本会被截断。
+ * 这里按场景边界把剧本切成不超过{@code ai.text.parse-chunk-chars}字的分块,各分块并发调用模型,
+ * 再按原顺序合并:
+ * <ul>
+ *   <li>script_segments按分块顺序拼接,并按集号重新连续编号"场x-y"</li>
+ *   <li>characters、scenes按首次出现顺序去重</li>
+ * </ul>
+ *
+ * <p>分块在{@code batchItemExecutor}中执行,上游实际并发由AI网关按模型控制。
+ * 总耗时取决于最慢的分块,而不是所有分块耗时之和
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ScriptChunkParser {
+
+    /**
+     * 场景标题行:"场1-2"、"第3集"、"第十场"等
+     */
+    private static final Pattern SCENE_HEADING = Pattern.compile(
+            "^\\s*(场\\s*\\d+\\s*[-－]\\s*\\d+|第\\s*[0-9零一二三四五六七八九十百]+\\s*[集场幕章])");
+
+    /**
+     * 分镜开头的场景编号,用于合并后重新编号
+     */
+    private static final Pattern SEGMENT_NUMBER = Pattern.compile("^(\\s*场\\s*)(\\d+)(\\s*[-－]\\s*)(\\d+)");
+
+    /**
+     * 场景块超长时依次尝试的切分位置:段落、行、句末标点
+     */
+    private static final List<Pattern> FALLBACK_SEPARATORS = List.of(
+            Pattern.compile("(?<=\n\n)"),
+            Pattern.compile("(?<=\n)"),
+            Pattern.compile("(?<=[。！？!?…”])"));
+
+    private final AiProperties aiProperties;
+    private final Executor batchItemExecutor;
+
+    public ScriptChunkParser(AiProperties aiProperties,
+                             @Qualifier("batchItemExecutor") Executor batchItemExecutor) {
+        this.aiProperties = aiProperties;
+        this.batchItemExecutor = batchItemExecutor;
+    }
+
+    /**
+     * 单个分块的解析调用
+     */
+    @FunctionalInterface
+    public interface ChunkCall {
+
+        /**
+         * 解析一个分块
+         *
+         * @param chunk 剧本分块
+         * @param onDelta 模型增量输出回调,为null时使用非流式调用
+         * @return 分块的解析结果
+         */
+        AiParseScriptResult parse(String chunk, Consumer<String> onDelta);
+    }
+
+    /**
+     * 分块并行解析剧本
+     *
+     * <p>流式调用时,第一个分块的输出实时转发,后续分块的输出先缓冲,
+     * 轮到它时再按顺序转发,保证调用方看到的文本与分块顺序一致
+     *
+     * @param fullScript 完整剧本
+     * @param call 分块解析调用
+     * @param onDelta 模型增量输出回调,为null时使用非流式调用
+     * @return 合并后的解析结果
+     */
+    public AiParseScriptResult parse(String fullScript, ChunkCall call, Consumer<String> onDelta) {
+        List<String> chunks = split(fullScript, aiProperties.getText().getParseChunkChars());
+        if (chunks.size() <= 1) {
+            return call.parse(fullScript, onDelta);
+        }
+        log.info("剧本分块并行解析 - 字数: {}, 分块数: {}", fullScript.length(), chunks.size());
+
+        OrderedRelay relay = onDelta != null ? new OrderedRelay(chunks.size(), onDelta) : null;
+        List<CompletableFuture<AiParseScriptResult>> futures = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+            int index = i;
+            String chunk = chunks.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                AiParseScriptResult result = call.parse(chunk, relay != null ? relay.forChunk(index) : null);
+                if (relay != null) {
+                    relay.complete(index);
+                }
+                return result;
+            }, batchItemExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return merge(futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * 按场景边界把剧本切成不超过budget字的分块
+     *
+     * <p>先在场景标题行处切成场景块,再把相邻场景块装入同一分块;
+     * 单个场景超长时依次退化到按段落、按行、按句子切分,最后才硬切
+     *
+     * @param script 完整剧本
+     * @param budget 每个分块的字数上限
+     * @return 分块列表,不含空白分块
+     */
+    static List<String> split(String script, int budget) {
+        List<String> pieces = new ArrayList<>();
+        StringBuilder scene = new StringBuilder();
+        for (String line : script.split("\n", -1)) {
+            if (SCENE_HEADING.matcher(line).find() && !scene.isEmpty()) {
+                addPieces(pieces, scene.toString(), budget);
+                scene.setLength(0);
+            }
+            scene.append(line).append('\n');
+        }
+        addPieces(pieces, scene.toString(), budget);
+
+        List<String> chunks = new ArrayList<>();
+        StringBuilder chunk = new StringBuilder();
+        for (String piece : pieces) {
+            if (!chunk.isEmpty() && chunk.length() + piece.length() > budget) {
+                addChunk(chunks, chunk);
+            }
+            chunk.append(piece);
+        }
+        addChunk(chunks, chunk);
+        return chunks;
+    }
+
+    /**
+     * 把一段文本切成不超过budget的片段;依次尝试段落、行、句子,最后硬切
+     */
+    private static void addPieces(List<String> pieces, String text, int budget) {
+        if (text.length() <= budget) {
+            pieces.add(text);
+            return;
+        }
+        for (Pattern separator : FALLBACK_SEPARATORS) {
+            String[] parts = separator.split(text);
+            if (parts.length > 1) {
+                for (String part : parts) {
+                    addPieces(pieces, part, budget);
+                }
+                return;
+            }
+        }
+        for (int start = 0; start < text.length(); start += budget) {
+            pieces.add(text.substring(start, Math.min(text.length(), start + budget)));
+        }
+    }
+
+    private static void addChunk(List<String> chunks, StringBuilder chunk) {
+        if (!chunk.toString().isBlank()) {
+            chunks.add(chunk.toString().strip());
+        }
+        chunk.setLength(0);
+    }
+
+    /**
+     * 按分块顺序合并解析结果
+     */
+    static AiParseScriptResult merge(List<AiParseScriptResult> results) {
+        List<String> segments = new ArrayList<>();
+        LinkedHashSet<String> characters = new LinkedHashSet<>();
+        LinkedHashSet<String> scenes = new LinkedHashSet<>();
+        for (AiParseScriptResult result : results) {
+            addAll(segments, result.getScriptSegments());
+            addAllTrimmed(characters, result.getCharacters());
+            addAllTrimmed(scenes, result.getScenes());
+        }
+        return new AiParseScriptResult(renumber(segments), new ArrayList<>(characters), new ArrayList<>(scenes));
+    }
+
+    /**
+     * 各分块都从"场1-1"开始编号,合并后按集号重新连续编号
+     */
+    private static List<String> renumber(List<String> segments) {
+        Map<String, Integer> sceneCounters = new HashMap<>();
+        List<String> renumbered = new ArrayList<>(segments.size());
+        for (String segment : segments) {
+            Matcher matcher = SEGMENT_NUMBER.matcher(segment);
+            if (matcher.find()) {
+                int sceneNo = sceneCounters.merge(matcher.group(2), 1, Integer::sum);
+                segment = matcher.group(1) + matcher.group(2) + matcher.group(3) + sceneNo
+                        + segment.substring(matcher.end());
+            }
+            renumbered.add(segment);
+        }
+        return renumbered;
+    }
+
+    private static void addAll(List<String> target, List<String> values) {
+        if (values != null) {
+            target.addAll(values);
+        }
+    }
+
+    private static void addAllTrimmed(LinkedHashSet<String> target, List<String> values) {
+        if (values == null) {
+            return;
+        }
+        for (String value : values) {
+            if (value != null && !value.isBlank()) {
+                target.add(value.trim());
+            }
+        }
+    }
+
+    /**
+     * 按分块顺序转发并发分块的增量输出
+     *
+     * <p>当前分块的增量直接转发,其余分块先缓冲;当前分块完成后依次冲刷后续分块的缓冲
+     */
+    private static final class OrderedRelay {
+
+        private final Consumer<String> onDelta;
+        private final List<Deque<String>> buffers = new ArrayList<>();
+        private final boolean[] completed;
+        private int current;
+
+        OrderedRelay(int chunkCount, Consumer<String> onDelta) {
+            this.onDelta = onDelta;
+            this.completed = new boolean[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                buffers.add(new ArrayDeque<>());
+            }
+        }
+
+        Consumer<String> forChunk(int index) {
+            return delta -> accept(index, delta);
+        }
+
+        private synchronized void accept(int index, String delta) {
+            if (index == current) {
+                onDelta.accept(delta);
+            } else {
+                buffers.get(index).addLast(delta);
+            }
+        }
+
+        synchronized void complete(int index) {
+            completed[index] = true;
+            while (current < completed.length && completed[current]) {
+                current++;
+                if (current < completed.length) {
+                    onDelta.accept("\n");
+                    Deque<String> buffer = buffers.get(current);
+                    while (!buffer.isEmpty()) {
+                        onDelta.accept(buffer.pollFirst());
+                    }
+                }
+            }
+        }
+    }
+}
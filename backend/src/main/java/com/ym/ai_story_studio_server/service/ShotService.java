@@ -1,6 +1,7 @@
 package com.ym.ai_story_studio_server.service;
 
 import com.ym.ai_story_studio_server.dto.shot.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -107,6 +108,19 @@ public interface ShotService {
      */
     List<ShotVO> parseScriptAndCreateShots(Long userId, Long projectId, ParseScriptRequest request);
 
+    /**
+     * AI流式解析剧本并批量创建分镜
+     *
+     * <p>与{@link #parseScriptAndCreateShots}相同,但通过SSE实时推送AI输出;
+     * 解析完成后在独立事务中创建分镜,{@code done}事件返回创建的分镜VO列表
+     *
+     * @param userId 当前用户ID,用于验证项目归属权限
+     * @param projectId 项目ID
+     * @param request 包含完整剧本的请求
+     * @return SSE连接
+     */
+    SseEmitter parseScriptAndCreateShotsStream(Long userId, Long projectId, ParseScriptRequest request);
+
     /**
      * 删除分镜图资产
      *
@@ -0,0 +1,323 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ym.ai_story_studio_server.dto.shot.*;
+import com.ym.ai_story_studio_server.entity.*;
+import com.ym.ai_story_studio_server.mapper.*;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分镜VO批量组装器
+ *
+ * <p>分镜列表页需要每个分镜的绑定角色/场景/道具、缩略图以及分镜图/视频的资产状态。
+ * 逐个分镜查询时SQL条数随分镜数线性增长(150个分镜超过1000条SQL),
+ * 这里先收集整页涉及的全部ID,再按类型各查询一次,最后在内存中组装
+ *
+ * <p><strong>查询次数:</strong> 与分镜数量无关,最多9条SQL
+ * <ul>
+ *   <li>项目角色、角色库、项目场景、场景库、项目道具、道具库各1条</li>
+ *   <li>资产1条(分镜图/视频/角色/场景/道具图片一起查询)</li>
+ *   <li>资产版本1条(同时得到当前版本和版本总数)</li>
+ * </ul>
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShotVOAssembler {
+
+    /**
+     * 资产新旧比较:先比较创建时间,相同时比较ID
+     */
+    private static final Comparator<Asset> ASSET_RECENCY = Comparator
+            .comparing(Asset::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Asset::getId);
+
+    private final ProjectCharacterMapper projectCharacterMapper;
+    private final ProjectSceneMapper projectSceneMapper;
+    private final ProjectPropMapper projectPropMapper;
+    private final CharacterLibraryMapper characterLibraryMapper;
+    private final SceneLibraryMapper sceneLibraryMapper;
+    private final PropLibraryMapper propLibraryMapper;
+    private final AssetMapper assetMapper;
+    private final AssetVersionMapper assetVersionMapper;
+
+    /**
+     * 批量组装分镜VO
+     *
+     * @param shots 分镜列表(返回顺序与之一致)
+     * @param bindings 这些分镜的全部绑定关系
+     * @return 分镜VO列表
+     */
+    public List<ShotVO> assemble(List<StoryboardShot> shots, List<ShotBinding> bindings) {
+        if (shots.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<ShotBinding>> bindingMap = bindings.stream()
+                .collect(Collectors.groupingBy(ShotBinding::getShotId));
+
+        // 1. 收集整页涉及的绑定对象ID
+        Set<Long> characterIds = collectBindIds(bindings, "PCHAR");
+        Set<Long> sceneIds = collectBindIds(bindings, "PSCENE");
+        Set<Long> propIds = collectBindIds(bindings, "PPROP");
+
+        // 2. 按类型批量查询绑定对象及其库缩略图
+        Map<Long, ProjectCharacter> characterMap = selectByIds(projectCharacterMapper::selectBatchIds,
+                characterIds, ProjectCharacter::getId);
+        Map<Long, ProjectScene> sceneMap = selectByIds(projectSceneMapper::selectBatchIds,
+                sceneIds, ProjectScene::getId);
+        Map<Long, ProjectProp> propMap = selectByIds(projectPropMapper::selectBatchIds,
+                propIds, ProjectProp::getId);
+
+        Map<Long, String> characterThumbnails = thumbnails(characterLibraryMapper::selectBatchIds,
+                characterMap.values().stream().map(ProjectCharacter::getLibraryCharacterId),
+                CharacterLibrary::getId, CharacterLibrary::getThumbnailUrl);
+        Map<Long, String> sceneThumbnails = thumbnails(sceneLibraryMapper::selectBatchIds,
+                sceneMap.values().stream().map(ProjectScene::getLibrarySceneId),
+                SceneLibrary::getId, SceneLibrary::getThumbnailUrl);
+        Map<Long, String> propThumbnails = thumbnails(propLibraryMapper::selectBatchIds,
+                propMap.values().stream().map(ProjectProp::getLibraryPropId),
+                PropLibrary::getId, PropLibrary::getThumbnailUrl);
+
+        // 3. 一次查询所有资产状态
+        List<Long> shotIds = shots.stream().map(StoryboardShot::getId).toList();
+        Map<String, AssetStatusVO> assetStatuses = loadAssetStatuses(
+                shotIds, characterMap.keySet(), sceneMap.keySet(), propMap.keySet());
+
+        // 4. 内存组装
+        List<ShotVO> voList = new ArrayList<>(shots.size());
+        for (StoryboardShot shot : shots) {
+            List<BoundCharacterVO> characters = new ArrayList<>();
+            BoundSceneVO scene = null;
+            List<BoundPropVO> props = new ArrayList<>();
+
+            for (ShotBinding binding : bindingMap.getOrDefault(shot.getId(), List.of())) {
+                if ("PCHAR".equals(binding.getBindType())) {
+                    ProjectCharacter character = characterMap.get(binding.getBindId());
+                    if (character != null) {
+                        characters.add(new BoundCharacterVO(
+                                binding.getId(),
+                                character.getId(),
+                                character.getDisplayName(),
+                                characterThumbnail(character, characterThumbnails, assetStatuses)
+                        ));
+                    }
+                } else if ("PSCENE".equals(binding.getBindType())) {
+                    ProjectScene projectScene = sceneMap.get(binding.getBindId());
+                    if (projectScene != null) {
+                        scene = new BoundSceneVO(
+                                binding.getId(),
+                                projectScene.getId(),
+                                projectScene.getDisplayName(),
+                                sceneThumbnail(projectScene, sceneThumbnails, assetStatuses)
+                        );
+                    }
+                } else if ("PPROP".equals(binding.getBindType())) {
+                    ProjectProp prop = propMap.get(binding.getBindId());
+                    if (prop != null) {
+                        props.add(new BoundPropVO(
+                                binding.getId(),
+                                prop.getId(),
+                                prop.getDisplayName(),
+                                propThumbnail(prop, propThumbnails, assetStatuses)
+                        ));
+                    }
+                }
+            }
+
+            voList.add(new ShotVO(
+                    shot.getId(),
+                    shot.getShotNo(),
+                    shot.getScriptText(),
+                    characters,
+                    scene,
+                    props,
+                    assetStatuses.getOrDefault(assetKey("SHOT", shot.getId(), "SHOT_IMG"), emptyAssetStatus()),
+                    assetStatuses.getOrDefault(assetKey("SHOT", shot.getId(), "VIDEO"), emptyAssetStatus()),
+                    shot.getCreatedAt(),
+                    shot.getUpdatedAt()
+            ));
+        }
+
+        log.debug("分镜VO组装完成 - 分镜: {}, 角色: {}, 场景: {}, 道具: {}, 资产: {}",
+                shots.size(), characterMap.size(), sceneMap.size(), propMap.size(), assetStatuses.size());
+        return voList;
+    }
+
+    /**
+     * 创建空的资产状态VO
+     *
+     * @return 空资产状态VO
+     */
+    public static AssetStatusVO emptyAssetStatus() {
+        return new AssetStatusVO(null, null, null, "NONE", 0);
+    }
+
+    /**
+     * 角色缩略图:自定义角色用项目角色缩略图;关联角色库的优先项目角色缩略图,其次库缩略图;都没有时用角色图片资产
+     */
+    private String characterThumbnail(ProjectCharacter character, Map<Long, String> libraryThumbnails,
+                                      Map<String, AssetStatusVO> assetStatuses) {
+        String thumbnailUrl;
+        if (character.getLibraryCharacterId() == null) {
+            thumbnailUrl = character.getThumbnailUrl();
+        } else if (character.getThumbnailUrl() != null && !character.getThumbnailUrl().isEmpty()) {
+            thumbnailUrl = character.getThumbnailUrl();
+        } else {
+            thumbnailUrl = libraryThumbnails.get(character.getLibraryCharacterId());
+        }
+        return thumbnailUrl != null ? thumbnailUrl : assetUrl(assetStatuses, "PCHAR", character.getId());
+    }
+
+    /**
+     * 场景缩略图:优先项目场景缩略图,其次库缩略图,都没有时用场景图片资产
+     */
+    private String sceneThumbnail(ProjectScene scene, Map<Long, String> libraryThumbnails,
+                                  Map<String, AssetStatusVO> assetStatuses) {
+        String thumbnailUrl = scene.getThumbnailUrl();
+        if (thumbnailUrl == null && scene.getLibrarySceneId() != null) {
+            thumbnailUrl = libraryThumbnails.get(scene.getLibrarySceneId());
+        }
+        return thumbnailUrl != null ? thumbnailUrl : assetUrl(assetStatuses, "PSCENE", scene.getId());
+    }
+
+    /**
+     * 道具缩略图:优先库缩略图,没有时用道具图片资产
+     */
+    private String propThumbnail(ProjectProp prop, Map<Long, String> libraryThumbnails,
+                                 Map<String, AssetStatusVO> assetStatuses) {
+        String thumbnailUrl = prop.getLibraryPropId() != null ? libraryThumbnails.get(prop.getLibraryPropId()) : null;
+        return thumbnailUrl != null ? thumbnailUrl : assetUrl(assetStatuses, "PPROP", prop.getId());
+    }
+
+    private String assetUrl(Map<String, AssetStatusVO> assetStatuses, String ownerType, Long ownerId) {
+        AssetStatusVO status = assetStatuses.get(assetKey(ownerType, ownerId, "IMAGE"));
+        return status != null ? status.currentUrl() : null;
+    }
+
+    /**
+     * 批量查询资产状态
+     *
+     * <p>每个(归属类型, 归属ID, 资产类型)取创建时间最新的资产,再取其版本号最大的版本作为当前版本
+     *
+     * @return 以{@link #assetKey}为键的资产状态,无资产或无版本的不在结果中
+     */
+    private Map<String, AssetStatusVO> loadAssetStatuses(Collection<Long> shotIds, Collection<Long> characterIds,
+                                                         Collection<Long> sceneIds, Collection<Long> propIds) {
+        LambdaQueryWrapper<Asset> assetQuery = new LambdaQueryWrapper<>();
+        assetQuery.and(w -> {
+            w.nested(n -> n.eq(Asset::getOwnerType, "SHOT")
+                    .in(Asset::getOwnerId, shotIds)
+                    .in(Asset::getAssetType, "SHOT_IMG", "VIDEO"));
+            ownerClause(w, "PCHAR", characterIds);
+            ownerClause(w, "PSCENE", sceneIds);
+            ownerClause(w, "PPROP", propIds);
+        });
+        List<Asset> assets = assetMapper.selectList(assetQuery);
+        if (assets.isEmpty()) {
+            return Map.of();
+        }
+
+        // 每个归属对象取最新的资产
+        Map<String, Asset> latestAssets = assets.stream()
+                .collect(Collectors.toMap(
+                        a -> assetKey(a.getOwnerType(), a.getOwnerId(), a.getAssetType()),
+                        Function.identity(),
+                        (a, b) -> ASSET_RECENCY.compare(a, b) >= 0 ? a : b));
+
+        // 一次查询这些资产的全部版本(不取prompt/params等大字段),在内存中求当前版本和版本数
+        List<Long> assetIds = latestAssets.values().stream().map(Asset::getId).toList();
+        List<AssetVersion> versions = assetVersionMapper.selectList(new LambdaQueryWrapper<AssetVersion>()
+                .select(AssetVersion::getId, AssetVersion::getAssetId, AssetVersion::getVersionNo,
+                        AssetVersion::getUrl, AssetVersion::getStatus)
+                .in(AssetVersion::getAssetId, assetIds));
+
+        Map<Long, List<AssetVersion>> versionsByAsset = versions.stream()
+                .collect(Collectors.groupingBy(AssetVersion::getAssetId));
+
+        Map<String, AssetStatusVO> result = new HashMap<>();
+        latestAssets.forEach((key, asset) -> {
+            List<AssetVersion> assetVersions = versionsByAsset.get(asset.getId());
+            if (assetVersions == null || assetVersions.isEmpty()) {
+                return;
+            }
+            AssetVersion current = assetVersions.stream()
+                    .max(Comparator.comparing(AssetVersion::getVersionNo,
+                            Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .orElseThrow();
+            result.put(key, new AssetStatusVO(
+                    asset.getId(),
+                    current.getId(),
+                    current.getUrl(),
+                    current.getStatus(),
+                    assetVersions.size()
+            ));
+        });
+        return result;
+    }
+
+    private void ownerClause(LambdaQueryWrapper<Asset> wrapper, String ownerType, Collection<Long> ownerIds) {
+        if (ownerIds.isEmpty()) {
+            return;
+        }
+        wrapper.or(n -> n.eq(Asset::getOwnerType, ownerType)
+                .in(Asset::getOwnerId, ownerIds)
+                .eq(Asset::getAssetType, "IMAGE"));
+    }
+
+    private static String assetKey(String ownerType, Long ownerId, String assetType) {
+        return ownerType + ":" + ownerId + ":" + assetType;
+    }
+
+    private static Set<Long> collectBindIds(List<ShotBinding> bindings, String bindType) {
+        return bindings.stream()
+                .filter(b -> bindType.equals(b.getBindType()))
+                .map(ShotBinding::getBindId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static <T> Map<Long, T> selectByIds(Function<Collection<Long>, List<T>> loader,
+                                                 Set<Long> ids, Function<T, Long> idGetter) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return loader.apply(ids).stream()
+                .collect(Collectors.toMap(idGetter, Function.identity(), (a, b) -> a));
+    }
+
+    private static <T> Map<Long, String> thumbnails(Function<Collection<Long>, List<T>> loader,
+                                                     Stream<Long> libraryIds,
+                                                     Function<T, Long> idGetter,
+                                                     Function<T, String> thumbnailGetter) {
+        Set<Long> ids = libraryIds.filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, String> result = new HashMap<>();
+        for (T library : loader.apply(ids)) {
+            String thumbnailUrl = thumbnailGetter.apply(library);
+            if (thumbnailUrl != null) {
+                result.put(idGetter.apply(library), thumbnailUrl);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,198 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ym.ai_story_studio_server.dto.shot.ShotVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 分镜列表视图缓存
+ *
+ * <p>按项目缓存组装好的{@link ShotVO}列表,两级读穿透:
+ * <ul>
+ *   <li>本地Caffeine缓存:命中时不访问MySQL也不做反序列化</li>
+ *   <li>Redis缓存:多节点共享,本地未命中时使用</li>
+ * </ul>
+ *
+ * <p>返回的列表不可修改,调用方需要调整时应自行复制
+ *
+ * <p><strong>失效方式:</strong> 每个项目在Redis中维护一个版本号,缓存键带版本号。
+ * 写操作提交后递增版本号,所有节点下一次读取时自然落到新键上,旧条目按TTL过期,
+ * 不需要跨节点广播。写操作处于事务中时在提交后才递增,避免读到未提交数据后回填旧值
+ *
+ * <p><strong>监控指标:</strong> 本地缓存通过{@code cache.gets/cache.evictions{cache=shot_view}},
+ * Redis层通过{@code cache.gets{cache=shot_view_redis}}暴露到{@code /actuator/metrics}
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class ShotViewCache {
+
+    private static final String VERSION_KEY_PREFIX = "SHOT:VIEW:VER:";
+    private static final String DATA_KEY_PREFIX = "SHOT:VIEW:DATA:";
+
+    /**
+     * 本地缓存最多保存的项目数
+     */
+    private static final long LOCAL_MAX_SIZE = 1000;
+
+    private static final Duration LOCAL_TTL = Duration.ofMinutes(10);
+    private static final Duration REDIS_TTL = Duration.ofMinutes(30);
+
+    /**
+     * 版本号的过期时间,必须远大于数据TTL,保证版本号重置时旧数据已过期
+     */
+    private static final Duration VERSION_TTL = Duration.ofDays(7);
+
+    private static final TypeReference<List<ShotVO>> SHOT_LIST_TYPE = new TypeReference<>() {};
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, List<ShotVO>> localCache;
+    private final Counter redisHits;
+    private final Counter redisMisses;
+    private final Counter invalidations;
+
+    public ShotViewCache(StringRedisTemplate redisTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(LOCAL_MAX_SIZE)
+                .expireAfterWrite(LOCAL_TTL)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, "shot_view");
+        this.redisHits = Counter.builder("cache.gets").tag("cache", "shot_view_redis").tag("result", "hit")
+                .register(meterRegistry);
+        this.redisMisses = Counter.builder("cache.gets").tag("cache", "shot_view_redis").tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("cache.invalidations").tag("cache", "shot_view")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 读取项目的分镜列表,未命中时调用loader加载并回填两级缓存
+     *
+     * <p>Redis不可用时直接调用loader,不影响主流程
+     *
+     * @param projectId 项目ID
+     * @param loader 从数据库加载分镜列表
+     * @return 分镜列表
+     */
+    public List<ShotVO> get(Long projectId, Supplier<List<ShotVO>> loader) {
+        String key;
+        try {
+            key = projectId + ":" + currentVersion(projectId);
+        } catch (Exception e) {
+            log.warn("读取分镜缓存版本失败,直接查询数据库 - projectId: {}, 错误: {}", projectId, e.getMessage());
+            return loader.get();
+        }
+
+        List<ShotVO> cached = localCache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        cached = readRedis(key);
+        if (cached != null) {
+            redisHits.increment();
+            cached = immutableCopy(cached);
+            localCache.put(key, cached);
+            return cached;
+        }
+        redisMisses.increment();
+
+        List<ShotVO> loaded = immutableCopy(loader.get());
+        localCache.put(key, loaded);
+        writeRedis(key, loaded);
+        return loaded;
+    }
+
+    /**
+     * 使项目的分镜列表缓存失效
+     *
+     * <p>在事务中调用时于提交后执行,事务回滚则不执行
+     *
+     * @param projectId 项目ID
+     */
+    public void evict(Long projectId) {
+        if (projectId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bumpVersion(projectId);
+                }
+            });
+        } else {
+            bumpVersion(projectId);
+        }
+    }
+
+    private void bumpVersion(Long projectId) {
+        invalidations.increment();
+        String prefix = projectId + ":";
+        localCache.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        try {
+            String versionKey = VERSION_KEY_PREFIX + projectId;
+            redisTemplate.opsForValue().increment(versionKey);
+            redisTemplate.expire(versionKey, VERSION_TTL);
+        } catch (Exception e) {
+            log.warn("分镜缓存失效失败,依赖TTL过期 - projectId: {}, 错误: {}", projectId, e.getMessage());
+        }
+    }
+
+    /**
+     * 本地缓存的列表会原样返回给所有调用方,存入前复制为不可变列表(包括嵌套的绑定列表),
+     * 调用方修改返回值时直接报错,不会污染其他请求读到的缓存
+     */
+    private static List<ShotVO> immutableCopy(List<ShotVO> shots) {
+        return shots.stream()
+                .map(shot -> new ShotVO(shot.id(), shot.shotNo(), shot.scriptText(),
+                        shot.characters() != null ? shot.characters().stream().toList() : null,
+                        shot.scene(),
+                        shot.props() != null ? shot.props().stream().toList() : null,
+                        shot.shotImage(), shot.video(), shot.createdAt(), shot.updatedAt()))
+                .toList();
+    }
+
+    private String currentVersion(Long projectId) {
+        String version = redisTemplate.opsForValue().get(VERSION_KEY_PREFIX + projectId);
+        return version != null ? version : "0";
+    }
+
+    private List<ShotVO> readRedis(String key) {
+        try {
+            String json = redisTemplate.opsForValue().get(DATA_KEY_PREFIX + key);
+            return json != null ? objectMapper.readValue(json, SHOT_LIST_TYPE) : null;
+        } catch (Exception e) {
+            log.warn("读取Redis分镜缓存失败 - key: {}, 错误: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(String key, List<ShotVO> shots) {
+        try {
+            redisTemplate.opsForValue().set(DATA_KEY_PREFIX + key, objectMapper.writeValueAsString(shots), REDIS_TTL);
+        } catch (Exception e) {
+            log.warn("写入Redis分镜缓存失败 - key: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+}
@@ -18,6 +18,7 @@ import java.io.InputStream;
  * <p>设计理念: 面向接口编程，支持多种存储提供商实现
  * <ul>
  *   <li>V1: 阿里云OSS实现 ({@code OssStorageServiceImpl})</li>
+ *   <li>本地目录实现 ({@code LocalStorageServiceImpl})，用于本地开发和压测</li>
  *   <li>V2规划: MinIO实现 ({@code MinioStorageServiceImpl})</li>
  * </ul>
  *
@@ -51,6 +52,36 @@ public interface StorageService {
      */
     String upload(InputStream inputStream, String fileName, String contentType);
 
+    /**
+     * 以固定大小的缓冲区分片上传大文件（视频等）
+     *
+     * <p>与{@link #upload}不同,不要求预先知道文件长度,也不会把整个文件读入内存:
+     * 每次只读取一个分片到复用的缓冲区并上传,单次传输的内存占用恒定为一个分片大小。
+     * 文件大小受实现的单文件上限约束,边读边计数,超限时中止上传
+     *
+     * @param inputStream 文件输入流（调用者负责关闭）
+     * @param fileName    原始文件名
+     * @param contentType 文件MIME类型
+     * @return 文件的公共访问URL
+     * @throws com.ym.ai_story_studio_server.exception.StorageException 上传失败或文件超过大小上限时抛出
+     */
+    String uploadStream(InputStream inputStream, String fileName, String contentType);
+
+    /**
+     * 以指定的大小上限分片上传大文件
+     *
+     * <p>用于明确允许超过单文件上限的内容(如项目导出压缩包)
+     *
+     * @param inputStream 文件输入流（调用者负责关闭）
+     * @param fileName    原始文件名
+     * @param contentType 文件MIME类型
+     * @param maxBytes    允许的最大字节数
+     * @return 文件的公共访问URL
+     * @throws com.ym.ai_story_studio_server.exception.StorageException 上传失败或文件超过大小上限时抛出
+     * @see #uploadStream(InputStream, String, String)
+     */
+    String uploadStream(InputStream inputStream, String fileName, String contentType, long maxBytes);
+
     /**
      * 上传字节数组到存储服务
      *
@@ -91,5 +122,16 @@ public interface StorageService {
      * @throws com.ym.ai_story_studio_server.exception.StorageException 生成失败时抛出
      */
     String generatePresignedUrl(String fileKey, int expirationMinutes);
+
+    /**
+     * 从文件访问URL中提取存储Key
+     *
+     * <p>与{@link #generatePresignedUrl(String, int)}配合,为以URL形式保存的文件生成临时访问链接
+     *
+     * @param fileUrl 文件的完整访问URL
+     * @return 文件的存储Key
+     * @throws com.ym.ai_story_studio_server.exception.StorageException URL无法解析时抛出
+     */
+    String extractFileKey(String fileUrl);
 }
 // {{END_MODIFICATIONS}}
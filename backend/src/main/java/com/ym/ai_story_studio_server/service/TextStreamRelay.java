@@ -0,0 +1,155 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.ym.ai_story_studio_server.common.Result;
+import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import com.ym.ai_story_studio_server.util.UserContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * 文本流SSE转发
+ *
+ * <p>把上游大模型的增量输出通过SSE转发给浏览器。Controller返回{@link SseEmitter}后Servlet线程立即释放,
+ * 生成任务在{@code textStreamExecutor}中执行。
+ *
+ * <p><strong>事件格式:</strong>
+ * <ul>
+ *   <li>{@code delta}: {@code {"content": "增量文本"}}</li>
+ *   <li>{@code done}: {@code Result.success(最终结果)},随后关闭连接</li>
+ *   <li>{@code error}: {@code Result.error(错误码, 错误信息)},随后关闭连接</li>
+ * </ul>
+ *
+ * <p>浏览器中途断开不会中止生成:后续事件被丢弃,任务照常完成并落库,结果可通过任务接口查询
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class TextStreamRelay {
+
+    /**
+     * SSE连接超时,覆盖最长的一次文本生成
+     */
+    private static final Duration EMITTER_TIMEOUT = Duration.ofMinutes(10);
+
+    private final Executor textStreamExecutor;
+
+    public TextStreamRelay(@Qualifier("textStreamExecutor") Executor textStreamExecutor) {
+        this.textStreamExecutor = textStreamExecutor;
+    }
+
+    /**
+     * 流式生成任务
+     *
+     * @param <T> 最终结果类型
+     */
+    @FunctionalInterface
+    public interface StreamTask<T> {
+
+        /**
+         * 执行生成,每段增量文本调用一次{@code onDelta}
+         *
+         * @param onDelta 增量文本回调
+         * @return 最终结果,作为{@code done}事件的数据
+         */
+        T run(Consumer<String> onDelta);
+    }
+
+    /**
+     * 在流式执行器中运行生成任务并返回SSE连接
+     *
+     * <p>任务线程继承当前请求的用户上下文
+     *
+     * @param task 生成任务
+     * @return SSE连接
+     * @throws BusinessException 流式执行器已满时抛出{@link ResultCode#AI_SERVICE_BUSY}
+     */
+    public <T> SseEmitter relay(StreamTask<T> task) {
+        Long userId = UserContext.getUserId();
+        Session session = new Session(new SseEmitter(EMITTER_TIMEOUT.toMillis()));
+        try {
+            textStreamExecutor.execute(() -> {
+                UserContext.setUserId(userId);
+                try {
+                    session.done(task.run(session::delta));
+                } catch (BusinessException e) {
+                    session.error(e.getCode(), e.getMessage());
+                } catch (Exception e) {
+                    log.error("流式生成任务失败 - userId: {}", userId, e);
+                    session.error(ResultCode.SYSTEM_ERROR.getCode(), "流式生成失败: " + e.getMessage());
+                } finally {
+                    UserContext.clear();
+                }
+            });
+        } catch (TaskRejectedException e) {
+            throw new BusinessException(ResultCode.AI_SERVICE_BUSY, "当前流式生成请求过多，请稍后再试");
+        }
+        return session.emitter;
+    }
+
+    /**
+     * 单个SSE连接;浏览器断开、超时后静默丢弃后续事件
+     */
+    private static final class Session {
+
+        private final SseEmitter emitter;
+        private volatile boolean closed;
+
+        Session(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(() -> closed = true);
+            emitter.onTimeout(() -> closed = true);
+            emitter.onError(e -> closed = true);
+        }
+
+        void delta(String content) {
+            send("delta", Map.of("content", content));
+        }
+
+        void done(Object result) {
+            send("done", Result.success(result));
+            complete();
+        }
+
+        void error(int code, String message) {
+            send("error", Result.error(code, message));
+            complete();
+        }
+
+        private void send(String event, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+                log.info("SSE连接已断开,后续事件丢弃 - event: {}, 原因: {}", event, e.getMessage());
+            }
+        }
+
+        private void complete() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                emitter.complete();
+            } catch (IllegalStateException e) {
+                log.debug("SSE连接已关闭: {}", e.getMessage());
+            }
+        }
+    }
+}
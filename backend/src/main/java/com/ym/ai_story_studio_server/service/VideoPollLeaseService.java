@@ -0,0 +1,176 @@
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 视频轮询租约服务
+ *
+ * <p>多节点部署时,每个在途视频任务通过jobs表上的{@code poll_owner}/{@code lease_until}
+ * 归属到唯一节点。持有者定期续期,节点宕机后租约过期,其他节点扫描到后接管轮询
+ *
+ * <p>所有租约操作都是带条件的单行UPDATE,由数据库保证同一时刻只有一个节点抢到租约
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+public class VideoPollLeaseService {
+
+    private final JobMapper jobMapper;
+    private final AiProperties aiProperties;
+
+    /**
+     * 当前节点ID(主机名+随机后缀,同一主机上的多个实例也能区分)
+     */
+    private final String nodeId;
+
+    public VideoPollLeaseService(JobMapper jobMapper, AiProperties aiProperties) {
+        this.jobMapper = jobMapper;
+        this.aiProperties = aiProperties;
+        this.nodeId = resolveHostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        log.info("视频轮询节点ID: {}", nodeId);
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 尝试获取任务的轮询租约
+     *
+     * <p>租约无人持有、已过期或本来就属于当前节点时获取成功
+     *
+     * @param jobId 任务ID
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(Long jobId) {
+        LocalDateTime now = LocalDateTime.now();
+        int updated = jobMapper.update(null, new LambdaUpdateWrapper<Job>()
+                .set(Job::getPollOwner, nodeId)
+                .set(Job::getLeaseUntil, leaseDeadline(now))
+                .eq(Job::getId, jobId)
+                .in(Job::getStatus, "PENDING", "RUNNING")
+                .and(w -> w.isNull(Job::getPollOwner)
+                        .or().eq(Job::getPollOwner, nodeId)
+                        .or().isNull(Job::getLeaseUntil)
+                        .or().lt(Job::getLeaseUntil, now)));
+        return updated > 0;
+    }
+
+    /**
+     * 批量续期当前节点持有的租约
+     *
+     * @param jobIds 本节点正在轮询的任务ID
+     * @return 续期成功的行数
+     */
+    public int renew(Collection<Long> jobIds) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return jobMapper.update(null, new LambdaUpdateWrapper<Job>()
+                .set(Job::getLeaseUntil, leaseDeadline(LocalDateTime.now()))
+                .in(Job::getId, jobIds)
+                .eq(Job::getPollOwner, nodeId));
+    }
+
+    /**
+     * 确认任务仍由本节点持有且未结束,并续期租约
+     *
+     * <p>转存视频、扣费等不可撤销的操作之前调用:节点因GC停顿或续期失败丢失租约后,
+     * 新持有者会重复处理同一任务,旧节点必须在动手前发现并放弃,而不是做完才在终态写回时发现
+     *
+     * @param jobId 任务ID
+     * @return 是否仍持有租约
+     */
+    public boolean confirmOwned(Long jobId) {
+        return jobMapper.update(null, ownedUpdate(jobId)
+                .set(Job::getLeaseUntil, leaseDeadline(LocalDateTime.now()))) > 0;
+    }
+
+    /**
+     * 释放租约(仅当仍由当前节点持有时)
+     *
+     * @param jobId 任务ID
+     */
+    public void release(Long jobId) {
+        jobMapper.update(null, new LambdaUpdateWrapper<Job>()
+                .set(Job::getPollOwner, null)
+                .set(Job::getLeaseUntil, null)
+                .eq(Job::getId, jobId)
+                .eq(Job::getPollOwner, nodeId));
+    }
+
+    /**
+     * 构造只对本节点持有的在途任务生效的更新条件
+     *
+     * <p>轮询方写回进度和结果时使用,只SET调用方指定的列,不会用过期的实体覆盖租约列;
+     * 租约已被其他节点接管或任务已结束时更新0行
+     *
+     * @param jobId 任务ID
+     * @return 已附加主键、持有者和状态条件的更新条件
+     */
+    public LambdaUpdateWrapper<Job> ownedUpdate(Long jobId) {
+        return new LambdaUpdateWrapper<Job>()
+                .eq(Job::getId, jobId)
+                .eq(Job::getPollOwner, nodeId)
+                .in(Job::getStatus, "PENDING", "RUNNING");
+    }
+
+    /**
+     * 判断任务当前是否由本节点持有
+     *
+     * @param job 最新查询的任务
+     * @return 是否由本节点持有
+     */
+    public boolean isOwnedByMe(Job job) {
+        return nodeId.equals(job.getPollOwner());
+    }
+
+    /**
+     * 按ID分页查询租约无人持有或已过期、且已提交到API的在途视频任务
+     *
+     * <p>尚未拿到apiTaskId的任务(排队中或提交时崩溃)由提交方负责,在SQL中排除,
+     * 否则这类任务积压到一页以上时每轮扫描都返回同一批行,真正需要接管的任务永远轮不到
+     *
+     * @param afterId 只返回ID大于该值的任务,首页传0
+     * @param limit 最多返回条数
+     * @return 可接管的任务,按ID升序
+     */
+    public List<Job> findOrphans(long afterId, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        return jobMapper.selectList(new LambdaQueryWrapper<Job>()
+                .eq(Job::getJobType, "SINGLE_SHOT_VIDEO")
+                .in(Job::getStatus, "PENDING", "RUNNING")
+                .gt(Job::getId, afterId)
+                .and(w -> w.isNull(Job::getLeaseUntil).or().lt(Job::getLeaseUntil, now))
+                .isNotNull(Job::getMetaJson)
+                .apply("JSON_TYPE(JSON_EXTRACT(meta_json, '$.apiTaskId')) = 'STRING'")
+                .orderByAsc(Job::getId)
+                .last("LIMIT " + limit));
+    }
+
+    private LocalDateTime leaseDeadline(LocalDateTime now) {
+        return now.plusNanos(aiProperties.getVideo().getLeaseTtl() * 1_000_000L);
+    }
+
+    private static String resolveHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.ym.ai_story_studio_server.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 视频任务轮询调度器
+ *
+ * <p>替代每个视频任务占用一个线程做{@code Thread.sleep}的轮询方式:
+ * 待检查的任务按下次检查时间放入延迟队列,单个调度线程每个tick取出所有到期任务,
+ * 交给少量工作线程执行一次检查。检查完成后由调用方决定是否以新的延迟重新入队
+ *
+ * <p>这样数千个在途视频任务只占用一个调度线程和固定数量的工作线程,
+ * 不会再挤占{@code taskExecutor}或因CallerRunsPolicy落到Tomcat请求线程上
+ *
+ * <p>调度线程同时负责续期轮询租约,因此从不执行检查本身:工作队列已满时本tick剩余的任务放回延迟队列,
+ * 下个tick再分发。成功后的视频下载和OSS转存耗时较长,通过{@link #submitTransfer}交给独立的转存线程池,
+ * 不占用检查线程
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Component
+public class VideoTaskPoller {
+
+    /**
+     * tick间隔(毫秒)
+     */
+    private static final long TICK_INTERVAL_MS = 500L;
+
+    /**
+     * 每个tick最多分发的检查数,避免瞬时积压把工作队列打满
+     */
+    private static final int MAX_CHECKS_PER_TICK = 200;
+
+    private final TaskScheduler videoPollScheduler;
+    private final Executor videoPollExecutor;
+    private final Executor videoTransferExecutor;
+
+    /**
+     * 按下次检查时间排序的待检查任务
+     */
+    private final DelayQueue<ScheduledCheck> queue = new DelayQueue<>();
+
+    public VideoTaskPoller(@Qualifier("videoPollScheduler") TaskScheduler videoPollScheduler,
+                           @Qualifier("videoPollExecutor") Executor videoPollExecutor,
+                           @Qualifier("videoTransferExecutor") Executor videoTransferExecutor) {
+        this.videoPollScheduler = videoPollScheduler;
+        this.videoPollExecutor = videoPollExecutor;
+        this.videoTransferExecutor = videoTransferExecutor;
+    }
+
+    @PostConstruct
+    public void start() {
+        videoPollScheduler.scheduleWithFixedDelay(this::tick, Duration.ofMillis(TICK_INTERVAL_MS));
+        log.info("视频任务轮询调度器已启动 - tick: {}ms, 每tick最多检查: {}", TICK_INTERVAL_MS, MAX_CHECKS_PER_TICK);
+    }
+
+    /**
+     * 在指定延迟后执行一次检查
+     *
+     * @param delayMillis 延迟(毫秒)
+     * @param check 检查逻辑(在工作线程中执行)
+     */
+    public void schedule(long delayMillis, Runnable check) {
+        queue.put(new ScheduledCheck(System.currentTimeMillis() + Math.max(0L, delayMillis), check));
+    }
+
+    /**
+     * 提交视频转存(下载并上传OSS)任务
+     *
+     * @param transfer 转存逻辑(在转存线程中执行)
+     * @return 是否提交成功;转存线程池已满时返回false,由调用方稍后重试
+     */
+    public boolean submitTransfer(Runnable transfer) {
+        try {
+            videoTransferExecutor.execute(() -> runSafely(transfer));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 在调度线程上周期执行维护任务(如租约续期),首次立即执行
+     *
+     * <p>维护任务与tick共用调度线程,应只包含少量数据库操作
+     *
+     * @param interval 执行间隔
+     * @param task 维护任务
+     */
+    public void scheduleMaintenance(Duration interval, Runnable task) {
+        videoPollScheduler.scheduleWithFixedDelay(() -> runSafely(task), interval);
+    }
+
+    /**
+     * 当前等待检查的任务数
+     */
+    public int pendingCount() {
+        return queue.size();
+    }
+
+    private void tick() {
+        List<ScheduledCheck> due = new ArrayList<>();
+        queue.drainTo(due, MAX_CHECKS_PER_TICK);
+        if (due.isEmpty()) {
+            return;
+        }
+
+        log.debug("视频轮询tick - 到期: {}, 剩余: {}", due.size(), queue.size());
+        for (int i = 0; i < due.size(); i++) {
+            ScheduledCheck scheduled = due.get(i);
+            try {
+                videoPollExecutor.execute(() -> runSafely(scheduled.check()));
+            } catch (RejectedExecutionException e) {
+                // 工作队列已满:剩余任务放回延迟队列,本tick不再分发,调度线程不执行检查
+                log.warn("视频轮询工作队列已满,{}个检查推迟到下个tick", due.size() - i);
+                due.subList(i, due.size()).forEach(queue::put);
+                return;
+            }
+        }
+    }
+
+    private void runSafely(Runnable check) {
+        try {
+            check.run();
+        } catch (Exception e) {
+            log.error("视频轮询检查执行异常", e);
+        }
+    }
+
+    /**
+     * 延迟队列元素
+     *
+     * @param dueAt 到期时间戳(毫秒)
+     * @param check 检查逻辑
+     */
+    private record ScheduledCheck(long dueAt, Runnable check) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueAt, ((ScheduledCheck) other).dueAt);
+        }
+    }
+}
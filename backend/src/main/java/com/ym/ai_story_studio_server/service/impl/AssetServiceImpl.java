@@ -9,6 +9,7 @@
 package com.ym.ai_story_studio_server.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.ym.ai_story_studio_server.client.HttpTransport;
 import com.ym.ai_story_studio_server.common.ResultCode;
 import com.ym.ai_story_studio_server.dto.asset.AssetVersionVO;
 import com.ym.ai_story_studio_server.dto.asset.SetCurrentVersionRequest;
@@ -22,6 +23,7 @@ import com.ym.ai_story_studio_server.mapper.AssetRefMapper;
 import com.ym.ai_story_studio_server.mapper.AssetVersionMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectMapper;
 import com.ym.ai_story_studio_server.service.AssetService;
+import com.ym.ai_story_studio_server.service.ShotViewCache;
 import com.ym.ai_story_studio_server.service.StorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -31,8 +33,6 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
@@ -55,6 +55,8 @@ public class AssetServiceImpl implements AssetService {
     private final AssetRefMapper assetRefMapper;
     private final ProjectMapper projectMapper;
     private final StorageService storageService;
+    private final HttpTransport httpTransport;
+    private final ShotViewCache shotViewCache;
 
     /**
      * 验证资产存在且用户有权限访问
@@ -215,6 +217,9 @@ public class AssetServiceImpl implements AssetService {
 
         log.info("新版本创建成功, versionId: {}, versionNo: {}", newVersion.getId(), newVersionNo);
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(asset.getProjectId());
+
         return new AssetVersionVO(
                 newVersion.getId(),
                 assetId,
@@ -264,10 +269,9 @@ public class AssetServiceImpl implements AssetService {
         String url;
         try {
             log.info("开始从URL下载图片: {}", imageUrl);
-            URL imageUrlObj = new URL(imageUrl);
-            try (InputStream inputStream = imageUrlObj.openStream()) {
+            try (HttpTransport.Download download = httpTransport.open(imageUrl)) {
                 // 读取所有字节到内存
-                byte[] imageBytes = inputStream.readAllBytes();
+                byte[] imageBytes = download.body().readAllBytes();
                 log.info("图片下载成功, 大小: {} bytes", imageBytes.length);
 
                 // 验证文件大小(限制10MB)
@@ -313,6 +317,9 @@ public class AssetServiceImpl implements AssetService {
 
         log.info("新版本创建成功, versionId: {}, versionNo: {}", newVersion.getId(), newVersionNo);
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(asset.getProjectId());
+
         return new AssetVersionVO(
                 newVersion.getId(),
                 assetId,
@@ -380,6 +387,9 @@ public class AssetServiceImpl implements AssetService {
             log.info("更新AssetRef记录, refId: {}, refType: {}", assetRef.getId(), refType);
         }
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(asset.getProjectId());
+
         log.info("当前版本设置成功");
     }
 
@@ -15,6 +15,7 @@ import com.ym.ai_story_studio_server.mapper.ShotBindingMapper;
 import com.ym.ai_story_studio_server.mapper.CharacterLibraryMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectCharacterMapper;
 import com.ym.ai_story_studio_server.service.CharacterLibraryService;
+import com.ym.ai_story_studio_server.service.LibraryShotViewEvictor;
 import com.ym.ai_story_studio_server.service.StorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -43,6 +44,7 @@ public class CharacterLibraryServiceImpl implements CharacterLibraryService {
     private final ProjectCharacterMapper projectCharacterMapper;
     private final ShotBindingMapper shotBindingMapper;
     private final StorageService storageService;
+    private final LibraryShotViewEvictor libraryShotViewEvictor;
 
     /**
      * 获取角色库列表(支持搜索和筛选)
@@ -210,6 +212,9 @@ public class CharacterLibraryServiceImpl implements CharacterLibraryService {
 
         // 保存到数据库
         characterLibraryMapper.updateById(character);
+        if (request.thumbnailUrl() != null) {
+            libraryShotViewEvictor.evictCharacter(characterId);
+        }
 
         log.info("角色更新成功, characterId: {}", characterId);
     }
@@ -263,6 +268,7 @@ public class CharacterLibraryServiceImpl implements CharacterLibraryService {
         // 软删除(设置deleted_at)
         character.setDeletedAt(LocalDateTime.now());
         characterLibraryMapper.updateById(character);
+        libraryShotViewEvictor.evictCharacter(characterId);
 
         log.info("角色删除成功, characterId: {}", characterId);
     }
@@ -301,6 +307,7 @@ public class CharacterLibraryServiceImpl implements CharacterLibraryService {
             // 更新角色的缩略图URL
             character.setThumbnailUrl(url);
             characterLibraryMapper.updateById(character);
+            libraryShotViewEvictor.evictCharacter(characterId);
 
             log.info("角色缩略图上传成功, characterId: {}, url: {}", characterId, url);
             return url;
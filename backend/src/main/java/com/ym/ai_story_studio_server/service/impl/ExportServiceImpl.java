@@ -1,29 +1,36 @@
 package com.ym.ai_story_studio_server.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.config.StorageProperties;
 import com.ym.ai_story_studio_server.dto.export.ExportRequest;
 import com.ym.ai_story_studio_server.entity.*;
 import com.ym.ai_story_studio_server.exception.BusinessException;
 import com.ym.ai_story_studio_server.mapper.*;
 import com.ym.ai_story_studio_server.service.ExportService;
-import lombok.RequiredArgsConstructor;
+import com.ym.ai_story_studio_server.service.ExportZipWriter;
+import com.ym.ai_story_studio_server.service.ExportZipWriter.ExportEntry;
+import com.ym.ai_story_studio_server.service.ExportZipWriter.WrittenEntry;
+import com.ym.ai_story_studio_server.service.JobEventHub;
+import com.ym.ai_story_studio_server.service.StorageService;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -32,12 +39,15 @@ import java.util.zip.ZipOutputStream;
  *
  * <p>实现项目数据导出功能,按分类文件夹组织资产
  *
+ * <p>增量导出:每次成功导出后在{@code jobs.meta_json}记录导出选项,以及覆盖的条目键(资产版本ID+URL哈希)
+ * 和实际包含该文件的导出任务;下次选项相同的增量导出只打包不在上次记录中的条目,
+ * 并附带manifest.json说明每个条目是新增还是沿用哪个任务包中的文件;包内相同内容只存一份
+ *
  * @author Roo (Prometheus)
  * @since 1.0.0
  */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class ExportServiceImpl implements ExportService {
 
     private final ProjectMapper projectMapper;
@@ -49,21 +59,59 @@ public class ExportServiceImpl implements ExportService {
     private final CharacterLibraryMapper characterLibraryMapper;
     private final SceneLibraryMapper sceneLibraryMapper;
     private final JobMapper jobMapper;
+    private final ExportZipWriter exportZipWriter;
+    private final StorageService storageService;
+    private final StorageProperties storageProperties;
+    private final ObjectMapper objectMapper;
+    private final Executor exportExecutor;
+    private final JobEventHub jobEventHub;
 
     /**
-     * 临时文件存储路径
+     * 导出压缩包的MIME类型
      */
-    private static final String TEMP_DIR = System.getProperty("java.io.tmpdir") + "/ai-story-exports/";
+    private static final String ZIP_CONTENT_TYPE = "application/zip";
 
     /**
-     * 导出任务状态缓存(jobId -> status)
+     * 增量导出包中的清单文件名
      */
-    private final ConcurrentHashMap<Long, String> exportStatusMap = new ConcurrentHashMap<>();
+    private static final String MANIFEST_ENTRY_NAME = "manifest.json";
 
     /**
-     * 导出文件路径缓存(jobId -> filePath)
+     * 查找增量导出基准时最多检查的最近成功导出任务数
      */
-    private final ConcurrentHashMap<Long, String> exportFileMap = new ConcurrentHashMap<>();
+    private static final int BASE_CANDIDATE_LIMIT = 20;
+
+    public ExportServiceImpl(ProjectMapper projectMapper,
+                             ProjectCharacterMapper projectCharacterMapper,
+                             ProjectSceneMapper projectSceneMapper,
+                             StoryboardShotMapper shotMapper,
+                             AssetVersionMapper assetVersionMapper,
+                             AssetRefMapper assetRefMapper,
+                             CharacterLibraryMapper characterLibraryMapper,
+                             SceneLibraryMapper sceneLibraryMapper,
+                             JobMapper jobMapper,
+                             ExportZipWriter exportZipWriter,
+                             StorageService storageService,
+                             StorageProperties storageProperties,
+                             ObjectMapper objectMapper,
+                             @Qualifier("exportExecutor") Executor exportExecutor,
+                             JobEventHub jobEventHub) {
+        this.projectMapper = projectMapper;
+        this.projectCharacterMapper = projectCharacterMapper;
+        this.projectSceneMapper = projectSceneMapper;
+        this.shotMapper = shotMapper;
+        this.assetVersionMapper = assetVersionMapper;
+        this.assetRefMapper = assetRefMapper;
+        this.characterLibraryMapper = characterLibraryMapper;
+        this.sceneLibraryMapper = sceneLibraryMapper;
+        this.jobMapper = jobMapper;
+        this.exportZipWriter = exportZipWriter;
+        this.storageService = storageService;
+        this.storageProperties = storageProperties;
+        this.objectMapper = objectMapper;
+        this.exportExecutor = exportExecutor;
+        this.jobEventHub = jobEventHub;
+    }
 
     @Override
     public Long submitExportTask(Long userId, Long projectId, ExportRequest request) {
@@ -94,15 +142,25 @@ public class ExportServiceImpl implements ExportService {
 
         log.info("导出任务创建成功: jobId={}", job.getId());
 
-        // 3. 异步执行导出
-        exportStatusMap.put(job.getId(), "RUNNING");
-        executeExportAsync(job.getId(), projectId, request);
+        // 3. 提交到导出线程池执行,请求线程立即返回
+        Long jobId = job.getId();
+        try {
+            exportExecutor.execute(() -> executeExport(jobId, projectId, request));
+        } catch (TaskRejectedException e) {
+            log.warn("导出队列已满,拒绝导出任务: jobId={}", jobId);
+            job.setStatus("FAILED");
+            job.setFinishedAt(LocalDateTime.now());
+            job.setErrorMessage(ResultCode.JOB_QUEUE_FULL.getMessage());
+            jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
+            throw new BusinessException(ResultCode.JOB_QUEUE_FULL);
+        }
 
-        return job.getId();
+        return jobId;
     }
 
     @Override
-    public Resource getExportFile(Long userId, Long jobId) {
+    public String getExportDownloadUrl(Long userId, Long jobId) {
         log.info("下载导出文件: userId={}, jobId={}", userId, jobId);
 
         // 1. 验证任务是否存在且属于当前用户
@@ -123,101 +181,111 @@ public class ExportServiceImpl implements ExportService {
             throw new BusinessException(ResultCode.PARAM_INVALID, "导出任务未完成,请稍后再试");
         }
 
-        // 3. 获取文件路径
-        String filePath = exportFileMap.get(jobId);
-        if (filePath == null) {
-            log.warn("导出文件路径不存在: jobId={}", jobId);
-            throw new BusinessException(ResultCode.RESOURCE_NOT_FOUND, "导出文件不存在");
-        }
-
-        File file = new File(filePath);
-        if (!file.exists()) {
-            log.warn("导出文件不存在: filePath={}", filePath);
+        // 3. 为对象存储中的导出文件生成临时下载链接
+        if (job.getResultUrl() == null) {
+            log.warn("导出文件不存在: jobId={}", jobId);
             throw new BusinessException(ResultCode.RESOURCE_NOT_FOUND, "导出文件不存在");
         }
 
-        return new FileSystemResource(file);
-    }
-
-    @Override
-    public String getExportFileName(Long jobId) {
-        Job job = jobMapper.selectById(jobId);
-        if (job == null) {
-            return "export.zip";
-        }
-
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "project_" + job.getProjectId() + "_export_" + timestamp + ".zip";
+        String fileKey = storageService.extractFileKey(job.getResultUrl());
+        return storageService.generatePresignedUrl(
+                fileKey, storageProperties.getExport().getDownloadUrlExpirationMinutes());
     }
 
     /**
-     * 异步执行导出任务
+     * 执行导出任务(在exportExecutor线程中运行)
+     *
+     * <p>先查询出全部导出条目,再交给{@link ExportZipWriter}并行下载、按顺序写入本地临时ZIP,
+     * 最后上传到对象存储并把URL记录到{@code jobs.result_url},任何节点都可以据此提供下载。
+     * 本地临时文件上传后立即删除
      *
      * @param jobId 任务ID
      * @param projectId 项目ID
      * @param request 导出请求
      */
-    @Async
-    public void executeExportAsync(Long jobId, Long projectId, ExportRequest request) {
+    private void executeExport(Long jobId, Long projectId, ExportRequest request) {
         log.info("开始执行导出任务: jobId={}, projectId={}", jobId, projectId);
 
+        Path zipFile = null;
         try {
             // 1. 更新任务状态为运行中
             Job job = jobMapper.selectById(jobId);
             job.setStatus("RUNNING");
             jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
 
             // 2. 创建临时目录
-            Path tempDir = Paths.get(TEMP_DIR);
-            if (!Files.exists(tempDir)) {
-                Files.createDirectories(tempDir);
-            }
+            Path tempDir = Paths.get(storageProperties.getExport().getTempDir());
+            Files.createDirectories(tempDir);
 
-            // 3. 创建ZIP文件
-            String zipFileName = "project_" + projectId + "_export_" + jobId + ".zip";
-            String zipFilePath = TEMP_DIR + zipFileName;
-            FileOutputStream fos = new FileOutputStream(zipFilePath);
-            ZipOutputStream zos = new ZipOutputStream(fos);
+            // 3. 收集导出条目
+            List<ExportEntry> entries = new ArrayList<>();
 
-            // 4. 导出角色画像
             if (request.exportCharacters()) {
                 log.debug("导出角色画像: jobId={}", jobId);
-                exportCharacters(projectId, request.mode(), zos);
+                exportCharacters(projectId, request.mode(), entries);
             }
 
-            // 5. 导出场景画像
             if (request.exportScenes()) {
                 log.debug("导出场景画像: jobId={}", jobId);
-                exportScenes(projectId, request.mode(), zos);
+                exportScenes(projectId, request.mode(), entries);
             }
 
-            // 6. 导出分镜图
             if (request.exportShotImages()) {
                 log.debug("导出分镜图: jobId={}", jobId);
-                exportShotImages(projectId, request.mode(), zos);
+                exportShotImages(projectId, request.mode(), entries);
             }
 
-            // 7. 导出视频
             if (request.exportVideos()) {
                 log.debug("导出视频: jobId={}", jobId);
-                exportVideos(projectId, request.mode(), zos);
+                exportVideos(projectId, request.mode(), entries);
             }
 
-            // 8. 关闭ZIP流
-            zos.close();
-            fos.close();
+            // 4. 增量导出时只保留相对上次成功导出新增或变化的条目
+            ExportBase base = request.incrementalEnabled() ? findLastExport(projectId, request) : null;
+            Map<String, Long> baseFiles = base != null ? base.files() : Map.of();
+            List<ExportEntry> delta = entries.stream()
+                    .filter(entry -> !baseFiles.containsKey(entryKey(entry)))
+                    .toList();
+            Map<String, Long> files = new LinkedHashMap<>();
+            entries.forEach(entry -> {
+                String key = entryKey(entry);
+                files.put(key, baseFiles.getOrDefault(key, jobId));
+            });
+            log.info("导出条目: jobId={}, 总数={}, 本次打包={}, 基准任务={}",
+                    jobId, entries.size(), delta.size(), base != null ? base.jobId() : null);
+
+            // 5. 并行下载并写入ZIP文件
+            String zipFileName = "project_" + projectId + "_export_" + jobId + ".zip";
+            zipFile = tempDir.resolve(zipFileName);
+            try (ZipOutputStream zos = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(zipFile)))) {
+                List<WrittenEntry> written = exportZipWriter.write(delta, tempDir, zos, request.incrementalEnabled());
+                if (request.incrementalEnabled()) {
+                    writeManifest(zos, buildManifest(jobId, projectId, request, base, entries, files, written));
+                }
+            }
 
-            // 9. 更新任务状态为成功
+            // 6. 上传到对象存储
+            String resultUrl;
+            try (InputStream in = Files.newInputStream(zipFile)) {
+                resultUrl = storageService.uploadStream(in, zipFileName, ZIP_CONTENT_TYPE,
+                        storageProperties.getExport().getMaxArchiveBytes());
+            }
+
+            // 7. 更新任务状态为成功,记录本次导出覆盖的条目作为下次增量导出的基准
             job = jobMapper.selectById(jobId);
             job.setStatus("SUCCEEDED");
             job.setProgress(100);
+            job.setResultUrl(resultUrl);
+            job.setMetaJson(objectMapper.writeValueAsString(new ExportMeta(
+                    request.mode(), request.exportCharacters(), request.exportScenes(),
+                    request.exportShotImages(), request.exportVideos(), request.incrementalEnabled(),
+                    base != null ? base.jobId() : null, files)));
             job.setFinishedAt(LocalDateTime.now());
             jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
 
-            exportStatusMap.put(jobId, "SUCCEEDED");
-            exportFileMap.put(jobId, zipFilePath);
-
-            log.info("导出任务执行成功: jobId={}, zipFile={}", jobId, zipFilePath);
+            log.info("导出任务执行成功: jobId={}, resultUrl={}", jobId, resultUrl);
 
         } catch (Exception e) {
             log.error("导出任务执行失败: jobId=" + jobId, e);
@@ -228,8 +296,176 @@ public class ExportServiceImpl implements ExportService {
             job.setFinishedAt(LocalDateTime.now());
             job.setErrorMessage(e.getMessage());
             jobMapper.updateById(job);
+            jobEventHub.publish(job.getUserId(), job);
+        } finally {
+            deleteQuietly(zipFile);
+        }
+    }
+
+    /**
+     * 查询项目最近一次导出模式和分类选项都与本次相同的成功导出任务
+     *
+     * <p>选项不同的导出覆盖的条目不同,不能作为基准,否则会把未导出过的分类当作"未变化"、
+     * 把本次未选的分类当作"已删除";只检查最近{@value #BASE_CANDIDATE_LIMIT}个任务,
+     * 都不匹配(包括早期没有记录选项的任务)时按全量导出
+     *
+     * @return 基准任务及其文件来源,没有可用基准时返回null
+     */
+    private ExportBase findLastExport(Long projectId, ExportRequest request) {
+        List<Job> candidates = jobMapper.selectList(new LambdaQueryWrapper<Job>()
+                .eq(Job::getProjectId, projectId)
+                .eq(Job::getJobType, "EXPORT_ZIP")
+                .eq(Job::getStatus, "SUCCEEDED")
+                .isNotNull(Job::getMetaJson)
+                .orderByDesc(Job::getId)
+                .last("LIMIT " + BASE_CANDIDATE_LIMIT));
+        for (Job candidate : candidates) {
+            ExportMeta meta = readMeta(candidate);
+            if (meta != null && meta.files() != null && meta.sameOptions(request)) {
+                return new ExportBase(candidate.getId(), meta.files());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取导出任务的meta_json,解析失败时视为不可用的基准
+     */
+    private ExportMeta readMeta(Job job) {
+        try {
+            return objectMapper.readValue(job.getMetaJson(), ExportMeta.class);
+        } catch (Exception e) {
+            log.warn("解析导出基准失败,跳过: jobId={}, 错误: {}", job.getId(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 条目键:资产版本ID + URL哈希,版本重新生成或文件地址变化都会产生新的键
+     */
+    static String entryKey(ExportEntry entry) {
+        return entry.assetVersionId() + ":" + urlHash(entry.url());
+    }
+
+    private static String urlHash(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 
-            exportStatusMap.put(jobId, "FAILED");
+    private ExportManifest buildManifest(Long jobId, Long projectId, ExportRequest request, ExportBase base,
+                                         List<ExportEntry> entries, Map<String, Long> files,
+                                         List<WrittenEntry> written) {
+        Map<ExportEntry, WrittenEntry> writtenByEntry = new IdentityHashMap<>();
+        written.forEach(w -> writtenByEntry.put(w.entry(), w));
+
+        Set<String> currentKeys = new HashSet<>();
+        List<ManifestEntry> manifestEntries = new ArrayList<>(entries.size());
+        for (ExportEntry entry : entries) {
+            String key = entryKey(entry);
+            currentKeys.add(key);
+            WrittenEntry w = writtenByEntry.get(entry);
+            manifestEntries.add(w != null
+                    ? new ManifestEntry(entry.entryName(), entry.assetVersionId(), key, "ADDED",
+                            w.size(), w.sha256(), w.sameAs(), null)
+                    : new ManifestEntry(entry.entryName(), entry.assetVersionId(), key, "UNCHANGED",
+                            null, null, null, files.get(key)));
+        }
+
+        List<String> removed = base == null ? List.of() : base.files().keySet().stream()
+                .filter(key -> !currentKeys.contains(key))
+                .toList();
+        return new ExportManifest(jobId, projectId, request.mode(), base != null ? base.jobId() : null,
+                LocalDateTime.now().toString(), manifestEntries, removed);
+    }
+
+    private void writeManifest(ZipOutputStream zos, ExportManifest manifest) throws IOException {
+        zos.putNextEntry(new ZipEntry(MANIFEST_ENTRY_NAME));
+        zos.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+        zos.closeEntry();
+    }
+
+    /**
+     * 导出任务的meta_json
+     *
+     * @param mode 导出模式
+     * @param exportCharacters 是否导出角色画像
+     * @param exportScenes 是否导出场景画像
+     * @param exportShotImages 是否导出分镜图
+     * @param exportVideos 是否导出视频
+     * @param incremental 是否增量导出
+     * @param baseJobId 增量导出的基准任务ID
+     * @param files 本次导出覆盖的全部条目键(含增量导出中未变化的条目) -> 实际包含该文件的导出任务ID;
+     *              未变化的条目沿用基准记录的任务,连续增量导出时可能早于基准任务
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record ExportMeta(String mode, Boolean exportCharacters, Boolean exportScenes, Boolean exportShotImages,
+                      Boolean exportVideos, Boolean incremental, Long baseJobId, Map<String, Long> files) {
+
+        /**
+         * 导出模式和分类选项是否与请求相同
+         */
+        boolean sameOptions(ExportRequest request) {
+            return Objects.equals(mode, request.mode())
+                    && Objects.equals(exportCharacters, request.exportCharacters())
+                    && Objects.equals(exportScenes, request.exportScenes())
+                    && Objects.equals(exportShotImages, request.exportShotImages())
+                    && Objects.equals(exportVideos, request.exportVideos());
+        }
+    }
+
+    /**
+     * 增量导出基准
+     *
+     * @param jobId 基准任务ID
+     * @param files 基准覆盖的条目键 -> 实际包含该文件的导出任务ID
+     */
+    record ExportBase(Long jobId, Map<String, Long> files) {}
+
+    /**
+     * 增量导出包中的manifest.json
+     *
+     * @param jobId 导出任务ID
+     * @param projectId 项目ID
+     * @param mode 导出模式
+     * @param baseJobId 基准任务ID,为null表示没有可用基准,本次包含全部条目
+     * @param generatedAt 生成时间
+     * @param entries 当前项目的全部条目及其在本包中的状态
+     * @param removed 基准中存在、当前已不存在的条目键
+     */
+    record ExportManifest(Long jobId, Long projectId, String mode, Long baseJobId, String generatedAt,
+                          List<ManifestEntry> entries, List<String> removed) {}
+
+    /**
+     * manifest条目
+     *
+     * @param path ZIP内路径
+     * @param assetVersionId 资产版本ID
+     * @param key 条目键
+     * @param status ADDED(本包包含)/UNCHANGED(沿用之前导出包中的文件)
+     * @param size 内容字节数(仅ADDED)
+     * @param sha256 内容SHA-256(仅ADDED)
+     * @param sameAs 内容与本包中另一条目相同,仅写入了该条目
+     * @param sourceJobId 实际包含该文件的导出任务ID(仅UNCHANGED)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    record ManifestEntry(String path, Long assetVersionId, String key, String status,
+                         Long size, String sha256, String sameAs, Long sourceJobId) {}
+
+    /**
+     * 删除本地临时文件,失败时留给定时清理任务处理
+     */
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("删除导出临时文件失败: {}", path);
         }
     }
 
@@ -240,9 +476,9 @@ public class ExportServiceImpl implements ExportService {
      *
      * @param projectId 项目ID
      * @param mode 导出模式(CURRENT/ALL)
-     * @param zos ZIP输出流
+     * @param entries 收集到的导出条目
      */
-    private void exportCharacters(Long projectId, String mode, ZipOutputStream zos) throws Exception {
+    private void exportCharacters(Long projectId, String mode, List<ExportEntry> entries) {
         List<ProjectCharacter> characters = projectCharacterMapper.selectList(
                 new LambdaQueryWrapper<ProjectCharacter>()
                         .eq(ProjectCharacter::getProjectId, projectId)
@@ -278,7 +514,7 @@ public class ExportServiceImpl implements ExportService {
                     AssetVersion version = assetVersionMapper.selectById(assetRef.getAssetVersionId());
                     if (version != null && version.getUrl() != null) {
                         String fileName = folderName + "当前版本" + getFileExtension(version.getUrl());
-                        downloadAndAddToZip(version.getUrl(), fileName, zos);
+                        entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                     }
                 }
             } else {
@@ -306,7 +542,7 @@ public class ExportServiceImpl implements ExportService {
                         for (AssetVersion version : versions) {
                             if (version.getUrl() != null) {
                                 String fileName = folderName + String.format("版本%02d", versionIndex) + getFileExtension(version.getUrl());
-                                downloadAndAddToZip(version.getUrl(), fileName, zos);
+                                entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                                 versionIndex++;
                             }
                         }
@@ -325,9 +561,9 @@ public class ExportServiceImpl implements ExportService {
      *
      * @param projectId 项目ID
      * @param mode 导出模式(CURRENT/ALL)
-     * @param zos ZIP输出流
+     * @param entries 收集到的导出条目
      */
-    private void exportScenes(Long projectId, String mode, ZipOutputStream zos) throws Exception {
+    private void exportScenes(Long projectId, String mode, List<ExportEntry> entries) {
         List<ProjectScene> scenes = projectSceneMapper.selectList(
                 new LambdaQueryWrapper<ProjectScene>()
                         .eq(ProjectScene::getProjectId, projectId)
@@ -363,7 +599,7 @@ public class ExportServiceImpl implements ExportService {
                     AssetVersion version = assetVersionMapper.selectById(assetRef.getAssetVersionId());
                     if (version != null && version.getUrl() != null) {
                         String fileName = folderName + "当前版本" + getFileExtension(version.getUrl());
-                        downloadAndAddToZip(version.getUrl(), fileName, zos);
+                        entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                     }
                 }
             } else {
@@ -390,7 +626,7 @@ public class ExportServiceImpl implements ExportService {
                         for (AssetVersion version : versions) {
                             if (version.getUrl() != null) {
                                 String fileName = folderName + String.format("版本%02d", versionIndex) + getFileExtension(version.getUrl());
-                                downloadAndAddToZip(version.getUrl(), fileName, zos);
+                                entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                                 versionIndex++;
                             }
                         }
@@ -409,9 +645,9 @@ public class ExportServiceImpl implements ExportService {
      *
      * @param projectId 项目ID
      * @param mode 导出模式(CURRENT/ALL)
-     * @param zos ZIP输出流
+     * @param entries 收集到的导出条目
      */
-    private void exportShotImages(Long projectId, String mode, ZipOutputStream zos) throws Exception {
+    private void exportShotImages(Long projectId, String mode, List<ExportEntry> entries) {
         List<StoryboardShot> shots = shotMapper.selectList(
                 new LambdaQueryWrapper<StoryboardShot>()
                         .eq(StoryboardShot::getProjectId, projectId)
@@ -435,7 +671,7 @@ public class ExportServiceImpl implements ExportService {
                     AssetVersion version = assetVersionMapper.selectById(assetRef.getAssetVersionId());
                     if (version != null && version.getUrl() != null) {
                         String fileName = folderName + "当前版本" + getFileExtension(version.getUrl());
-                        downloadAndAddToZip(version.getUrl(), fileName, zos);
+                        entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                     }
                 }
             } else {
@@ -462,7 +698,7 @@ public class ExportServiceImpl implements ExportService {
                         for (AssetVersion version : versions) {
                             if (version.getUrl() != null) {
                                 String fileName = folderName + String.format("版本%02d", versionIndex) + getFileExtension(version.getUrl());
-                                downloadAndAddToZip(version.getUrl(), fileName, zos);
+                                entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                                 versionIndex++;
                             }
                         }
@@ -479,9 +715,9 @@ public class ExportServiceImpl implements ExportService {
      *
      * @param projectId 项目ID
      * @param mode 导出模式(CURRENT/ALL)
-     * @param zos ZIP输出流
+     * @param entries 收集到的导出条目
      */
-    private void exportVideos(Long projectId, String mode, ZipOutputStream zos) throws Exception {
+    private void exportVideos(Long projectId, String mode, List<ExportEntry> entries) {
         List<StoryboardShot> shots = shotMapper.selectList(
                 new LambdaQueryWrapper<StoryboardShot>()
                         .eq(StoryboardShot::getProjectId, projectId)
@@ -505,7 +741,7 @@ public class ExportServiceImpl implements ExportService {
                     AssetVersion version = assetVersionMapper.selectById(assetRef.getAssetVersionId());
                     if (version != null && version.getUrl() != null) {
                         String fileName = folderName + "当前版本" + getFileExtension(version.getUrl());
-                        downloadAndAddToZip(version.getUrl(), fileName, zos);
+                        entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                     }
                 }
             } else {
@@ -532,7 +768,7 @@ public class ExportServiceImpl implements ExportService {
                         for (AssetVersion version : versions) {
                             if (version.getUrl() != null) {
                                 String fileName = folderName + String.format("版本%02d", versionIndex) + getFileExtension(version.getUrl());
-                                downloadAndAddToZip(version.getUrl(), fileName, zos);
+                                entries.add(new ExportEntry(fileName, version.getUrl(), version.getId()));
                                 versionIndex++;
                             }
                         }
@@ -542,38 +778,6 @@ public class ExportServiceImpl implements ExportService {
         }
     }
 
-    /**
-     * 从URL下载文件并添加到ZIP
-     *
-     * @param fileUrl 文件URL
-     * @param zipEntryName ZIP内的文件名
-     * @param zos ZIP输出流
-     */
-    private void downloadAndAddToZip(String fileUrl, String zipEntryName, ZipOutputStream zos) throws Exception {
-        log.debug("下载文件到ZIP: url={}, entry={}", fileUrl, zipEntryName);
-
-        URL url = new URL(fileUrl);
-        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-        connection.setRequestMethod("GET");
-        connection.setConnectTimeout(10000);
-        connection.setReadTimeout(30000);
-
-        try (InputStream inputStream = connection.getInputStream()) {
-            ZipEntry zipEntry = new ZipEntry(zipEntryName);
-            zos.putNextEntry(zipEntry);
-
-            byte[] buffer = new byte[8192];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(buffer)) != -1) {
-                zos.write(buffer, 0, bytesRead);
-            }
-
-            zos.closeEntry();
-        } finally {
-            connection.disconnect();
-        }
-    }
-
     /**
      * 获取文件扩展名
      *
@@ -24,12 +24,15 @@ import com.ym.ai_story_studio_server.exception.BusinessException;
 import com.ym.ai_story_studio_server.mapper.JobItemMapper;
 import com.ym.ai_story_studio_server.mapper.JobMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectMapper;
+import com.ym.ai_story_studio_server.mq.MQFairReleaser;
+import com.ym.ai_story_studio_server.service.JobEventHub;
 import com.ym.ai_story_studio_server.service.JobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
@@ -54,6 +57,8 @@ public class JobServiceImpl implements JobService {
     private final JobItemMapper jobItemMapper;
     private final ProjectMapper projectMapper;
     private final ObjectMapper objectMapper;
+    private final JobEventHub jobEventHub;
+    private final MQFairReleaser fairReleaser;
 
     /**
      * 分页查询任务列表(支持搜索和筛选)
@@ -250,8 +255,46 @@ public class JobServiceImpl implements JobService {
         job.setStatus("CANCELED");
         job.setFinishedAt(LocalDateTime.now());
         jobMapper.updateById(job);
+        jobEventHub.publish(userId, job);
 
-        log.info("任务取消成功, jobId: {}", jobId);
+        // 5. 删除尚未放行的批量子项消息,已放行的子项由执行器按任务状态跳过
+        int discarded = fairReleaser.discardHeld(jobId);
+
+        log.info("任务取消成功, jobId: {}, 删除未放行消息: {}", jobId, discarded);
+    }
+
+    /**
+     * 订阅当前用户所有任务的状态/进度事件
+     *
+     * @param userId 当前用户ID
+     * @return SSE连接
+     */
+    @Override
+    public SseEmitter subscribeJobEvents(Long userId) {
+        log.info("订阅任务事件, userId: {}", userId);
+        return jobEventHub.subscribeUser(userId);
+    }
+
+    /**
+     * 订阅单个任务的状态/进度事件
+     *
+     * @param userId 当前用户ID(用于权限验证)
+     * @param jobId 任务ID
+     * @return SSE连接
+     */
+    @Override
+    public SseEmitter subscribeJobEvents(Long userId, Long jobId) {
+        log.info("订阅任务事件, userId: {}, jobId: {}", userId, jobId);
+
+        Job job = jobMapper.selectById(jobId);
+        if (job == null) {
+            throw new BusinessException(ResultCode.JOB_NOT_FOUND);
+        }
+        if (!job.getUserId().equals(userId)) {
+            throw new BusinessException(ResultCode.ACCESS_DENIED);
+        }
+
+        return jobEventHub.subscribeJob(userId, job);
     }
 
     /**
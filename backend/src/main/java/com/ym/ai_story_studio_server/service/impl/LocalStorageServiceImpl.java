@@ -0,0 +1,167 @@
+package com.ym.ai_story_studio_server.service.impl;
+
+import com.ym.ai_story_studio_server.config.StorageProperties;
+import com.ym.ai_story_studio_server.exception.StorageException;
+import com.ym.ai_story_studio_server.service.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * 本地目录存储服务实现（开发、压测环境）
+ *
+ * <p>文件写入{@code storage.local.dir},返回{@code storage.local.url-prefix}下的URL,
+ * 由{@link com.ym.ai_story_studio_server.config.WebConfig}映射的{@code /local-storage/**}提供访问,
+ * 因此参考图下载、视频首帧等依赖文件URL的流程可以不经过OSS完整跑通
+ *
+ * <p>文件Key格式与OSS实现一致:{@code yyyy/MM/dd/{uuid}_{fileName}}
+ *
+ * <p>当配置 storage.provider=local 时生效
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+public class LocalStorageServiceImpl implements StorageService {
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+
+    /**
+     * 流式上传的文件大小上限(100MB),与OSS实现一致
+     */
+    private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
+
+    private final StorageProperties storageProperties;
+    private final Path root;
+
+    public LocalStorageServiceImpl(StorageProperties storageProperties) {
+        this.storageProperties = storageProperties;
+        this.root = Paths.get(storageProperties.getLocal().getDir()).toAbsolutePath().normalize();
+        log.info("本地存储已启用 - 目录: {}, URL前缀: {}", root, storageProperties.getLocal().getUrlPrefix());
+    }
+
+    @Override
+    public String upload(InputStream inputStream, String fileName, String contentType) {
+        String fileKey = generateFileKey(fileName);
+        try {
+            Path file = resolve(fileKey);
+            Files.createDirectories(file.getParent());
+            long size = Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+            log.debug("本地存储写入完成 - key: {}, 大小: {} bytes", fileKey, size);
+            return generatePresignedUrl(fileKey, 0);
+        } catch (IOException e) {
+            throw new StorageException("UPLOAD_FAILED", "文件上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String uploadStream(InputStream inputStream, String fileName, String contentType) {
+        return uploadStream(inputStream, fileName, contentType, MAX_FILE_SIZE);
+    }
+
+    @Override
+    public String uploadStream(InputStream inputStream, String fileName, String contentType, long maxBytes) {
+        String fileKey = generateFileKey(fileName);
+        Path file = resolve(fileKey);
+        try {
+            Files.createDirectories(file.getParent());
+            long size = Files.copy(new SizeLimitedInputStream(inputStream, maxBytes), file,
+                    StandardCopyOption.REPLACE_EXISTING);
+            log.debug("本地存储写入完成 - key: {}, 大小: {} bytes", fileKey, size);
+            return generatePresignedUrl(fileKey, 0);
+        } catch (IOException | StorageException e) {
+            // 超限或中断时删除已写入的部分文件
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                log.warn("删除未完成的本地文件失败: {}", file);
+            }
+            if (e instanceof StorageException storageException) {
+                throw storageException;
+            }
+            throw new StorageException("UPLOAD_FAILED", "文件上传失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String uploadImageBytes(byte[] imageBytes, String fileName) {
+        return upload(new ByteArrayInputStream(imageBytes), fileName, "image/png");
+    }
+
+    @Override
+    public InputStream download(String fileUrl) {
+        try {
+            return Files.newInputStream(resolve(extractFileKey(fileUrl)));
+        } catch (IOException e) {
+            throw new StorageException("DOWNLOAD_FAILED", "文件下载失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void delete(String fileUrl) {
+        try {
+            Files.deleteIfExists(resolve(extractFileKey(fileUrl)));
+        } catch (IOException e) {
+            throw new StorageException("DELETE_FAILED", "文件删除失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 本地文件无需签名,直接返回访问URL
+     */
+    @Override
+    public String generatePresignedUrl(String fileKey, int expirationMinutes) {
+        return storageProperties.getLocal().getUrlPrefix() + "/" + fileKey;
+    }
+
+    @Override
+    public String extractFileKey(String fileUrl) {
+        if (!StringUtils.hasText(fileUrl)) {
+            throw new StorageException("INVALID_URL", "文件URL不能为空");
+        }
+        String prefix = storageProperties.getLocal().getUrlPrefix() + "/";
+        if (fileUrl.startsWith(prefix)) {
+            return fileUrl.substring(prefix.length());
+        }
+        try {
+            String path = URI.create(fileUrl).getPath();
+            int index = path.indexOf("/local-storage/");
+            return index >= 0 ? path.substring(index + "/local-storage/".length()) : path.replaceFirst("^/", "");
+        } catch (IllegalArgumentException e) {
+            throw new StorageException("INVALID_URL", "无法从URL提取文件Key: " + fileUrl, e);
+        }
+    }
+
+    /**
+     * 文件Key转为存储目录下的路径,拒绝越出存储目录的Key
+     */
+    private Path resolve(String fileKey) {
+        Path file = root.resolve(fileKey).normalize();
+        if (!file.startsWith(root)) {
+            throw new StorageException("INVALID_URL", "非法的文件Key: " + fileKey);
+        }
+        return file;
+    }
+
+    private String generateFileKey(String originalFileName) {
+        String name = StringUtils.hasText(originalFileName)
+                ? Paths.get(originalFileName).getFileName().toString().replaceAll("[^a-zA-Z0-9._-]", "_")
+                : "unnamed_file";
+        return String.format("%s/%s_%s", LocalDateTime.now().format(DATE_FORMATTER), UUID.randomUUID(), name);
+    }
+}
@@ -12,8 +12,13 @@ import com.aliyun.oss.OSS;
 import com.aliyun.oss.ClientBuilderConfiguration;
 import com.aliyun.oss.OSSClientBuilder;
 import com.aliyun.oss.OSSException;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
 import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
 import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
 import com.ym.ai_story_studio_server.config.StorageProperties;
 import com.ym.ai_story_studio_server.exception.StorageException;
 import com.ym.ai_story_studio_server.service.StorageService;
@@ -29,7 +34,9 @@ import java.io.InputStream;
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -78,7 +85,9 @@ public class OssStorageServiceImpl implements StorageService {
             "image/webp", "image/bmp", "image/svg+xml",
             // 视频格式
             "video/mp4", "video/webm", "video/ogg", "video/avi",
-            "video/quicktime", "video/x-msvideo"
+            "video/quicktime", "video/x-msvideo",
+            // 项目导出压缩包
+            "application/zip"
     );
 
     /**
@@ -86,6 +95,11 @@ public class OssStorageServiceImpl implements StorageService {
      */
     private static final long MAX_FILE_SIZE = 100 * 1024 * 1024;
 
+    /**
+     * 分片上传的分片大小（2MB，OSS要求除最后一片外不小于100KB）
+     */
+    private static final int STREAM_PART_SIZE = 2 * 1024 * 1024;
+
     /**
      * 日期格式化器（用于生成文件路径）
      */
@@ -233,6 +247,111 @@ public class OssStorageServiceImpl implements StorageService {
         }
     }
 
+    /**
+     * 分片上传文件流到阿里云OSS
+     *
+     * <p>每次读取一个分片到复用的缓冲区后调用UploadPart,内存占用恒定为{@link #STREAM_PART_SIZE};
+     * 首个分片即读完时退化为单次PutObject。完成后记录传输字节数、耗时和吞吐量。
+     * 文件大小上限为{@link #MAX_FILE_SIZE}
+     *
+     * @param inputStream 文件输入流
+     * @param fileName    原始文件名
+     * @param contentType 文件MIME类型
+     * @return 文件的公共访问URL
+     * @throws StorageException 上传失败或文件超过大小上限时抛出
+     */
+    @Override
+    public String uploadStream(InputStream inputStream, String fileName, String contentType) {
+        return uploadStream(inputStream, fileName, contentType, MAX_FILE_SIZE);
+    }
+
+    /**
+     * 以指定的大小上限分片上传文件流到阿里云OSS
+     *
+     * <p>读取的字节数超过上限时在上传该分片之前失败,已开始的分片上传会被取消
+     *
+     * @param inputStream 文件输入流
+     * @param fileName    原始文件名
+     * @param contentType 文件MIME类型
+     * @param maxBytes    允许的最大字节数
+     * @return 文件的公共访问URL
+     * @throws StorageException 上传失败或文件超过大小上限时抛出
+     */
+    @Override
+    public String uploadStream(InputStream inputStream, String fileName, String contentType, long maxBytes) {
+        log.info("开始分片上传文件: fileName={}, contentType={}, maxBytes={}", fileName, contentType, maxBytes);
+        inputStream = new SizeLimitedInputStream(inputStream, maxBytes);
+
+        validateContentType(contentType);
+
+        String fileKey = generateFileKey(fileName);
+        String bucket = storageProperties.getOss().getBucket();
+        long startTime = System.nanoTime();
+        byte[] buffer = new byte[STREAM_PART_SIZE];
+        String uploadId = null;
+
+        try {
+            int read = inputStream.readNBytes(buffer, 0, buffer.length);
+            long totalBytes = read;
+
+            if (read < buffer.length) {
+                // 小文件:一个分片即读完,直接PutObject
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentType(contentType);
+                metadata.setContentLength(read);
+                ossClient.putObject(bucket, fileKey, new ByteArrayInputStream(buffer, 0, read), metadata);
+            } else {
+                ObjectMetadata metadata = new ObjectMetadata();
+                metadata.setContentType(contentType);
+                InitiateMultipartUploadRequest initRequest = new InitiateMultipartUploadRequest(bucket, fileKey, metadata);
+                uploadId = ossClient.initiateMultipartUpload(initRequest).getUploadId();
+
+                List<PartETag> partETags = new ArrayList<>();
+                int partNumber = 1;
+                while (read > 0) {
+                    UploadPartRequest partRequest = new UploadPartRequest();
+                    partRequest.setBucketName(bucket);
+                    partRequest.setKey(fileKey);
+                    partRequest.setUploadId(uploadId);
+                    partRequest.setPartNumber(partNumber++);
+                    partRequest.setPartSize(read);
+                    partRequest.setInputStream(new ByteArrayInputStream(buffer, 0, read));
+                    partETags.add(ossClient.uploadPart(partRequest).getPartETag());
+
+                    read = inputStream.readNBytes(buffer, 0, buffer.length);
+                    totalBytes += read;
+                }
+
+                ossClient.completeMultipartUpload(
+                        new CompleteMultipartUploadRequest(bucket, fileKey, uploadId, partETags));
+            }
+
+            String fileUrl = generateFileUrl(fileKey);
+            long elapsedMs = Math.max(1L, (System.nanoTime() - startTime) / 1_000_000L);
+            log.info("文件分片上传成功: fileKey={}, bytes={}, 耗时={}ms, 吞吐量={} MB/s",
+                    fileKey, totalBytes, elapsedMs,
+                    String.format("%.2f", totalBytes * 1000.0 / elapsedMs / (1024 * 1024)));
+            return fileUrl;
+
+        } catch (Exception e) {
+            if (uploadId != null) {
+                abortQuietly(bucket, fileKey, uploadId);
+            }
+            if (e instanceof StorageException storageException) {
+                log.warn("文件分片上传被拒绝: fileName={}, 原因: {}", fileName, storageException.getMessage());
+                throw storageException;
+            }
+            if (e instanceof OSSException ossException) {
+                log.error("OSS分片上传失败: ErrorCode={}, ErrorMessage={}",
+                        ossException.getErrorCode(), ossException.getErrorMessage(), e);
+                throw new StorageException("UPLOAD_FAILED",
+                        "文件上传失败: " + ossException.getErrorMessage(), e);
+            }
+            log.error("文件分片上传失败", e);
+            throw new StorageException("UPLOAD_FAILED", "文件上传失败: " + e.getMessage(), e);
+        }
+    }
+
     /**
      * 上传字节数组到阿里云OSS
      *
@@ -360,8 +479,24 @@ public class OssStorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public String extractFileKey(String fileUrl) {
+        return extractFileKeyFromUrl(fileUrl);
+    }
+
     // ==================== 私有辅助方法 ====================
 
+    /**
+     * 取消未完成的分片上传,释放OSS上已上传的分片
+     */
+    private void abortQuietly(String bucket, String fileKey, String uploadId) {
+        try {
+            ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, fileKey, uploadId));
+        } catch (Exception e) {
+            log.warn("取消分片上传失败: fileKey={}, uploadId={}", fileKey, uploadId, e);
+        }
+    }
+
     /**
      * 验证OSS配置完整性
      */
@@ -17,6 +17,7 @@ import com.ym.ai_story_studio_server.mapper.ProjectCharacterMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectMapper;
 import com.ym.ai_story_studio_server.mapper.ShotBindingMapper;
 import com.ym.ai_story_studio_server.service.ProjectCharacterService;
+import com.ym.ai_story_studio_server.service.ShotViewCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -41,6 +42,7 @@ public class ProjectCharacterServiceImpl implements ProjectCharacterService {
     private final CharacterLibraryMapper characterLibraryMapper;
     private final ProjectMapper projectMapper;
     private final ShotBindingMapper shotBindingMapper;
+    private final ShotViewCache shotViewCache;
 
     /**
      * 验证项目存在且属于当前用户
@@ -248,6 +250,9 @@ public class ProjectCharacterServiceImpl implements ProjectCharacterService {
         // 保存到数据库
         projectCharacterMapper.updateById(projectCharacter);
 
+        // 使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         log.info("项目角色覆盖更新成功, projectCharacterId: {}", projectCharacterId);
     }
 
@@ -373,6 +378,9 @@ public class ProjectCharacterServiceImpl implements ProjectCharacterService {
         // 删除旧的项目角色引用
         projectCharacterMapper.deleteById(projectCharacterId);
 
+        // 使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         log.info("删除旧项目角色引用成功, oldProjectCharacterId: {}", projectCharacterId);
         log.info("角色替换完成");
     }
@@ -13,6 +13,7 @@ import com.ym.ai_story_studio_server.mapper.ProjectMapper;
 import com.ym.ai_story_studio_server.mapper.PropLibraryMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectPropMapper;
 import com.ym.ai_story_studio_server.service.ProjectPropService;
+import com.ym.ai_story_studio_server.service.ShotViewCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -31,6 +32,7 @@ public class ProjectPropServiceImpl implements ProjectPropService {
     private final ProjectPropMapper projectPropMapper;
     private final PropLibraryMapper propLibraryMapper;
     private final ProjectMapper projectMapper;
+    private final ShotViewCache shotViewCache;
 
     @Override
     public List<ProjectPropVO> getProjectProps(Long projectId) {
@@ -141,6 +143,9 @@ public class ProjectPropServiceImpl implements ProjectPropService {
 
         projectPropMapper.updateById(pp);
 
+        // 使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         log.info("项目道具更新成功, propId: {}", propId);
     }
 
@@ -164,6 +169,9 @@ public class ProjectPropServiceImpl implements ProjectPropService {
 
         projectPropMapper.deleteById(propId);
 
+        // 使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         log.info("道具从项目移除成功, propId: {}", propId);
     }
 }
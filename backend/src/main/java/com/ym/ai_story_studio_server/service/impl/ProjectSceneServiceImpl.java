@@ -17,6 +17,7 @@ import com.ym.ai_story_studio_server.mapper.ProjectSceneMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectMapper;
 import com.ym.ai_story_studio_server.mapper.ShotBindingMapper;
 import com.ym.ai_story_studio_server.service.ProjectSceneService;
+import com.ym.ai_story_studio_server.service.ShotViewCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -43,6 +44,7 @@ public class ProjectSceneServiceImpl implements ProjectSceneService {
     private final SceneLibraryMapper sceneLibraryMapper;
     private final ProjectMapper projectMapper;
     private final ShotBindingMapper shotBindingMapper;
+    private final ShotViewCache shotViewCache;
 
     /**
      * 验证项目存在且属于当前用户
@@ -223,6 +225,9 @@ public class ProjectSceneServiceImpl implements ProjectSceneService {
         // 保存到数据库
         projectSceneMapper.updateById(projectScene);
 
+        // 使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         log.info("项目场景覆盖更新成功, projectSceneId: {}", projectSceneId);
     }
 
@@ -348,6 +353,9 @@ public class ProjectSceneServiceImpl implements ProjectSceneService {
         // 删除旧的项目场景引用
         projectSceneMapper.deleteById(projectSceneId);
 
+        // 使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         log.info("删除旧项目场景引用成功, oldProjectSceneId: {}", projectSceneId);
         log.info("场景替换完成");
     }
@@ -8,6 +8,7 @@ import com.ym.ai_story_studio_server.entity.PropCategory;
 import com.ym.ai_story_studio_server.entity.PropLibrary;
 import com.ym.ai_story_studio_server.mapper.PropCategoryMapper;
 import com.ym.ai_story_studio_server.mapper.PropLibraryMapper;
+import com.ym.ai_story_studio_server.service.LibraryShotViewEvictor;
 import com.ym.ai_story_studio_server.service.PropCategoryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +27,7 @@ public class PropCategoryServiceImpl implements PropCategoryService {
 
     private final PropCategoryMapper categoryMapper;
     private final PropLibraryMapper propLibraryMapper;
+    private final LibraryShotViewEvictor libraryShotViewEvictor;
 
     @Override
     public List<PropCategoryVO> getCategoryList(Long userId) {
@@ -143,6 +145,8 @@ public class PropCategoryServiceImpl implements PropCategoryService {
             prop.setCategoryId(null);
             propLibraryMapper.updateById(prop);
         }
+        // 使引用这些道具的项目的分镜列表缓存失效
+        libraryShotViewEvictor.evictProps(props.stream().map(PropLibrary::getId).toList());
 
         categoryMapper.deleteById(categoryId);
 
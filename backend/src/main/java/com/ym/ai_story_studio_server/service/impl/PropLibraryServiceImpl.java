@@ -12,6 +12,7 @@ import com.ym.ai_story_studio_server.entity.ProjectProp;
 import com.ym.ai_story_studio_server.mapper.PropCategoryMapper;
 import com.ym.ai_story_studio_server.mapper.PropLibraryMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectPropMapper;
+import com.ym.ai_story_studio_server.service.LibraryShotViewEvictor;
 import com.ym.ai_story_studio_server.service.PropLibraryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -33,6 +34,7 @@ public class PropLibraryServiceImpl implements PropLibraryService {
     private final PropLibraryMapper propLibraryMapper;
     private final PropCategoryMapper categoryMapper;
     private final ProjectPropMapper projectPropMapper;
+    private final LibraryShotViewEvictor libraryShotViewEvictor;
 
     @Override
     public List<PropVO> getPropList(Long userId, Long categoryId, String keyword) {
@@ -163,6 +165,9 @@ public class PropLibraryServiceImpl implements PropLibraryService {
         }
 
         propLibraryMapper.updateById(prop);
+        if (request.thumbnailUrl() != null) {
+            libraryShotViewEvictor.evictProps(List.of(propId));
+        }
 
         log.info("道具更新成功, propId: {}", propId);
     }
@@ -189,6 +194,7 @@ public class PropLibraryServiceImpl implements PropLibraryService {
 
         prop.setDeletedAt(LocalDateTime.now());
         propLibraryMapper.updateById(prop);
+        libraryShotViewEvictor.evictProps(List.of(propId));
 
         log.info("道具删除成功, propId: {}", propId);
     }
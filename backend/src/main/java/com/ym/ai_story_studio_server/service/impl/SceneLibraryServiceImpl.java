@@ -12,6 +12,7 @@ import com.ym.ai_story_studio_server.entity.ProjectScene;
 import com.ym.ai_story_studio_server.mapper.SceneCategoryMapper;
 import com.ym.ai_story_studio_server.mapper.SceneLibraryMapper;
 import com.ym.ai_story_studio_server.mapper.ProjectSceneMapper;
+import com.ym.ai_story_studio_server.service.LibraryShotViewEvictor;
 import com.ym.ai_story_studio_server.service.SceneLibraryService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +39,7 @@ public class SceneLibraryServiceImpl implements SceneLibraryService {
     private final SceneLibraryMapper sceneLibraryMapper;
     private final SceneCategoryMapper categoryMapper;
     private final ProjectSceneMapper projectSceneMapper;
+    private final LibraryShotViewEvictor libraryShotViewEvictor;
 
     /**
      * 获取场景库列表(支持搜索和筛选)
@@ -204,6 +206,9 @@ public class SceneLibraryServiceImpl implements SceneLibraryService {
 
         // 保存到数据库
         sceneLibraryMapper.updateById(scene);
+        if (request.thumbnailUrl() != null) {
+            libraryShotViewEvictor.evictScene(sceneId);
+        }
 
         log.info("场景更新成功, sceneId: {}", sceneId);
     }
@@ -240,6 +245,7 @@ public class SceneLibraryServiceImpl implements SceneLibraryService {
         // 软删除(设置deleted_at)
         scene.setDeletedAt(LocalDateTime.now());
         sceneLibraryMapper.updateById(scene);
+        libraryShotViewEvictor.evictScene(sceneId);
 
         log.info("场景删除成功, sceneId: {}", sceneId);
     }
@@ -10,16 +10,26 @@ import com.ym.ai_story_studio_server.dto.shot.*;
 import com.ym.ai_story_studio_server.entity.*;
 import com.ym.ai_story_studio_server.mapper.*;
 import com.ym.ai_story_studio_server.service.ShotService;
+import com.ym.ai_story_studio_server.service.ShotVOAssembler;
+import com.ym.ai_story_studio_server.service.ScriptChunkParser;
+import com.ym.ai_story_studio_server.service.ShotViewCache;
+import com.ym.ai_story_studio_server.service.TextStreamRelay;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -45,19 +55,27 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ShotServiceImpl implements ShotService {
 
+    /**
+     * 文本响应缓存的调用点名称
+     */
+    private static final String SCRIPT_PARSE_CALL_SITE = "script_parse";
+    private static final String SCRIPT_SEGMENTS_CALL_SITE = "script_segments";
+
     private final StoryboardShotMapper shotMapper;
     private final ShotBindingMapper bindingMapper;
     private final ProjectMapper projectMapper;
     private final ProjectCharacterMapper projectCharacterMapper;
     private final ProjectSceneMapper projectSceneMapper;
     private final ProjectPropMapper projectPropMapper;
-    private final PropLibraryMapper propLibraryMapper;
-    private final CharacterLibraryMapper characterLibraryMapper;
-    private final SceneLibraryMapper sceneLibraryMapper;
     private final AssetMapper assetMapper;
     private final AssetVersionMapper assetVersionMapper;
     private final VectorEngineClient vectorEngineClient;
     private final AiProperties aiProperties;
+    private final ShotVOAssembler shotVOAssembler;
+    private final ShotViewCache shotViewCache;
+    private final TextStreamRelay textStreamRelay;
+    private final ScriptChunkParser scriptChunkParser;
+    private final TransactionTemplate transactionTemplate;
 
     @Override
     public List<ShotVO> getShotList(Long userId, Long projectId) {
@@ -66,7 +84,18 @@ public class ShotServiceImpl implements ShotService {
         // 1. 验证项目存在且属于当前用户
         Project project = validateProjectOwnership(userId, projectId);
 
-        // 2. 查询项目下所有未删除的分镜(按shot_no升序)
+        // 2. 读穿透缓存,未命中时从数据库加载
+        return shotViewCache.get(projectId, () -> loadShotList(projectId));
+    }
+
+    /**
+     * 从数据库加载项目的分镜列表
+     *
+     * @param projectId 项目ID
+     * @return 分镜VO列表
+     */
+    private List<ShotVO> loadShotList(Long projectId) {
+        // 1. 查询项目下所有未删除的分镜(按shot_no升序)
         LambdaQueryWrapper<StoryboardShot> queryWrapper = new LambdaQueryWrapper<>();
         queryWrapper.eq(StoryboardShot::getProjectId, projectId)
                 .isNull(StoryboardShot::getDeletedAt)
@@ -79,7 +108,7 @@ public class ShotServiceImpl implements ShotService {
             return new ArrayList<>();
         }
 
-        // 3. 批量查询所有分镜的绑定关系
+        // 2. 批量查询所有分镜的绑定关系
         List<Long> shotIds = shots.stream()
                 .map(StoryboardShot::getId)
                 .collect(Collectors.toList());
@@ -88,21 +117,9 @@ public class ShotServiceImpl implements ShotService {
         bindingWrapper.in(ShotBinding::getShotId, shotIds);
         List<ShotBinding> bindings = bindingMapper.selectList(bindingWrapper);
         log.info("查询到{}条绑定关系", bindings.size());
-        
-        // 打印每个分镜的绑定关系数量
-        for (Long shotId : shotIds) {
-            long count = bindings.stream().filter(b -> b.getShotId().equals(shotId)).count();
-            log.info("分镜ID={} 的绑定关系数量: {}", shotId, count);
-        }
-
-        // 4. 按shotId分组绑定关系
-        Map<Long, List<ShotBinding>> bindingMap = bindings.stream()
-                .collect(Collectors.groupingBy(ShotBinding::getShotId));
 
-        // 5. 转换为VO列表
-        List<ShotVO> voList = shots.stream()
-                .map(shot -> convertToVO(shot, bindingMap.get(shot.getId())))
-                .collect(Collectors.toList());
+        // 3. 批量加载绑定对象和资产状态,在内存中组装VO(SQL条数与分镜数量无关)
+        List<ShotVO> voList = shotVOAssembler.assemble(shots, bindings);
 
         log.info("分镜列表转换完成,返回{}条记录", voList.size());
         return voList;
@@ -113,6 +130,9 @@ public class ShotServiceImpl implements ShotService {
     public ShotVO createShot(Long userId, Long projectId, CreateShotRequest request) {
         log.info("创建分镜: userId={}, projectId={}, scriptText={}", userId, projectId, request.scriptText());
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 验证项目存在且属于当前用户
         Project project = validateProjectOwnership(userId, projectId);
 
@@ -157,8 +177,8 @@ public class ShotServiceImpl implements ShotService {
                 new ArrayList<>(),
                 null,
                 new ArrayList<>(),
-                createEmptyAssetStatus(),
-                createEmptyAssetStatus(),
+                ShotVOAssembler.emptyAssetStatus(),
+                ShotVOAssembler.emptyAssetStatus(),
                 refreshedShot.getCreatedAt(),
                 refreshedShot.getUpdatedAt()
         );
@@ -170,6 +190,9 @@ public class ShotServiceImpl implements ShotService {
         log.info("更新分镜: userId={}, projectId={}, shotId={}, newScriptText={}",
                 userId, projectId, shotId, request.scriptText());
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 查询分镜是否存在且未删除
         StoryboardShot shot = shotMapper.selectById(shotId);
         if (shot == null || shot.getDeletedAt() != null) {
@@ -200,6 +223,9 @@ public class ShotServiceImpl implements ShotService {
     public void deleteShot(Long userId, Long projectId, Long shotId) {
         log.info("删除分镜: userId={}, projectId={}, shotId={}", userId, projectId, shotId);
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 查询分镜是否存在且未删除
         StoryboardShot shot = shotMapper.selectById(shotId);
         if (shot == null || shot.getDeletedAt() != null) {
@@ -240,6 +266,9 @@ public class ShotServiceImpl implements ShotService {
         log.info("调整分镜顺序: userId={}, projectId={}, shotIds={}",
                 userId, projectId, request.shotIds());
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 验证项目存在且属于当前用户
         validateProjectOwnership(userId, projectId);
 
@@ -300,6 +329,9 @@ public class ShotServiceImpl implements ShotService {
         log.info("创建绑定关系: userId={}, projectId={}, shotId={}, bindType={}, bindId={}",
                 userId, projectId, shotId, request.bindType(), request.bindId());
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 查询分镜是否存在且未删除
         StoryboardShot shot = shotMapper.selectById(shotId);
         if (shot == null || shot.getDeletedAt() != null) {
@@ -378,6 +410,9 @@ public class ShotServiceImpl implements ShotService {
         log.info("删除绑定关系: userId={}, projectId={}, shotId={}, bindingId={}",
                 userId, projectId, shotId, bindingId);
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 查询绑定记录是否存在
         ShotBinding binding = bindingMapper.selectById(bindingId);
         if (binding == null) {
@@ -420,8 +455,42 @@ public class ShotServiceImpl implements ShotService {
         // 1. 验证项目存在且属于当前用户
         validateProjectOwnership(userId, projectId);
 
-        // 2. 调用AI解析剧本，拆分成多条分镜、角色和场景
-        AiParseScriptResult parseResult = parseScriptWithCharactersAndScenes(request.fullScript());
+        // 2. 调用AI解析剧本，拆分成多条分镜、角色和场景（长剧本分块并行解析）
+        AiParseScriptResult parseResult = scriptChunkParser.parse(
+                request.fullScript(), this::parseScriptWithCharactersAndScenes, null);
+
+        return createShotsFromParseResult(userId, projectId, parseResult);
+    }
+
+    @Override
+    public SseEmitter parseScriptAndCreateShotsStream(Long userId, Long projectId, ParseScriptRequest request) {
+        log.info("AI流式解析剧本: userId={}, projectId={}, scriptLength={}",
+                userId, projectId, request.fullScript().length());
+
+        validateProjectOwnership(userId, projectId);
+
+        return textStreamRelay.relay(onDelta -> {
+            AiParseScriptResult parseResult = scriptChunkParser.parse(
+                    request.fullScript(), this::parseScriptWithCharactersAndScenes, onDelta);
+            // 流结束后才开启事务,生成期间不占用数据库连接
+            return transactionTemplate.execute(status -> createShotsFromParseResult(userId, projectId, parseResult));
+        });
+    }
+
+    /**
+     * 根据AI解析结果批量创建分镜,并创建、绑定角色和场景
+     *
+     * <p>须在事务中调用
+     *
+     * @param userId 用户ID
+     * @param projectId 项目ID
+     * @param parseResult AI解析结果
+     * @return 创建的分镜VO列表
+     */
+    private List<ShotVO> createShotsFromParseResult(Long userId, Long projectId, AiParseScriptResult parseResult) {
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         List<String> scriptSegments = parseResult.getScriptSegments();
         List<String> characters = parseResult.getCharacters();
         List<String> scenes = parseResult.getScenes();
@@ -433,17 +502,10 @@ public class ShotServiceImpl implements ShotService {
             throw new BusinessException(ResultCode.PARAM_INVALID, "AI解析结果为空，请检查剧本内容");
         }
 
-        // 3. 批量创建分镜
-        List<ShotVO> createdShots = new ArrayList<>();
-        for (String segment : scriptSegments) {
-            if (segment.isBlank()) {
-                continue;
-            }
-            ShotVO shot = createShot(userId, projectId, new CreateShotRequest(segment.trim()));
-            createdShots.add(shot);
-        }
+        // 批量创建分镜
+        List<ShotVO> createdShots = insertShots(projectId, scriptSegments);
 
-        // 4. 创建项目角色和场景，并绑定到分镜
+        // 创建项目角色和场景，并绑定到分镜
         createAndBindCharactersAndScenes(userId, projectId, createdShots, characters, scenes);
 
         log.info("批量创建分镜完成: count={}", createdShots.size());
@@ -451,12 +513,13 @@ public class ShotServiceImpl implements ShotService {
     }
 
     /**
-     * 解析完整剧本，提取分镜、角色和场景
+     * 解析剧本（或长剧本的一个分块），提取分镜、角色和场景
      *
-     * @param fullScript 完整剧本文本
+     * @param fullScript 剧本文本
+     * @param onDelta 增量文本回调，不为null时以流式接口调用AI
      * @return AI解析结果，包含分镜段落、角色名称和场景描述
      */
-    private AiParseScriptResult parseScriptWithCharactersAndScenes(String fullScript) {
+    private AiParseScriptResult parseScriptWithCharactersAndScenes(String fullScript, Consumer<String> onDelta) {
         String systemPrompt = """
             一、你是一个专业的剧本大师，请将以下文案转换为剧本格式，并提取角色和场景信息
             
@@ -501,13 +564,13 @@ public class ShotServiceImpl implements ShotService {
 
         // 调用AI生成
         AiProperties.Text textConfig = aiProperties.getText();
-        VectorEngineClient.TextApiResponse response = vectorEngineClient.generateText(
-                prompt,
-                textConfig.getModel(),
-                textConfig.getMaxTokens(),
-                0.3,  // 使用较低的温度以获得更稳定的输出
-                0.9
-        );
+        // 使用较低的温度以获得更稳定的输出
+        VectorEngineClient.TextApiResponse response = onDelta == null
+                ? vectorEngineClient.generateTextCached(SCRIPT_PARSE_CALL_SITE, prompt,
+                        textConfig.getModel(), textConfig.getMaxTokens(), 0.3, 0.9, this::isParsableScriptResponse)
+                : vectorEngineClient.streamTextCached(SCRIPT_PARSE_CALL_SITE, prompt,
+                        textConfig.getModel(), textConfig.getMaxTokens(), 0.3, 0.9, onDelta,
+                        this::isParsableScriptResponse);
 
         // 提取生成的文本
         String generatedText = response.choices() == null || response.choices().isEmpty()
@@ -528,15 +591,7 @@ public class ShotServiceImpl implements ShotService {
      */
     private AiParseScriptResult parseAiResponseToJson(String jsonResponse) {
         try {
-            // 尝试从AI响应中提取JSON部分
-            String cleanJson = extractJsonFromResponse(jsonResponse);
-            
-            // 使用Jackson ObjectMapper解析JSON
-            com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            
-            // 解析为Map
-            @SuppressWarnings("unchecked")
-            Map<String, Object> jsonMap = mapper.readValue(cleanJson, Map.class);
+            Map<String, Object> jsonMap = readAiJson(jsonResponse);
             
             // 提取各个字段
             List<String> scriptSegments = (List<String>) jsonMap.getOrDefault("script_segments", new ArrayList<>());
@@ -566,6 +621,38 @@ public class ShotServiceImpl implements ShotService {
         }
     }
     
+    /**
+     * 剧本解析响应能否按JSON解析出分镜段落
+     *
+     * <p>只有通过该校验的响应才写入文本响应缓存,走备用解析的响应不缓存,下次提交会重新调用AI
+     *
+     * @param response AI响应字符串
+     * @return 是否可解析
+     */
+    private boolean isParsableScriptResponse(String response) {
+        try {
+            return readAiJson(response).get("script_segments") instanceof List<?> segments && !segments.isEmpty();
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * 从AI响应中提取JSON部分并解析为Map
+     *
+     * @param response AI响应字符串
+     * @return 解析后的Map
+     * @throws Exception 当JSON格式错误时抛出
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readAiJson(String response) throws Exception {
+        // 尝试从AI响应中提取JSON部分
+        String cleanJson = extractJsonFromResponse(response);
+        // 使用Jackson ObjectMapper解析JSON
+        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+        return mapper.readValue(cleanJson, Map.class);
+    }
+
     /**
      * 从AI响应中提取JSON部分
      *
@@ -738,12 +825,14 @@ public class ShotServiceImpl implements ShotService {
 
         // 调用AI生成
         AiProperties.Text textConfig = aiProperties.getText();
-        VectorEngineClient.TextApiResponse response = vectorEngineClient.generateText(
+        VectorEngineClient.TextApiResponse response = vectorEngineClient.generateTextCached(
+                SCRIPT_SEGMENTS_CALL_SITE,
                 prompt,
                 textConfig.getModel(),
                 textConfig.getMaxTokens(),
                 0.3,  // 使用较低的温度以获得更稳定的输出
-                0.9
+                0.9,
+                content -> !extractScriptSegmentsFromText(content).isEmpty()
         );
 
         // 提取生成的文本
@@ -760,6 +849,63 @@ public class ShotServiceImpl implements ShotService {
                 .collect(Collectors.toList());
     }
     
+    /**
+     * 批量插入分镜
+     *
+     * <p>一次性分配连续的shot_no区间(接在现有最大序号之后),多行插入所有分镜,
+     * 不再逐条查询最大序号、插入、回查和重排
+     *
+     * @param projectId 项目ID
+     * @param scriptSegments 分镜文本列表
+     * @return 创建的分镜VO列表(无绑定关系,资产状态为空)
+     */
+    private List<ShotVO> insertShots(Long projectId, List<String> scriptSegments) {
+        // 1. 物理删除已软删除的分镜,使新序号紧接在未删除分镜之后且不与唯一约束冲突
+        LambdaQueryWrapper<StoryboardShot> deleteQuery = new LambdaQueryWrapper<>();
+        deleteQuery.eq(StoryboardShot::getProjectId, projectId)
+                .isNotNull(StoryboardShot::getDeletedAt);
+        shotMapper.delete(deleteQuery);
+
+        // 2. 分配连续序号区间
+        LambdaQueryWrapper<StoryboardShot> maxQuery = new LambdaQueryWrapper<>();
+        maxQuery.eq(StoryboardShot::getProjectId, projectId)
+                .orderByDesc(StoryboardShot::getShotNo)
+                .last("LIMIT 1");
+        StoryboardShot maxShot = shotMapper.selectOne(maxQuery);
+        int nextShotNo = (maxShot == null ? 0 : maxShot.getShotNo()) + 1;
+
+        List<StoryboardShot> shots = new ArrayList<>();
+        for (String segment : scriptSegments) {
+            if (segment == null || segment.isBlank()) {
+                continue;
+            }
+            StoryboardShot shot = new StoryboardShot();
+            shot.setProjectId(projectId);
+            shot.setShotNo(nextShotNo++);
+            shot.setScriptText(segment.trim());
+            shots.add(shot);
+        }
+
+        // 3. 多行插入,自增ID回填到实体
+        shotMapper.insert(shots);
+        log.info("批量插入分镜: projectId={}, count={}, shotNo区间=[{}, {}]",
+                projectId, shots.size(), nextShotNo - shots.size(), nextShotNo - 1);
+
+        return shots.stream()
+                .map(shot -> new ShotVO(
+                        shot.getId(),
+                        shot.getShotNo(),
+                        shot.getScriptText(),
+                        new ArrayList<>(),
+                        null,
+                        new ArrayList<>(),
+                        ShotVOAssembler.emptyAssetStatus(),
+                        ShotVOAssembler.emptyAssetStatus(),
+                        shot.getCreatedAt(),
+                        shot.getUpdatedAt()))
+                .collect(Collectors.toList());
+    }
+
     /**
      * 创建项目角色和场景，并绑定到分镜
      *
@@ -775,135 +921,132 @@ public class ShotServiceImpl implements ShotService {
                 characters.size(), scenes.size());
         
         // 创建项目角色
-        Map<String, ProjectCharacter> projectCharacterMap = createProjectCharacters(userId, projectId, characters);
+        Map<String, ProjectCharacter> projectCharacterMap = createProjectCharacters(projectId, characters);
         
         // 创建项目场景
-        Map<String, ProjectScene> projectSceneMap = createProjectScenes(userId, projectId, scenes);
+        Map<String, ProjectScene> projectSceneMap = createProjectScenes(projectId, scenes);
         
         // 绑定角色和场景到分镜
-        bindCharactersAndScenesToShots(userId, projectId, shots, projectCharacterMap, projectSceneMap);
+        bindCharactersAndScenesToShots(shots, projectCharacterMap, projectSceneMap);
     }
     
     /**
      * 创建项目角色
      *
-     * @param userId 用户ID
+     * <p>一次查询已存在的同名角色,缺少的角色多行插入
+     *
      * @param projectId 项目ID
      * @param characters 角色名称列表
      * @return 项目角色映射（角色名 -> 项目角色对象）
      */
-    private Map<String, ProjectCharacter> createProjectCharacters(Long userId, Long projectId, List<String> characters) {
-        Map<String, ProjectCharacter> characterMap = new java.util.HashMap<>();
-        
-        for (String characterName : characters) {
-            if (characterName == null || characterName.trim().isEmpty()) {
+    private Map<String, ProjectCharacter> createProjectCharacters(Long projectId, List<String> characters) {
+        Set<String> names = characters.stream()
+                .filter(name -> name != null && !name.isBlank())
+                .map(String::trim)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, ProjectCharacter> characterMap = new HashMap<>();
+        if (names.isEmpty()) {
+            return characterMap;
+        }
+
+        // 检查已存在的同名角色
+        LambdaQueryWrapper<ProjectCharacter> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ProjectCharacter::getProjectId, projectId)
+                  .in(ProjectCharacter::getDisplayName, names);
+        for (ProjectCharacter existing : projectCharacterMapper.selectList(queryWrapper)) {
+            characterMap.putIfAbsent(existing.getDisplayName(), existing);
+        }
+
+        List<ProjectCharacter> created = new ArrayList<>();
+        for (String name : names) {
+            if (characterMap.containsKey(name)) {
                 continue;
             }
-            
-            characterName = characterName.trim();
-            
-            // 检查是否已存在同名角色
-            LambdaQueryWrapper<ProjectCharacter> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(ProjectCharacter::getProjectId, projectId)
-                      .eq(ProjectCharacter::getDisplayName, characterName);
-            
-            ProjectCharacter existingCharacter = projectCharacterMapper.selectOne(queryWrapper);
-            
-            if (existingCharacter == null) {
-                // 创建新角色
-                ProjectCharacter character = new ProjectCharacter();
-                character.setProjectId(projectId);
-                character.setDisplayName(characterName);
-                character.setLibraryCharacterId(null); // 无库角色关联，使用项目内自定义
-                
-                projectCharacterMapper.insert(character);
-                characterMap.put(characterName, character);
-                
-                log.info("创建项目角色: {}", characterName);
-            } else {
-                characterMap.put(characterName, existingCharacter);
-                log.info("角色已存在，跳过创建: {}", characterName);
-            }
+            ProjectCharacter character = new ProjectCharacter();
+            character.setProjectId(projectId);
+            character.setDisplayName(name);
+            character.setLibraryCharacterId(null); // 无库角色关联，使用项目内自定义
+            created.add(character);
+            characterMap.put(name, character);
         }
-        
+        if (!created.isEmpty()) {
+            projectCharacterMapper.insert(created);
+        }
+
+        log.info("项目角色处理完成: 新建{}个, 已存在{}个", created.size(), names.size() - created.size());
         return characterMap;
     }
     
     /**
      * 创建项目场景
      *
-     * @param userId 用户ID
+     * <p>一次查询已存在的同名场景,缺少的场景多行插入
+     *
      * @param projectId 项目ID
      * @param scenes 场景描述列表
      * @return 项目场景映射（场景名 -> 项目场景对象）
      */
-    private Map<String, ProjectScene> createProjectScenes(Long userId, Long projectId, List<String> scenes) {
-        Map<String, ProjectScene> sceneMap = new java.util.HashMap<>();
-        
-        for (String sceneName : scenes) {
-            if (sceneName == null || sceneName.trim().isEmpty()) {
+    private Map<String, ProjectScene> createProjectScenes(Long projectId, List<String> scenes) {
+        // 只保留地点名称，去掉"日/夜"和"内/外"等信息
+        // 例如 "宿舍 日 内" -> "宿舍"
+        Set<String> names = scenes.stream()
+                .filter(scene -> scene != null && !scene.isBlank())
+                .map(scene -> scene.trim().split("\\s+")[0])
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<String, ProjectScene> sceneMap = new HashMap<>();
+        if (names.isEmpty()) {
+            return sceneMap;
+        }
+
+        // 检查已存在的同名场景
+        LambdaQueryWrapper<ProjectScene> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(ProjectScene::getProjectId, projectId)
+                  .in(ProjectScene::getDisplayName, names);
+        for (ProjectScene existing : projectSceneMapper.selectList(queryWrapper)) {
+            sceneMap.putIfAbsent(existing.getDisplayName(), existing);
+        }
+
+        List<ProjectScene> created = new ArrayList<>();
+        for (String name : names) {
+            if (sceneMap.containsKey(name)) {
                 continue;
             }
-            
-            sceneName = sceneName.trim();
-            
-            // 只保留地点名称，去掉"日/夜"和"内/外"等信息
-            // 例如 "宿舍 日 内" -> "宿舍"
-            String[] parts = sceneName.split("\\s+");
-            if (parts.length > 0) {
-                sceneName = parts[0];
-            }
-            
-            // 检查是否已存在同名场景
-            LambdaQueryWrapper<ProjectScene> queryWrapper = new LambdaQueryWrapper<>();
-            queryWrapper.eq(ProjectScene::getProjectId, projectId)
-                      .eq(ProjectScene::getDisplayName, sceneName);
-            
-            ProjectScene existingScene = projectSceneMapper.selectOne(queryWrapper);
-            
-            if (existingScene == null) {
-                // 创建新场景
-                ProjectScene scene = new ProjectScene();
-                scene.setProjectId(projectId);
-                scene.setDisplayName(sceneName);
-                scene.setLibrarySceneId(null); // 无库场景关联，使用项目内自定义
-                
-                projectSceneMapper.insert(scene);
-                sceneMap.put(sceneName, scene);
-                
-                log.info("创建项目场景: {}", sceneName);
-            } else {
-                sceneMap.put(sceneName, existingScene);
-                log.info("场景已存在，跳过创建: {}", sceneName);
-            }
+            ProjectScene scene = new ProjectScene();
+            scene.setProjectId(projectId);
+            scene.setDisplayName(name);
+            scene.setLibrarySceneId(null); // 无库场景关联，使用项目内自定义
+            created.add(scene);
+            sceneMap.put(name, scene);
         }
-        
+        if (!created.isEmpty()) {
+            projectSceneMapper.insert(created);
+        }
+
+        log.info("项目场景处理完成: 新建{}个, 已存在{}个", created.size(), names.size() - created.size());
         return sceneMap;
     }
     
     /**
      * 绑定角色和场景到分镜
      *
-     * @param userId 用户ID
-     * @param projectId 项目ID
+     * <p>分镜均为本次新建,不存在已有绑定,在内存中去重后多行插入
+     *
      * @param shots 分镜列表
      * @param characterMap 项目角色映射
      * @param sceneMap 项目场景映射
      */
-    private void bindCharactersAndScenesToShots(Long userId, Long projectId, List<ShotVO> shots,
+    private void bindCharactersAndScenesToShots(List<ShotVO> shots,
                                                Map<String, ProjectCharacter> characterMap,
                                                Map<String, ProjectScene> sceneMap) {
+        List<ShotBinding> bindings = new ArrayList<>();
         for (ShotVO shot : shots) {
             String scriptText = shot.scriptText();
             
-            // 从剧本文本中提取出场人物
-            List<String> shotCharacters = extractCharactersFromScript(scriptText);
-            
-            // 绑定角色到分镜
-            for (String characterName : shotCharacters) {
+            // 从剧本文本中提取出场人物(已去重)
+            for (String characterName : extractCharactersFromScript(scriptText)) {
                 ProjectCharacter projectCharacter = characterMap.get(characterName);
                 if (projectCharacter != null) {
-                    createBindingIfNotExists(userId, projectId, shot.id(), "PCHAR", projectCharacter.getId());
+                    bindings.add(newBinding(shot.id(), "PCHAR", projectCharacter.getId()));
                 }
             }
             
@@ -914,50 +1057,25 @@ public class ShotServiceImpl implements ShotService {
             if (placeName != null && !placeName.isEmpty()) {
                 ProjectScene projectScene = sceneMap.get(placeName);
                 if (projectScene != null) {
-                    createBindingIfNotExists(userId, projectId, shot.id(), "PSCENE", projectScene.getId());
-                    log.info("场景绑定成功: shotId={}, sceneName={}", shot.id(), placeName);
+                    bindings.add(newBinding(shot.id(), "PSCENE", projectScene.getId()));
                 } else {
                     log.warn("场景未找到: placeName={}, sceneMapKeys={}", placeName, sceneMap.keySet());
                 }
             }
         }
-    }
-    
-    /**
-     * 创建绑定关系（如果不存在）
-     *
-     * @param userId 用户ID
-     * @param projectId 项目ID
-     * @param shotId 分镜ID
-     * @param bindType 绑定类型
-     * @param bindId 绑定对象ID
-     */
-    private void createBindingIfNotExists(Long userId, Long projectId, Long shotId, String bindType, Long bindId) {
-        try {
-            // 检查是否已存在相同的绑定
-            LambdaQueryWrapper<ShotBinding> checkWrapper = new LambdaQueryWrapper<>();
-            checkWrapper.eq(ShotBinding::getShotId, shotId)
-                      .eq(ShotBinding::getBindType, bindType)
-                      .eq(ShotBinding::getBindId, bindId);
-            
-            long count = bindingMapper.selectCount(checkWrapper);
-            
-            if (count == 0) {
-                // 创建绑定记录
-                ShotBinding binding = new ShotBinding();
-                binding.setShotId(shotId);
-                binding.setBindType(bindType);
-                binding.setBindId(bindId);
-                
-                bindingMapper.insert(binding);
-                
-                log.info("创建绑定关系: shotId={}, bindType={}, bindId={}", shotId, bindType, bindId);
-            } else {
-                log.info("绑定关系已存在: shotId={}, bindType={}, bindId={}", shotId, bindType, bindId);
-            }
-        } catch (Exception e) {
-            log.error("创建绑定关系失败: shotId={}, bindType={}, bindId={}", shotId, bindType, bindId, e);
+
+        if (!bindings.isEmpty()) {
+            bindingMapper.insert(bindings);
         }
+        log.info("批量创建绑定关系: count={}", bindings.size());
+    }
+
+    private static ShotBinding newBinding(Long shotId, String bindType, Long bindId) {
+        ShotBinding binding = new ShotBinding();
+        binding.setShotId(shotId);
+        binding.setBindType(bindType);
+        binding.setBindId(bindId);
+        return binding;
     }
     
     /**
@@ -1080,322 +1198,14 @@ public class ShotServiceImpl implements ShotService {
         log.debug("重新整理分镜序号完成: projectId={}, 调整了{}条分镜", projectId, activeShots.size());
     }
 
-    /**
-     * 将分镜实体转换为VO
-     *
-     * @param shot 分镜实体
-     * @param bindings 绑定关系列表(可为null)
-     * @return 分镜VO
-     */
-    private ShotVO convertToVO(StoryboardShot shot, List<ShotBinding> bindings) {
-        List<BoundCharacterVO> characters = new ArrayList<>();
-        BoundSceneVO scene = null;
-        List<BoundPropVO> props = new ArrayList<>();
-
-        if (bindings != null && !bindings.isEmpty()) {
-            // 分离角色绑定、场景绑定和道具绑定
-            List<Long> characterIds = new ArrayList<>();
-            Long sceneId = null;
-            Long sceneBindingId = null;
-            List<Long> propIds = new ArrayList<>();
-
-            for (ShotBinding binding : bindings) {
-                if ("PCHAR".equals(binding.getBindType())) {
-                    characterIds.add(binding.getBindId());
-                } else if ("PSCENE".equals(binding.getBindType())) {
-                    sceneId = binding.getBindId();
-                    sceneBindingId = binding.getId();
-                } else if ("PPROP".equals(binding.getBindType())) {
-                    propIds.add(binding.getBindId());
-                }
-            }
-
-            // 查询角色信息
-            if (!characterIds.isEmpty()) {
-                List<ProjectCharacter> projectCharacters = projectCharacterMapper.selectBatchIds(characterIds);
-                Map<Long, ProjectCharacter> charMap = projectCharacters.stream()
-                        .collect(Collectors.toMap(ProjectCharacter::getId, c -> c));
-
-                // 获取所有关联的角色库ID，批量查询缩略图
-                List<Long> libraryCharacterIds = projectCharacters.stream()
-                        .map(ProjectCharacter::getLibraryCharacterId)
-                        .filter(id -> id != null)
-                        .distinct()
-                        .collect(Collectors.toList());
-
-                Map<Long, String> thumbnailMap = new java.util.HashMap<>();
-                if (!libraryCharacterIds.isEmpty()) {
-                    List<CharacterLibrary> libraryCharacters = characterLibraryMapper.selectBatchIds(libraryCharacterIds);
-                    thumbnailMap = libraryCharacters.stream()
-                            .filter(c -> c.getThumbnailUrl() != null)
-                            .collect(Collectors.toMap(CharacterLibrary::getId, CharacterLibrary::getThumbnailUrl));
-                }
-
-                for (ShotBinding binding : bindings) {
-                    if ("PCHAR".equals(binding.getBindType())) {
-                        ProjectCharacter character = charMap.get(binding.getBindId());
-                        if (character != null) {
-                            String thumbnailUrl = null;
-                            
-                            System.out.println("========== 开始处理角色 ==========");
-                            System.out.println("角色名称: " + character.getDisplayName());
-                            System.out.println("角色ID: " + character.getId());
-                            System.out.println("库角色ID: " + character.getLibraryCharacterId());
-                            System.out.println("项目角色thumbnailUrl: " + character.getThumbnailUrl());
-                            
-                            // 判断是否为自定义角色（未关联角色库）
-                            boolean isCustomCharacter = (character.getLibraryCharacterId() == null);
-                            
-                            if (isCustomCharacter) {
-                                // 自定义角色：直接使用项目角色的缩略图
-                                thumbnailUrl = character.getThumbnailUrl();
-                                System.out.println("自定义角色，使用项目角色缩略图: " + thumbnailUrl);
-                                log.debug("自定义角色[{}] thumbnailUrl:{}", character.getDisplayName(), thumbnailUrl);
-                            } else {
-                                // 关联角色库：优先使用项目角色的缩略图，其次使用库的缩略图
-                                if (character.getThumbnailUrl() != null && !character.getThumbnailUrl().isEmpty()) {
-                                    thumbnailUrl = character.getThumbnailUrl();
-                                    System.out.println("使用项目角色缩略图: " + thumbnailUrl);
-                                } else {
-                                    thumbnailUrl = thumbnailMap.get(character.getLibraryCharacterId());
-                                    System.out.println("使用库缩略图URL: " + thumbnailUrl);
-                                }
-                                log.debug("角色[{}] 库ID:{}, thumbnailUrl:{}", character.getDisplayName(), character.getLibraryCharacterId(), thumbnailUrl);
-                            }
-                            
-                            // 如果还没有缩略图，查询角色的资产版本作为缩略图
-                            if (thumbnailUrl == null) {
-                                System.out.println("缩略图为空，查询角色资产...");
-                                AssetStatusVO assetStatus = getAssetStatus(character.getId(), "PCHAR", "IMAGE");
-                                System.out.println("资产ID: " + (assetStatus != null ? assetStatus.assetId() : "null"));
-                                System.out.println("资产URL: " + (assetStatus != null ? assetStatus.currentUrl() : "null"));
-                                log.debug("角色[{}] 资产状态: assetId={}, url={}", character.getDisplayName(), 
-                                    assetStatus != null ? assetStatus.assetId() : null,
-                                    assetStatus != null ? assetStatus.currentUrl() : null);
-                                if (assetStatus != null && assetStatus.currentUrl() != null) {
-                                    thumbnailUrl = assetStatus.currentUrl();
-                                }
-                            }
-                            
-                            System.out.println("最终thumbnailUrl: " + thumbnailUrl);
-                            System.out.println("==========================================\n");
-                            log.info("角色[{}] 最终thumbnailUrl: {}", character.getDisplayName(), thumbnailUrl);
-                            characters.add(new BoundCharacterVO(
-                                    binding.getId(),
-                                    character.getId(),
-                                    character.getDisplayName(),
-                                    thumbnailUrl
-                            ));
-                        }
-                    }
-                }
-            }
-
-            // 查询场景信息
-            if (sceneId != null) {
-                ProjectScene projectScene = projectSceneMapper.selectById(sceneId);
-                if (projectScene != null) {
-                    String sceneThumbnailUrl = null;
-                    
-                    System.out.println("========== 开始处理场景 ==========");
-                    System.out.println("场景名称: " + projectScene.getDisplayName());
-                    System.out.println("场景ID: " + projectScene.getId());
-                    System.out.println("库场景ID: " + projectScene.getLibrarySceneId());
-                    System.out.println("项目场景thumbnailUrl: " + projectScene.getThumbnailUrl());
-                    
-                    // 优先使用项目场景的缩略图
-                    if (projectScene.getThumbnailUrl() != null) {
-                        sceneThumbnailUrl = projectScene.getThumbnailUrl();
-                        System.out.println("使用项目场景缩略图: " + sceneThumbnailUrl);
-                        log.debug("场景[{}] 使用项目场景缩略图:{}", projectScene.getDisplayName(), sceneThumbnailUrl);
-                    }
-                    // 其次使用库的缩略图
-                    else if (projectScene.getLibrarySceneId() != null) {
-                        SceneLibrary sceneLibrary = sceneLibraryMapper.selectById(projectScene.getLibrarySceneId());
-                        if (sceneLibrary != null) {
-                            sceneThumbnailUrl = sceneLibrary.getThumbnailUrl();
-                            System.out.println("库缩略图URL: " + sceneThumbnailUrl);
-                            log.debug("场景[{}] 库ID:{}, 库缩略图:{}", projectScene.getDisplayName(), projectScene.getLibrarySceneId(), sceneThumbnailUrl);
-                        }
-                    }
-                    
-                    // 如果没有库缩略图，查询场景的资产版本作为缩略图
-                    if (sceneThumbnailUrl == null) {
-                        System.out.println("库缩略图为空，查询场景资产...");
-                        AssetStatusVO assetStatus = getAssetStatus(projectScene.getId(), "PSCENE", "IMAGE");
-                        System.out.println("资产ID: " + (assetStatus != null ? assetStatus.assetId() : "null"));
-                        System.out.println("资产URL: " + (assetStatus != null ? assetStatus.currentUrl() : "null"));
-                        log.debug("场景[{}] 资产状态: assetId={}, url={}", projectScene.getDisplayName(), 
-                            assetStatus != null ? assetStatus.assetId() : null,
-                            assetStatus != null ? assetStatus.currentUrl() : null);
-                        if (assetStatus != null && assetStatus.currentUrl() != null) {
-                            sceneThumbnailUrl = assetStatus.currentUrl();
-                        }
-                    }
-                    
-                    System.out.println("最终thumbnailUrl: " + sceneThumbnailUrl);
-                    System.out.println("==========================================\n");
-                    log.info("场景[{}] 最终thumbnailUrl: {}", projectScene.getDisplayName(), sceneThumbnailUrl);
-                    scene = new BoundSceneVO(
-                            sceneBindingId,
-                            projectScene.getId(),
-                            projectScene.getDisplayName(),
-                            sceneThumbnailUrl
-                    );
-                }
-            }
-
-            // 查询道具信息
-            if (!propIds.isEmpty()) {
-                List<ProjectProp> projectProps = projectPropMapper.selectBatchIds(propIds);
-                Map<Long, ProjectProp> propMap = projectProps.stream()
-                        .collect(Collectors.toMap(ProjectProp::getId, p -> p));
-
-                // 获取所有关联的道具库ID，批量查询缩略图
-                List<Long> libraryPropIds = projectProps.stream()
-                        .map(ProjectProp::getLibraryPropId)
-                        .filter(id -> id != null)
-                        .distinct()
-                        .collect(Collectors.toList());
-
-                Map<Long, String> propThumbnailMap = new java.util.HashMap<>();
-                if (!libraryPropIds.isEmpty()) {
-                    List<PropLibrary> libraryProps = propLibraryMapper.selectBatchIds(libraryPropIds);
-                    propThumbnailMap = libraryProps.stream()
-                            .filter(p -> p.getThumbnailUrl() != null)
-                            .collect(Collectors.toMap(PropLibrary::getId, PropLibrary::getThumbnailUrl));
-                }
-
-                for (ShotBinding binding : bindings) {
-                    if ("PPROP".equals(binding.getBindType())) {
-                        ProjectProp prop = propMap.get(binding.getBindId());
-                        if (prop != null) {
-                            String thumbnailUrl = null;
-                            
-                            System.out.println("========== 开始处理道具 ==========");
-                            System.out.println("道具名称: " + prop.getDisplayName());
-                            System.out.println("道具ID: " + prop.getId());
-                            System.out.println("库道具ID: " + prop.getLibraryPropId());
-                            
-                            // 优先使用库的缩略图
-                            if (prop.getLibraryPropId() != null) {
-                                thumbnailUrl = propThumbnailMap.get(prop.getLibraryPropId());
-                                System.out.println("库缩略图URL: " + thumbnailUrl);
-                                log.debug("道具[{}] 库ID:{}, 库缩略图:{}", prop.getDisplayName(), prop.getLibraryPropId(), thumbnailUrl);
-                            }
-                            
-                            // 如果没有库缩略图，查询道具的资产版本作为缩略图
-                            if (thumbnailUrl == null) {
-                                System.out.println("库缩略图为空，查询道具资产...");
-                                AssetStatusVO assetStatus = getAssetStatus(prop.getId(), "PPROP", "IMAGE");
-                                System.out.println("资产ID: " + (assetStatus != null ? assetStatus.assetId() : "null"));
-                                System.out.println("资产URL: " + (assetStatus != null ? assetStatus.currentUrl() : "null"));
-                                log.debug("道具[{}] 资产状态: assetId={}, url={}", prop.getDisplayName(), 
-                                    assetStatus != null ? assetStatus.assetId() : null,
-                                    assetStatus != null ? assetStatus.currentUrl() : null);
-                                if (assetStatus != null && assetStatus.currentUrl() != null) {
-                                    thumbnailUrl = assetStatus.currentUrl();
-                                }
-                            }
-                            
-                            System.out.println("最终thumbnailUrl: " + thumbnailUrl);
-                            System.out.println("==========================================\n");
-                            log.info("道具[{}] 最终thumbnailUrl: {}", prop.getDisplayName(), thumbnailUrl);
-                            props.add(new BoundPropVO(
-                                    binding.getId(),
-                                    prop.getId(),
-                                    prop.getDisplayName(),
-                                    thumbnailUrl
-                            ));
-                        }
-                    }
-                }
-            }
-        }
-
-        // 查询分镜图资产状态
-        AssetStatusVO shotImageStatus = getAssetStatus(shot.getId(), "SHOT", "SHOT_IMG");
-        
-        // 查询视频资产状态
-        AssetStatusVO videoStatus = getAssetStatus(shot.getId(), "SHOT", "VIDEO");
-        
-        // 返回ShotVO
-        return new ShotVO(
-                shot.getId(),
-                shot.getShotNo(),
-                shot.getScriptText(),
-                characters,
-                scene,
-                props,
-                shotImageStatus,
-                videoStatus,
-                shot.getCreatedAt(),
-                shot.getUpdatedAt()
-        );
-    }
-    
-    /**
-     * 查询资产状态
-     * 
-     * @param ownerId 归属对象ID
-     * @param ownerType 归属对象类型
-     * @param assetType 资产类型
-     * @return 资产状态VO
-     */
-    private AssetStatusVO getAssetStatus(Long ownerId, String ownerType, String assetType) {
-        // 查询资产（按创建时间降序，取最新的一条）
-        LambdaQueryWrapper<Asset> assetQuery = new LambdaQueryWrapper<>();
-        assetQuery.eq(Asset::getOwnerId, ownerId)
-                .eq(Asset::getOwnerType, ownerType)
-                .eq(Asset::getAssetType, assetType)
-                .orderByDesc(Asset::getCreatedAt)
-                .last("LIMIT 1");
-        Asset asset = assetMapper.selectOne(assetQuery);
-        
-        if (asset == null) {
-            return createEmptyAssetStatus();
-        }
-        
-        // 查询当前版本
-        LambdaQueryWrapper<AssetVersion> versionQuery = new LambdaQueryWrapper<>();
-        versionQuery.eq(AssetVersion::getAssetId, asset.getId())
-                .orderByDesc(AssetVersion::getVersionNo)
-                .last("LIMIT 1");
-        AssetVersion currentVersion = assetVersionMapper.selectOne(versionQuery);
-        
-        if (currentVersion == null) {
-            return createEmptyAssetStatus();
-        }
-        
-        // 查询总版本数
-        LambdaQueryWrapper<AssetVersion> countQuery = new LambdaQueryWrapper<>();
-        countQuery.eq(AssetVersion::getAssetId, asset.getId());
-        long totalVersions = assetVersionMapper.selectCount(countQuery);
-        
-        // 构建资产状态VO
-        return new AssetStatusVO(
-                asset.getId(),
-                currentVersion.getId(),
-                currentVersion.getUrl(),
-                currentVersion.getStatus(),
-                (int) totalVersions
-        );
-    }
-
-    /**
-     * 创建空的资产状态VO
-     *
-     * @return 空资产状态VO
-     */
-    private AssetStatusVO createEmptyAssetStatus() {
-        return new AssetStatusVO(null, null, null, "NONE", 0);
-    }
-
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void deleteShotImageAsset(Long userId, Long projectId, Long shotId) {
         log.info("删除分镜图资产: userId={}, projectId={}, shotId={}", userId, projectId, shotId);
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 查询分镜是否存在且未删除
         StoryboardShot shot = shotMapper.selectById(shotId);
         if (shot == null || shot.getDeletedAt() != null) {
@@ -1445,6 +1255,9 @@ public class ShotServiceImpl implements ShotService {
     public void deleteVideoAsset(Long userId, Long projectId, Long shotId) {
         log.info("删除视频资产: userId={}, projectId={}, shotId={}", userId, projectId, shotId);
 
+        // 提交后使分镜列表缓存失效
+        shotViewCache.evict(projectId);
+
         // 1. 查询分镜是否存在且未删除
         StoryboardShot shot = shotMapper.selectById(shotId);
         if (shot == null || shot.getDeletedAt() != null) {
@@ -0,0 +1,66 @@
+package com.ym.ai_story_studio_server.service.impl;
+
+import com.ym.ai_story_studio_server.exception.StorageException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 限制读取总字节数的输入流
+ *
+ * <p>流式上传事先不知道文件长度,无法像{@code MultipartFile}那样先检查大小;
+ * 这里边读边计数,累计读取超过上限时立即抛出{@link StorageException},
+ * 超限的内容不会被继续读取和上传
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+final class SizeLimitedInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long count;
+
+    SizeLimitedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            consumed(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            consumed(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        consumed(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void consumed(long n) {
+        count += n;
+        if (count > maxBytes) {
+            throw new StorageException("FILE_TOO_LARGE",
+                    "文件大小超过上限: " + maxBytes / (1024 * 1024) + "MB");
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.ym.ai_story_studio_server.util;
 
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
@@ -9,8 +11,6 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -23,12 +23,15 @@ import java.util.List;
  */
 @Slf4j
 @Component
+@RequiredArgsConstructor
 public class ImageMergeUtil {
 
     private static final int PADDING = 20; // 图片之间的间距
     private static final int MAX_HEIGHT = 1024; // 最大高度
     private static final Color BACKGROUND_COLOR = Color.WHITE; // 背景颜色
 
+    private final HttpTransport httpTransport;
+
     /**
      * 将多个图片URL横向拼接成一张图片
      *
@@ -112,9 +115,8 @@ public class ImageMergeUtil {
      * 从URL下载图片
      */
     private BufferedImage downloadImage(String imageUrl) throws IOException {
-        URL url = new URL(imageUrl);
-        try (InputStream in = url.openStream()) {
-            return ImageIO.read(in);
+        try (HttpTransport.Download download = httpTransport.open(imageUrl)) {
+            return ImageIO.read(download.body());
         }
     }
 
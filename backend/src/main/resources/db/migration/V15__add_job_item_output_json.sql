@@ -0,0 +1,2 @@
+-- 为job_items表添加输出结果字段，记录批量任务每个子项的生成结果（图片URL列表等）
+ALTER TABLE job_items ADD COLUMN output_json JSON NULL COMMENT '输出结果（JSON）：生成的图片URL列表等' AFTER output_asset_version_id;
@@ -0,0 +1,5 @@
+-- 为jobs表添加视频轮询租约字段，保证多节点部署时每个在途视频任务只被一个节点轮询
+ALTER TABLE jobs
+ADD COLUMN poll_owner VARCHAR(64) NULL COMMENT '轮询租约持有节点ID' AFTER meta_json,
+ADD COLUMN lease_until DATETIME NULL COMMENT '轮询租约到期时间' AFTER poll_owner,
+ADD KEY idx_type_status (job_type, status);
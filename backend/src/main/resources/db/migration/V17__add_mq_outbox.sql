@@ -0,0 +1,18 @@
+-- MQ发件箱：任务消息与jobs/job_items在同一事务中写入，由后台发布器批量发送，收到broker确认后删除
+CREATE TABLE mq_outbox_messages (
+                                    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '消息ID',
+                                    job_id BIGINT NULL COMMENT '关联任务ID',
+                                    exchange_name VARCHAR(128) NOT NULL COMMENT '交换机',
+                                    routing_key VARCHAR(128) NOT NULL COMMENT '路由键',
+                                    content_type VARCHAR(64) NOT NULL COMMENT '消息体编码类型',
+                                    message_type VARCHAR(64) NULL COMMENT '消息类型头（x-message-type）',
+                                    schema_version INT NULL COMMENT '消息结构版本头（x-schema-version）',
+                                    payload MEDIUMBLOB NOT NULL COMMENT '编码后的消息体',
+                                    attempts INT NOT NULL DEFAULT 0 COMMENT '已发送次数',
+                                    next_attempt_at DATETIME(3) NOT NULL COMMENT '下次可发送时间（发送中时为确认租约到期时间）',
+                                    claim_token VARCHAR(64) NULL COMMENT '最近一次领取批次标识',
+                                    last_error VARCHAR(512) NULL COMMENT '最近一次发送失败原因',
+                                    created_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) COMMENT '创建时间',
+                                    KEY idx_next_attempt (next_attempt_at),
+                                    KEY idx_claim_token (claim_token)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='MQ发件箱（待发送/待确认的任务消息）';
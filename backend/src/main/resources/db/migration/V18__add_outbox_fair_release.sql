@@ -0,0 +1,5 @@
+-- 批量子项消息按用户公平放行：未放行的消息next_attempt_at为空，由发件箱按用户在途上限和权重轮转放行
+ALTER TABLE mq_outbox_messages
+MODIFY COLUMN next_attempt_at DATETIME(3) NULL COMMENT '下次可发送时间（发送中时为确认租约到期时间，为空表示批量子项尚未放行）',
+ADD COLUMN user_id BIGINT NULL COMMENT '任务所属用户ID（仅批量子项消息）' AFTER job_id,
+ADD KEY idx_user_held (user_id, next_attempt_at);
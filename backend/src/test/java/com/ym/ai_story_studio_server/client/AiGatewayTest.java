@@ -0,0 +1,160 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#AI-GATEWAY-001]
+//   Timestamp: [2026-10-17 19:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证AI网关过载时缩减并发并重新排队重试,连续过载后熔断快速失败,熔断到期探测成功后恢复,非容量错误不影响限流,交互式调用优先于批量调用"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.client;
+
+import com.ym.ai_story_studio_server.common.ResultCode;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * AiGateway 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("AiGateway 单元测试")
+class AiGatewayTest {
+
+    private static final String MODEL = "gemini-3-pro-image-preview";
+
+    private AiProperties aiProperties;
+
+    private AiGateway gateway;
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AiProperties();
+        aiProperties.getBatch().setDefaultConcurrency(8);
+        AiProperties.Gateway config = aiProperties.getGateway();
+        config.setOverloadPause(20L);
+        config.setOpenDuration(100L);
+        config.setAcquireTimeout(1000L);
+        gateway = new AiGateway(aiProperties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("负载饱和时缩减并发上限并重新排队重试")
+    void execute_Saturated_ShrinksLimitAndRetries() {
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = gateway.execute(MODEL, () -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new BusinessException(ResultCode.AI_SERVICE_BUSY, "负载已饱和");
+            }
+            return "ok";
+        });
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(gateway.gateFor(MODEL).limit()).isEqualTo(4.0);
+        assertThat(gateway.gateFor(MODEL).inFlight()).isZero();
+    }
+
+    @Test
+    @DisplayName("连续过载达到阈值后熔断,熔断期间快速失败")
+    void execute_ConsecutiveOverloads_OpensCircuit() {
+        AtomicInteger calls = new AtomicInteger();
+        aiProperties.getGateway().setMaxRetries(0);
+        aiProperties.getGateway().setOpenDuration(60000L);
+
+        for (int i = 0; i < aiProperties.getGateway().getFailureThreshold(); i++) {
+            assertThatThrownBy(() -> gateway.execute(MODEL, () -> {
+                calls.incrementAndGet();
+                throw new BusinessException(ResultCode.AI_SERVICE_BUSY, "负载已饱和");
+            })).isInstanceOf(BusinessException.class);
+        }
+        assertThat(gateway.gateFor(MODEL).state()).isEqualTo(AiGateway.CircuitState.OPEN);
+
+        assertThatThrownBy(() -> gateway.execute(MODEL, calls::incrementAndGet))
+                .isInstanceOf(BusinessException.class)
+                .extracting(e -> ((BusinessException) e).getResultCode())
+                .isEqualTo(ResultCode.AI_SERVICE_BUSY);
+        assertThat(calls.get()).isEqualTo(aiProperties.getGateway().getFailureThreshold());
+        assertThat(gateway.gateFor(MODEL).limit()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("熔断到期后探测请求成功则恢复")
+    void execute_AfterOpenDuration_ProbeClosesCircuit() throws Exception {
+        aiProperties.getGateway().setMaxRetries(0);
+        aiProperties.getGateway().setFailureThreshold(1);
+
+        assertThatThrownBy(() -> gateway.execute(MODEL, () -> {
+            throw new BusinessException(ResultCode.AI_SERVICE_BUSY, "负载已饱和");
+        })).isInstanceOf(BusinessException.class);
+        assertThat(gateway.gateFor(MODEL).state()).isEqualTo(AiGateway.CircuitState.OPEN);
+
+        Thread.sleep(150);
+
+        assertThat(gateway.execute(MODEL, () -> "probe")).isEqualTo("probe");
+        assertThat(gateway.gateFor(MODEL).state()).isEqualTo(AiGateway.CircuitState.CLOSED);
+    }
+
+    @Test
+    @DisplayName("参数错误等非容量错误不缩减并发也不重试")
+    void execute_NonCapacityError_NotRetried() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> gateway.execute(MODEL, () -> {
+            calls.incrementAndGet();
+            throw new BusinessException(ResultCode.AI_SERVICE_ERROR, "请求参数错误");
+        })).hasMessage("请求参数错误");
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(gateway.gateFor(MODEL).limit()).isEqualTo(8.0);
+    }
+
+    @Test
+    @DisplayName("名额空出时交互式调用先于更早排队的批量调用获得名额")
+    void acquire_InteractiveBeforeQueuedBulk() throws Exception {
+        aiProperties.getBatch().getModelConcurrency().put("single-model", 1);
+        AiGateway.ModelGate gate = gateway.gateFor("single-model");
+        List<String> order = new CopyOnWriteArrayList<>();
+        gate.acquire();
+
+        Thread bulk = waiter(gate, true, "bulk", order);
+        awaitQueued(gate, 1);
+        Thread interactive = waiter(gate, false, "interactive", order);
+        awaitQueued(gate, 2);
+        gate.release();
+        bulk.join(1000);
+        interactive.join(1000);
+
+        assertThat(order).containsExactly("interactive", "bulk");
+    }
+
+    private static Thread waiter(AiGateway.ModelGate gate, boolean bulk, String name, List<String> order) {
+        Thread thread = new Thread(() -> {
+            gate.acquire(bulk);
+            order.add(name);
+            gate.release();
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void awaitQueued(AiGateway.ModelGate gate, int queued) throws InterruptedException {
+        for (int i = 0; i < 100 && gate.queued() < queued; i++) {
+            Thread.sleep(10);
+        }
+        assertThat(gate.queued()).isEqualTo(queued);
+    }
+}
+// {{END_MODIFICATIONS}}
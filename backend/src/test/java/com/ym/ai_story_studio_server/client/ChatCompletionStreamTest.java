@@ -0,0 +1,99 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#TEXT-STREAM-001]
+//   Timestamp: [2026-10-17 21:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证Chat Completions流式响应解析:按顺序回调增量并拼接全文,读取末尾usage,忽略心跳和空增量,流内错误对象转为业务异常,未收到结束标记即断开的流视为生成中断"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.client;
+
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ChatCompletionStream 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("ChatCompletionStream 单元测试")
+class ChatCompletionStreamTest {
+
+    @Test
+    @DisplayName("按顺序回调增量,拼接全文并读取末尾usage")
+    void read_RelaysDeltasAndAggregates() throws Exception {
+        String body = """
+                : keep-alive
+
+                data: {"id":"chatcmpl-1","model":"gemini-3-pro-preview","choices":[{"index":0,"delta":{"role":"assistant","content":""},"finish_reason":null}]}
+
+                data: {"id":"chatcmpl-1","choices":[{"index":0,"delta":{"content":"场1-1 日 内\\n"},"finish_reason":null}]}
+
+                data: {"id":"chatcmpl-1","choices":[{"index":0,"delta":{"content":"咖啡厅"},"finish_reason":"stop"}]}
+
+                data: {"id":"chatcmpl-1","choices":[],"usage":{"prompt_tokens":12,"completion_tokens":8,"total_tokens":20}}
+
+                data: [DONE]
+
+                """;
+        List<String> deltas = new ArrayList<>();
+
+        VectorEngineClient.TextApiResponse response = ChatCompletionStream.read(stream(body), deltas::add);
+
+        assertThat(deltas).containsExactly("场1-1 日 内\n", "咖啡厅");
+        assertThat(response.choices().get(0).message().content()).isEqualTo("场1-1 日 内\n咖啡厅");
+        assertThat(response.choices().get(0).finishReason()).isEqualTo("stop");
+        assertThat(response.model()).isEqualTo("gemini-3-pro-preview");
+        assertThat(response.usage().totalTokens()).isEqualTo(20);
+    }
+
+    @Test
+    @DisplayName("流内返回错误对象时抛出业务异常")
+    void read_ErrorChunk_Throws() {
+        String body = """
+                data: {"choices":[{"index":0,"delta":{"content":"开头"}}]}
+
+                data: {"error":{"message":"upstream disconnected","type":"server_error"}}
+
+                """;
+        List<String> deltas = new ArrayList<>();
+
+        assertThatThrownBy(() -> ChatCompletionStream.read(stream(body), deltas::add))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("upstream disconnected");
+        assertThat(deltas).containsExactly("开头");
+    }
+
+    @Test
+    @DisplayName("未收到[DONE]和finish_reason就结束的流视为生成中断")
+    void read_TruncatedStream_Throws() {
+        String body = """
+                data: {"id":"chatcmpl-1","choices":[{"index":0,"delta":{"content":"场1-1 日 内\\n"},"finish_reason":null}]}
+
+                data: {"id":"chatcmpl-1","choices":[{"index":0,"delta":{"content":"咖啡"},"finish_reason":null}]}
+
+                """;
+        List<String> deltas = new ArrayList<>();
+
+        assertThatThrownBy(() -> ChatCompletionStream.read(stream(body), deltas::add))
+                .isInstanceOf(BusinessException.class)
+                .hasMessageContaining("AI文本生成中断");
+        assertThat(deltas).containsExactly("场1-1 日 内\n", "咖啡");
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,96 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#IMAGE-SPOOL-001]
+//   Timestamp: [2026-10-17 20:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证Gemini响应流式解码落盘:跳过非图片part定位inlineData.data,读取后删除文件,拒绝落盘目录外的file地址,无图片时不残留文件"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.client;
+
+import com.ym.ai_story_studio_server.exception.BusinessException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ImageSpool 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("ImageSpool 单元测试")
+class ImageSpoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path spoolDir;
+
+    private ImageSpool imageSpool;
+
+    @BeforeEach
+    void setUp() {
+        spoolDir = tempDir.resolve("spool");
+        imageSpool = new ImageSpool(spoolDir, null);
+    }
+
+    @Test
+    @DisplayName("跳过文本part解码inlineData.data,读取完成后删除文件")
+    void spoolInlineImage_DecodesAndDeletesAfterRead() throws Exception {
+        byte[] image = new byte[300_000];
+        new Random(42).nextBytes(image);
+        String json = """
+                {"candidates":[{"content":{"parts":[
+                  {"text":"这是生成的图片"},
+                  {"inlineData":{"mimeType":"image/png","data":"%s"}}
+                ]},"finishReason":"STOP"}],"usageMetadata":{"totalTokenCount":1290}}
+                """.formatted(Base64.getEncoder().encodeToString(image));
+
+        String uri = imageSpool.spoolInlineImage(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(imageSpool.isSpooled(uri)).isTrue();
+        Path file = Paths.get(URI.create(uri));
+        try (InputStream in = imageSpool.open(uri)) {
+            assertThat(in.readAllBytes()).isEqualTo(image);
+        }
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("响应中没有图片数据时抛出异常且不残留文件")
+    void spoolInlineImage_NoInlineData_Throws() {
+        String json = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"无法生成\"}]}}]}";
+
+        assertThatThrownBy(() -> imageSpool.spoolInlineImage(
+                new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(BusinessException.class);
+        assertThat(spoolDir.toFile().list()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("只识别落盘目录下的文件")
+    void isSpooled_RejectsForeignFiles() throws Exception {
+        Path outside = Files.createFile(tempDir.resolve("image-secret.bin"));
+
+        assertThat(imageSpool.isSpooled(outside.toUri().toString())).isFalse();
+        assertThat(imageSpool.isSpooled(spoolDir.resolve("../image-secret.bin").toUri().toString())).isFalse();
+        assertThat(imageSpool.isSpooled("https://example.com/image-1.bin")).isFalse();
+        assertThat(imageSpool.isSpooled("iVBORw0KGgo")).isFalse();
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,118 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#REF-IMAGE-CACHE-001]
+//   Timestamp: [2026-10-17 18:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证参考图缓存同一URL只下载一次(含并发请求),下载失败不缓存,base64与原始字节一致"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.client;
+
+import com.sun.net.httpserver.HttpServer;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.config.HttpClientProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ReferenceImageCache 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("ReferenceImageCache 单元测试")
+class ReferenceImageCacheTest {
+
+    private static final byte[] IMAGE = "fake-png".getBytes(StandardCharsets.UTF_8);
+
+    private HttpServer server;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private ReferenceImageCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            if (exchange.getRequestURI().getPath().endsWith("/missing.png")) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.getResponseHeaders().add("Content-Type", "image/png; charset=binary");
+                exchange.sendResponseHeaders(200, IMAGE.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(IMAGE);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        HttpTransport httpTransport = new HttpTransport(new HttpClientProperties(), meterRegistry);
+        cache = new ReferenceImageCache(httpTransport, new AiProperties(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("同一URL重复和并发获取只下载一次")
+    void get_SameUrl_DownloadsOnce() throws Exception {
+        String url = baseUrl() + "/character.png";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ReferenceImageCache.ReferenceImage>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> cache.get(url)));
+            }
+            for (Future<ReferenceImageCache.ReferenceImage> future : futures) {
+                assertThat(future.get().bytes()).isEqualTo(IMAGE);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ReferenceImageCache.ReferenceImage image = cache.get(url);
+        assertThat(requests.get()).isEqualTo(1);
+        assertThat(Base64.getDecoder().decode(image.base64())).isEqualTo(IMAGE);
+        assertThat(image.imageMimeType("image/jpeg")).isEqualTo("image/png");
+    }
+
+    @Test
+    @DisplayName("下载失败时抛出IOException且不缓存")
+    void get_DownloadFails_NotCached() {
+        String url = baseUrl() + "/missing.png";
+
+        assertThatThrownBy(() -> cache.get(url)).isInstanceOf(IOException.class).hasMessageContaining("404");
+        assertThatThrownBy(() -> cache.get(url)).isInstanceOf(IOException.class);
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
+// {{END_MODIFICATIONS}}
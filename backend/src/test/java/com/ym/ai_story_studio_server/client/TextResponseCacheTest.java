@@ -0,0 +1,150 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#TEXT-CACHE-001]
+//   Timestamp: [2026-10-17 22:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证文本响应缓存:未启用或高温度时绕过,参数变化产生不同键,写入后可读回并按调用点计数,截断结果不缓存,校验未通过的条目可删除"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * TextResponseCache 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("TextResponseCache 单元测试")
+class TextResponseCacheTest {
+
+    private static final String MODEL = "gemini-3-pro-preview";
+    private static final String SYSTEM = "system";
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private AiProperties aiProperties;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private TextResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        aiProperties = new AiProperties();
+        aiProperties.getTextCache().setEnabled(true);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new TextResponseCache(redisTemplate, new ObjectMapper(), aiProperties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("未启用或温度超过阈值时绕过缓存")
+    void key_DisabledOrCreative_Bypasses() {
+        assertThat(cache.key(MODEL, SYSTEM, "剧本", 4096, 0.7, 0.9)).isNull();
+
+        aiProperties.getTextCache().setEnabled(false);
+        String key = cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.9);
+        assertThat(key).isNull();
+        assertThat(cache.get("script_parse", key)).isNull();
+
+        verifyNoInteractions(valueOperations);
+        assertThat(meterRegistry.get("ai.text.cache.gets").tag("call_site", "script_parse").tag("result", "bypass")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("任一参数变化都产生不同的键")
+    void key_ChangesWithEveryParameter() {
+        String base = cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.9);
+
+        assertThat(base).startsWith("AI:TEXT:CACHE:").isEqualTo(cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.9));
+        assertThat(List.of(
+                cache.key("other-model", SYSTEM, "剧本", 4096, 0.3, 0.9),
+                cache.key(MODEL, "other", "剧本", 4096, 0.3, 0.9),
+                cache.key(MODEL, SYSTEM, "剧本2", 4096, 0.3, 0.9),
+                cache.key(MODEL, SYSTEM, "剧本", 2048, 0.3, 0.9),
+                cache.key(MODEL, SYSTEM, "剧本", 4096, 0.2, 0.9),
+                cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.8)
+        )).doesNotContain(base).doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("写入后按调用点命中并统计")
+    void putThenGet_Hit() {
+        String key = cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.9);
+        cache.put(key, response("场1-1 日 内 咖啡厅", "stop"));
+
+        ArgumentCaptor<String> json = ArgumentCaptor.forClass(String.class);
+        verify(valueOperations).set(eq(key), json.capture(), eq(Duration.ofMinutes(1440)));
+        when(valueOperations.get(key)).thenReturn(json.getValue());
+
+        VectorEngineClient.TextApiResponse cached = cache.get("script_parse", key);
+
+        assertThat(cached.choices().get(0).message().content()).isEqualTo("场1-1 日 内 咖啡厅");
+        assertThat(meterRegistry.get("ai.text.cache.gets").tag("call_site", "script_parse").tag("result", "hit")
+                .counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("被max_tokens截断或为空的结果不缓存")
+    void put_TruncatedOrBlank_NotCached() {
+        String key = cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.9);
+
+        cache.put(key, response("场1-1 日 内", "length"));
+        cache.put(key, response("  ", "stop"));
+
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("删除缓存时按键删除,绕过的调用不访问Redis")
+    void evict_DeletesKey() {
+        String key = cache.key(MODEL, SYSTEM, "剧本", 4096, 0.3, 0.9);
+
+        cache.evict(key);
+        cache.evict(null);
+
+        verify(redisTemplate, times(1)).delete(anyString());
+        verify(redisTemplate).delete(key);
+    }
+
+    private static VectorEngineClient.TextApiResponse response(String content, String finishReason) {
+        return new VectorEngineClient.TextApiResponse(
+                "chatcmpl-1",
+                List.of(new VectorEngineClient.TextApiResponse.Choice(
+                        new VectorEngineClient.TextApiResponse.Message("assistant", content), finishReason)),
+                null,
+                MODEL);
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,165 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#MQ-FAIR-001]
+//   Timestamp: [2026-10-18 00:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证批量子项按用户公平放行:额度按权重分配、用户在途上限、额度不足时轮转,按在途数计算本轮放行条数"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.mq;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.entity.MqOutboxMessage;
+import com.ym.ai_story_studio_server.mapper.JobItemMapper;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import com.ym.ai_story_studio_server.mapper.MqOutboxMessageMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * MQFairReleaser 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("MQFairReleaser 单元测试")
+class MQFairReleaserTest {
+
+    @Mock
+    private MqOutboxMessageMapper outboxMapper;
+
+    @Mock
+    private JobMapper jobMapper;
+
+    @Mock
+    private JobItemMapper jobItemMapper;
+
+    private AiProperties aiProperties;
+
+    private MQFairReleaser releaser;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的字段缓存，脱离Spring容器时手动初始化
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, MqOutboxMessage.class);
+        TableInfoHelper.initTableInfo(assistant, Job.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AiProperties();
+        aiProperties.getBatch().setPerUserInFlight(8);
+        aiProperties.getBatch().setMaxReleased(64);
+        releaser = new MQFairReleaser(outboxMapper, jobMapper, jobItemMapper, aiProperties);
+    }
+
+    @Test
+    @DisplayName("额度不足时按权重分配")
+    void plan_SplitsBudgetByWeight() {
+        Map<Long, Integer> grants = releaser.plan(List.of(
+                new MQFairReleaser.Demand(1L, 500, 0, 1, 100),
+                new MQFairReleaser.Demand(2L, 500, 0, 3, 100)), 8);
+
+        assertThat(grants).containsEntry(1L, 2).containsEntry(2L, 6);
+    }
+
+    @Test
+    @DisplayName("已达在途上限的用户不放行,小批次一次放完")
+    void plan_RespectsPerUserCap() {
+        Map<Long, Integer> grants = releaser.plan(List.of(
+                new MQFairReleaser.Demand(1L, 500, 8, 1, 8),
+                new MQFairReleaser.Demand(2L, 3, 0, 1, 8)), 64);
+
+        assertThat(grants).containsOnlyKeys(2L).containsEntry(2L, 3);
+    }
+
+    @Test
+    @DisplayName("每轮额度只够一条时各用户轮流放行")
+    void plan_RotatesWhenBudgetIsScarce() {
+        List<MQFairReleaser.Demand> demands = List.of(
+                new MQFairReleaser.Demand(1L, 10, 0, 1, 8),
+                new MQFairReleaser.Demand(2L, 10, 0, 1, 8),
+                new MQFairReleaser.Demand(3L, 10, 0, 1, 8));
+
+        assertThat(releaser.plan(demands, 1)).containsOnlyKeys(1L);
+        assertThat(releaser.plan(demands, 1)).containsOnlyKeys(2L);
+        assertThat(releaser.plan(demands, 1)).containsOnlyKeys(3L);
+        assertThat(releaser.plan(demands, 1)).containsOnlyKeys(1L);
+    }
+
+    @Test
+    @DisplayName("在途数为未结束子项减去未放行消息,只放行到用户上限")
+    void releaseDue_ReleasesUpToUserCap() {
+        // 用户7的任务100共10个未结束子项,其中4条消息未放行,在途6条,上限8,本轮放行2条
+        when(outboxMapper.selectMaps(any())).thenReturn(List.of(
+                Map.of("user_id", 7L, "job_id", 100L, "cnt", 4L)));
+        when(jobItemMapper.selectMaps(any())).thenReturn(List.of(Map.of("job_id", 100L, "cnt", 10L)));
+        Job job = new Job();
+        job.setId(100L);
+        job.setUserId(7L);
+        when(jobMapper.selectList(any())).thenReturn(List.of(job));
+        when(outboxMapper.update(isNull(), any())).thenReturn(2);
+
+        assertThat(releaser.releaseDue()).isEqualTo(2);
+
+        ArgumentCaptor<Wrapper<MqOutboxMessage>> update = wrapperCaptor();
+        verify(outboxMapper).update(isNull(), update.capture());
+        assertThat(update.getValue().getSqlSegment()).endsWith("LIMIT 2");
+    }
+
+    @Test
+    @DisplayName("已取消任务的未放行消息被删除,不占用额度")
+    void releaseDue_DiscardsHeldRowsOfFinishedJobs() {
+        when(outboxMapper.selectMaps(any())).thenReturn(List.of(
+                Map.of("user_id", 7L, "job_id", 100L, "cnt", 500L)));
+        // 任务100已取消,按状态查询不到
+        when(jobMapper.selectList(any())).thenReturn(List.of());
+        when(outboxMapper.delete(any())).thenReturn(500);
+
+        assertThat(releaser.releaseDue()).isZero();
+
+        verify(outboxMapper).delete(any());
+        verify(outboxMapper, never()).update(any(), any());
+        verifyNoInteractions(jobItemMapper);
+    }
+
+    @Test
+    @DisplayName("没有未放行消息时不查询在途数")
+    void releaseDue_NothingHeld() {
+        when(outboxMapper.selectMaps(any())).thenReturn(List.of());
+
+        assertThat(releaser.releaseDue()).isZero();
+
+        verifyNoInteractions(jobItemMapper, jobMapper);
+        verify(outboxMapper, never()).update(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Wrapper<MqOutboxMessage>> wrapperCaptor() {
+        return ArgumentCaptor.forClass(Wrapper.class);
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,126 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#MQ-CODEC-001]
+//   Timestamp: [2026-10-17 22:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证MQ消息CBOR编解码:类型/版本头、忽略新版本新增字段、兼容读取Java序列化旧消息、过渡期仍可发送Java序列化"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.mq;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.ym.ai_story_studio_server.dto.ai.ShotVideoGenerateRequest.AssetResource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * MQMessageCodec 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("MQMessageCodec 单元测试")
+class MQMessageCodecTest {
+
+    private static final String BASELINE_BATCH_MESSAGE =
+            "rO0ABXNyADFjb20ueW0uYWlfc3Rvcnlfc3R1ZGlvX3NlcnZlci5tcS5CYXRjaFRhc2tNZXNzYWdl9re6m7V0ib8CAAhMAAth"
+            + "c3BlY3RSYXRpb3QAEkxqYXZhL2xhbmcvU3RyaW5nO0wADGNvdW50UGVySXRlbXQAE0xqYXZhL2xhbmcvSW50ZWdlcjtMAAVq"
+            + "b2JJZHQAEExqYXZhL2xhbmcvTG9uZztMAARtb2RlcQB+AAFMAAVtb2RlbHEAfgABTAAJcHJvamVjdElkcQB+AANMAAl0YXJn"
+            + "ZXRJZHN0ABBMamF2YS91dGlsL0xpc3Q7TAAGdXNlcklkcQB+AAN4cHQABDE2OjlzcgARamF2YS5sYW5nLkludGVnZXIS4qCk"
+            + "94GHOAIAAUkABXZhbHVleHIAEGphdmEubGFuZy5OdW1iZXKGrJUdC5TgiwIAAHhwAAAAAXNyAA5qYXZhLmxhbmcuTG9uZzuL"
+            + "5JDMjyPfAgABSgAFdmFsdWV4cQB+AAgAAAAAAAAAAXQAA0FMTHQABW1vZGVsc3EAfgAKAAAAAAAAAANzcgATamF2YS51dGls"
+            + "LkFycmF5TGlzdHiB0h2Zx2GdAwABSQAEc2l6ZXhwAAAAAXcEAAAAAXNxAH4ACgAAAAAAAAAEeHNxAH4ACgAAAAAAAAAC";
+
+    private final MQMessageCodec codec = new MQMessageCodec(false);
+
+    @Test
+    @DisplayName("各消息类型CBOR编解码往返一致,并写入类型和版本头")
+    void roundTrip_AllMessageTypes() {
+        List<Object> messages = List.of(
+                new BatchTaskMessage(1L, 2L, 3L, List.of(4L, 5L), "ALL", 1, "16:9", "model", 6L, 0),
+                new SingleShotImageMessage(1L, 2L, 3L, 4L, "16:9", null, "提示词", List.of("https://a/1.png")),
+                new SingleShotVideoMessage(1L, 2L, 3L, 4L, "提示词", "16:9", 8, "1280x720", null,
+                        new AssetResource(7L, "咖啡厅", "https://a/7.png"),
+                        List.of(new AssetResource(8L, "林辰", "https://a/8.png")), List.of()),
+                new TextParsingMessage(1L, 2L, 3L, "场1-1 日 内 咖啡厅"));
+
+        for (Object original : messages) {
+            Message message = codec.toMessage(original, new MessageProperties());
+
+            assertThat(message.getMessageProperties().getContentType()).isEqualTo(MQMessageCodec.CONTENT_TYPE_CBOR);
+            assertThat((Object) message.getMessageProperties().getHeader(MQConstant.HEADER_MESSAGE_TYPE)).isNotNull();
+            assertThat((Object) message.getMessageProperties().getHeader(MQConstant.HEADER_SCHEMA_VERSION)).isEqualTo(1);
+            assertThat(codec.fromMessage(message)).isEqualTo(original);
+        }
+    }
+
+    @Test
+    @DisplayName("更高版本消息中的未知字段被忽略")
+    void fromMessage_IgnoresUnknownFieldsFromNewerVersion() throws Exception {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", 1L);
+        body.put("userId", 2L);
+        body.put("projectId", 3L);
+        body.put("rawText", "剧本");
+        body.put("priority", 9);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MQMessageCodec.CONTENT_TYPE_CBOR);
+        properties.setHeader(MQConstant.HEADER_MESSAGE_TYPE, "text-parsing");
+        properties.setHeader(MQConstant.HEADER_SCHEMA_VERSION, 2);
+
+        Object decoded = codec.fromMessage(new Message(new CBORMapper().writeValueAsBytes(body), properties));
+
+        assertThat(decoded).isEqualTo(new TextParsingMessage(1L, 2L, 3L, "剧本"));
+    }
+
+    @Test
+    @DisplayName("兼容读取Java序列化的旧消息,过渡期发送的消息旧转换器可读")
+    void legacyJavaSerialization_ReadableBothWays() {
+        TextParsingMessage original = new TextParsingMessage(1L, 2L, 3L, "剧本");
+
+        Message legacy = MQMessageCodec.legacyConverter().toMessage(original, new MessageProperties());
+        assertThat(codec.fromMessage(legacy)).isEqualTo(original);
+
+        Message transitional = new MQMessageCodec(true).toMessage(original, new MessageProperties());
+        assertThat(MQMessageCodec.legacyConverter().fromMessage(transitional)).isEqualTo(original);
+    }
+
+    @Test
+    @DisplayName("升级前入队的Java序列化批量消息仍可读取")
+    void legacyJavaSerialization_ReadsBaselineBatchMessage() {
+        // 增加jobItemId/itemIndex字段之前的BatchTaskMessage序列化结果
+        byte[] body = Base64.getDecoder().decode(BASELINE_BATCH_MESSAGE);
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_SERIALIZED_OBJECT);
+
+        Object decoded = codec.fromMessage(new Message(body, properties));
+
+        assertThat(decoded).isEqualTo(
+                new BatchTaskMessage(1L, 2L, 3L, List.of(4L), "ALL", 1, "16:9", "model", null, null));
+    }
+
+    @Test
+    @DisplayName("未登记的消息类型编解码失败")
+    void unknownType_Fails() {
+        assertThatThrownBy(() -> codec.toMessage("plain string", new MessageProperties()))
+                .isInstanceOf(MessageConversionException.class);
+
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MQMessageCodec.CONTENT_TYPE_CBOR);
+        properties.setHeader(MQConstant.HEADER_MESSAGE_TYPE, "unknown");
+        assertThatThrownBy(() -> codec.fromMessage(new Message(new byte[]{(byte) 0xA0}, properties)))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
+// {{END_MODIFICATIONS}}
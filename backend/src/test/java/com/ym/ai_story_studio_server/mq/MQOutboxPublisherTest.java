@@ -0,0 +1,220 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#MQ-OUTBOX-001]
+//   Timestamp: [2026-10-17 23:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证MQ发件箱:写入时按转换器编码并唤醒发布线程,ack删除、nack/退回退避重试,连接异常时整批重试"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.mq;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.ym.ai_story_studio_server.entity.MqOutboxMessage;
+import com.ym.ai_story_studio_server.mapper.MqOutboxMessageMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.net.ConnectException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * MQOutboxPublisher 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("MQOutboxPublisher 单元测试")
+class MQOutboxPublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private MqOutboxMessageMapper outboxMapper;
+
+    @Mock
+    private TaskScheduler outboxScheduler;
+
+    @Mock
+    private MQFairReleaser fairReleaser;
+
+    private MQOutboxPublisher publisher;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaUpdateWrapper.set需要实体的字段缓存，脱离Spring容器时手动初始化
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""),
+                MqOutboxMessage.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        when(rabbitTemplate.getMessageConverter()).thenReturn(new MQMessageCodec(false));
+        when(connectionFactory.isPublisherConfirms()).thenReturn(true);
+        publisher = new MQOutboxPublisher(rabbitTemplate, outboxMapper, outboxScheduler, fairReleaser);
+    }
+
+    @Test
+    @DisplayName("写入发件箱时按消息转换器编码,无事务时立即唤醒发布线程")
+    @SuppressWarnings("unchecked")
+    void enqueue_EncodesAndWakesUp() {
+        publisher.enqueue(MQConstant.EXCHANGE_BUSINESS, MQConstant.ROUTING_KEY_TEXT_PARSING, 1L,
+                List.of(new TextParsingMessage(1L, 2L, 3L, "剧本")));
+        publisher.enqueue(MQConstant.EXCHANGE_BUSINESS, MQConstant.ROUTING_KEY_TEXT_PARSING, 2L,
+                List.of(new TextParsingMessage(2L, 2L, 3L, "剧本")));
+
+        ArgumentCaptor<Collection<MqOutboxMessage>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(outboxMapper, times(2)).insert(rows.capture());
+        MqOutboxMessage row = rows.getAllValues().get(0).iterator().next();
+        assertThat(row.getContentType()).isEqualTo(MQMessageCodec.CONTENT_TYPE_CBOR);
+        assertThat(row.getMessageType()).isEqualTo("text-parsing");
+        assertThat(row.getSchemaVersion()).isEqualTo(1);
+        assertThat(row.getRoutingKey()).isEqualTo(MQConstant.ROUTING_KEY_TEXT_PARSING);
+        // 发布线程尚未执行,两次写入只触发一次唤醒
+        verify(outboxScheduler, times(1)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    @DisplayName("批量子项消息写入时记录用户且不设发送时间,等待公平放行")
+    @SuppressWarnings("unchecked")
+    void enqueueBulk_HeldForFairRelease() {
+        publisher.enqueueBulk(MQConstant.EXCHANGE_BUSINESS, MQConstant.ROUTING_KEY_BATCH_SHOT_IMAGE, 1L, 2L,
+                List.of(new BatchTaskMessage(1L, 2L, 3L, List.of(4L), "ALL", 1, "16:9", "model", 5L, 0)));
+
+        ArgumentCaptor<Collection<MqOutboxMessage>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(outboxMapper).insert(rows.capture());
+        MqOutboxMessage row = rows.getValue().iterator().next();
+        assertThat(row.getUserId()).isEqualTo(2L);
+        assertThat(row.getNextAttemptAt()).isNull();
+    }
+
+    @Test
+    @DisplayName("ack的消息删除,nack和被退回的消息退避重试")
+    void publishBatch_DeletesAckedAndRetriesRejected() {
+        givenClaimed(row(1L), row(2L), row(3L));
+        doAnswer(invocation -> {
+            Message message = invocation.getArgument(2);
+            CorrelationData correlation = invocation.getArgument(3);
+            switch (correlation.getId()) {
+                case "outbox-2" -> correlation.getFuture().complete(new CorrelationData.Confirm(false, "nacked"));
+                case "outbox-3" -> {
+                    correlation.setReturned(new ReturnedMessage(message, 312, "NO_ROUTE",
+                            MQConstant.EXCHANGE_BUSINESS, "unknown"));
+                    correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+                }
+                default -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            }
+            return null;
+        }).when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThat(publisher.publishBatch()).isEqualTo(3);
+
+        ArgumentCaptor<Wrapper<MqOutboxMessage>> deleted = wrapperCaptor();
+        verify(outboxMapper).delete(deleted.capture());
+        // 条件参数在生成SQL片段时才写入
+        deleted.getValue().getSqlSegment();
+        assertThat(((LambdaQueryWrapper<MqOutboxMessage>) deleted.getValue()).getParamNameValuePairs().values())
+                .containsExactly(1L);
+        assertThat(retryErrors()).containsExactly("broker拒绝: nacked", "消息无法路由: NO_ROUTE");
+    }
+
+    @Test
+    @DisplayName("发送时连接异常,本轮剩余消息不再发送并全部退避重试")
+    void publishBatch_ConnectionFailure_RetriesWholeBatch() {
+        givenClaimed(row(1L), row(2L));
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(rabbitTemplate).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+
+        assertThat(publisher.publishBatch()).isEqualTo(2);
+
+        verify(rabbitTemplate, times(1)).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+        verify(outboxMapper, never()).delete(any());
+        assertThat(retryErrors()).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("没有到期消息时不查询也不发送")
+    void publishBatch_NothingDue() {
+        when(outboxMapper.update(isNull(), any())).thenReturn(0);
+
+        assertThat(publisher.publishBatch()).isZero();
+
+        verify(outboxMapper, never()).selectList(any());
+        verifyNoMoreInteractions(connectionFactory);
+    }
+
+    private void givenClaimed(MqOutboxMessage... rows) {
+        when(outboxMapper.update(isNull(), any())).thenReturn(rows.length);
+        when(outboxMapper.selectList(any())).thenReturn(List.of(rows));
+    }
+
+    /**
+     * 第一次update为领取,其余为失败重试,返回各次重试写入的失败原因
+     */
+    private List<Object> retryErrors() {
+        ArgumentCaptor<Wrapper<MqOutboxMessage>> updates = wrapperCaptor();
+        verify(outboxMapper, atLeastOnce()).update(isNull(), updates.capture());
+        return updates.getAllValues().stream().skip(1)
+                .map(wrapper -> ((LambdaUpdateWrapper<MqOutboxMessage>) wrapper).getParamNameValuePairs().values()
+                        .stream()
+                        // 参数中的字符串为失败原因和领取批次UUID
+                        .filter(value -> value instanceof String s && !s.matches("[0-9a-f-]{36}"))
+                        .findFirst().orElse(null))
+                .toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Wrapper<MqOutboxMessage>> wrapperCaptor() {
+        return ArgumentCaptor.forClass(Wrapper.class);
+    }
+
+    private static MqOutboxMessage row(Long id) {
+        MqOutboxMessage row = new MqOutboxMessage();
+        row.setId(id);
+        row.setJobId(100L);
+        row.setExchangeName(MQConstant.EXCHANGE_BUSINESS);
+        row.setRoutingKey(MQConstant.ROUTING_KEY_TEXT_PARSING);
+        row.setContentType(MQMessageCodec.CONTENT_TYPE_CBOR);
+        row.setMessageType("text-parsing");
+        row.setSchemaVersion(1);
+        row.setPayload(new byte[]{(byte) 0xA0});
+        row.setAttempts(1);
+        row.setNextAttemptAt(LocalDateTime.now());
+        return row;
+    }
+}
+// {{END_MODIFICATIONS}}
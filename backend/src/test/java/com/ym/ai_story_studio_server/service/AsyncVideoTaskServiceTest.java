@@ -0,0 +1,208 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#VIDEO-POLL-LEASE-002]
+//   Timestamp: [2026-10-19 10:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证视频轮询写回:进度和终态只在本节点持有租约时按列更新,不覆盖租约列;接管任务沿用最初的超时截止时间"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import com.ym.ai_story_studio_server.client.VectorEngineClient;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * AsyncVideoTaskService 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("AsyncVideoTaskService 单元测试")
+class AsyncVideoTaskServiceTest {
+
+    @Mock
+    private VectorEngineClient vectorEngineClient;
+
+    @Mock
+    private ChargingService chargingService;
+
+    @Mock
+    private StorageService storageService;
+
+    @Mock
+    private HttpTransport httpTransport;
+
+    @Mock
+    private JobMapper jobMapper;
+
+    @Mock
+    private VideoTaskPoller videoTaskPoller;
+
+    @Mock
+    private JobEventHub jobEventHub;
+
+    private AiProperties aiProperties;
+
+    private VideoPollLeaseService leaseService;
+
+    private AsyncVideoTaskService service;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的字段缓存，脱离Spring容器时手动初始化
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Job.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AiProperties();
+        leaseService = new VideoPollLeaseService(jobMapper, aiProperties);
+        service = new AsyncVideoTaskService(vectorEngineClient, chargingService, storageService, httpTransport,
+                jobMapper, aiProperties, new ObjectMapper(), videoTaskPoller, leaseService, jobEventHub);
+        when(jobMapper.update(isNull(), any())).thenReturn(1);
+    }
+
+    @Test
+    @DisplayName("进度更新只写状态和进度,并以本节点持有租约为条件")
+    void check_ProgressUpdateGuardedByOwner() {
+        when(jobMapper.selectById(1L)).thenReturn(ownedJob("{}"));
+        when(vectorEngineClient.queryTaskStatus("task-1"))
+                .thenReturn(new VectorEngineClient.TaskStatusApiResponse("task-1", "processing", null, null, null));
+
+        service.pollVideoGenerationTask(1L, "task-1", "sora-2", "16:9", 5, 7L);
+        runScheduledCheck();
+
+        LambdaUpdateWrapper<Job> progress = (LambdaUpdateWrapper<Job>) updates().get(1);
+        assertThat(progress.getSqlSet()).contains("status", "progress").doesNotContain("poll_owner", "lease_until");
+        assertThat(progress.getSqlSegment()).contains("poll_owner");
+        assertThat(progress.getParamNameValuePairs()).containsValue(leaseService.getNodeId());
+        verify(jobMapper, never()).updateById(any(Job.class));
+    }
+
+    @Test
+    @DisplayName("丢失租约的节点不转存视频也不扣费")
+    void success_LostLease_SkipsTransferAndCharge() throws Exception {
+        // 登记时抢到租约,之后租约被其他节点接管
+        when(jobMapper.update(isNull(), any())).thenReturn(1, 0);
+        when(jobMapper.selectById(1L)).thenReturn(ownedJob("{}"));
+        when(vectorEngineClient.queryTaskStatus("task-1")).thenReturn(
+                new VectorEngineClient.TaskStatusApiResponse("task-1", "completed", "https://cdn/v.mp4", null, null));
+        when(videoTaskPoller.submitTransfer(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+
+        service.pollVideoGenerationTask(1L, "task-1", "sora-2", "16:9", 5, 7L);
+        runScheduledCheck();
+
+        verify(videoTaskPoller).submitTransfer(any());
+        verify(httpTransport, never()).open(anyString(), any());
+        verify(vectorEngineClient, never()).streamVideoContent(anyString(), any());
+        verifyNoInteractions(storageService, chargingService);
+    }
+
+    @Test
+    @DisplayName("接管的任务按最初提交时间判定超时")
+    void recover_KeepsOriginalDeadline() {
+        long submittedAt = System.currentTimeMillis()
+                - aiProperties.getVideo().getPollInterval() * aiProperties.getVideo().getMaxPollCount() - 1000L;
+        Job orphan = ownedJob("{\"apiTaskId\":\"task-1\",\"submittedAt\":\"" + submittedAt + "\"}");
+        orphan.setPollOwner("dead-node");
+        when(jobMapper.selectList(any())).thenReturn(List.of(orphan));
+        when(jobMapper.selectById(1L)).thenReturn(ownedJob(orphan.getMetaJson()));
+        when(vectorEngineClient.queryTaskStatus("task-1"))
+                .thenReturn(new VectorEngineClient.TaskStatusApiResponse("task-1", "processing", null, null, null));
+
+        service.recoverPendingVideoTasks();
+        runScheduledCheck();
+
+        LambdaUpdateWrapper<Job> failed = (LambdaUpdateWrapper<Job>) updates().get(updates().size() - 2);
+        assertThat(failed.getSqlSet()).contains("error_message");
+        assertThat(failed.getParamNameValuePairs()).containsValue("FAILED");
+    }
+
+    @Test
+    @DisplayName("一页以上未提交的任务不会挡住后面真正的孤儿任务")
+    @SuppressWarnings("unchecked")
+    void recover_PagesPastUnsubmittedJobs() {
+        List<Job> unsubmitted = new ArrayList<>();
+        for (long id = 1; id <= 100; id++) {
+            Job job = ownedJob("{}");
+            job.setId(id);
+            job.setPollOwner(null);
+            unsubmitted.add(job);
+        }
+        Job orphan = ownedJob("{\"apiTaskId\":\"task-500\"}");
+        orphan.setId(500L);
+        orphan.setPollOwner("dead-node");
+        when(jobMapper.selectList(any())).thenReturn(unsubmitted, List.of(orphan));
+
+        service.recoverPendingVideoTasks();
+
+        ArgumentCaptor<Wrapper<Job>> query = ArgumentCaptor.forClass(Wrapper.class);
+        verify(jobMapper, times(2)).selectList(query.capture());
+        assertThat(query.getAllValues().get(0).getSqlSegment()).contains("JSON_EXTRACT(meta_json, '$.apiTaskId')");
+        LambdaQueryWrapper<Job> secondPage = (LambdaQueryWrapper<Job>) query.getAllValues().get(1);
+        assertThat(secondPage.getSqlSegment()).contains("id >");
+        assertThat(secondPage.getParamNameValuePairs()).containsValue(100L);
+        verify(videoTaskPoller, times(1)).schedule(anyLong(), any());
+    }
+
+    private Job ownedJob(String metaJson) {
+        Job job = new Job();
+        job.setId(1L);
+        job.setUserId(7L);
+        job.setJobType("SINGLE_SHOT_VIDEO");
+        job.setStatus("PENDING");
+        job.setMetaJson(metaJson);
+        job.setPollOwner(leaseService.getNodeId());
+        job.setCreatedAt(LocalDateTime.now());
+        return job;
+    }
+
+    private void runScheduledCheck() {
+        ArgumentCaptor<Runnable> check = ArgumentCaptor.forClass(Runnable.class);
+        verify(videoTaskPoller).schedule(anyLong(), check.capture());
+        check.getValue().run();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Wrapper<Job>> updates() {
+        ArgumentCaptor<Wrapper<Job>> update = ArgumentCaptor.forClass(Wrapper.class);
+        verify(jobMapper, atLeastOnce()).update(isNull(), update.capture());
+        return update.getAllValues();
+    }
+}
+// {{END_MODIFICATIONS}}
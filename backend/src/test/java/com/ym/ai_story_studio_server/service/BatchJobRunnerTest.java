@@ -0,0 +1,330 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#BATCH-001]
+//   Timestamp: [2026-10-17 10:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证批量任务执行引擎的并发上限、子项结果记录和失败隔离"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.entity.JobItem;
+import com.ym.ai_story_studio_server.mapper.JobItemMapper;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * BatchJobRunner 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("BatchJobRunner 单元测试")
+class BatchJobRunnerTest {
+
+    @Mock
+    private JobMapper jobMapper;
+
+    @Mock
+    private JobItemMapper jobItemMapper;
+
+    @Mock
+    private JobEventHub jobEventHub;
+
+    @Mock
+    private JobProgressTracker jobProgressTracker;
+
+    private AiProperties aiProperties;
+
+    private ExecutorService executor;
+
+    private BatchJobRunner runner;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaUpdateWrapper.set需要实体的字段缓存，脱离Spring容器时手动初始化
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, Job.class);
+        TableInfoHelper.initTableInfo(assistant, JobItem.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        aiProperties = new AiProperties();
+        aiProperties.getBatch().setDefaultConcurrency(2);
+        executor = Executors.newFixedThreadPool(8);
+        runner = new BatchJobRunner(jobMapper, jobItemMapper, aiProperties, new ObjectMapper(), executor, jobEventHub,
+                jobProgressTracker);
+
+        AtomicLong ids = new AtomicLong(1);
+        when(jobItemMapper.selectList(any())).thenReturn(new ArrayList<>());
+        doAnswer(invocation -> {
+            JobItem item = invocation.getArgument(0);
+            item.setId(ids.getAndIncrement());
+            return 1;
+        }).when(jobItemMapper).insert(any(JobItem.class));
+        when(jobItemMapper.update(isNull(), any())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("同一模型的在途子项数不超过配置的并发上限")
+    void run_RespectsModelConcurrency() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+
+        BatchJobRunner.BatchResult result = runner.run(1L, 10L, "SHOT", List.of(1L, 2L, 3L, 4L, 5L, 6L),
+                "jimeng-4.5", (targetId, index) -> {
+                    int current = inFlight.incrementAndGet();
+                    maxInFlight.accumulateAndGet(current, Math::max);
+                    Thread.sleep(50);
+                    inFlight.decrementAndGet();
+                    return BatchJobRunner.ItemOutcome.of(List.of("url-" + targetId));
+                });
+
+        assertThat(result.successCount()).isEqualTo(6);
+        assertThat(result.failCount()).isZero();
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        // 图片URL按子项顺序汇总
+        assertThat(result.imageUrls()).containsExactly("url-1", "url-2", "url-3", "url-4", "url-5", "url-6");
+        // 进度只记录到写回缓冲,执行期间不写jobs表
+        verify(jobProgressTracker, times(6)).itemDone(1L, 10L);
+        verify(jobMapper, never()).update(isNull(), any());
+    }
+
+    @Test
+    @DisplayName("单个子项失败不影响其他子项")
+    @SuppressWarnings("unchecked")
+    void run_IsolatesItemFailure() {
+        BatchJobRunner.BatchResult result = runner.run(1L, 10L, "PCHAR", List.of(1L, 2L, 3L),
+                "gpt-4o-image-vip", (targetId, index) -> {
+                    if (targetId == 2L) {
+                        throw new IllegalStateException("boom");
+                    }
+                    return BatchJobRunner.ItemOutcome.empty();
+                });
+
+        assertThat(result.successCount()).isEqualTo(2);
+        assertThat(result.failCount()).isEqualTo(1);
+
+        // 三个子项各认领一次、完成一次状态迁移，进度累加三次
+        ArgumentCaptor<Wrapper<JobItem>> captor = wrapperCaptor();
+        verify(jobItemMapper, times(6)).update(isNull(), captor.capture());
+        assertThat(captor.getAllValues())
+                .filteredOn(wrapper -> ((LambdaUpdateWrapper<JobItem>) wrapper).getSqlSet().contains("started_at"))
+                .hasSize(3);
+        verify(jobItemMapper, never()).updateById(any(JobItem.class));
+        verify(jobProgressTracker, times(3)).itemDone(1L, 10L);
+    }
+
+    @Test
+    @DisplayName("子项正在其他消费者上执行时,重复投递的消息不会再次执行")
+    void runItem_SkipsItemRunningElsewhere() {
+        JobItem running = new JobItem();
+        running.setId(7L);
+        running.setJobId(1L);
+        running.setStatus("RUNNING");
+        when(jobItemMapper.selectById(7L)).thenReturn(running);
+        // 认领条件(PENDING或RUNNING已超时)不成立
+        when(jobItemMapper.update(isNull(), any())).thenReturn(0);
+
+        AtomicInteger calls = new AtomicInteger();
+        runner.runItem(1L, 10L, 7L, 0, "jimeng-4.5", (targetId, index) -> {
+            calls.incrementAndGet();
+            return BatchJobRunner.ItemOutcome.empty();
+        });
+
+        assertThat(calls.get()).isZero();
+        ArgumentCaptor<Wrapper<JobItem>> captor = wrapperCaptor();
+        verify(jobItemMapper, times(1)).update(isNull(), captor.capture());
+        assertThat(captor.getValue().getSqlSegment()).contains("status", "started_at");
+        verify(jobProgressTracker, never()).itemDone(any(), any());
+    }
+
+    @Test
+    @DisplayName("重复投递的子项消息不会再次执行")
+    void runItem_SkipsFinishedItem() {
+        JobItem done = new JobItem();
+        done.setId(7L);
+        done.setJobId(1L);
+        done.setStatus("FAILED");
+        when(jobItemMapper.selectById(7L)).thenReturn(done);
+
+        AtomicInteger calls = new AtomicInteger();
+        runner.runItem(1L, 10L, 7L, 0, "jimeng-4.5", (targetId, index) -> {
+            calls.incrementAndGet();
+            return BatchJobRunner.ItemOutcome.empty();
+        });
+
+        assertThat(calls.get()).isZero();
+        verify(jobProgressTracker, never()).itemDone(any(), any());
+    }
+
+    @Test
+    @DisplayName("最后一个子项结束后汇总结果并完成任务")
+    void completeIfFinished_AggregatesItems() {
+        Job job = new Job();
+        job.setId(1L);
+        job.setUserId(10L);
+        job.setStatus("RUNNING");
+        job.setTotalItems(2);
+        job.setDoneItems(2);
+        when(jobMapper.selectById(1L)).thenReturn(job);
+        when(jobMapper.update(isNull(), any())).thenReturn(1);
+
+        JobItem first = new JobItem();
+        first.setStatus("SUCCEEDED");
+        first.setOutputJson("{\"imageUrls\":[\"a\",\"b\"]}");
+        JobItem second = new JobItem();
+        second.setStatus("FAILED");
+        when(jobItemMapper.selectList(any())).thenReturn(new ArrayList<>(List.of(first, second)));
+        when(jobItemMapper.selectCount(any())).thenReturn(2L);
+
+        assertThat(runner.completeIfFinished(1L, true)).isTrue();
+        verify(jobProgressTracker).discard(1L);
+
+        ArgumentCaptor<Job> event = ArgumentCaptor.forClass(Job.class);
+        verify(jobEventHub).publish(eq(10L), event.capture());
+        assertThat(event.getValue().getStatus()).isEqualTo("SUCCEEDED");
+        assertThat(event.getValue().getResultUrl()).isEqualTo("a");
+    }
+
+    @Test
+    @DisplayName("仍有子项未完成时不汇总")
+    void completeIfFinished_WaitsForRemainingItems() {
+        Job job = new Job();
+        job.setId(1L);
+        job.setStatus("RUNNING");
+        job.setTotalItems(3);
+        job.setDoneItems(0);
+        when(jobMapper.selectById(1L)).thenReturn(job);
+        // jobs.done_items尚未写回,按已结束的子项计数
+        when(jobItemMapper.selectCount(any())).thenReturn(2L);
+
+        assertThat(runner.completeIfFinished(1L, false)).isFalse();
+        verify(jobMapper, never()).update(isNull(), any());
+    }
+
+    @Test
+    @DisplayName("子项消息处理失败时只将该子项置为FAILED")
+    void failItem_MarksOnlyTheItem() {
+        runner.failItem(1L, 10L, 7L, "boom");
+
+        verify(jobItemMapper).update(isNull(), any());
+        verify(jobProgressTracker).itemDone(1L, 10L);
+        verify(jobMapper, never()).update(isNull(), any());
+        verify(jobMapper, never()).updateById(any(Job.class));
+    }
+
+    @Test
+    @DisplayName("已结束的子项再次失败时不重复累加进度")
+    void failItem_SkipsFinishedItem() {
+        when(jobItemMapper.update(isNull(), any())).thenReturn(0);
+
+        runner.failItem(1L, 10L, 7L, "boom");
+
+        verify(jobProgressTracker, never()).itemDone(any(), any());
+    }
+
+    @Test
+    @DisplayName("任务已取消时不再执行剩余子项")
+    void runItem_SkipsItemOfCanceledJob() {
+        JobItem pending = new JobItem();
+        pending.setId(7L);
+        pending.setJobId(1L);
+        pending.setStatus("PENDING");
+        when(jobItemMapper.selectById(7L)).thenReturn(pending);
+        Job canceled = new Job();
+        canceled.setId(1L);
+        canceled.setStatus("CANCELED");
+        when(jobMapper.selectOne(any())).thenReturn(canceled);
+
+        AtomicInteger calls = new AtomicInteger();
+        runner.runItem(1L, 10L, 7L, 0, "jimeng-4.5", (targetId, index) -> {
+            calls.incrementAndGet();
+            return BatchJobRunner.ItemOutcome.empty();
+        });
+
+        assertThat(calls.get()).isZero();
+        verify(jobItemMapper).update(isNull(), any());
+        verify(jobProgressTracker, never()).itemDone(any(), any());
+    }
+
+    @Test
+    @DisplayName("同一任务的多条子项消息只写一次RUNNING")
+    void markJobRunning_WritesOncePerJob() {
+        when(jobMapper.update(isNull(), any())).thenReturn(1);
+
+        runner.markJobRunning(1L, 10L);
+        runner.markJobRunning(1L, 10L);
+        runner.markJobRunning(1L, 10L);
+
+        verify(jobMapper, times(1)).update(isNull(), any());
+        verify(jobEventHub, times(1)).publish(eq(10L), any(Job.class));
+    }
+
+    @Test
+    @DisplayName("已成功的子项在重放时跳过并复用输出结果")
+    void run_SkipsSucceededItems() {
+        JobItem done = new JobItem();
+        done.setId(100L);
+        done.setJobId(1L);
+        done.setTargetType("SHOT");
+        done.setTargetId(1L);
+        done.setStatus("SUCCEEDED");
+        done.setOutputJson("{\"imageUrls\":[\"old-url\"]}");
+        when(jobItemMapper.selectList(any())).thenReturn(new ArrayList<>(List.of(done)));
+
+        AtomicInteger calls = new AtomicInteger();
+        BatchJobRunner.BatchResult result = runner.run(1L, 10L, "SHOT", List.of(1L, 2L),
+                "jimeng-4.5", (targetId, index) -> {
+                    calls.incrementAndGet();
+                    return BatchJobRunner.ItemOutcome.of(List.of("new-url"));
+                });
+
+        assertThat(calls.get()).isEqualTo(1);
+        assertThat(result.successCount()).isEqualTo(2);
+        assertThat(result.imageUrls()).containsExactly("old-url", "new-url");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Wrapper<JobItem>> wrapperCaptor() {
+        return ArgumentCaptor.forClass(Wrapper.class);
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,190 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#EXPORT-ZIP-001]
+//   Timestamp: [2026-10-17 16:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证导出ZIP并行预取后仍按条目顺序写入,已压缩格式以STORED写入,去重时相同内容只写一次,下载失败时整体失败"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.sun.net.httpserver.HttpServer;
+import com.ym.ai_story_studio_server.client.HttpTransport;
+import com.ym.ai_story_studio_server.config.HttpClientProperties;
+import com.ym.ai_story_studio_server.service.ExportZipWriter.ExportEntry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ExportZipWriter 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("ExportZipWriter 单元测试")
+class ExportZipWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private ExecutorService downloadExecutor;
+
+    private HttpServer server;
+
+    private final Map<String, byte[]> sources = new ConcurrentHashMap<>();
+
+    private final AtomicInteger sourceSeq = new AtomicInteger();
+
+    private ExportZipWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = sources.get(exchange.getRequestURI().getPath());
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+            } else {
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+            exchange.close();
+        });
+        server.start();
+
+        downloadExecutor = Executors.newFixedThreadPool(4);
+        HttpTransport httpTransport = new HttpTransport(new HttpClientProperties(), new SimpleMeterRegistry());
+        writer = new ExportZipWriter(downloadExecutor, httpTransport);
+    }
+
+    @AfterEach
+    void tearDown() {
+        downloadExecutor.shutdownNow();
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("条目数超过预取窗口时仍按顺序写入")
+    void write_KeepsEntryOrder() throws Exception {
+        List<ExportEntry> entries = new ArrayList<>();
+        for (int i = 0; i < ExportZipWriter.PREFETCH_WINDOW * 2 + 3; i++) {
+            entries.add(new ExportEntry(String.format("03-分镜/%03d/当前版本.png", i), source("img-" + i), (long) i));
+        }
+
+        byte[] zip = write(entries, false);
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            int i = 0;
+            while ((entry = zis.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertThat(new String(zis.readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("img-" + i++);
+            }
+        }
+        assertThat(names).containsExactlyElementsOf(entries.stream().map(ExportEntry::entryName).toList());
+    }
+
+    @Test
+    @DisplayName("已压缩格式使用STORED,其他格式使用DEFLATED")
+    void write_StoresCompressedFormats() throws Exception {
+        List<ExportEntry> entries = List.of(
+                new ExportEntry("04-视频/001/当前版本.MP4", source("video"), 1L),
+                new ExportEntry("notes.txt", source("text"), 2L));
+
+        byte[] zip = write(entries, false);
+
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            assertThat(zis.getNextEntry().getMethod()).isEqualTo(ZipEntry.STORED);
+            assertThat(zis.getNextEntry().getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        }
+    }
+
+    @Test
+    @DisplayName("去重时相同URL和相同内容只写入一次")
+    void write_Dedup_StoresIdenticalContentOnce() throws Exception {
+        String thumb = source("thumb");
+        List<ExportEntry> entries = List.of(
+                new ExportEntry("03-分镜/001/当前版本.png", thumb, 1L),
+                new ExportEntry("03-分镜/002/当前版本.png", thumb, 1L),
+                new ExportEntry("03-分镜/003/当前版本.png", source("thumb"), 2L),
+                new ExportEntry("03-分镜/004/当前版本.png", source("other"), 3L));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        List<ExportZipWriter.WrittenEntry> results;
+        try (ZipOutputStream zos = new ZipOutputStream(out)) {
+            results = writer.write(entries, tempDir, zos, true);
+        }
+
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                names.add(entry.getName());
+            }
+        }
+        assertThat(names).containsExactly("03-分镜/001/当前版本.png", "03-分镜/004/当前版本.png");
+        assertThat(results).extracting(ExportZipWriter.WrittenEntry::sameAs)
+                .containsExactly(null, "03-分镜/001/当前版本.png", "03-分镜/001/当前版本.png", null);
+        assertThat(results.get(2).sha256()).isEqualTo(results.get(0).sha256());
+    }
+
+    @Test
+    @DisplayName("任一条目下载失败时抛出IOException")
+    void write_DownloadFails_Throws() throws Exception {
+        List<ExportEntry> entries = List.of(
+                new ExportEntry("a.png", source("a"), 1L),
+                new ExportEntry("b.png", baseUrl() + "/missing.png", 2L));
+
+        assertThatThrownBy(() -> write(entries, false))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("missing.png");
+    }
+
+    private byte[] write(List<ExportEntry> entries, boolean dedup) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(out)) {
+            writer.write(entries, tempDir, zos, dedup);
+        }
+        return out.toByteArray();
+    }
+
+    private String source(String content) {
+        String path = "/src-" + sourceSeq.incrementAndGet() + ".bin";
+        sources.put(path, content.getBytes(StandardCharsets.UTF_8));
+        return baseUrl() + path;
+    }
+
+    private String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+}
+// {{END_MODIFICATIONS}}
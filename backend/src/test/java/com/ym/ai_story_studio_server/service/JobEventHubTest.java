@@ -0,0 +1,169 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#JOB-EVENT-001]
+//   Timestamp: [2026-10-18 10:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证任务事件中心:事务提交后才发布到Redis频道,按用户和任务路由,任务级订阅在终态后关闭,积压时按任务合并且不丢终态,单用户连接数有上限"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.dto.job.JobEvent;
+import com.ym.ai_story_studio_server.entity.Job;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * JobEventHub 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("JobEventHub 单元测试")
+class JobEventHubTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private TaskScheduler maintenanceScheduler;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Runnable> eventTasks = new ArrayList<>();
+
+    private JobEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new JobEventHub(stringRedisTemplate, listenerContainer, maintenanceScheduler, objectMapper, eventTasks::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("无事务时立即发布到Redis频道")
+    void publish_SendsToChannel() throws Exception {
+        hub.publish(7L, runningJob(1L));
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(stringRedisTemplate).convertAndSend(eq(JobEventHub.CHANNEL), payload.capture());
+        JobEvent event = objectMapper.readValue(payload.getValue(), JobEvent.class);
+        assertThat(event.jobId()).isEqualTo(1L);
+        assertThat(event.userId()).isEqualTo(7L);
+        assertThat(event.status()).isEqualTo("RUNNING");
+        assertThat(event.progress()).isEqualTo(40);
+    }
+
+    @Test
+    @DisplayName("事务内发布推迟到提交后")
+    void publish_DeferredUntilCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        hub.publish(7L, runningJob(1L));
+        verify(stringRedisTemplate, never()).convertAndSend(anyString(), anyString());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(stringRedisTemplate).convertAndSend(eq(JobEventHub.CHANNEL), anyString());
+    }
+
+    @Test
+    @DisplayName("任务级订阅收到终态事件后关闭,用户级订阅保留")
+    void dispatch_ClosesJobSubscriptionOnTerminal() {
+        hub.subscribeUser(7L);
+        hub.subscribeJob(7L, runningJob(1L));
+        hub.subscribeJob(7L, runningJob(2L));
+        assertThat(hub.subscriptionCount()).isEqualTo(3);
+
+        hub.dispatch(new JobEvent(1L, 7L, "SUCCEEDED", 100, null, null, null, null, 0L));
+
+        assertThat(hub.subscriptionCount()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("其他用户的事件不影响本用户的订阅")
+    void dispatch_RoutesByUser() {
+        hub.subscribeJob(7L, runningJob(1L));
+
+        hub.dispatch(new JobEvent(1L, 8L, "FAILED", 100, null, null, null, "boom", 0L));
+
+        assertThat(hub.subscriptionCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("积压时同一任务的事件合并,终态不被晚到的进度覆盖")
+    void enqueue_CoalescesWithoutLosingTerminal() {
+        hub.subscribeJob(7L, runningJob(1L));
+
+        hub.enqueue(new JobEvent(1L, 7L, "RUNNING", 50, null, null, null, null, 1L));
+        hub.enqueue(new JobEvent(1L, 7L, "SUCCEEDED", 100, null, null, "https://oss/1.mp4", null, 2L));
+        hub.enqueue(new JobEvent(1L, 7L, "RUNNING", 90, null, null, null, null, 3L));
+        assertThat(eventTasks).hasSize(1);
+
+        eventTasks.get(0).run();
+
+        assertThat(hub.subscriptionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("已结束的任务推送快照后立即关闭")
+    void subscribeJob_TerminalJobClosesImmediately() {
+        Job job = runningJob(1L);
+        job.setStatus("SUCCEEDED");
+
+        hub.subscribeJob(7L, job);
+
+        assertThat(hub.subscriptionCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("单用户连接数超出上限时关闭最早的连接")
+    void subscribe_EvictsOldestOverCap() {
+        for (int i = 0; i < 10; i++) {
+            hub.subscribeUser(7L);
+        }
+
+        assertThat(hub.subscriptionCount()).isEqualTo(8);
+    }
+
+    private static Job runningJob(Long id) {
+        Job job = new Job();
+        job.setId(id);
+        job.setUserId(7L);
+        job.setStatus("RUNNING");
+        job.setProgress(40);
+        return job;
+    }
+}
+// {{END_MODIFICATIONS}}
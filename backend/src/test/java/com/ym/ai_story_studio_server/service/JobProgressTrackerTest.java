@@ -0,0 +1,157 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#JOB-PROGRESS-001]
+//   Timestamp: [2026-10-18 14:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证任务进度写回缓冲:同一周期内的进度合并为一次UPDATE,写回失败时保留增量,已结束的任务不写回也不发布事件"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.conditions.Wrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.entity.Job;
+import com.ym.ai_story_studio_server.mapper.JobMapper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.scheduling.TaskScheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * JobProgressTracker 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("JobProgressTracker 单元测试")
+class JobProgressTrackerTest {
+
+    @Mock
+    private JobMapper jobMapper;
+
+    @Mock
+    private TaskScheduler maintenanceScheduler;
+
+    @Mock
+    private JobEventHub jobEventHub;
+
+    private JobProgressTracker tracker;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // Lambda条件构造需要实体的字段缓存，脱离Spring容器时手动初始化
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), Job.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        tracker = new JobProgressTracker(jobMapper, new AiProperties(), maintenanceScheduler, jobEventHub);
+    }
+
+    @Test
+    @DisplayName("同一周期内完成的子项合并为一次累加")
+    void flush_CoalescesItemDone() {
+        when(jobMapper.update(isNull(), any())).thenReturn(1);
+        Job current = new Job();
+        current.setId(1L);
+        current.setDoneItems(3);
+        when(jobMapper.selectOne(any())).thenReturn(current);
+
+        tracker.itemDone(1L, 10L);
+        tracker.itemDone(1L, 10L);
+        tracker.itemDone(1L, 10L);
+        tracker.flush();
+
+        ArgumentCaptor<Wrapper<Job>> update = wrapperCaptor();
+        verify(jobMapper, times(1)).update(isNull(), update.capture());
+        LambdaUpdateWrapper<Job> wrapper = (LambdaUpdateWrapper<Job>) update.getValue();
+        assertThat(wrapper.getSqlSet()).contains("done_items = done_items +");
+        assertThat(wrapper.getParamNameValuePairs()).containsValue(3);
+        verify(jobEventHub).publish(10L, current);
+        assertThat(tracker.pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("顺序执行的任务只写回最新进度")
+    void flush_WritesLatestRecord() {
+        when(jobMapper.update(isNull(), any())).thenReturn(1);
+
+        tracker.record(1L, 10L, 2, 10);
+        tracker.record(1L, 10L, 5, 10);
+        tracker.flush();
+
+        verify(jobMapper, times(1)).update(isNull(), any());
+        verify(jobMapper, never()).selectOne(any());
+        ArgumentCaptor<Job> event = ArgumentCaptor.forClass(Job.class);
+        verify(jobEventHub).publish(eq(10L), event.capture());
+        assertThat(event.getValue().getDoneItems()).isEqualTo(5);
+        assertThat(event.getValue().getProgress()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("写回失败时保留增量,与新增进度合并后重试")
+    void flush_RequeuesOnFailure() {
+        when(jobMapper.update(isNull(), any()))
+                .thenThrow(new IllegalStateException("deadlock"))
+                .thenReturn(1);
+
+        tracker.itemDone(1L, 10L);
+        tracker.itemDone(1L, 10L);
+        tracker.flush();
+        assertThat(tracker.pendingCount()).isEqualTo(1);
+
+        tracker.itemDone(1L, 10L);
+        tracker.flush();
+
+        ArgumentCaptor<Wrapper<Job>> update = wrapperCaptor();
+        verify(jobMapper, times(2)).update(isNull(), update.capture());
+        LambdaUpdateWrapper<Job> retried = (LambdaUpdateWrapper<Job>) update.getAllValues().get(1);
+        assertThat(retried.getParamNameValuePairs()).containsValue(3);
+        assertThat(tracker.pendingCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("已结束的任务不写回也不发布事件")
+    void flush_SkipsFinishedJob() {
+        when(jobMapper.update(isNull(), any())).thenReturn(0);
+
+        tracker.itemDone(1L, 10L);
+        tracker.flush();
+
+        verify(jobMapper, never()).selectOne(any());
+        verifyNoInteractions(jobEventHub);
+    }
+
+    @Test
+    @DisplayName("任务写入终态前丢弃未写回的进度")
+    void discard_DropsPending() {
+        tracker.itemDone(1L, 10L);
+        tracker.discard(1L);
+        tracker.flush();
+
+        verify(jobMapper, never()).update(any(), any());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArgumentCaptor<Wrapper<Job>> wrapperCaptor() {
+        return ArgumentCaptor.forClass(Wrapper.class);
+    }
+}
+// {{END_MODIFICATIONS}}
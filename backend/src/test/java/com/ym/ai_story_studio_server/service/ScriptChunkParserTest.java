@@ -0,0 +1,122 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#SCRIPT-CHUNK-001]
+//   Timestamp: [2026-10-17 23:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证长剧本分块:按场景边界切分且不超过字数上限,并行解析后分镜保持顺序并重新编号,角色场景去重,流式输出按分块顺序转发"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.ym.ai_story_studio_server.config.AiProperties;
+import com.ym.ai_story_studio_server.dto.ai.AiParseScriptResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ScriptChunkParser 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@DisplayName("ScriptChunkParser 单元测试")
+class ScriptChunkParserTest {
+
+    private ExecutorService executor;
+
+    private ScriptChunkParser parser;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+        AiProperties aiProperties = new AiProperties();
+        aiProperties.getText().setParseChunkChars(60);
+        parser = new ScriptChunkParser(aiProperties, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("在场景标题处切分且每个分块不超过字数上限")
+    void split_OnSceneBoundariesWithinBudget() {
+        String script = "第1集 咖啡厅\n" + "林辰坐在窗边。".repeat(5) + "\n"
+                + "第2集 别墅\n" + "林清雪推门而入。".repeat(4) + "\n"
+                + "第3集 广场\n" + "人群聚集。".repeat(30);
+
+        List<String> chunks = ScriptChunkParser.split(script, 60);
+
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.length()).isLessThanOrEqualTo(60));
+        assertThat(chunks.get(0)).startsWith("第1集").doesNotContain("第2集");
+        assertThat(chunks.get(1)).startsWith("第2集");
+        assertThat(String.join("", chunks).replace("\n", "")).isEqualTo(script.replace("\n", ""));
+    }
+
+    @Test
+    @DisplayName("并行解析后分镜按原顺序重新编号,角色和场景去重")
+    void parse_MergesInOrder() throws Exception {
+        String script = "第1集\n" + "甲".repeat(50) + "\n第2集\n" + "乙".repeat(50) + "\n第3集\n" + "丙".repeat(50);
+        // 让第一个分块最后完成,验证合并顺序和流式转发顺序与完成顺序无关
+        CountDownLatch othersDone = new CountDownLatch(2);
+        List<String> deltas = Collections.synchronizedList(new ArrayList<>());
+
+        AiParseScriptResult result = parser.parse(script, (chunk, onDelta) -> {
+            String name = chunk.substring(chunk.indexOf('\n') + 1, chunk.indexOf('\n') + 2);
+            if ("甲".equals(name)) {
+                await(othersDone);
+            }
+            onDelta.accept(name);
+            if (!"甲".equals(name)) {
+                othersDone.countDown();
+            }
+            return new AiParseScriptResult(
+                    List.of("场1-1 " + name, "场1-2 " + name),
+                    List.of("林辰", name),
+                    List.of("咖啡厅 日 内"));
+        }, deltas::add);
+
+        assertThat(result.getScriptSegments())
+                .containsExactly("场1-1 甲", "场1-2 甲", "场1-3 乙", "场1-4 乙", "场1-5 丙", "场1-6 丙");
+        assertThat(result.getCharacters()).containsExactly("林辰", "甲", "乙", "丙");
+        assertThat(result.getScenes()).containsExactly("咖啡厅 日 内");
+        assertThat(String.join("", deltas)).isEqualTo("甲\n乙\n丙");
+    }
+
+    @Test
+    @DisplayName("短剧本不分块,直接在调用线程解析")
+    void parse_ShortScript_SingleCall() {
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+
+        parser.parse("场1-1 日 内 咖啡厅", (chunk, onDelta) -> {
+            threads.add(Thread.currentThread());
+            return new AiParseScriptResult(List.of(chunk), List.of(), List.of());
+        }, null);
+
+        assertThat(threads).containsExactly(caller);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,205 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#SHOT-LIST-001]
+//   Timestamp: [2026-10-17 14:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证分镜列表批量组装的查询次数与分镜数量无关，且缩略图/资产状态取值规则与逐条查询时一致"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.ym.ai_story_studio_server.dto.shot.ShotVO;
+import com.ym.ai_story_studio_server.entity.*;
+import com.ym.ai_story_studio_server.mapper.*;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+/**
+ * ShotVOAssembler 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ShotVOAssembler 单元测试")
+class ShotVOAssemblerTest {
+
+    @Mock
+    private ProjectCharacterMapper projectCharacterMapper;
+
+    @Mock
+    private ProjectSceneMapper projectSceneMapper;
+
+    @Mock
+    private ProjectPropMapper projectPropMapper;
+
+    @Mock
+    private CharacterLibraryMapper characterLibraryMapper;
+
+    @Mock
+    private SceneLibraryMapper sceneLibraryMapper;
+
+    @Mock
+    private PropLibraryMapper propLibraryMapper;
+
+    @Mock
+    private AssetMapper assetMapper;
+
+    @Mock
+    private AssetVersionMapper assetVersionMapper;
+
+    @InjectMocks
+    private ShotVOAssembler assembler;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper需要实体的字段缓存，脱离Spring容器时手动初始化
+        MapperBuilderAssistant assistant = new MapperBuilderAssistant(new MybatisConfiguration(), "");
+        TableInfoHelper.initTableInfo(assistant, Asset.class);
+        TableInfoHelper.initTableInfo(assistant, AssetVersion.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        ProjectCharacter custom = new ProjectCharacter();
+        custom.setId(10L);
+        custom.setDisplayName("自定义角色");
+        ProjectCharacter linked = new ProjectCharacter();
+        linked.setId(11L);
+        linked.setLibraryCharacterId(100L);
+        linked.setDisplayName("库角色");
+        when(projectCharacterMapper.selectBatchIds(anyCollection())).thenReturn(List.of(custom, linked));
+
+        CharacterLibrary library = new CharacterLibrary();
+        library.setId(100L);
+        library.setThumbnailUrl("lib-char-thumb");
+        when(characterLibraryMapper.selectBatchIds(anyCollection())).thenReturn(List.of(library));
+
+        ProjectScene scene = new ProjectScene();
+        scene.setId(20L);
+        scene.setThumbnailUrl("scene-thumb");
+        scene.setDisplayName("场景");
+        when(projectSceneMapper.selectBatchIds(anyCollection())).thenReturn(List.of(scene));
+
+        ProjectProp prop = new ProjectProp();
+        prop.setId(30L);
+        prop.setDisplayName("道具");
+        when(projectPropMapper.selectBatchIds(anyCollection())).thenReturn(List.of(prop));
+
+        LocalDateTime now = LocalDateTime.now();
+        when(assetMapper.selectList(any())).thenReturn(List.of(
+                asset(1L, "SHOT", 1L, "SHOT_IMG", now.minusMinutes(5)),
+                asset(2L, "SHOT", 1L, "SHOT_IMG", now),
+                asset(3L, "PCHAR", 10L, "IMAGE", now),
+                asset(4L, "PPROP", 30L, "IMAGE", now)
+        ));
+        when(assetVersionMapper.selectList(any())).thenReturn(List.of(
+                version(1L, 1L, 1, "old-shot"),
+                version(2L, 2L, 1, "shot-v1"),
+                version(3L, 2L, 2, "shot-v2"),
+                version(4L, 3L, 1, "char-asset"),
+                version(5L, 4L, 1, "prop-asset")
+        ));
+    }
+
+    @Test
+    @DisplayName("按类型各查询一次并在内存中组装")
+    void assemble_LoadsEachTypeOnce() {
+        List<StoryboardShot> shots = List.of(shot(1L, 1), shot(2L, 2), shot(3L, 3));
+        List<ShotBinding> bindings = List.of(
+                binding(1L, 1L, "PCHAR", 10L),
+                binding(2L, 1L, "PSCENE", 20L),
+                binding(3L, 2L, "PCHAR", 11L),
+                binding(4L, 2L, "PPROP", 30L),
+                binding(5L, 3L, "PCHAR", 10L)
+        );
+
+        List<ShotVO> result = assembler.assemble(shots, bindings);
+
+        assertThat(result).extracting(ShotVO::id).containsExactly(1L, 2L, 3L);
+
+        ShotVO first = result.get(0);
+        // 自定义角色没有缩略图时回退到角色图片资产
+        assertThat(first.characters()).singleElement()
+                .satisfies(c -> assertThat(c.thumbnailUrl()).isEqualTo("char-asset"));
+        assertThat(first.scene().thumbnailUrl()).isEqualTo("scene-thumb");
+        // 取最新资产的最大版本，版本数按该资产统计
+        assertThat(first.shotImage().assetId()).isEqualTo(2L);
+        assertThat(first.shotImage().currentUrl()).isEqualTo("shot-v2");
+        assertThat(first.shotImage().totalVersions()).isEqualTo(2);
+        assertThat(first.video().status()).isEqualTo("NONE");
+
+        ShotVO second = result.get(1);
+        assertThat(second.characters()).singleElement()
+                .satisfies(c -> assertThat(c.thumbnailUrl()).isEqualTo("lib-char-thumb"));
+        assertThat(second.props()).singleElement()
+                .satisfies(p -> assertThat(p.thumbnailUrl()).isEqualTo("prop-asset"));
+
+        verify(projectCharacterMapper, times(1)).selectBatchIds(anyCollection());
+        verify(projectSceneMapper, times(1)).selectBatchIds(anyCollection());
+        verify(projectPropMapper, times(1)).selectBatchIds(anyCollection());
+        verify(characterLibraryMapper, times(1)).selectBatchIds(anyCollection());
+        verify(assetMapper, times(1)).selectList(any());
+        verify(assetVersionMapper, times(1)).selectList(any());
+        // 没有关联库的场景/道具不查询库表
+        verify(sceneLibraryMapper, never()).selectBatchIds(anyCollection());
+        verify(propLibraryMapper, never()).selectBatchIds(anyCollection());
+    }
+
+    private static StoryboardShot shot(Long id, int shotNo) {
+        StoryboardShot shot = new StoryboardShot();
+        shot.setId(id);
+        shot.setShotNo(shotNo);
+        return shot;
+    }
+
+    private static ShotBinding binding(Long id, Long shotId, String bindType, Long bindId) {
+        ShotBinding binding = new ShotBinding();
+        binding.setId(id);
+        binding.setShotId(shotId);
+        binding.setBindType(bindType);
+        binding.setBindId(bindId);
+        return binding;
+    }
+
+    private static Asset asset(Long id, String ownerType, Long ownerId, String assetType, LocalDateTime createdAt) {
+        Asset asset = new Asset();
+        asset.setId(id);
+        asset.setOwnerType(ownerType);
+        asset.setOwnerId(ownerId);
+        asset.setAssetType(assetType);
+        asset.setCreatedAt(createdAt);
+        return asset;
+    }
+
+    private static AssetVersion version(Long id, Long assetId, int versionNo, String url) {
+        AssetVersion version = new AssetVersion();
+        version.setId(id);
+        version.setAssetId(assetId);
+        version.setVersionNo(versionNo);
+        version.setUrl(url);
+        version.setStatus("READY");
+        return version;
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -0,0 +1,143 @@
+// {{CODE-Cycle-Integration:
+//   Task_ID: [#SHOT-CACHE-001]
+//   Timestamp: [2026-10-17 15:00:00]
+//   Phase: [D-Develop]
+//   Context-Analysis: "验证分镜列表两级缓存的读穿透、版本号失效以及Redis不可用时的降级"
+//   Principle_Applied: "Verification-Mindset-Loop, 测试最佳实践"
+// }}
+// {{START_MODIFICATIONS}}
+package com.ym.ai_story_studio_server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ym.ai_story_studio_server.dto.shot.ShotVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * ShotViewCache 单元测试
+ *
+ * @author AI Story Studio
+ * @since 1.0.0
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("ShotViewCache 单元测试")
+class ShotViewCacheTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ShotViewCache cache;
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ShotViewCache(redisTemplate, objectMapper, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("本地缓存命中时不再加载")
+    void get_LocalHit_SkipsLoader() {
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, () -> load(loads));
+        List<ShotVO> second = cache.get(1L, () -> load(loads));
+
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(second).extracting(ShotVO::id).containsExactly(100L);
+        verify(valueOperations).set(eq("SHOT:VIEW:DATA:1:0"), anyString(), any(Duration.class));
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "shot_view").tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("本地缓存返回不可修改的列表")
+    void get_ReturnsImmutableView() {
+        List<ShotVO> result = cache.get(1L, () -> List.of(shot(100L)));
+
+        assertThatThrownBy(() -> result.add(shot(101L))).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> result.get(0).characters().add(null))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("Redis命中时反序列化返回")
+    void get_RedisHit_Deserializes() throws Exception {
+        String json = objectMapper.writeValueAsString(List.of(shot(200L)));
+        when(valueOperations.get("SHOT:VIEW:DATA:1:0")).thenReturn(json);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<ShotVO> result = cache.get(1L, () -> load(loads));
+
+        assertThat(loads.get()).isZero();
+        assertThat(result).extracting(ShotVO::id).containsExactly(200L);
+    }
+
+    @Test
+    @DisplayName("失效后读取新版本的键")
+    void evict_BumpsVersion() {
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, () -> load(loads));
+
+        cache.evict(1L);
+        when(valueOperations.get("SHOT:VIEW:VER:1")).thenReturn("1");
+        cache.get(1L, () -> load(loads));
+
+        assertThat(loads.get()).isEqualTo(2);
+        verify(valueOperations).increment("SHOT:VIEW:VER:1");
+        verify(valueOperations).set(eq("SHOT:VIEW:DATA:1:1"), anyString(), any(Duration.class));
+    }
+
+    @Test
+    @DisplayName("Redis不可用时直接加载")
+    void get_RedisDown_FallsBackToLoader() {
+        when(valueOperations.get(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, () -> load(loads));
+        cache.get(1L, () -> load(loads));
+
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private static List<ShotVO> load(AtomicInteger loads) {
+        loads.incrementAndGet();
+        return List.of(shot(100L));
+    }
+
+    private static ShotVO shot(Long id) {
+        return new ShotVO(id, 1, "脚本", new ArrayList<>(), null, new ArrayList<>(),
+                ShotVOAssembler.emptyAssetStatus(), ShotVOAssembler.emptyAssetStatus(), null, null);
+    }
+}
+// {{END_MODIFICATIONS}}
@@ -9,9 +9,15 @@
 package com.ym.ai_story_studio_server.service.impl;
 
 import com.aliyun.oss.OSS;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadResult;
 import com.aliyun.oss.model.OSSObject;
 import com.aliyun.oss.model.ObjectMetadata;
 import com.aliyun.oss.model.PutObjectResult;
+import com.aliyun.oss.model.UploadPartRequest;
+import com.aliyun.oss.model.UploadPartResult;
 import com.ym.ai_story_studio_server.config.StorageProperties;
 import com.ym.ai_story_studio_server.exception.StorageException;
 import org.assertj.core.data.Percentage;
@@ -268,6 +274,101 @@ class OssStorageServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("uploadStream() 方法测试")
+    class UploadStreamTests {
+
+        private static final int PART_SIZE = 2 * 1024 * 1024;
+
+        @Test
+        @DisplayName("小文件直接PutObject，不走分片上传")
+        void uploadStream_SmallFile_UsesPutObject() {
+            // Arrange
+            InputStream inputStream = new ByteArrayInputStream(new byte[1024]);
+            when(ossClient.putObject(anyString(), anyString(), any(InputStream.class), any(ObjectMetadata.class)))
+                    .thenReturn(mock(PutObjectResult.class));
+
+            // Act
+            String resultUrl = storageService.uploadStream(inputStream, "video.mp4", "video/mp4");
+
+            // Assert
+            assertThat(resultUrl).startsWith(URL_PREFIX).endsWith("_video.mp4");
+            ArgumentCaptor<ObjectMetadata> metadataCaptor = ArgumentCaptor.forClass(ObjectMetadata.class);
+            verify(ossClient).putObject(eq(BUCKET_NAME), anyString(), any(InputStream.class), metadataCaptor.capture());
+            assertThat(metadataCaptor.getValue().getContentLength()).isEqualTo(1024);
+            verify(ossClient, never()).initiateMultipartUpload(any(InitiateMultipartUploadRequest.class));
+        }
+
+        @Test
+        @DisplayName("大文件按固定分片大小逐片上传")
+        void uploadStream_LargeFile_UploadsParts() {
+            // Arrange
+            InputStream inputStream = new ByteArrayInputStream(new byte[PART_SIZE * 2 + 10]);
+            InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+            initResult.setUploadId("upload-1");
+            when(ossClient.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initResult);
+            when(ossClient.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+                UploadPartRequest request = invocation.getArgument(0);
+                UploadPartResult result = new UploadPartResult();
+                result.setPartNumber(request.getPartNumber());
+                result.setETag("etag-" + request.getPartNumber());
+                return result;
+            });
+
+            // Act
+            String resultUrl = storageService.uploadStream(inputStream, "video.mp4", "video/mp4");
+
+            // Assert
+            assertThat(resultUrl).startsWith(URL_PREFIX);
+            ArgumentCaptor<UploadPartRequest> partCaptor = ArgumentCaptor.forClass(UploadPartRequest.class);
+            verify(ossClient, times(3)).uploadPart(partCaptor.capture());
+            assertThat(partCaptor.getAllValues())
+                    .extracting(UploadPartRequest::getPartSize)
+                    .containsExactly((long) PART_SIZE, (long) PART_SIZE, 10L);
+
+            ArgumentCaptor<CompleteMultipartUploadRequest> completeCaptor =
+                    ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+            verify(ossClient).completeMultipartUpload(completeCaptor.capture());
+            assertThat(completeCaptor.getValue().getPartETags()).hasSize(3);
+        }
+
+        @Test
+        @DisplayName("分片上传失败时取消上传")
+        void uploadStream_PartFails_AbortsUpload() {
+            // Arrange
+            InputStream inputStream = new ByteArrayInputStream(new byte[PART_SIZE + 1]);
+            InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+            initResult.setUploadId("upload-1");
+            when(ossClient.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initResult);
+            when(ossClient.uploadPart(any(UploadPartRequest.class))).thenThrow(new RuntimeException("network"));
+
+            // Act & Assert
+            assertThatThrownBy(() -> storageService.uploadStream(inputStream, "video.mp4", "video/mp4"))
+                    .isInstanceOf(StorageException.class)
+                    .hasMessageContaining("文件上传失败");
+            verify(ossClient).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        }
+
+        @Test
+        @DisplayName("超过大小上限时在上传该分片前中止")
+        void uploadStream_ExceedsLimit_Aborts() {
+            // Arrange
+            InputStream inputStream = new ByteArrayInputStream(new byte[PART_SIZE * 2 + 10]);
+            InitiateMultipartUploadResult initResult = new InitiateMultipartUploadResult();
+            initResult.setUploadId("upload-1");
+            when(ossClient.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initResult);
+            when(ossClient.uploadPart(any(UploadPartRequest.class))).thenReturn(new UploadPartResult());
+
+            // Act & Assert
+            assertThatThrownBy(() -> storageService.uploadStream(inputStream, "video.mp4", "video/mp4", PART_SIZE + 1L))
+                    .isInstanceOf(StorageException.class)
+                    .hasMessageContaining("文件大小超过上限");
+            verify(ossClient, times(1)).uploadPart(any(UploadPartRequest.class));
+            verify(ossClient).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+            verify(ossClient, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        }
+    }
+
     @Nested
     @DisplayName("download() 方法测试")
     class DownloadTests {
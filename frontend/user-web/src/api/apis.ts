@@ -12,7 +12,7 @@ export { sceneApi } from './scene'
 export { propApi } from './prop'
 export { assetApi } from './asset'
 export { generationApi } from './generation'
-export { jobApi, pollJobStatus } from './job'
+export { jobApi, pollJobStatus, watchJobStatus, streamJobEvents } from './job'
 export { toolboxApi } from './toolbox'
 export { inviteApi } from './invite'
 export { walletApi } from './wallet'
@@ -18,35 +18,25 @@ export const exportApi = {
     return `${baseURL}/exports/${jobId}/download?token=${token}`
   },
 
+  /**
+   * 获取导出文件的临时下载链接(对象存储预签名URL)
+   */
+  async getSignedDownloadUrl(jobId: number): Promise<string> {
+    return api.get(`/exports/${jobId}/download-url`)
+  },
+
   /**
    * 触发文件下载
    */
   async downloadExportFile(jobId: number): Promise<void> {
-    const baseURL = api.defaults.baseURL || '/api'
-    const token = localStorage.getItem('token')
-    const url = `${baseURL}/exports/${jobId}/download`
-
     try {
-      const response = await fetch(url, {
-        method: 'GET',
-        headers: {
-          'Authorization': `Bearer ${token}`,
-        },
-      })
-
-      if (!response.ok) {
-        throw new Error(`下载失败: ${response.status} ${response.statusText}`)
-      }
-
-      const blob = await response.blob()
-      const downloadUrl = window.URL.createObjectURL(blob)
+      const downloadUrl = await exportApi.getSignedDownloadUrl(jobId)
       const link = document.createElement('a')
       link.href = downloadUrl
       link.download = `project_export_${jobId}.zip`
       document.body.appendChild(link)
       link.click()
       document.body.removeChild(link)
-      window.URL.revokeObjectURL(downloadUrl)
     } catch (error) {
       console.error('[Export] Download failed:', error)
       throw error
@@ -1,5 +1,6 @@
 import api from './index'
-import type { JobVO, PageResult } from '@/types/api'
+import { API_CONFIG } from '@/constants/config'
+import type { JobEvent, JobVO, PageResult } from '@/types/api'
 
 export const jobApi = {
   /**
@@ -68,3 +69,116 @@ export async function pollJobStatus(
     poll()
   })
 }
+
+const isSucceeded = (status: string | null) => status === 'SUCCEEDED' || status === 'COMPLETED'
+const isFinished = (status: string | null) =>
+  isSucceeded(status) || status === 'FAILED' || status === 'CANCELED'
+
+/**
+ * Read a job event stream until the server closes it.
+ *
+ * Uses fetch instead of EventSource so the JWT goes in the Authorization header
+ * like every other API call (EventSource cannot set request headers).
+ * @param path - `/jobs/events` (all of the user's jobs) or `/jobs/{id}/events` (one job, closed when it finishes)
+ * @param onEvent - Called for every `job` event
+ * @param signal - Aborts the stream
+ */
+export async function streamJobEvents(
+  path: string,
+  onEvent: (event: JobEvent) => void,
+  signal?: AbortSignal
+): Promise<void> {
+  const token = localStorage.getItem('token')
+  const response = await fetch(`${API_CONFIG.baseURL}${path}`, {
+    headers: {
+      Accept: 'text/event-stream',
+      ...(token ? { Authorization: `Bearer ${token}` } : {}),
+    },
+    signal,
+  })
+  if (!response.ok || !response.body) {
+    throw new Error(`Job event stream failed: HTTP ${response.status}`)
+  }
+
+  const reader = response.body.pipeThrough(new TextDecoderStream()).getReader()
+  let buffer = ''
+  for (;;) {
+    const { value, done } = await reader.read()
+    if (done) return
+    buffer += value.replace(/\r\n/g, '\n')
+
+    // Events are separated by a blank line; comment lines (heartbeats) carry no data
+    let boundary = buffer.indexOf('\n\n')
+    while (boundary >= 0) {
+      const data = buffer
+        .slice(0, boundary)
+        .split('\n')
+        .filter((line) => line.startsWith('data:'))
+        .map((line) => line.slice(5).replace(/^ /, ''))
+        .join('\n')
+      buffer = buffer.slice(boundary + 2)
+      if (data) {
+        onEvent(JSON.parse(data) as JobEvent)
+      }
+      boundary = buffer.indexOf('\n\n')
+    }
+  }
+}
+
+/**
+ * Apply a job event to the last known job state (null fields did not change)
+ */
+function applyJobEvent(job: JobVO | null, event: JobEvent): JobVO {
+  const base = job ?? ({ id: event.jobId, progress: 0, totalItems: 0, doneItems: 0 } as JobVO)
+  return {
+    ...base,
+    status: event.status ?? base.status,
+    progress: event.progress ?? base.progress,
+    totalItems: event.totalItems ?? base.totalItems,
+    doneItems: event.doneItems ?? base.doneItems,
+    resultUrl: event.resultUrl ?? base.resultUrl,
+    errorMessage: event.errorMessage ?? base.errorMessage,
+  }
+}
+
+/**
+ * Watch a job until completion or failure using server-pushed events.
+ *
+ * Falls back to {@link pollJobStatus} if the event stream cannot be opened.
+ * The final job is re-read from `/jobs/{id}` so callers get the full result (e.g. allImageUrls).
+ * @param jobId - Job ID to watch
+ * @param onProgress - Callback for progress updates
+ * @param signal - Stops watching (the promise rejects with an AbortError)
+ * @returns Final job result
+ */
+export async function watchJobStatus(
+  jobId: number,
+  onProgress?: (job: JobVO) => void,
+  signal?: AbortSignal
+): Promise<JobVO> {
+  let current: JobVO | null = null
+  try {
+    await streamJobEvents(
+      `/jobs/${jobId}/events`,
+      (event) => {
+        current = applyJobEvent(current, event)
+        onProgress?.(current)
+      },
+      signal
+    )
+  } catch (error) {
+    if (signal?.aborted) throw error
+    console.warn('[Job] Event stream unavailable, falling back to polling:', error)
+    return pollJobStatus(jobId, onProgress)
+  }
+
+  // The stream closes after the final event, or when the connection times out while the job is still running
+  const job = await jobApi.getJobStatus(jobId)
+  if (isSucceeded(job.status)) {
+    return job
+  }
+  if (isFinished(job.status)) {
+    throw new Error(job.errorMessage || 'Job failed')
+  }
+  return watchJobStatus(jobId, onProgress, signal)
+}
@@ -416,6 +416,22 @@ export interface JobVO {
   createdAt: string
 }
 
+/**
+ * Job status/progress change pushed over SSE (GET /jobs/events, GET /jobs/{id}/events).
+ * Null fields did not change in this event.
+ */
+export interface JobEvent {
+  jobId: number
+  userId: number
+  status: JobVO['status'] | null
+  progress: number | null
+  totalItems: number | null
+  doneItems: number | null
+  resultUrl: string | null
+  errorMessage: string | null
+  timestamp: number
+}
+
 // ============== Generation ==============
 
 export interface BatchGenerateRequest {
@@ -583,6 +599,8 @@ export interface ExportRequest {
   exportShotImages: boolean
   exportVideos: boolean
   mode: 'CURRENT' | 'ALL'
+  /** 增量导出:只打包相对上次成功导出变化的资产,附带manifest.json */
+  incremental?: boolean
 }
 
 export interface ExportResponse {